@@ -0,0 +1,17 @@
+package com.irrigation.apigateway.affinity;
+
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Pump affinity for energy-service, under both service ids it is reached by:
+ * the configured route (lb://ENERGY-SERVICE) and the discovery locator (lower case).
+ */
+@Configuration
+@LoadBalancerClients({
+        @LoadBalancerClient(name = "ENERGY-SERVICE", configuration = PompeAffinityLoadBalancerConfiguration.class),
+        @LoadBalancerClient(name = "energy-service", configuration = PompeAffinityLoadBalancerConfiguration.class)
+})
+public class EnergyLoadBalancerConfig {
+}
@@ -0,0 +1,123 @@
+package com.irrigation.apigateway.affinity;
+
+import com.irrigation.events.ring.PompeRing;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load balancer for energy-service: a request about one pump goes to the instance
+ * owning that pump (see PompeRing), other requests are spread round robin.
+ *
+ * The pump is read from the {@code X-Pompe-Id} header (set from JSON bodies by the
+ * PompeAffinity filter), the {@code pompeId} query parameter or the path
+ * ({@code /pompes/{id}}, {@code /consommations/.../pompe/{id}}). As long as no instance
+ * advertises the ring ({@code pompe-ring-vnodes} metadata), everything is round robin.
+ */
+public class PompeAffinityLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    public static final String POMPE_HEADER = "X-Pompe-Id";
+
+    private static final Pattern POMPE_PATH = Pattern.compile("/pompes?/(\\d+)(?:/|$)");
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final AtomicInteger position = new AtomicInteger(ThreadLocalRandom.current().nextInt(1000));
+
+    // Ring built for the last instance list returned by the (caching) supplier
+    private volatile Snapshot snapshot;
+
+    public PompeAffinityLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider) {
+        this.supplierProvider = supplierProvider;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> {
+            Response<ServiceInstance> response = select(instances, pompeId(request));
+            if (supplier instanceof SelectedInstanceCallback callback && response.hasServer()) {
+                callback.selectedServiceInstance(response.getServer());
+            }
+            return response;
+        });
+    }
+
+    private Response<ServiceInstance> select(List<ServiceInstance> instances, Long pompeId) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        if (pompeId != null) {
+            Snapshot current = snapshot(instances);
+            if (!current.ring.isEmpty()) {
+                ServiceInstance owner = current.byNode.get(current.ring.ownerOf(pompeId));
+                if (owner != null) {
+                    return new DefaultResponse(owner);
+                }
+            }
+        }
+        int pos = position.incrementAndGet() & Integer.MAX_VALUE;
+        return new DefaultResponse(instances.get(pos % instances.size()));
+    }
+
+    private Snapshot snapshot(List<ServiceInstance> instances) {
+        Snapshot current = snapshot;
+        if (current == null || current.instances != instances) {
+            Map<String, ServiceInstance> byNode = new HashMap<>();
+            instances.forEach(instance -> byNode.put(PompeRing.nodeId(instance), instance));
+            current = new Snapshot(instances, byNode, PompeRing.of(PompeRing.members(instances)));
+            snapshot = current;
+        }
+        return current;
+    }
+
+    private static Long pompeId(Request<?> request) {
+        if (!(request.getContext() instanceof RequestDataContext context) || context.getClientRequest() == null) {
+            return null;
+        }
+        RequestData data = context.getClientRequest();
+        if (data.getHeaders() != null && data.getHeaders().getFirst(POMPE_HEADER) != null) {
+            return parse(data.getHeaders().getFirst(POMPE_HEADER));
+        }
+        URI url = data.getUrl();
+        if (url == null) {
+            return null;
+        }
+        String param = UriComponentsBuilder.fromUri(url).build().getQueryParams().getFirst("pompeId");
+        if (param != null) {
+            return parse(param);
+        }
+        Matcher matcher = POMPE_PATH.matcher(url.getRawPath() != null ? url.getRawPath() : "");
+        return matcher.find() ? parse(matcher.group(1)) : null;
+    }
+
+    private static Long parse(String value) {
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private record Snapshot(List<ServiceInstance> instances, Map<String, ServiceInstance> byNode, PompeRing ring) {
+    }
+}
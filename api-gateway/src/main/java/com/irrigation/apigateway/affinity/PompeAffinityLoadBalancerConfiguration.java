@@ -0,0 +1,23 @@
+package com.irrigation.apigateway.affinity;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Load balancer context of energy-service (see EnergyLoadBalancerConfig).
+ * Deliberately not a @Configuration: component scanning must not pick it up,
+ * or it would apply to every routed service.
+ */
+public class PompeAffinityLoadBalancerConfiguration {
+
+    @Bean
+    ReactorLoadBalancer<ServiceInstance> pompeAffinityLoadBalancer(Environment environment,
+                                                                   LoadBalancerClientFactory factory) {
+        String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new PompeAffinityLoadBalancer(factory.getLazyProvider(name, ServiceInstanceListSupplier.class));
+    }
+}
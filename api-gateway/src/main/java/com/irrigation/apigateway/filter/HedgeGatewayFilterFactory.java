@@ -0,0 +1,443 @@
+package com.irrigation.apigateway.filter;
+
+import com.irrigation.apigateway.hedging.LatencyWindow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.RouteMetadataUtils;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.gateway.support.TimeoutException;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hedged requests for idempotent GET routes.
+ *
+ * The request is sent to one backend instance; if no answer arrived after a
+ * delay derived from the route's recent latency percentile, a second copy is
+ * sent to another instance and whichever answers first is returned. The
+ * loser is cancelled. Non-GET requests go through the normal filter chain.
+ * The primary is chosen from the request (pump affinity on energy-service),
+ * the hedge without it, so that it can land on a different instance.
+ *
+ * The race is decided on the response headers: the winner's body is streamed
+ * to the client as it arrives, never buffered. Streaming endpoints (exports)
+ * are excluded by path, since a hedge would duplicate a long-running query.
+ * Only the winners' time to headers feeds the latency window; cancelled
+ * losers and timeouts would skew the delay.
+ *
+ * Usage in config-repo (route filter list):
+ *   - name: Hedge
+ *     args:
+ *       percentile: 95
+ *       min-delay: 20ms
+ *       max-delay: 500ms
+ *       excluded-paths: /consommations/export, /debits/export
+ *
+ * Each attempt honours the route's {@code connect-timeout} and
+ * {@code response-timeout} metadata (milliseconds); when every attempt timed
+ * out the client gets a 504, as from NettyRoutingFilter. Request and response
+ * headers go through the gateway's {@link HttpHeadersFilter}s (forwarded
+ * headers, hop-by-hop removal) the same way.
+ *
+ * Metrics (tag {@code route}):
+ *   gateway.hedge.requests, gateway.hedge.sent, gateway.hedge.wins,
+ *   gateway.hedge.delay, gateway.hedge.latency (tag {@code hedged}, p50/p95/p99)
+ */
+@Component
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+
+    private static final Logger log = LoggerFactory.getLogger(HedgeGatewayFilterFactory.class);
+
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+
+    private final LoadBalancerClientFactory loadBalancerClientFactory;
+    private final WebClient.Builder webClientBuilder;
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider;
+
+    private final Map<String, RouteHedger> hedgers = new ConcurrentHashMap<>();
+
+    // Resolved on first use: some header filters depend on the gateway's own beans
+    private volatile List<HttpHeadersFilter> headersFilters;
+
+    public HedgeGatewayFilterFactory(LoadBalancerClientFactory loadBalancerClientFactory,
+                                     WebClient.Builder webClientBuilder,
+                                     MeterRegistry meterRegistry,
+                                     ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider) {
+        super(Config.class);
+        this.loadBalancerClientFactory = loadBalancerClientFactory;
+        this.webClientBuilder = webClientBuilder;
+        this.meterRegistry = meterRegistry;
+        this.headersFiltersProvider = headersFiltersProvider;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            if (!config.isEnabled() || route == null
+                    || !HttpMethod.GET.equals(exchange.getRequest().getMethod())
+                    || !"lb".equals(route.getUri().getScheme())
+                    || isExcluded(config, exchange.getRequest().getPath().value())) {
+                return chain.filter(exchange);
+            }
+            RouteHedger hedger = hedgers.get(route.getId());
+            if (hedger == null || hedger.config != config) {
+                // First request, or the route was rebuilt with a new config (route refresh)
+                hedger = hedgers.compute(route.getId(), (id, existing) -> {
+                    if (existing != null && existing.config == config) {
+                        return existing;
+                    }
+                    if (existing != null) {
+                        existing.close();
+                    }
+                    return new RouteHedger(route, config);
+                });
+            }
+            return hedger.handle(exchange);
+        };
+    }
+
+    /**
+     * Drops hedgers of routes that disappeared; changed routes are rebuilt on their next request.
+     */
+    @EventListener(RefreshRoutesEvent.class)
+    void onRefreshRoutes() {
+        hedgers.values().forEach(RouteHedger::close);
+        hedgers.clear();
+    }
+
+    private List<HttpHeadersFilter> getHeadersFilters() {
+        if (headersFilters == null) {
+            headersFilters = headersFiltersProvider.getIfAvailable();
+        }
+        return headersFilters;
+    }
+
+    private static boolean isExcluded(Config config, String path) {
+        for (String pattern : config.getExcludedPaths()) {
+            if (MATCHER.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * State and meters of the hedging filter for a single route.
+     */
+    private class RouteHedger {
+
+        private final String routeId;
+        private final String serviceId;
+        private final Config config;
+        private final LatencyWindow window;
+        private final WebClient webClient;
+        private final Duration responseTimeout;
+
+        private final Counter requests;
+        private final Counter hedgesSent;
+        private final Counter hedgeWins;
+        private final Timer plainLatency;
+        private final Timer hedgedLatency;
+        private final Gauge delayGauge;
+
+        RouteHedger(Route route, Config config) {
+            this.routeId = route.getId();
+            this.serviceId = route.getUri().getHost();
+            this.config = config;
+            this.window = new LatencyWindow(config.getWindowSize(), config.getPercentile());
+
+            Object connectTimeout = route.getMetadata().get(RouteMetadataUtils.CONNECT_TIMEOUT_ATTR);
+            Object responseTimeoutMillis = route.getMetadata().get(RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR);
+            this.responseTimeout = responseTimeoutMillis != null
+                    ? Duration.ofMillis(Long.parseLong(responseTimeoutMillis.toString())) : null;
+
+            HttpClient httpClient = HttpClient.create();
+            if (responseTimeout != null) {
+                httpClient = httpClient.responseTimeout(responseTimeout);
+            }
+            if (connectTimeout != null) {
+                httpClient = httpClient.option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
+                        Integer.parseInt(connectTimeout.toString()));
+            }
+            this.webClient = webClientBuilder.clone()
+                    .clientConnector(new ReactorClientHttpConnector(httpClient))
+                    .build();
+
+            this.requests = Counter.builder("gateway.hedge.requests")
+                    .description("GET requests handled by the hedging filter")
+                    .tag("route", routeId).register(meterRegistry);
+            this.hedgesSent = Counter.builder("gateway.hedge.sent")
+                    .description("Second requests sent after the hedge delay")
+                    .tag("route", routeId).register(meterRegistry);
+            this.hedgeWins = Counter.builder("gateway.hedge.wins")
+                    .description("Requests answered by the hedge rather than the primary")
+                    .tag("route", routeId).register(meterRegistry);
+            this.plainLatency = latencyTimer("false");
+            this.hedgedLatency = latencyTimer("true");
+            this.delayGauge = Gauge.builder("gateway.hedge.delay", this, h -> h.currentDelay().toMillis())
+                    .description("Current hedge delay in milliseconds")
+                    .tag("route", routeId).register(meterRegistry);
+        }
+
+        /**
+         * Unregisters the delay gauge, which would otherwise keep reading this hedger.
+         */
+        void close() {
+            meterRegistry.remove(delayGauge);
+        }
+
+        private Timer latencyTimer(String hedged) {
+            return Timer.builder("gateway.hedge.latency")
+                    .description("End-to-end latency of hedged routes")
+                    .tags("route", routeId, "hedged", hedged)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+        }
+
+        Duration currentDelay() {
+            long percentile = window.percentileNanos();
+            if (percentile < 0) {
+                return config.getMaxDelay();
+            }
+            long clamped = Math.min(Math.max(percentile, config.getMinDelay().toNanos()),
+                    config.getMaxDelay().toNanos());
+            return Duration.ofNanos(clamped);
+        }
+
+        Mono<Void> handle(ServerWebExchange exchange) {
+            requests.increment();
+            long start = System.nanoTime();
+            AtomicReference<ServiceInstance> primaryInstance = new AtomicReference<>();
+            // Copied: without filters, filterRequest returns the read-only request headers
+            HttpHeaders headers = new HttpHeaders();
+            headers.addAll(HttpHeadersFilter.filterRequest(getHeadersFilters(), exchange));
+            if (!Boolean.TRUE.equals(exchange.getAttribute(ServerWebExchangeUtils.PRESERVE_HOST_HEADER_ATTRIBUTE))) {
+                headers.remove(HttpHeaders.HOST);
+            }
+
+            Mono<Attempt> primary = attempt(exchange.getRequest(), headers, null, primaryInstance, false);
+            Mono<Attempt> hedge = Mono.delay(currentDelay())
+                    .then(Mono.defer(() -> {
+                        hedgesSent.increment();
+                        log.debug("Hedging GET {} on route {}", exchange.getRequest().getPath(), routeId);
+                        return attempt(exchange.getRequest(), headers, primaryInstance.get(), null, true);
+                    }));
+
+            return Mono.firstWithValue(primary, hedge)
+                    .flatMap(result -> {
+                        long elapsed = System.nanoTime() - start;
+                        window.record(result.nanos());
+                        if (result.hedge()) {
+                            hedgeWins.increment();
+                            hedgedLatency.record(Duration.ofNanos(elapsed));
+                        } else {
+                            plainLatency.record(Duration.ofNanos(elapsed));
+                        }
+                        return write(exchange, result);
+                    })
+                    .onErrorMap(HedgeGatewayFilterFactory::timedOut,
+                            e -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+                                    "Response took longer than timeout: " + responseTimeout, e));
+        }
+
+        private Mono<Attempt> attempt(ServerHttpRequest request, HttpHeaders headers, ServiceInstance exclude,
+                                      AtomicReference<ServiceInstance> chosen, boolean hedge) {
+            Request<?> lbRequest = hedge
+                    ? new DefaultRequest<>()
+                    : new DefaultRequest<>(new RequestDataContext(new RequestData(request)));
+            return choose(lbRequest, exclude).flatMap(instance -> {
+                if (chosen != null) {
+                    chosen.set(instance);
+                }
+                URI uri = UriComponentsBuilder.fromUri(instance.getUri())
+                        .path(request.getURI().getRawPath())
+                        .query(request.getURI().getRawQuery())
+                        .build(true)
+                        .toUri();
+                long start = System.nanoTime();
+                // Completes on the response headers; the body is streamed by write()
+                return webClient.get()
+                        .uri(uri)
+                        .headers(outbound -> outbound.addAll(headers))
+                        .retrieve()
+                        .onStatus(status -> true, response -> Mono.empty())
+                        .toEntityFlux(DataBuffer.class)
+                        .map(entity -> new Attempt(entity.getStatusCode(), entity.getHeaders(),
+                                entity.getBody() != null ? entity.getBody() : Flux.empty(),
+                                hedge, System.nanoTime() - start))
+                        .onErrorMap(e -> e.getCause() instanceof ReadTimeoutException,
+                                e -> new TimeoutException(e.getMessage()));
+            });
+        }
+
+        /**
+         * Picks an instance through the route's load balancer, trying once more when the
+         * first pick is the instance to avoid (the primary, for a hedge).
+         */
+        private Mono<ServiceInstance> choose(Request<?> lbRequest, ServiceInstance exclude) {
+            ReactorServiceInstanceLoadBalancer loadBalancer = loadBalancerClientFactory
+                    .getInstance(serviceId, ReactorServiceInstanceLoadBalancer.class);
+            if (loadBalancer == null) {
+                return Mono.error(new IllegalStateException("No load balancer for service " + serviceId));
+            }
+            Mono<ServiceInstance> pick = Mono.from(loadBalancer.choose(lbRequest))
+                    .filter(Response::hasServer)
+                    .map(Response::getServer)
+                    .switchIfEmpty(Mono.error(new IllegalStateException(
+                            "No instance available for service " + serviceId)));
+            if (exclude == null) {
+                return pick;
+            }
+            return pick.flatMap(instance -> sameInstance(instance, exclude) ? pick : Mono.just(instance));
+        }
+    }
+
+    private static boolean sameInstance(ServiceInstance a, ServiceInstance b) {
+        return Objects.equals(a.getHost(), b.getHost()) && a.getPort() == b.getPort();
+    }
+
+    /**
+     * True when an attempt failed on its response timeout; when both attempts failed,
+     * firstWithValue reports their errors as the composite cause of its own.
+     */
+    private static boolean timedOut(Throwable error) {
+        if (error instanceof TimeoutException) {
+            return true;
+        }
+        return error.getCause() != null && Exceptions.unwrapMultiple(error.getCause()).stream()
+                .anyMatch(TimeoutException.class::isInstance);
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, Attempt result) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(result.status());
+        HttpHeaders headers = HttpHeadersFilter.filter(getHeadersFilters(), result.headers(), exchange,
+                HttpHeadersFilter.Type.RESPONSE);
+        if (!headers.containsKey(HttpHeaders.TRANSFER_ENCODING) && headers.containsKey(HttpHeaders.CONTENT_LENGTH)) {
+            response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+        }
+        exchange.getAttributes().put(ServerWebExchangeUtils.CLIENT_RESPONSE_HEADER_NAMES, headers.keySet());
+        response.getHeaders().addAll(headers);
+        return response.writeWith(result.body());
+    }
+
+    /**
+     * @param nanos Time from the attempt's start to its response headers
+     */
+    private record Attempt(HttpStatusCode status, HttpHeaders headers, Flux<DataBuffer> body,
+                           boolean hedge, long nanos) {
+    }
+
+    public static class Config {
+
+        private boolean enabled = true;
+
+        // Percentile of recent latencies used as hedge delay (0-100)
+        private double percentile = 95.0;
+
+        private Duration minDelay = Duration.ofMillis(10);
+
+        private Duration maxDelay = Duration.ofMillis(500);
+
+        // Number of recent latencies kept per route
+        private int windowSize = 1024;
+
+        // Request paths (Ant patterns, after StripPrefix) never hedged: streamed, long-running responses
+        private List<String> excludedPaths = List.of("/**/export");
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public void setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        public List<String> getExcludedPaths() {
+            return excludedPaths;
+        }
+
+        public void setExcludedPaths(List<String> excludedPaths) {
+            this.excludedPaths = excludedPaths;
+        }
+    }
+}
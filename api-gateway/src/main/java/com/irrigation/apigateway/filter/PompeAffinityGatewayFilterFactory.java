@@ -0,0 +1,121 @@
+package com.irrigation.apigateway.filter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.irrigation.apigateway.affinity.PompeAffinityLoadBalancer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Copies the {@code pompeId} field of small JSON request bodies into the
+ * {@code X-Pompe-Id} header, so that the energy-service load balancer can send
+ * writes such as {@code POST /consommations} to the instance owning the pump
+ * (see PompeAffinityLoadBalancer; paths and query parameters are read there).
+ *
+ * Only bodies with a known Content-Length up to {@code max-body-size} are cached
+ * and parsed, and only up to the top-level field; bulk uploads are left alone.
+ *
+ * Usage in config-repo (route filter list):
+ *   - name: PompeAffinity
+ *     args:
+ *       max-body-size: 65536
+ */
+@Component
+public class PompeAffinityGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<PompeAffinityGatewayFilterFactory.Config> {
+
+    private static final Logger log = LoggerFactory.getLogger(PompeAffinityGatewayFilterFactory.class);
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    public PompeAffinityGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            long length = request.getHeaders().getContentLength();
+            MediaType contentType = request.getHeaders().getContentType();
+            if (!config.isEnabled()
+                    || request.getHeaders().containsKey(PompeAffinityLoadBalancer.POMPE_HEADER)
+                    || !(HttpMethod.POST.equals(request.getMethod()) || HttpMethod.PUT.equals(request.getMethod()))
+                    || contentType == null || !MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                    || length <= 0 || length > config.getMaxBodySize()) {
+                return chain.filter(exchange);
+            }
+            return ServerWebExchangeUtils.cacheRequestBody(exchange, cached -> {
+                DataBuffer body = exchange.getAttribute(ServerWebExchangeUtils.CACHED_REQUEST_BODY_ATTR);
+                Long pompeId = body != null ? readPompeId(body) : null;
+                ServerHttpRequest next = pompeId == null ? cached : cached.mutate()
+                        .header(PompeAffinityLoadBalancer.POMPE_HEADER, pompeId.toString())
+                        .build();
+                return chain.filter(exchange.mutate().request(next).build());
+            });
+        };
+    }
+
+    /**
+     * Streams the body up to the top-level {@code pompeId} field, leaving the
+     * buffer's read position untouched for the downstream request.
+     */
+    private static Long readPompeId(DataBuffer body) {
+        int position = body.readPosition();
+        try (InputStream in = body.asInputStream(); JsonParser parser = JSON.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("pompeId".equals(field)) {
+                    return value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            log.debug("No pompeId read from request body: {}", e.getMessage());
+            return null;
+        } finally {
+            body.readPosition(position);
+        }
+    }
+
+    public static class Config {
+
+        private boolean enabled = true;
+
+        // Larger bodies are forwarded without being parsed
+        private int maxBodySize = 64 * 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxBodySize() {
+            return maxBodySize;
+        }
+
+        public void setMaxBodySize(int maxBodySize) {
+            this.maxBodySize = maxBodySize;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.irrigation.apigateway.hedging;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sliding window of the most recent backend latencies for one route.
+ *
+ * Samples are written into a fixed ring without locking; the percentile used
+ * as hedge delay is recomputed only every {@code size / 8} samples so the hot
+ * path stays a single array store.
+ */
+public class LatencyWindow {
+
+    private static final int MIN_SAMPLES = 20;
+
+    private final long[] samples;
+    private final AtomicLong cursor = new AtomicLong();
+    private final int recomputeEvery;
+    private final double percentile;
+
+    private volatile long cachedPercentileNanos = -1;
+
+    /**
+     * @param size       Number of samples kept
+     * @param percentile Percentile to track, between 0 and 100
+     */
+    public LatencyWindow(int size, double percentile) {
+        this.samples = new long[Math.max(size, MIN_SAMPLES)];
+        this.recomputeEvery = Math.max(this.samples.length / 8, 1);
+        this.percentile = Math.min(Math.max(percentile, 0.0), 100.0);
+    }
+
+    public void record(long nanos) {
+        long n = cursor.getAndIncrement();
+        samples[(int) (n % samples.length)] = nanos;
+        // Below MIN_SAMPLES the percentile stays unknown, even for a small window
+        if ((n + 1) % recomputeEvery == 0 && n + 1 >= MIN_SAMPLES) {
+            cachedPercentileNanos = compute(n + 1);
+        }
+    }
+
+    /**
+     * @return Tracked percentile in nanoseconds, or -1 while not enough samples were recorded
+     */
+    public long percentileNanos() {
+        long cached = cachedPercentileNanos;
+        if (cached >= 0) {
+            return cached;
+        }
+        long count = cursor.get();
+        return count >= MIN_SAMPLES ? compute(count) : -1;
+    }
+
+    private long compute(long count) {
+        int filled = (int) Math.min(count, samples.length);
+        long[] copy = Arrays.copyOf(samples, filled);
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(percentile / 100.0 * filled) - 1;
+        return copy[Math.min(Math.max(index, 0), filled - 1)];
+    }
+}
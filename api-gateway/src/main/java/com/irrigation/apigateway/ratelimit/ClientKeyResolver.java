@@ -0,0 +1,75 @@
+package com.irrigation.apigateway.ratelimit;
+
+import io.netty.handler.ipfilter.IpFilterRuleType;
+import io.netty.handler.ipfilter.IpSubnetFilterRule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * Client identity used as rate limiting key.
+ *
+ * Clients are keyed by their remote address. The {@code client-id-header} (e.g. the
+ * serial number a field gateway stamps on the devices behind it) is only trusted on
+ * requests coming from one of the {@code trusted-proxies} (addresses or CIDR ranges,
+ * matched like the RemoteAddr predicate): from anyone else it would let a client pick
+ * a fresh bucket per request. Without a remote address, the key is empty and the
+ * request is refused by the RequestRateLimiter filter ({@code deny-empty-key}).
+ */
+@Component
+public class ClientKeyResolver implements KeyResolver {
+
+    private static final int MAX_CLIENT_ID_LENGTH = 128;
+
+    private final String clientIdHeader;
+    private final List<IpSubnetFilterRule> trustedProxies;
+
+    public ClientKeyResolver(@Value("${gateway.rate-limit.client-id-header:X-Client-Id}") String clientIdHeader,
+                             @Value("${gateway.rate-limit.trusted-proxies:}") List<String> trustedProxies) {
+        this.clientIdHeader = clientIdHeader;
+        this.trustedProxies = trustedProxies.stream()
+                .map(String::trim)
+                .filter(source -> !source.isEmpty())
+                .map(ClientKeyResolver::subnet)
+                .toList();
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        if (remoteAddress == null || remoteAddress.getAddress() == null) {
+            return Mono.empty();
+        }
+        String address = remoteAddress.getAddress().getHostAddress();
+        String clientId = exchange.getRequest().getHeaders().getFirst(clientIdHeader);
+        if (clientId != null && !clientId.isBlank() && clientId.length() <= MAX_CLIENT_ID_LENGTH
+                && isTrustedProxy(remoteAddress)) {
+            // Scoped to the proxy: two proxies cannot share (or exhaust) each other's clients
+            return Mono.just("id:" + address + "/" + clientId);
+        }
+        return Mono.just("ip:" + address);
+    }
+
+    private boolean isTrustedProxy(InetSocketAddress remoteAddress) {
+        for (IpSubnetFilterRule proxy : trustedProxies) {
+            if (proxy.matches(remoteAddress)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static IpSubnetFilterRule subnet(String source) {
+        int slash = source.indexOf('/');
+        if (slash < 0) {
+            return new IpSubnetFilterRule(source, source.contains(":") ? 128 : 32, IpFilterRuleType.ACCEPT);
+        }
+        return new IpSubnetFilterRule(source.substring(0, slash),
+                Integer.parseInt(source.substring(slash + 1)), IpFilterRuleType.ACCEPT);
+    }
+}
@@ -0,0 +1,211 @@
+package com.irrigation.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory rate limiter for the {@code RequestRateLimiter} filter, replacing the
+ * Redis-backed one: one {@link TokenBucket} per client (see ClientKeyResolver) and route.
+ *
+ * Limits are counted per gateway instance, so with N instances a client gets up
+ * to N times the configured rate. Buckets that stayed full for {@code idle-timeout}
+ * are swept on the request path; past {@code max-buckets}, new clients of a route
+ * share a single overflow bucket until the sweep frees room.
+ *
+ * Usage in config-repo (route filter list, limits bound and refreshed per route):
+ *   - name: RequestRateLimiter
+ *     args:
+ *       local-rate-limiter.replenish-rate: 20
+ *       local-rate-limiter.burst-capacity: 40
+ *
+ * Metrics (tag {@code route}):
+ *   gateway.ratelimit.admitted, gateway.ratelimit.throttled, gateway.ratelimit.buckets (no tag)
+ */
+@Component
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+
+    private static final Logger log = LoggerFactory.getLogger(LocalRateLimiter.class);
+
+    private static final String OVERFLOW_KEY = "*overflow*";
+    private static final long FULL_SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Config defaultConfig;
+    private final long idleNanos;
+    private final int maxBuckets;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, RouteMeters> meters = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+    private final AtomicLong lastOverflowWarning = new AtomicLong(System.nanoTime() - TimeUnit.MINUTES.toNanos(1));
+
+    public LocalRateLimiter(ConfigurationService configurationService,
+                            MeterRegistry meterRegistry,
+                            @Value("${gateway.rate-limit.default-replenish-rate:50}") int defaultReplenishRate,
+                            @Value("${gateway.rate-limit.default-burst-capacity:100}") int defaultBurstCapacity,
+                            @Value("${gateway.rate-limit.idle-timeout:5m}") Duration idleTimeout,
+                            @Value("${gateway.rate-limit.max-buckets:100000}") int maxBuckets) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.defaultConfig = new Config()
+                .setReplenishRate(defaultReplenishRate)
+                .setBurstCapacity(defaultBurstCapacity);
+        this.idleNanos = idleTimeout.toNanos();
+        this.maxBuckets = maxBuckets;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("gateway.ratelimit.buckets", buckets, Map::size)
+                .description("Client token buckets currently held in memory")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        if (config.getReplenishRate() <= 0) {
+            return Mono.just(new Response(true, Map.of()));
+        }
+        long now = System.nanoTime();
+        sweepIfDue(now, idleNanos);
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / config.getReplenishRate();
+        long capacityNanos = Math.max(config.getBurstCapacity(), config.getRequestedTokens()) * intervalNanos;
+        long result = bucket(routeId, id, now).tryConsume(now, config.getRequestedTokens(), intervalNanos, capacityNanos);
+
+        RouteMeters routeMeters = meters.computeIfAbsent(routeId, RouteMeters::new);
+        Map<String, String> headers = new HashMap<>();
+        headers.put(REPLENISH_RATE_HEADER, String.valueOf(config.getReplenishRate()));
+        headers.put(BURST_CAPACITY_HEADER, String.valueOf(config.getBurstCapacity()));
+        if (result >= 0) {
+            routeMeters.admitted.increment();
+            headers.put(REMAINING_HEADER, String.valueOf(result));
+            return Mono.just(new Response(true, headers));
+        }
+        routeMeters.throttled.increment();
+        long waitNanos = -(result + 1);
+        headers.put(REMAINING_HEADER, "0");
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        headers.put(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return Mono.just(new Response(false, headers));
+    }
+
+    private TokenBucket bucket(String routeId, String id, long now) {
+        String key = routeId + '|' + id;
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxBuckets) {
+            sweepIfDue(now, FULL_SWEEP_INTERVAL_NANOS);
+            if (buckets.size() >= maxBuckets) {
+                warnOverflow(now);
+                return buckets.computeIfAbsent(routeId + '|' + OVERFLOW_KEY, k -> new TokenBucket(now));
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(now));
+    }
+
+    /**
+     * Drops idle buckets at most once per interval (the idle timeout, or one second
+     * while the map is full), from whichever request wins the race; an evicted
+     * client simply starts again with a full bucket.
+     */
+    private void sweepIfDue(long now, long intervalNanos) {
+        long last = lastSweep.get();
+        if (now - last >= intervalNanos && lastSweep.compareAndSet(last, now)) {
+            sweep(now);
+        }
+    }
+
+    private void sweep(long now) {
+        long idleSince = now - idleNanos;
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.isIdleSince(idleSince));
+        log.debug("Rate limiter sweep: {} idle buckets evicted, {} left", before - buckets.size(), buckets.size());
+    }
+
+    private void warnOverflow(long now) {
+        long last = lastOverflowWarning.get();
+        if (now - last >= TimeUnit.MINUTES.toNanos(1) && lastOverflowWarning.compareAndSet(last, now)) {
+            log.warn("Rate limiter holds {} client buckets (max {}): new clients share an overflow bucket per route",
+                    buckets.size(), maxBuckets);
+        }
+    }
+
+    /**
+     * Admitted / throttled counters of one route.
+     */
+    private class RouteMeters {
+
+        private final Counter admitted;
+        private final Counter throttled;
+
+        RouteMeters(String routeId) {
+            this.admitted = Counter.builder("gateway.ratelimit.admitted")
+                    .description("Requests admitted by the rate limiter")
+                    .tag("route", routeId).register(meterRegistry);
+            this.throttled = Counter.builder("gateway.ratelimit.throttled")
+                    .description("Requests refused with 429 by the rate limiter")
+                    .tag("route", routeId).register(meterRegistry);
+        }
+    }
+
+    public static class Config {
+
+        // Tokens added per second; 0 disables the limiter on the route
+        private int replenishRate;
+
+        // Tokens a client can spend at once after being idle
+        private int burstCapacity;
+
+        // Tokens taken by each request
+        private int requestedTokens = 1;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.irrigation.apigateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket for one client on one route.
+ *
+ * The whole state is a single "theoretical arrival time" (GCRA): the instant at
+ * which the bucket would be full again. Taking n tokens pushes it n emission
+ * intervals further; the request is refused when that would put it more than
+ * the burst capacity ahead of now. A compare-and-set on one long replaces the
+ * usual token count + last-refill pair, and rates are passed on each call so a
+ * route's limits can change at runtime without touching existing buckets.
+ */
+public class TokenBucket {
+
+    private final AtomicLong fullAt;
+
+    /**
+     * @param now Current {@link System#nanoTime()}; the bucket starts full
+     */
+    public TokenBucket(long now) {
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * @param now             Current {@link System#nanoTime()}
+     * @param tokens          Tokens requested
+     * @param intervalNanos   Nanoseconds needed to replenish one token
+     * @param capacityNanos   Burst capacity expressed as {@code capacity * intervalNanos}
+     * @return Tokens left after an admitted request, or {@code -(nanos to wait) - 1} when refused
+     */
+    public long tryConsume(long now, int tokens, long intervalNanos, long capacityNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - now < 0 ? now : current) + tokens * intervalNanos;
+            long ahead = next - now;
+            if (ahead > capacityNanos) {
+                return -(ahead - capacityNanos) - 1;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return (capacityNanos - ahead) / intervalNanos;
+            }
+        }
+    }
+
+    /**
+     * @return true if the bucket has been full (unused) since before {@code since}
+     */
+    public boolean isIdleSince(long since) {
+        return fullAt.get() - since <= 0;
+    }
+}
@@ -0,0 +1,253 @@
+package com.irrigation.apigateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.filter.headers.RemoveHopByHopHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.RouteMetadataUtils;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebHandler;
+import org.springframework.web.server.handler.ExceptionHandlingWebHandler;
+import org.springframework.web.server.handler.ResponseStatusExceptionHandler;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the hedging filter against two stub backends: one answers at once, the
+ * other after two seconds. The load balancer sends the primary (which carries
+ * the request context) to {@link #primary} and the hedge to {@link #hedge}.
+ */
+class HedgeGatewayFilterFactoryTest {
+
+    private static final Duration SLOW = Duration.ofSeconds(2);
+
+    private static DisposableServer fastServer;
+    private static DisposableServer slowServer;
+    private static final AtomicInteger fastCalls = new AtomicInteger();
+    private static final AtomicInteger slowCalls = new AtomicInteger();
+    private static volatile CountDownLatch slowCancelled;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger chainCalls = new AtomicInteger();
+    private HedgeGatewayFilterFactory factory;
+    private ServiceInstance primary;
+    private ServiceInstance hedge;
+
+    @BeforeAll
+    static void startBackends() {
+        fastServer = HttpServer.create().port(0)
+                .handle((request, response) -> {
+                    fastCalls.incrementAndGet();
+                    return response.header("X-Backend", "fast")
+                            .header("X-Seen", String.valueOf(request.requestHeaders().get("X-Filtered")))
+                            .header("X-Internal", "secret")
+                            .sendString(Mono.just("fast"));
+                })
+                .bindNow();
+        slowServer = HttpServer.create().port(0)
+                .handle((request, response) -> {
+                    slowCalls.incrementAndGet();
+                    return response.header("X-Backend", "slow")
+                            .sendString(Mono.delay(SLOW).map(tick -> "slow")
+                                    .doOnCancel(() -> slowCancelled.countDown()));
+                })
+                .bindNow();
+    }
+
+    @AfterAll
+    static void stopBackends() {
+        fastServer.disposeNow();
+        slowServer.disposeNow();
+    }
+
+    @BeforeEach
+    void setUp() {
+        fastCalls.set(0);
+        slowCalls.set(0);
+        slowCancelled = new CountDownLatch(1);
+
+        ReactorServiceInstanceLoadBalancer loadBalancer = request -> Mono.just(new DefaultResponse(
+                request.getContext() instanceof RequestDataContext ? primary : hedge));
+        LoadBalancerClientFactory loadBalancerClientFactory = mock(LoadBalancerClientFactory.class);
+        when(loadBalancerClientFactory.getInstance("energy-service", ReactorServiceInstanceLoadBalancer.class))
+                .thenReturn(loadBalancer);
+
+        // Request: mark what went through the filters; response: hide a backend-only header
+        HttpHeadersFilter markRequest = (headers, exchange) -> {
+            HttpHeaders filtered = new HttpHeaders();
+            filtered.addAll(headers);
+            filtered.set("X-Filtered", "yes");
+            return filtered;
+        };
+        HttpHeadersFilter hideInternal = new HttpHeadersFilter() {
+            @Override
+            public HttpHeaders filter(HttpHeaders headers, ServerWebExchange exchange) {
+                HttpHeaders filtered = new HttpHeaders();
+                filtered.addAll(headers);
+                filtered.remove("X-Internal");
+                return filtered;
+            }
+
+            @Override
+            public boolean supports(Type type) {
+                return type == Type.RESPONSE;
+            }
+        };
+        @SuppressWarnings("unchecked")
+        ObjectProvider<List<HttpHeadersFilter>> headersFilters = mock(ObjectProvider.class);
+        when(headersFilters.getIfAvailable())
+                .thenReturn(List.of(new RemoveHopByHopHeadersFilter(), markRequest, hideInternal));
+
+        factory = new HedgeGatewayFilterFactory(loadBalancerClientFactory, WebClient.builder(),
+                meterRegistry, headersFilters);
+    }
+
+    @Test
+    void fastPrimaryAnswersWithoutHedging() {
+        primary = instance(fastServer);
+        hedge = instance(slowServer);
+
+        // Wide enough for the first connection to the backend
+        client(route(Map.of()), config(Duration.ofSeconds(1)))
+                .get().uri("/pompes/1").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Backend", "fast")
+                .expectBody(String.class).isEqualTo("fast");
+
+        assertThat(count("gateway.hedge.sent")).isZero();
+        assertThat(slowCalls).hasValue(0);
+    }
+
+    @Test
+    void firstResponseWinsAndTheLoserIsCancelled() throws InterruptedException {
+        primary = instance(slowServer);
+        hedge = instance(fastServer);
+        long start = System.nanoTime();
+
+        client(route(Map.of()), config(Duration.ofMillis(50)))
+                .get().uri("/pompes/1").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Backend", "fast")
+                .expectBody(String.class).isEqualTo("fast");
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(SLOW);
+        assertThat(count("gateway.hedge.sent")).isEqualTo(1);
+        assertThat(count("gateway.hedge.wins")).isEqualTo(1);
+        assertThat(slowCalls).hasValue(1);
+        assertThat(slowCancelled.await(SLOW.toMillis(), TimeUnit.MILLISECONDS)).isTrue();
+    }
+
+    @Test
+    void exportsAndNonGetRequestsGoThroughTheChain() {
+        primary = instance(fastServer);
+        hedge = instance(fastServer);
+        WebTestClient client = client(route(Map.of()), config(Duration.ofMillis(50)));
+
+        client.get().uri("/consommations/export?from=2024-01-01").exchange().expectStatus().isNoContent();
+        client.post().uri("/pompes").exchange().expectStatus().isNoContent();
+
+        assertThat(chainCalls).hasValue(2);
+        assertThat(fastCalls).hasValue(0);
+    }
+
+    @Test
+    void eachAttemptHonoursTheRouteResponseTimeout() {
+        primary = instance(slowServer);
+        hedge = instance(slowServer);
+        long start = System.nanoTime();
+
+        client(route(Map.of(RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR, 200)), config(Duration.ofMillis(100)))
+                .get().uri("/pompes/1").exchange()
+                .expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(SLOW);
+        assertThat(slowCalls).hasValue(2);
+    }
+
+    @Test
+    void headersGoThroughTheGatewayHeaderFilters() {
+        primary = instance(fastServer);
+        hedge = instance(fastServer);
+
+        client(route(Map.of()), config(Duration.ofMillis(300)))
+                .get().uri("/pompes/1").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Seen", "yes")
+                .expectHeader().doesNotExist("X-Internal");
+    }
+
+    private WebTestClient client(Route route, HedgeGatewayFilterFactory.Config config) {
+        GatewayFilter filter = factory.apply(config);
+        WebHandler handler = exchange -> {
+            exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+            return filter.filter(exchange, next -> {
+                chainCalls.incrementAndGet();
+                next.getResponse().setStatusCode(HttpStatus.NO_CONTENT);
+                return next.getResponse().setComplete();
+            });
+        };
+        // Status exceptions become responses, as with the gateway's error handler
+        return WebTestClient.bindToWebHandler(new ExceptionHandlingWebHandler(handler,
+                        List.of(new ResponseStatusExceptionHandler())))
+                .configureClient().responseTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    private static Route route(Map<String, Object> metadata) {
+        return Route.async()
+                .id("energy")
+                .uri(URI.create("lb://energy-service"))
+                .predicate(exchange -> true)
+                .metadata(metadata)
+                .build();
+    }
+
+    /**
+     * No latency recorded yet, so the hedge fires after {@code delay}.
+     */
+    private static HedgeGatewayFilterFactory.Config config(Duration delay) {
+        HedgeGatewayFilterFactory.Config config = new HedgeGatewayFilterFactory.Config();
+        config.setMinDelay(delay);
+        config.setMaxDelay(delay);
+        return config;
+    }
+
+    private static ServiceInstance instance(DisposableServer server) {
+        return new DefaultServiceInstance("energy-" + server.port(), "energy-service",
+                "localhost", server.port(), false);
+    }
+
+    private double count(String counter) {
+        return meterRegistry.get(counter).tag("route", "energy").counter().count();
+    }
+}
@@ -0,0 +1,56 @@
+package com.irrigation.apigateway.hedging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyWindowTest {
+
+    @Test
+    void noPercentileBeforeTwentySamples() {
+        LatencyWindow window = new LatencyWindow(100, 95);
+        for (long i = 1; i < 20; i++) {
+            window.record(i);
+        }
+        assertThat(window.percentileNanos()).isEqualTo(-1);
+
+        window.record(20);
+        assertThat(window.percentileNanos()).isEqualTo(19);
+    }
+
+    @Test
+    void tracksTheConfiguredPercentile() {
+        LatencyWindow p50 = new LatencyWindow(160, 50);
+        LatencyWindow p99 = new LatencyWindow(160, 99);
+        for (long i = 100; i >= 1; i--) {
+            p50.record(i);
+            p99.record(i);
+        }
+        assertThat(p50.percentileNanos()).isEqualTo(50);
+        assertThat(p99.percentileNanos()).isEqualTo(99);
+    }
+
+    @Test
+    void forgetsSamplesThatLeftTheWindow() {
+        LatencyWindow window = new LatencyWindow(40, 100);
+        for (int i = 0; i < 40; i++) {
+            window.record(1_000);
+        }
+        assertThat(window.percentileNanos()).isEqualTo(1_000);
+
+        for (int i = 0; i < 40; i++) {
+            window.record(10);
+        }
+        assertThat(window.percentileNanos()).isEqualTo(10);
+    }
+
+    @Test
+    void clampsPercentileAndSize() {
+        LatencyWindow window = new LatencyWindow(1, 150);
+        for (long i = 1; i <= 20; i++) {
+            window.record(i);
+        }
+        // Size raised to the 20-sample minimum, percentile capped at 100
+        assertThat(window.percentileNanos()).isEqualTo(20);
+    }
+}
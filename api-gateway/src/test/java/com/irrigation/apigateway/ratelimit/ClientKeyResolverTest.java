@@ -0,0 +1,64 @@
+package com.irrigation.apigateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientKeyResolverTest {
+
+    private final ClientKeyResolver resolver = new ClientKeyResolver("X-Client-Id",
+            List.of("10.20.0.0/16", " 192.168.1.10 "));
+
+    @Test
+    void untrustedClientsAreKeyedByAddressWhateverTheirHeader() {
+        assertThat(key("203.0.113.7", "device-1")).isEqualTo("ip:203.0.113.7");
+        assertThat(key("203.0.113.7", "device-2")).isEqualTo("ip:203.0.113.7");
+        assertThat(key("192.168.1.11", "device-1")).isEqualTo("ip:192.168.1.11");
+    }
+
+    @Test
+    void trustedProxiesKeyTheirClientsById() {
+        assertThat(key("10.20.3.4", "device-1")).isEqualTo("id:10.20.3.4/device-1");
+        assertThat(key("192.168.1.10", "device-1")).isEqualTo("id:192.168.1.10/device-1");
+    }
+
+    @Test
+    void trustedProxyWithoutUsableIdIsKeyedByAddress() {
+        assertThat(key("10.20.3.4", null)).isEqualTo("ip:10.20.3.4");
+        assertThat(key("10.20.3.4", " ")).isEqualTo("ip:10.20.3.4");
+        assertThat(key("10.20.3.4", "x".repeat(129))).isEqualTo("ip:10.20.3.4");
+    }
+
+    @Test
+    void noTrustedProxyByDefault() {
+        ClientKeyResolver defaults = new ClientKeyResolver("X-Client-Id", List.of());
+
+        assertThat(defaults.resolve(exchange("10.20.3.4", "device-1")).block()).isEqualTo("ip:10.20.3.4");
+    }
+
+    @Test
+    void requestWithoutRemoteAddressHasNoKey() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/api/water/debits").header("X-Client-Id", "device-1"));
+
+        assertThat(resolver.resolve(exchange).block()).isNull();
+    }
+
+    private String key(String address, String clientId) {
+        return resolver.resolve(exchange(address, clientId)).block();
+    }
+
+    private static MockServerWebExchange exchange(String address, String clientId) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/water/debits")
+                .remoteAddress(new InetSocketAddress(address, 40000));
+        if (clientId != null) {
+            request.header("X-Client-Id", clientId);
+        }
+        return MockServerWebExchange.from(request);
+    }
+}
@@ -0,0 +1,90 @@
+package com.irrigation.apigateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    // 10 tokens per second, burst of 5
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long CAPACITY = 5 * INTERVAL;
+    private static final long T0 = 1_000_000_000L;
+
+    @Test
+    void admitsAFullBurstThenRefuses() {
+        TokenBucket bucket = new TokenBucket(T0);
+
+        for (int remaining = 4; remaining >= 0; remaining--) {
+            assertThat(bucket.tryConsume(T0, 1, INTERVAL, CAPACITY)).isEqualTo(remaining);
+        }
+        long refused = bucket.tryConsume(T0, 1, INTERVAL, CAPACITY);
+
+        assertThat(refused).isNegative();
+        // Wait before the next token: one interval
+        assertThat(-refused - 1).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void refillsAtTheReplenishRate() {
+        TokenBucket bucket = new TokenBucket(T0);
+        for (int i = 0; i < 5; i++) {
+            bucket.tryConsume(T0, 1, INTERVAL, CAPACITY);
+        }
+
+        assertThat(bucket.tryConsume(T0 + INTERVAL - 1, 1, INTERVAL, CAPACITY)).isNegative();
+        assertThat(bucket.tryConsume(T0 + INTERVAL, 1, INTERVAL, CAPACITY)).isZero();
+        assertThat(bucket.tryConsume(T0 + 3 * INTERVAL, 2, INTERVAL, CAPACITY)).isZero();
+    }
+
+    @Test
+    void neverHoldsMoreThanItsCapacity() {
+        TokenBucket bucket = new TokenBucket(T0);
+        long later = T0 + TimeUnit.MINUTES.toNanos(1);
+
+        assertThat(bucket.tryConsume(later, 1, INTERVAL, CAPACITY)).isEqualTo(4);
+        assertThat(bucket.tryConsume(later, 5, INTERVAL, CAPACITY)).isNegative();
+    }
+
+    @Test
+    void refusedRequestsDoNotConsumeTokens() {
+        TokenBucket bucket = new TokenBucket(T0);
+
+        assertThat(bucket.tryConsume(T0, 6, INTERVAL, CAPACITY)).isNegative();
+        assertThat(bucket.tryConsume(T0, 5, INTERVAL, CAPACITY)).isZero();
+    }
+
+    @Test
+    void isIdleOnceRefilled() {
+        TokenBucket bucket = new TokenBucket(T0);
+        bucket.tryConsume(T0, 2, INTERVAL, CAPACITY);
+
+        assertThat(bucket.isIdleSince(T0 + INTERVAL)).isFalse();
+        assertThat(bucket.isIdleSince(T0 + 2 * INTERVAL)).isTrue();
+    }
+
+    @Test
+    void concurrentCallersNeverOverdrawTheBucket() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(T0);
+        AtomicInteger admitted = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (bucket.tryConsume(T0, 1, INTERVAL, CAPACITY) >= 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(admitted).hasValue(5);
+    }
+}
@@ -0,0 +1,112 @@
+package com.irrigation.energy.budget;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Budget de puissance global des pompes ACTIVE (MAX_PUISSANCE), commun à toutes les instances.
+ *
+ * La puissance active totale est tenue dans la ligne unique de {@code budget_puissance} et
+ * ajustée dans la transaction de chaque écriture de pompe. Une hausse passe par un UPDATE
+ * conditionnel : si elle dépasse la limite, aucune ligne n'est modifiée et l'écriture est
+ * refusée. Le verrou de ligne sérialise les activations concurrentes, quelle que soit
+ * l'instance qui les reçoit. Accès en JDBC, hors cache de second niveau.
+ *
+ * La limite ne tient que si toute écriture de la puissance ou du statut d'une pompe passe
+ * par {@link #adjust}, avec l'ancienne valeur lue sur la ligne verrouillée (findForUpdate) ;
+ * les autres écritures (statut énergétique) ne touchent pas ces colonnes.
+ */
+@Slf4j
+@Component
+public class PowerBudget {
+
+    private static final String RESERVE = "UPDATE budget_puissance SET puissance_active = puissance_active + ? "
+            + "WHERE id = 1 AND puissance_active + ? <= ?";
+    private static final String RELEASE = "UPDATE budget_puissance SET puissance_active = puissance_active + ? "
+            + "WHERE id = 1";
+    private static final String USED = "SELECT puissance_active FROM budget_puissance WHERE id = 1";
+    private static final String SUM_ACTIVE = "SELECT COALESCE(SUM(puissance), 0) FROM pompes WHERE statut = 'ACTIVE'";
+    private static final String INIT = "INSERT INTO budget_puissance (id, puissance_active) "
+            + "SELECT 1, COALESCE(SUM(puissance), 0) FROM pompes WHERE statut = 'ACTIVE' "
+            + "AND NOT EXISTS (SELECT 1 FROM budget_puissance WHERE id = 1)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate initTransaction;
+
+    public PowerBudget(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.initTransaction = new TransactionTemplate(transactionManager);
+        this.initTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Passe la puissance active d'une pompe de {@code ancienne} à {@code nouvelle}, dans la
+     * transaction de l'écriture de la pompe.
+     *
+     * @throws RuntimeException Si la hausse dépasse {@code maxPuissance}
+     */
+    public void adjust(double ancienne, double nouvelle, double maxPuissance) {
+        double delta = nouvelle - ancienne;
+        if (delta <= 0) {
+            if (delta < 0 && jdbcTemplate.update(RELEASE, delta) == 0) {
+                initialize();
+                jdbcTemplate.update(RELEASE, delta);
+            }
+            return;
+        }
+        if (jdbcTemplate.update(RESERVE, delta, delta, maxPuissance) == 1) {
+            return;
+        }
+        // Peut-être pas encore de ligne (écriture reçue avant ApplicationReadyEvent) : réessayée une fois
+        initialize();
+        if (jdbcTemplate.update(RESERVE, delta, delta, maxPuissance) == 1) {
+            return;
+        }
+        throw new RuntimeException("⚠️ Insufficient power budget: " + delta + " kW more would exceed "
+                + maxPuissance + " kW of active pumps");
+    }
+
+    public boolean fits(double requiredPuissance, double maxPuissance) {
+        return used() + requiredPuissance <= maxPuissance;
+    }
+
+    /**
+     * Puissance active totale, lue sur le primaire (appelée dans une transaction en écriture).
+     */
+    public double used() {
+        List<Double> used = jdbcTemplate.queryForList(USED, Double.class);
+        return used.isEmpty() ? jdbcTemplate.queryForObject(SUM_ACTIVE, Double.class) : used.get(0);
+    }
+
+    /**
+     * Crée la ligne du budget depuis la table des pompes si elle n'existe pas encore.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void onReady() {
+        if (initialize()) {
+            log.info("⚡ Power budget initialized from the pumps table: {} kW active", used());
+        }
+    }
+
+    /**
+     * @return true si la ligne vient d'être créée
+     */
+    private boolean initialize() {
+        try {
+            Integer created = initTransaction.execute(status -> jdbcTemplate.update(INIT));
+            return created != null && created > 0;
+        } catch (DuplicateKeyException e) {
+            // Créée en même temps par une autre instance
+            return false;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.irrigation.energy.config;
+
+import com.irrigation.commons.config.snapshot.ConfigSnapshotReconciler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Snapshot local de la configuration (service-commons) : le locator est déclaré dans le
+ * contexte bootstrap (META-INF/spring.factories), la réconciliation ici.
+ */
+@Configuration
+@Import(ConfigSnapshotReconciler.class)
+public class ConfigSnapshotConfig {
+}
@@ -0,0 +1,46 @@
+package com.irrigation.energy.config;
+
+import com.irrigation.commons.jpa.ReadWriteDataSources;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+
+/**
+ * Pools d'écriture et de lecture (service-commons, {@link ReadWriteDataSources}).
+ * Métriques hikaricp.*, tag pool energy-write / energy-read.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    public HikariDataSource writeDataSource(DataSourceProperties properties,
+                                            @Value("${energy.datasource.write.maximum-pool-size:10}") int maximumPoolSize) {
+        return ReadWriteDataSources.writePool(properties, "energy-write", maximumPoolSize);
+    }
+
+    @Bean
+    public HikariDataSource readDataSource(DataSourceProperties properties,
+                                           @Value("${energy.datasource.read.url:}") String url,
+                                           @Value("${energy.datasource.read.username:}") String username,
+                                           @Value("${energy.datasource.read.password:}") String password,
+                                           @Value("${energy.datasource.read.maximum-pool-size:10}") int maximumPoolSize) {
+        return ReadWriteDataSources.readPool(properties, "energy-read", url, username, password, maximumPoolSize);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource writeDataSource, HikariDataSource readDataSource) {
+        return ReadWriteDataSources.routing(writeDataSource, readDataSource);
+    }
+
+    @Bean
+    static BeanPostProcessor replicaReadJpaDialect(@Value("${energy.datasource.read.url:}") String url) {
+        return ReadWriteDataSources.replicaReadJpaDialect(url);
+    }
+}
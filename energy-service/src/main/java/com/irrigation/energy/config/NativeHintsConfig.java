@@ -0,0 +1,49 @@
+package com.irrigation.energy.config;
+
+import com.irrigation.events.MeasurementRecordedEvent;
+import com.irrigation.events.OverconsumptionEvent;
+import com.irrigation.events.OverconsumptionForecastEvent;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+/**
+ * Indications d'exécution pour le traitement AOT (profil Maven fast-startup) et une
+ * éventuelle image native.
+ *
+ * Spring Data JPA, Spring AMQP et le client Eureka fournissent leurs propres indications ;
+ * on ne déclare ici que ce que le service fait en dehors de leur analyse : événements
+ * sérialisés en JSON par EventMessageConverter, proxy JDK de LazyConnectionDataSourceProxy,
+ * fournisseur JCache chargé par son nom et fichiers lus depuis le classpath.
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.ServiceHints.class)
+@RegisterReflectionForBinding({
+        OverconsumptionEvent.class,
+        OverconsumptionForecastEvent.class,
+        MeasurementRecordedEvent.class
+})
+public class NativeHintsConfig {
+
+    static class ServiceHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            // Connexions physiques obtenues à la première requête (DataSourceConfig)
+            hints.proxies().registerJdkProxy(ConnectionProxy.class);
+
+            // hibernate.javax.cache.provider
+            hints.reflection().registerTypeIfPresent(classLoader, "org.ehcache.jsr107.EhcacheCachingProvider",
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+
+            // Régions de cache Hibernate et schéma du profil postgres
+            hints.resources()
+                    .registerPattern("ehcache.xml")
+                    .registerPattern("db/postgres/*.sql");
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package com.irrigation.energy.config;
 
+import com.irrigation.events.OverconsumptionShards;
+import com.irrigation.events.codec.EventFormat;
+import com.irrigation.events.codec.EventMessageConverter;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
  * Configuration RabbitMQ pour le microservice Énergie.
- * Définit l'exchange, la queue et le binding pour publier les événements de surconsommation.
+ * Définit l'exchange, les queues et les bindings pour publier les événements de surconsommation.
+ *
+ * Topologie shardée décrite par {@link OverconsumptionShards} (event-contracts).
  */
 @Configuration
 public class RabbitMQConfig {
@@ -18,11 +23,13 @@ public class RabbitMQConfig {
     // Nom de l'exchange (Direct Exchange)
     public static final String EXCHANGE = "irrigation.exchange";
     
-    // Nom de la queue pour les événements de surconsommation
-    public static final String QUEUE = "overconsumption.queue";
+    // Queue de la projection d'efficacité des pompes (mesures des deux microservices)
+    public static final String MEASUREMENT_QUEUE = "efficiency.projection.queue";
+    public static final String MEASUREMENT_ROUTING_KEY = "measurement.recorded";
     
-    // Routing key pour router les messages
-    public static final String ROUTING_KEY = "overconsumption.routing.key";
+    // Queue des alertes précoces de surconsommation (prévisions au-dessus du seuil)
+    public static final String FORECAST_QUEUE = "overconsumption.forecast.queue";
+    public static final String FORECAST_ROUTING_KEY = "overconsumption.forecast";
     
     /**
      * Déclaration de l'exchange Direct
@@ -33,36 +40,50 @@ public class RabbitMQConfig {
     }
     
     /**
-     * Déclaration de la queue durable
+     * Déclaration des queues durables (une par shard) et de leurs bindings
      */
     @Bean
-    public Queue queue() {
-        return new Queue(QUEUE, true);
+    public Declarables shardedQueues(DirectExchange exchange, @Value("${irrigation.events.shards:4}") int shards) {
+        return OverconsumptionShards.declarables(exchange, shards);
     }
     
     /**
-     * Binding entre l'exchange et la queue via la routing key
+     * Queue durable des événements de mesure, déclarée par les deux microservices :
+     * les mesures publiées avant le démarrage du consommateur ne sont pas perdues.
      */
     @Bean
-    public Binding binding(Queue queue, DirectExchange exchange) {
-        return BindingBuilder.bind(queue).to(exchange).with(ROUTING_KEY);
+    public Declarables measurementQueue(DirectExchange exchange) {
+        Queue queue = QueueBuilder.durable(MEASUREMENT_QUEUE).build();
+        return new Declarables(queue, BindingBuilder.bind(queue).to(exchange).with(MEASUREMENT_ROUTING_KEY));
     }
     
     /**
-     * Convertisseur JSON pour sérialiser/désérialiser les événements
+     * Queue durable des alertes précoces, bornée : sans consommateur, les plus anciennes
+     * sont écartées au-delà de {@code energy.forecast.queue-max-length}.
      */
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public Declarables forecastQueue(DirectExchange exchange,
+                                     @Value("${energy.forecast.queue-max-length:10000}") int maxLength) {
+        Queue queue = QueueBuilder.durable(FORECAST_QUEUE).maxLength(maxLength).build();
+        return new Declarables(queue, BindingBuilder.bind(queue).to(exchange).with(FORECAST_ROUTING_KEY));
     }
     
     /**
-     * RabbitTemplate configuré avec le convertisseur JSON
+     * Convertisseur des événements partagés : émet dans le format configuré
+     * (irrigation.events.codec), lit tous les formats d'après le content-type
      */
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public MessageConverter eventMessageConverter(@Value("${irrigation.events.codec:CBOR}") EventFormat codec) {
+        return new EventMessageConverter(codec);
+    }
+    
+    /**
+     * RabbitTemplate configuré avec le convertisseur d'événements
+     */
+    @Bean
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter eventMessageConverter) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
-        template.setMessageConverter(jsonMessageConverter());
+        template.setMessageConverter(eventMessageConverter);
         return template;
     }
 }
@@ -1,25 +1,69 @@
 package com.irrigation.energy.controller;
 
+import com.irrigation.commons.ingestion.IdempotencyConflictException;
+import com.irrigation.commons.ingestion.WriteBehindRejectedException;
 import com.irrigation.energy.dto.ConsommationElectriqueDTO;
+import com.irrigation.energy.dto.PrevisionConsommationDTO;
+import com.irrigation.energy.export.ConsommationExporter;
+import com.irrigation.energy.export.ExportFormat;
+import com.irrigation.energy.forecast.ConsommationForecaster;
+import com.irrigation.energy.ingestion.ConsommationBulkCodec;
+import com.irrigation.energy.ingestion.ConsommationColumns;
+import com.irrigation.energy.ingestion.ConsommationImporter;
+import com.irrigation.energy.ingestion.ImportJob;
+import com.irrigation.energy.ingestion.ConsommationWriteBehind;
 import com.irrigation.energy.service.ConsommationElectriqueService;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/consommations")
-@RequiredArgsConstructor
 public class ConsommationElectriqueController {
 
+    // Clé fournie par le client pour ses réémissions (ex. identifiant d'équipement + numéro de séquence)
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+    private static final int IDEMPOTENCY_KEY_MAX_LENGTH = 128;
+
     private final ConsommationElectriqueService consommationService;
+    private final ConsommationWriteBehind writeBehind;
+    private final ConsommationExporter exporter;
+    private final ConsommationImporter importer;
+    private final ConsommationForecaster forecaster;
+    private final int bulkMaxRecords;
+    private final int forecastMaxHours;
+
+    public ConsommationElectriqueController(ConsommationElectriqueService consommationService,
+                                            ConsommationWriteBehind writeBehind,
+                                            ConsommationExporter exporter,
+                                            ConsommationImporter importer,
+                                            ConsommationForecaster forecaster,
+                                            @Value("${energy.bulk.max-records:100000}") int bulkMaxRecords,
+                                            @Value("${energy.forecast.max-hours:48}") int forecastMaxHours) {
+        this.consommationService = consommationService;
+        this.writeBehind = writeBehind;
+        this.exporter = exporter;
+        this.importer = importer;
+        this.forecaster = forecaster;
+        this.bulkMaxRecords = bulkMaxRecords;
+        this.forecastMaxHours = forecastMaxHours;
+    }
 
     @GetMapping
     public ResponseEntity<List<ConsommationElectriqueDTO>> getAllConsommations() {
@@ -43,10 +87,114 @@ public class ConsommationElectriqueController {
         return ResponseEntity.ok(consommationService.getConsommationsByPeriode(debut, fin));
     }
 
+    @GetMapping("/pompe/{pompeId}/periode")
+    public ResponseEntity<List<ConsommationElectriqueDTO>> getConsommationsByPompeAndPeriode(
+            @PathVariable Long pompeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime debut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin) {
+        return ResponseEntity.ok(consommationService.getConsommationsByPompeAndPeriode(pompeId, debut, fin));
+    }
+
+    /**
+     * Export en streaming de l'historique brut (CSV ou NDJSON, gzip optionnel),
+     * pour une pompe ou pour toutes si pompeId est absent.
+     */
+    @GetMapping("/export")
+    public void exportConsommations(
+            @RequestParam(required = false) Long pompeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime debut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) {
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        String filename = "consommations" + (pompeId != null ? "-pompe-" + pompeId : "")
+                + "." + exportFormat.extension() + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip" : exportFormat.contentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        try {
+            exporter.export(pompeId, debut, fin, exportFormat, gzip, response.getOutputStream());
+        } catch (IOException e) {
+            // Client déconnecté : le curseur est déjà fermé, il n'y a plus personne à qui répondre
+        }
+    }
+
+    /**
+     * Enregistre une consommation. Avec l'en-tête Idempotency-Key, une réémission renvoie la
+     * mesure déjà enregistrée (200, Idempotent-Replayed: true) sans rien écrire ni publier.
+     */
     @PostMapping
-    public ResponseEntity<ConsommationElectriqueDTO> createConsommation(@Valid @RequestBody ConsommationElectriqueDTO dto) {
-        ConsommationElectriqueDTO created = consommationService.createConsommation(dto);
-        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+    public ResponseEntity<ConsommationElectriqueDTO> createConsommation(
+            @Valid @RequestBody ConsommationElectriqueDTO dto,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String cleIdempotence) {
+        checkIdempotencyKey(cleIdempotence);
+        Optional<ConsommationElectriqueDTO> replay = consommationService.findByCleIdempotence(cleIdempotence);
+        if (replay.isPresent()) {
+            return replayed(replay.get());
+        }
+        try {
+            if (writeBehind.isEnabled()) {
+                ConsommationElectriqueDTO accepted = writeBehind.submit(dto, cleIdempotence);
+                return ResponseEntity.status(accepted.getId() != null ? HttpStatus.CREATED : HttpStatus.ACCEPTED)
+                        .body(accepted);
+            }
+            ConsommationElectriqueDTO created = consommationService.createConsommation(dto, cleIdempotence);
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        } catch (DataIntegrityViolationException e) {
+            if (cleIdempotence == null) {
+                throw e;
+            }
+            return consommationService.findAfterDuplicateKey(cleIdempotence)
+                    .map(this::replayed)
+                    .orElseThrow(() -> new IdempotencyConflictException(
+                            "A reading with this Idempotency-Key is being recorded, retry later"));
+        }
+    }
+
+    private ResponseEntity<ConsommationElectriqueDTO> replayed(ConsommationElectriqueDTO dto) {
+        return ResponseEntity.ok().header(IDEMPOTENT_REPLAYED, "true").body(dto);
+    }
+
+    private static void checkIdempotencyKey(String cleIdempotence) {
+        if (cleIdempotence != null
+                && (cleIdempotence.isBlank() || cleIdempotence.length() > IDEMPOTENCY_KEY_MAX_LENGTH)) {
+            throw new RuntimeException(IDEMPOTENCY_KEY + " must be 1 to " + IDEMPOTENCY_KEY_MAX_LENGTH + " characters");
+        }
+    }
+
+    /**
+     * Upload groupé au format binaire en colonnes (voir ConsommationBulkCodec).
+     * Le corps est décodé en streaming, sans DTO par mesure.
+     */
+    @PostMapping(value = "/bulk", consumes = ConsommationBulkCodec.CONTENT_TYPE)
+    public ResponseEntity<Map<String, Object>> createConsommationsBulk(HttpServletRequest request) throws IOException {
+        ConsommationColumns columns = ConsommationBulkCodec.decode(request.getInputStream(), bulkMaxRecords);
+        int count = consommationService.persistColumns(columns);
+        Map<String, Object> response = new HashMap<>();
+        response.put("count", count);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * Import d'un historique (fichier CSV ou NDJSON au format de l'export, gzip optionnel).
+     * L'import est asynchrone : l'avancement se lit sur la ressource renvoyée.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson", "application/gzip",
+            MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<Map<String, Object>> importConsommations(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletRequest request) throws IOException {
+        ImportJob job = importer.submit(request.getInputStream(), ExportFormat.parse(format), gzip);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(HttpHeaders.LOCATION, "/consommations/import/" + job.getId())
+                .body(job.progress());
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<Map<String, Object>> getImportProgress(@PathVariable String jobId) {
+        return ResponseEntity.ok(importer.progress(jobId)
+                .orElseThrow(() -> new RuntimeException("Import job not found with id: " + jobId)));
     }
 
     @PutMapping("/{id}")
@@ -82,6 +230,31 @@ public class ConsommationElectriqueController {
         response.put("totalEnergie", total);
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Prévisions heure par heure de toutes les pompes (planificateur, tableau de bord),
+     * les pompes les plus proches du seuil en premier.
+     */
+    @GetMapping("/prevision")
+    public ResponseEntity<List<PrevisionConsommationDTO>> getPrevisions(
+            @RequestParam(defaultValue = "6") int heures) {
+        return ResponseEntity.ok(forecaster.getPrevisions(checkHorizon(heures)));
+    }
+
+    @GetMapping("/prevision/pompe/{pompeId}")
+    public ResponseEntity<PrevisionConsommationDTO> getPrevisionByPompe(
+            @PathVariable Long pompeId,
+            @RequestParam(defaultValue = "6") int heures) {
+        return ResponseEntity.ok(forecaster.getPrevision(pompeId, checkHorizon(heures))
+                .orElseThrow(() -> new RuntimeException("No forecast for pompe: " + pompeId)));
+    }
+
+    private int checkHorizon(int heures) {
+        if (heures < 1 || heures > forecastMaxHours) {
+            throw new RuntimeException("heures must be between 1 and " + forecastMaxHours);
+        }
+        return heures;
+    }
     
     /**
      * SYNCHRONOUS ENDPOINT for Water Service
@@ -104,6 +277,24 @@ public class ConsommationElectriqueController {
         return ResponseEntity.ok(response);
     }
 
+    @ExceptionHandler(WriteBehindRejectedException.class)
+    public ResponseEntity<Map<String, String>> handleWriteBehindRejected(WriteBehindRejectedException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<Map<String, String>> handleIdempotencyConflict(IdempotencyConflictException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, String>> handleRuntimeException(RuntimeException ex) {
         Map<String, String> error = new HashMap<>();
@@ -5,6 +5,7 @@ import com.irrigation.energy.entity.Pompe;
 import com.irrigation.energy.service.PompeService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -58,8 +59,10 @@ public class PompeController {
     }
 
     @GetMapping("/energy/check")
-    public ResponseEntity<Map<String, Object>> checkEnergyAvailability(@RequestParam Double requiredPuissance) {
-        boolean available = pompeService.isEnergyAvailable(requiredPuissance);
+    public ResponseEntity<Map<String, Object>> checkEnergyAvailability(
+            @RequestParam Double requiredPuissance,
+            @RequestParam(required = false) Long pompeId) {
+        boolean available = pompeService.isEnergyAvailable(requiredPuissance, pompeId);
         Map<String, Object> response = new HashMap<>();
         response.put("available", available);
         response.put("requiredPuissance", requiredPuissance);
@@ -67,6 +70,11 @@ public class PompeController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/{id}/owner")
+    public ResponseEntity<Map<String, Object>> getOwner(@PathVariable Long id) {
+        return ResponseEntity.ok(pompeService.getOwnership(id));
+    }
+
     @PutMapping("/{id}/energy-status")
     public ResponseEntity<Map<String, String>> updateEnergyStatus(
             @PathVariable Long id, 
@@ -77,6 +85,14 @@ public class PompeController {
         return ResponseEntity.ok(response);
     }
 
+    // Écriture concurrente d'une autre instance : à relire puis réessayer
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Pompe was modified concurrently, retry the request");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, String>> handleRuntimeException(RuntimeException ex) {
         Map<String, String> error = new HashMap<>();
@@ -0,0 +1,17 @@
+package com.irrigation.energy.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointPrevisionDTO {
+    
+    private LocalDateTime date;
+    
+    private Double energie;
+}
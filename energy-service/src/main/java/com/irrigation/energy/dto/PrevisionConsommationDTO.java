@@ -0,0 +1,36 @@
+package com.irrigation.energy.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Prévision de consommation d'une pompe, heure par heure à partir de sa dernière mesure.
+ * {@code risque} indique qu'une prévision de l'horizon atteint le seuil de surconsommation.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrevisionConsommationDTO {
+    
+    private Long pompeId;
+    
+    private LocalDateTime dateMesure;
+    
+    private Double energieActuelle;
+    
+    private Double niveau;
+    
+    private Double tendanceParHeure;
+    
+    private Long mesures;
+    
+    private Double seuil;
+    
+    private Boolean risque;
+    
+    private List<PointPrevisionDTO> previsions;
+}
@@ -0,0 +1,23 @@
+package com.irrigation.energy.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ligne unique (id 1) du budget de puissance global : puissance totale des pompes ACTIVE.
+ *
+ * Lue et écrite en JDBC par PowerBudget ; l'entité ne sert qu'à générer la table (profil H2).
+ */
+@Entity
+@Table(name = "budget_puissance")
+@Getter
+@NoArgsConstructor
+public class BudgetPuissance {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false, name = "puissance_active")
+    private Double puissanceActive;
+}
@@ -0,0 +1,59 @@
+package com.irrigation.energy.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Clé d'idempotence d'une consommation (en-tête Idempotency-Key, par exemple identifiant
+ * d'équipement + numéro de séquence).
+ *
+ * Table à part : la table des consommations, partitionnée par mois en PostgreSQL, ne peut pas
+ * porter d'index unique sans la date de mesure. Une clé est conservée {@code ttl-hours} heures.
+ */
+@Entity
+@Table(name = "cles_idempotence_consommations",
+       indexes = @Index(name = "idx_cle_idem_conso_date", columnList = "date_creation"))
+@Getter
+@NoArgsConstructor
+public class CleIdempotence implements Persistable<String> {
+
+    @Id
+    @Column(length = 128)
+    private String cle;
+
+    @Column(nullable = false, name = "consommation_id")
+    private Long consommationId;
+
+    @Column(nullable = false, name = "date_creation")
+    private LocalDateTime dateCreation;
+
+    // Toujours insérée, jamais mise à jour : pas de SELECT préalable au persist
+    @Transient
+    private boolean nouvelle = true;
+
+    public CleIdempotence(String cle, Long consommationId, LocalDateTime dateCreation) {
+        this.cle = cle;
+        this.consommationId = consommationId;
+        this.dateCreation = dateCreation;
+    }
+
+    @Override
+    public String getId() {
+        return cle;
+    }
+
+    @Override
+    public boolean isNew() {
+        return nouvelle;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marquerEnregistree() {
+        nouvelle = false;
+    }
+}
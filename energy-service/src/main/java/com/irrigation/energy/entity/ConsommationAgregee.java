@@ -0,0 +1,53 @@
+package com.irrigation.energy.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Résumé horaire ou journalier des consommations d'une pompe, produit par le job de
+ * rétention à partir des mesures brutes compactées.
+ */
+@Entity
+@Table(name = "consommations_agregees",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"pompe_id", "granularite", "periode_debut"}),
+       indexes = @Index(name = "idx_conso_agregee_periode", columnList = "granularite, periode_debut"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsommationAgregee {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, name = "pompe_id")
+    private Long pompeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Granularite granularite;
+
+    @Column(nullable = false, name = "periode_debut")
+    private LocalDateTime periodeDebut;
+
+    @Column(nullable = false, name = "energie_totale")
+    private Double energieTotale;
+
+    @Column(nullable = false, name = "duree_totale")
+    private Double dureeTotale;
+
+    @Column(nullable = false, name = "energie_max")
+    private Double energieMax;
+
+    @Column(nullable = false, name = "nombre_mesures")
+    private Long nombreMesures;
+
+    public enum Granularite {
+        HEURE,
+        JOUR
+    }
+}
@@ -14,8 +14,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class ConsommationElectrique {
 
+    // Séquence avec pré-allocation : permet le batching JDBC des inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "consommation_seq")
+    @SequenceGenerator(name = "consommation_seq", sequenceName = "consommations_electriques_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, name = "pompe_id")
@@ -30,6 +32,10 @@ public class ConsommationElectrique {
     @Column(nullable = false, name = "date_mesure")
     private LocalDateTime dateMesure;
 
+    // Clé d'idempotence reçue avec la mesure, enregistrée à part (CleIdempotence)
+    @Transient
+    private String cleIdempotence;
+
     @PrePersist
     protected void onCreate() {
         if (dateMesure == null) {
@@ -4,11 +4,25 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
+/**
+ * Donnée de référence lue bien plus souvent qu'écrite : mise en cache de second niveau
+ * (région "pompes"). La stratégie READ_WRITE met à jour le cache au commit des
+ * modifications faites via l'entité (updatePompe, suppression) ; updateEnergyStatus est un
+ * UPDATE ciblé qui vide la région localement.
+ *
+ * Le cache est propre à chaque instance : une entrée peut dater d'avant l'écriture d'une
+ * autre instance. La version fait échouer l'écriture d'une telle entrée au lieu d'écraser
+ * la ligne plus récente ; les écritures relisent donc la ligne en base (findForUpdate).
+ */
 @Entity
 @Table(name = "pompes")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "pompes")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -34,6 +48,10 @@ public class Pompe {
     @Column(nullable = false, length = 20, name = "energy_status")
     private String energyStatus = "Normal";
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     public enum StatutPompe {
         ACTIVE,
         INACTIVE,
@@ -0,0 +1,40 @@
+package com.irrigation.energy.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mesures d'une pompe écrites par une instance qui ne la possède pas (upload groupé, import,
+ * client pas encore au courant d'un rééquilibrage), sur la période [debut, fin].
+ *
+ * Enregistrée dans la transaction des mesures ; le propriétaire de la pompe relit la période
+ * dans son tier mémoire puis supprime la ligne (voir ConsommationHotTier).
+ */
+@Entity
+@Table(name = "pompes_a_recharger")
+@Getter
+@NoArgsConstructor
+public class PompeARecharger {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, name = "pompe_id")
+    private Long pompeId;
+
+    @Column(nullable = false)
+    private LocalDateTime debut;
+
+    @Column(nullable = false)
+    private LocalDateTime fin;
+
+    public PompeARecharger(Long pompeId, LocalDateTime debut, LocalDateTime fin) {
+        this.pompeId = pompeId;
+        this.debut = debut;
+        this.fin = fin;
+    }
+}
@@ -0,0 +1,178 @@
+package com.irrigation.energy.forecast;
+
+import com.irrigation.commons.timeseries.EpochTime;
+import com.irrigation.energy.dto.PointPrevisionDTO;
+import com.irrigation.energy.dto.PrevisionConsommationDTO;
+import com.irrigation.energy.entity.ConsommationElectrique;
+import com.irrigation.energy.ownership.PompeOwnership;
+import com.irrigation.energy.ownership.PompeOwnershipChangedEvent;
+import com.irrigation.energy.publisher.OverconsumptionPublisher;
+import com.irrigation.energy.service.ConsommationElectriqueService;
+import com.irrigation.events.OverconsumptionForecastEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prévision en ligne de la consommation de chaque pompe ({@link PompeForecastModel}).
+ *
+ * Chaque consommation enregistrée met à jour le modèle de sa pompe après commit (une
+ * insertion annulée ne laisse ni trace dans le modèle ni délai de carence consommé,
+ * comme pour le tier mémoire et la projection d'efficacité), puis les prévisions
+ * des prochaines heures sont comparées au seuil de surconsommation : si l'une l'atteint
+ * alors que la mesure est encore sous le seuil, une alerte précoce est publiée (au plus
+ * une par pompe et par délai de carence). Les prévisions sont aussi exposées au
+ * planificateur et au tableau de bord.
+ *
+ * Avec plusieurs instances, chaque instance ne modélise que les pompes qu'elle possède
+ * (voir PompeOwnership) ; un modèle repris après un rééquilibrage repart de zéro.
+ */
+@Component
+public class ConsommationForecaster {
+
+    private final OverconsumptionPublisher overconsumptionPublisher;
+    private final PompeOwnership ownership;
+    private final boolean enabled;
+    private final double alpha;
+    private final double beta;
+    private final double gamma;
+    private final double amortissement;
+    private final double pasMinHeures;
+    private final long warmupReadings;
+    private final int horizonHeures;
+    private final double seuilAlerte;
+    private final long cooldownMillis;
+
+    private final Map<Long, PompeForecastModel> models = new ConcurrentHashMap<>();
+
+    public ConsommationForecaster(OverconsumptionPublisher overconsumptionPublisher,
+                                  PompeOwnership ownership,
+                                  @Value("${energy.forecast.enabled:true}") boolean enabled,
+                                  @Value("${energy.forecast.alpha:0.5}") double alpha,
+                                  @Value("${energy.forecast.beta:0.2}") double beta,
+                                  @Value("${energy.forecast.gamma:0.1}") double gamma,
+                                  @Value("${energy.forecast.damping:0.95}") double amortissement,
+                                  @Value("${energy.forecast.min-step-minutes:1}") long pasMinMinutes,
+                                  @Value("${energy.forecast.warmup-readings:10}") long warmupReadings,
+                                  @Value("${energy.forecast.warning-horizon-hours:3}") int horizonHeures,
+                                  @Value("${energy.forecast.warning-ratio:1.0}") double warningRatio,
+                                  @Value("${energy.forecast.cooldown-minutes:60}") long cooldownMinutes) {
+        this.overconsumptionPublisher = overconsumptionPublisher;
+        this.ownership = ownership;
+        this.enabled = enabled;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.gamma = gamma;
+        this.amortissement = amortissement;
+        this.pasMinHeures = pasMinMinutes / 60.0;
+        this.warmupReadings = warmupReadings;
+        this.horizonHeures = horizonHeures;
+        this.seuilAlerte = warningRatio * ConsommationElectriqueService.SEUIL_SURCONSOMMATION;
+        this.cooldownMillis = Duration.ofMinutes(cooldownMinutes).toMillis();
+    }
+
+    public void recordCreated(ConsommationElectrique consommation) {
+        if (enabled) {
+            long timestamp = EpochTime.toEpochMillis(consommation.getDateMesure());
+            afterCommit(() -> observe(consommation.getPompeId(), timestamp, consommation.getEnergieUtilisee()));
+        }
+    }
+
+    /**
+     * Intègre un upload en colonnes après commit, dans l'ordre des lignes.
+     */
+    public void recordCreated(int size, long[] pompeIds, long[] timestamps, double[] energies) {
+        if (enabled) {
+            afterCommit(() -> {
+                for (int row = 0; row < size; row++) {
+                    observe(pompeIds[row], timestamps[row], energies[row]);
+                }
+            });
+        }
+    }
+
+    public Optional<PrevisionConsommationDTO> getPrevision(Long pompeId, int heures) {
+        PompeForecastModel model = models.get(pompeId);
+        return model == null ? Optional.empty() : Optional.of(prevision(pompeId, model, heures));
+    }
+
+    /**
+     * Prévisions de toutes les pompes, les plus proches du seuil en premier.
+     */
+    public List<PrevisionConsommationDTO> getPrevisions(int heures) {
+        List<PrevisionConsommationDTO> result = new ArrayList<>(models.size());
+        models.forEach((pompeId, model) -> result.add(prevision(pompeId, model, heures)));
+        result.sort(Comparator.comparingDouble(ConsommationForecaster::maxPrevue).reversed());
+        return result;
+    }
+
+    @EventListener(PompeOwnershipChangedEvent.class)
+    void onOwnershipChanged() {
+        models.keySet().removeIf(pompeId -> !ownership.isOwner(pompeId));
+    }
+
+    private void observe(long pompeId, long timestamp, double energie) {
+        if (!ownership.isOwner(pompeId)) {
+            return;
+        }
+        PompeForecastModel model = models.computeIfAbsent(pompeId, key -> new PompeForecastModel());
+        model.update(timestamp, energie, alpha, beta, gamma, amortissement, pasMinHeures);
+        if (energie > ConsommationElectriqueService.SEUIL_SURCONSOMMATION || model.mesures() < warmupReadings) {
+            return;
+        }
+        for (int h = 1; h <= horizonHeures; h++) {
+            long date = timestamp + h * PompeForecastModel.HOUR_MILLIS;
+            double prevue = model.forecast(date, amortissement);
+            if (prevue >= seuilAlerte) {
+                if (model.tryAlert(timestamp, cooldownMillis)) {
+                    overconsumptionPublisher.publishForecast(new OverconsumptionForecastEvent(pompeId, prevue,
+                            ConsommationElectriqueService.SEUIL_SURCONSOMMATION, EpochTime.toLocalDateTime(date),
+                            energie, EpochTime.toLocalDateTime(timestamp)));
+                }
+                return;
+            }
+        }
+    }
+
+    private PrevisionConsommationDTO prevision(Long pompeId, PompeForecastModel model, int heures) {
+        long derniereMesure = model.derniereMesure();
+        List<PointPrevisionDTO> points = new ArrayList<>(heures);
+        boolean risque = false;
+        for (int h = 1; h <= heures; h++) {
+            long date = derniereMesure + h * PompeForecastModel.HOUR_MILLIS;
+            double prevue = model.forecast(date, amortissement);
+            risque |= prevue >= seuilAlerte;
+            points.add(new PointPrevisionDTO(EpochTime.toLocalDateTime(date), prevue));
+        }
+        return new PrevisionConsommationDTO(pompeId, EpochTime.toLocalDateTime(derniereMesure),
+                model.derniereEnergie(), model.niveau(), model.tendance(), model.mesures(),
+                ConsommationElectriqueService.SEUIL_SURCONSOMMATION, risque, points);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static double maxPrevue(PrevisionConsommationDTO prevision) {
+        return prevision.getPrevisions().stream().mapToDouble(PointPrevisionDTO::getEnergie).max().orElse(0.0);
+    }
+}
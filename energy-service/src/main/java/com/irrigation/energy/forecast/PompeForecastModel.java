@@ -0,0 +1,119 @@
+package com.irrigation.energy.forecast;
+
+/**
+ * Modèle de prévision de consommation d'une pompe : lissage exponentiel de Holt à tendance
+ * amortie (niveau, tendance en kWh par heure) et composante saisonnière additive par heure
+ * de la journée. État borné (29 valeurs), mise à jour et prévision en O(1).
+ *
+ * Les mesures arrivent à intervalles irréguliers : la tendance est exprimée par heure et
+ * projetée sur l'écart réel entre deux mesures. Elle n'est recalculée qu'une fois le pas
+ * minimal écoulé depuis son dernier calcul, sur la variation du niveau depuis ce calcul :
+ * des mesures rapprochées sont ainsi agrégées au lieu de diviser leur écart de niveau par
+ * une durée quasi nulle. Une mesure plus ancienne que la dernière reçue met à jour le niveau
+ * sans toucher à la tendance ni faire reculer l'horloge du modèle.
+ */
+class PompeForecastModel {
+
+    static final long HOUR_MILLIS = 3_600_000L;
+    private static final int HOURS_PER_DAY = 24;
+
+    private final double[] saisons = new double[HOURS_PER_DAY];
+
+    private double niveau;
+    private double tendance;
+    private double derniereEnergie;
+    private long derniereMesure;
+    // Niveau et date du dernier calcul de la tendance
+    private double niveauReference;
+    private long mesureReference;
+    private long mesures;
+    private long derniereAlerte = Long.MIN_VALUE / 2;
+
+    /**
+     * @param alpha        Lissage du niveau
+     * @param beta         Lissage de la tendance
+     * @param gamma        Lissage des composantes horaires
+     * @param amortissement Amortissement horaire de la tendance (0 < phi < 1)
+     * @param pasMinHeures Écart minimal entre deux calculs de la tendance
+     */
+    synchronized void update(long timestamp, double energie, double alpha, double beta, double gamma,
+                             double amortissement, double pasMinHeures) {
+        derniereEnergie = energie;
+        if (mesures++ == 0) {
+            niveau = energie;
+            niveauReference = energie;
+            derniereMesure = timestamp;
+            mesureReference = timestamp;
+            return;
+        }
+        double ecart = Math.max(0.0, (timestamp - derniereMesure) / (double) HOUR_MILLIS);
+        int heure = heureDuJour(timestamp);
+        double niveauPrevu = niveau + tendance * cumulAmorti(ecart, amortissement);
+        niveau = alpha * (energie - saisons[heure]) + (1 - alpha) * niveauPrevu;
+        saisons[heure] = gamma * (energie - niveau) + (1 - gamma) * saisons[heure];
+        if (timestamp > derniereMesure) {
+            derniereMesure = timestamp;
+        }
+        double heures = (timestamp - mesureReference) / (double) HOUR_MILLIS;
+        if (heures >= pasMinHeures) {
+            tendance = beta * (niveau - niveauReference) / heures
+                    + (1 - beta) * tendance * Math.pow(amortissement, heures);
+            niveauReference = niveau;
+            mesureReference = timestamp;
+        }
+    }
+
+    /**
+     * Énergie prévue pour une mesure à {@code timestamp} (jamais négative).
+     */
+    synchronized double forecast(long timestamp, double amortissement) {
+        double heures = Math.max(0.0, (timestamp - derniereMesure) / (double) HOUR_MILLIS);
+        double prevision = niveau + tendance * cumulAmorti(heures, amortissement) + saisons[heureDuJour(timestamp)];
+        return Math.max(0.0, prevision);
+    }
+
+    /**
+     * Réserve l'envoi d'une alerte précoce si la précédente date d'au moins {@code cooldownMillis}.
+     */
+    synchronized boolean tryAlert(long now, long cooldownMillis) {
+        if (now - derniereAlerte < cooldownMillis) {
+            return false;
+        }
+        derniereAlerte = now;
+        return true;
+    }
+
+    synchronized long mesures() {
+        return mesures;
+    }
+
+    synchronized long derniereMesure() {
+        return derniereMesure;
+    }
+
+    synchronized double derniereEnergie() {
+        return derniereEnergie;
+    }
+
+    synchronized double niveau() {
+        return niveau;
+    }
+
+    synchronized double tendance() {
+        return tendance;
+    }
+
+    /**
+     * Somme phi + phi² + ... + phi^h : effet cumulé d'une tendance amortie sur h heures.
+     */
+    private static double cumulAmorti(double heures, double amortissement) {
+        if (amortissement >= 1.0) {
+            return heures;
+        }
+        return amortissement * (1 - Math.pow(amortissement, heures)) / (1 - amortissement);
+    }
+
+    private static int heureDuJour(long timestamp) {
+        return (int) Math.floorMod(Math.floorDiv(timestamp, HOUR_MILLIS), (long) HOURS_PER_DAY);
+    }
+}
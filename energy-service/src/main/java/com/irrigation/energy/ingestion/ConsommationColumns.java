@@ -0,0 +1,88 @@
+package com.irrigation.energy.ingestion;
+
+import java.util.Arrays;
+
+/**
+ * Lot de consommations en colonnes primitives, tel que décodé d'un upload binaire.
+ * Aucun objet par mesure : les colonnes sont lues telles quelles par l'insertion JDBC
+ * et le tier mémoire.
+ */
+public class ConsommationColumns {
+
+    private long[] pompeIds;
+    private long[] timestamps;
+    private double[] energies;
+    private double[] durees;
+    private int size;
+
+    public ConsommationColumns(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        this.pompeIds = new long[capacity];
+        this.timestamps = new long[capacity];
+        this.energies = new double[capacity];
+        this.durees = new double[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long[] pompeIds() {
+        return pompeIds;
+    }
+
+    public long[] timestamps() {
+        return timestamps;
+    }
+
+    public double[] energies() {
+        return energies;
+    }
+
+    public double[] durees() {
+        return durees;
+    }
+
+    /**
+     * Ajoute une mesure en fin de lot.
+     */
+    public void add(long pompeId, long timestamp, double energie, double duree) {
+        setPompeId(size, pompeId);
+        setTimestamp(size, timestamp);
+        setEnergie(size, energie);
+        setDuree(size, duree);
+        size++;
+    }
+
+    void setPompeId(int row, long value) {
+        pompeIds = ensure(pompeIds, row);
+        pompeIds[row] = value;
+    }
+
+    void setTimestamp(int row, long value) {
+        timestamps = ensure(timestamps, row);
+        timestamps[row] = value;
+    }
+
+    void setEnergie(int row, double value) {
+        energies = ensure(energies, row);
+        energies[row] = value;
+    }
+
+    void setDuree(int row, double value) {
+        durees = ensure(durees, row);
+        durees[row] = value;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    private static long[] ensure(long[] column, int row) {
+        return row < column.length ? column : Arrays.copyOf(column, column.length * 2);
+    }
+
+    private static double[] ensure(double[] column, int row) {
+        return row < column.length ? column : Arrays.copyOf(column, column.length * 2);
+    }
+}
@@ -0,0 +1,198 @@
+package com.irrigation.energy.ingestion;
+
+import com.irrigation.commons.ingestion.IdempotencyConflictException;
+import com.irrigation.commons.ingestion.IdempotencyFilter;
+import com.irrigation.energy.entity.CleIdempotence;
+import com.irrigation.energy.repository.CleIdempotenceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Déduplication des réémissions de POST /consommations (en-tête Idempotency-Key).
+ *
+ * Chemin rapide en mémoire : une clé que le filtre de Bloom n'a jamais vue est nouvelle, sans
+ * accès base ; une clé récente donne directement la mesure déjà enregistrée. La table des clés
+ * n'est lue que pour les « peut-être » restants. Sa clé primaire reste l'arbitre final : deux
+ * envois simultanés de la même clé (ou depuis deux instances) ne peuvent pas tous deux réussir.
+ * La clé est prise par un INSERT qui ne fait rien si elle existe déjà ({@link #claim}) : une
+ * réémission arrivée sur une autre instance, dont le filtre ne connaît pas la clé, est écartée
+ * seule au lieu de faire échouer tout son lot write-behind.
+ */
+@Slf4j
+@Component
+public class ConsommationIdempotence {
+
+    private static final String CLAIM_POSTGRES = "INSERT INTO cles_idempotence_consommations "
+            + "(cle, consommation_id, date_creation) VALUES (?, ?, ?) ON CONFLICT (cle) DO NOTHING";
+    // H2 (profil par défaut) n'a pas ON CONFLICT hors mode de compatibilité PostgreSQL
+    private static final String CLAIM_H2 = "MERGE INTO cles_idempotence_consommations c "
+            + "USING (VALUES (?, ?, ?)) n(cle, consommation_id, date_creation) ON c.cle = n.cle "
+            + "WHEN NOT MATCHED THEN INSERT (cle, consommation_id, date_creation) "
+            + "VALUES (n.cle, n.consommation_id, n.date_creation)";
+
+    private final CleIdempotenceRepository cleRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final String claimSql;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final IdempotencyFilter filter;
+    private final long ttlHours;
+    private final Set<String> enCours = ConcurrentHashMap.newKeySet();
+    private final Counter nouvelles;
+    private final Counter recentes;
+    private final Counter enBase;
+    private final Counter fauxPositifs;
+
+    public ConsommationIdempotence(CleIdempotenceRepository cleRepository,
+                                   JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${energy.idempotency.expected-keys:1000000}") int expectedKeys,
+                                   @Value("${energy.idempotency.false-positive-rate:0.01}") double falsePositiveRate,
+                                   @Value("${energy.idempotency.recent-keys:10000}") int recentKeys,
+                                   @Value("${energy.idempotency.ttl-hours:48}") long ttlHours) {
+        this.cleRepository = cleRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.claimSql = claimSql(jdbcTemplate.getDataSource());
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.filter = new IdempotencyFilter(expectedKeys, falsePositiveRate, recentKeys);
+        this.ttlHours = ttlHours;
+        this.nouvelles = lookups(meterRegistry, "absent");
+        this.recentes = lookups(meterRegistry, "recent");
+        this.enBase = lookups(meterRegistry, "stored");
+        this.fauxPositifs = lookups(meterRegistry, "false_positive");
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("energy.idempotency.lookups").tag("result", result).register(meterRegistry);
+    }
+
+    /**
+     * Identifiant de la consommation déjà enregistrée sous cette clé. Appelé dans une transaction
+     * en écriture, la lecture éventuelle se fait sur le primaire (pas de retard de réplique).
+     */
+    public Optional<Long> find(String cle) {
+        if (!filter.mightContain(cle)) {
+            nouvelles.increment();
+            return Optional.empty();
+        }
+        Optional<Long> recente = filter.recent(cle);
+        if (recente.isPresent()) {
+            recentes.increment();
+            return recente;
+        }
+        Optional<Long> stockee = cleRepository.findById(cle).map(CleIdempotence::getConsommationId);
+        (stockee.isPresent() ? enBase : fauxPositifs).increment();
+        stockee.ifPresent(id -> filter.remember(cle, id));
+        return stockee;
+    }
+
+    /**
+     * Prend la clé pour une consommation, dans la transaction de la mesure ; le filtre et le
+     * LRU sont mis à jour après le commit. Une clé déjà prise (ou en cours de prise par une
+     * transaction concurrente, attendue par la base) ne lève pas d'erreur.
+     *
+     * @return L'id de la consommation qui détient déjà la clé, ou vide si la clé vient d'être prise
+     */
+    public Optional<Long> claim(String cle, Long consommationId) {
+        if (jdbcTemplate.update(claimSql, cle, consommationId, LocalDateTime.now()) == 0) {
+            filter.add(cle);
+            return cleRepository.findById(cle).map(CleIdempotence::getConsommationId);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    filter.remember(cle, consommationId);
+                }
+            });
+        } else {
+            filter.remember(cle, consommationId);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * La base a refusé la clé (clé primaire) : le filtre local doit répondre « peut-être ».
+     */
+    public void markStored(String cle) {
+        filter.add(cle);
+    }
+
+    /**
+     * Réserve une clé le temps qu'une mesure mise en file write-behind soit commitée :
+     * deux envois de la même clé ne doivent pas se retrouver dans le même lot.
+     *
+     * @throws IdempotencyConflictException Si la clé est déjà réservée
+     */
+    public void reserve(String cle) {
+        if (!enCours.add(cle)) {
+            throw new IdempotencyConflictException("A reading with this Idempotency-Key is being recorded, retry later");
+        }
+    }
+
+    public void release(String cle) {
+        enCours.remove(cle);
+    }
+
+    /**
+     * Remplit le filtre avec les clés encore conservées : après un redémarrage, une réémission
+     * passe par le chemin « peut-être » au lieu d'échouer sur la clé primaire.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp() {
+        long count = readOnlyTransaction.execute(status -> {
+            long loaded = 0;
+            try (Stream<String> cles = cleRepository.streamClesDepuis(LocalDateTime.now().minusHours(ttlHours))) {
+                for (Iterator<String> it = cles.iterator(); it.hasNext(); loaded++) {
+                    filter.add(it.next());
+                }
+            }
+            return loaded;
+        });
+        log.info("🔑 Idempotency filter loaded with {} keys ({} KB)", count, filter.sizeInBytes() / 1024);
+    }
+
+    @Scheduled(cron = "${energy.idempotency.purge-cron:0 15 * * * *}")
+    public void purge() {
+        LocalDateTime avant = LocalDateTime.now().minusHours(ttlHours);
+        Integer deleted = transactionTemplate.execute(status -> cleRepository.deleteCreeesAvant(avant));
+        if (deleted != null && deleted > 0) {
+            log.info("🔑 Purged {} idempotency keys older than {} h", deleted, ttlHours);
+        }
+    }
+
+    private static String claimSql(DataSource dataSource) {
+        try {
+            String product = JdbcUtils.commonDatabaseName(
+                    JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
+            return "PostgreSQL".equals(product) ? CLAIM_POSTGRES : CLAIM_H2;
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("Cannot determine the database for cles_idempotence_consommations", e);
+        }
+    }
+}
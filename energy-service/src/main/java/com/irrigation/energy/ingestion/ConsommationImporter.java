@@ -0,0 +1,335 @@
+package com.irrigation.energy.ingestion;
+
+import com.irrigation.commons.timeseries.EpochTime;
+import com.irrigation.energy.entity.SuiviImport;
+import com.irrigation.energy.export.ExportFormat;
+import com.irrigation.energy.publisher.MeasurementPublisher;
+import com.irrigation.energy.publisher.OverconsumptionPublisher;
+import com.irrigation.energy.repository.PompeRepository;
+import com.irrigation.energy.repository.SuiviImportRepository;
+import com.irrigation.energy.retention.ConsommationRetentionJob;
+import com.irrigation.energy.service.ConsommationElectriqueService;
+import com.irrigation.energy.timeseries.ConsommationHotTier;
+import com.irrigation.events.OverconsumptionEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Import en masse d'historiques de consommation depuis un fichier CSV ou NDJSON.
+ *
+ * Le corps est d'abord copié dans un fichier temporaire, puis découpé en morceaux de
+ * {@code chunk-bytes} alignés sur les fins de ligne. Chaque morceau est projeté en mémoire
+ * (mmap) et parsé en colonnes sur un pool de {@code parallelism} threads ; un seul thread
+ * persiste les morceaux parsés (insertion JDBC par lots, une transaction par morceau).
+ * Le nombre de morceaux en vol est borné, la mémoire ne dépend donc pas de la taille du
+ * fichier.
+ *
+ * Aucune alerte n'est émise par ligne historique : une fois l'import terminé, les résumés
+ * sont recalculés en une passe par le job de rétention, et seule la dernière
+ * surconsommation de chaque pompe est publiée si elle est assez récente.
+ *
+ * L'avancement est recopié dans la table des suivis d'import après chaque morceau : la
+ * ressource /consommations/import/{jobId} peut être servie par n'importe quelle instance.
+ */
+@Slf4j
+@Component
+public class ConsommationImporter {
+
+    // Taille lue pour trouver la fin de ligne qui termine un morceau
+    private static final int BOUNDARY_SCAN_BYTES = 8192;
+
+    private final ConsommationBulkWriter bulkWriter;
+    private final ConsommationHotTier hotTier;
+    private final PompeRepository pompeRepository;
+    private final OverconsumptionPublisher overconsumptionPublisher;
+    private final MeasurementPublisher measurementPublisher;
+    private final ConsommationRetentionJob retentionJob;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkBytes;
+    private final int parallelism;
+    private final long alertWindowMillis;
+    private final Duration jobRetention;
+
+    private final ExecutorService coordinator;
+    private final ExecutorService parsers;
+    private final SuiviImportRepository suiviRepository;
+
+    // Imports reçus par cette instance et pas encore terminés
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    // Dernière surconsommation de chaque pompe vue pendant l'import en cours (thread coordinateur)
+    private final Map<Long, OverconsumptionEvent> latestOverconsumptions = new HashMap<>();
+
+    public ConsommationImporter(ConsommationBulkWriter bulkWriter,
+                                ConsommationHotTier hotTier,
+                                PompeRepository pompeRepository,
+                                OverconsumptionPublisher overconsumptionPublisher,
+                                MeasurementPublisher measurementPublisher,
+                                ConsommationRetentionJob retentionJob,
+                                PlatformTransactionManager transactionManager,
+                                SuiviImportRepository suiviRepository,
+                                @Value("${energy.import.chunk-bytes:8388608}") int chunkBytes,
+                                @Value("${energy.import.parallelism:0}") int parallelism,
+                                @Value("${energy.import.alert-window-hours:24}") long alertWindowHours,
+                                @Value("${energy.import.job-retention-hours:24}") long jobRetentionHours) {
+        this.bulkWriter = bulkWriter;
+        this.hotTier = hotTier;
+        this.pompeRepository = pompeRepository;
+        this.overconsumptionPublisher = overconsumptionPublisher;
+        this.measurementPublisher = measurementPublisher;
+        this.retentionJob = retentionJob;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.suiviRepository = suiviRepository;
+        this.chunkBytes = chunkBytes;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.alertWindowMillis = Duration.ofHours(alertWindowHours).toMillis();
+        this.jobRetention = Duration.ofHours(jobRetentionHours);
+        this.coordinator = Executors.newSingleThreadExecutor(daemonThreads("consommation-import"));
+        this.parsers = Executors.newFixedThreadPool(this.parallelism, daemonThreads("consommation-import-parser"));
+    }
+
+    /**
+     * Copie le corps dans un fichier temporaire et planifie son import.
+     * Les imports sont exécutés l'un après l'autre.
+     *
+     * @throws IllegalArgumentException si le corps gzip est invalide
+     */
+    public ImportJob submit(InputStream body, ExportFormat format, boolean gzip) throws IOException {
+        Path file = Files.createTempFile("consommations-import-", "." + format.extension());
+        try (InputStream in = gzip ? new GZIPInputStream(body, 65536) : body) {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (ZipException e) {
+            Files.deleteIfExists(file);
+            throw new IllegalArgumentException("Invalid gzip body: " + e.getMessage(), e);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        purgeFinishedJobs();
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), format, Files.size(file));
+        suiviRepository.save(job.suivi());
+        jobs.put(job.getId(), job);
+        coordinator.execute(() -> run(job, file));
+        log.info("📥 Import {} queued: {} bytes of {}", job.getId(), Files.size(file), format);
+        return job;
+    }
+
+    /**
+     * Avancement d'un import, quelle que soit l'instance qui l'exécute.
+     */
+    public Optional<Map<String, Object>> progress(String jobId) {
+        return suiviRepository.findById(jobId).map(SuiviImport::progress);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        coordinator.shutdownNow();
+        parsers.shutdownNow();
+        if (!jobs.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> suiviRepository.failNonTermines(
+                        List.copyOf(jobs.keySet()), "Instance stopped during import", LocalDateTime.now()));
+            } catch (RuntimeException e) {
+                log.warn("⚠️ Could not mark {} unfinished imports as failed: {}", jobs.size(), e.getMessage());
+            }
+        }
+    }
+
+    private void run(ImportJob job, Path file) {
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            importFile(job, channel);
+            retentionJob.run();
+            publishLatestOverconsumptions(job);
+            job.complete();
+            suiviRepository.save(job.suivi());
+            double seconds = (System.nanoTime() - started) / 1e9;
+            log.info("📥 Import {} completed: {} readings in {} s ({} readings/s)", job.getId(),
+                    job.rowsImported(), String.format("%.1f", seconds), Math.round(job.rowsImported() / seconds));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Import interrupted");
+            saveFailure(job);
+        } catch (Exception e) {
+            log.error("❌ Import {} failed: {}", job.getId(), e.getMessage());
+            job.fail(e.getMessage());
+            saveFailure(job);
+        } finally {
+            jobs.remove(job.getId());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("⚠️ Could not delete import spool file {}", file);
+            }
+        }
+    }
+
+    private void importFile(ImportJob job, FileChannel channel) throws IOException, InterruptedException, ExecutionException {
+        long size = channel.size();
+        long position = 0;
+        ConsommationLineParser parser;
+        if (job.getFormat() == ExportFormat.CSV) {
+            long headerEnd = lineEnd(channel, 0, size);
+            ByteBuffer header = ByteBuffer.allocate((int) headerEnd);
+            channel.read(header, 0);
+            parser = ConsommationLineParser.csv(new String(header.array(), StandardCharsets.UTF_8));
+            position = headerEnd;
+            job.addBytes(headerEnd);
+        } else {
+            parser = ConsommationLineParser.ndjson();
+        }
+
+        Map<Long, Boolean> pompes = new ConcurrentHashMap<>();
+        LongPredicate knownPompe = pompeId -> pompes.computeIfAbsent(pompeId, pompeRepository::existsById);
+        latestOverconsumptions.clear();
+
+        CompletionService<ConsommationLineParser.Chunk> completion = new ExecutorCompletionService<>(parsers);
+        int inFlight = 0;
+        while (position < size || inFlight > 0) {
+            // Au plus deux morceaux en attente par parser : mémoire bornée, pool toujours occupé
+            while (position < size && inFlight < parallelism * 2) {
+                long start = position;
+                long end = Math.min(size, lineEnd(channel, Math.min(size, start + chunkBytes), size));
+                ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                completion.submit(() -> parser.parse(region, start, knownPompe));
+                position = end;
+                inFlight++;
+            }
+            ConsommationLineParser.Chunk chunk = completion.take().get();
+            inFlight--;
+            persist(chunk.columns());
+            job.addImported(chunk.columns().size());
+            job.addRejected(chunk.rejected(), chunk.errors());
+            job.addBytes(chunk.bytes());
+            suiviRepository.save(job.suivi());
+        }
+    }
+
+    private void persist(ConsommationColumns columns) {
+        int size = columns.size();
+        if (size == 0) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            long[] ids = bulkWriter.insert(columns);
+            hotTier.recordCreated(size, ids, columns.pompeIds(), columns.timestamps(),
+                    columns.energies(), columns.durees());
+            measurementPublisher.recordCreated(size, columns.pompeIds(), columns.timestamps(), columns.energies());
+        });
+
+        long[] pompeIds = columns.pompeIds();
+        long[] timestamps = columns.timestamps();
+        double[] energies = columns.energies();
+        for (int row = 0; row < size; row++) {
+            if (energies[row] > ConsommationElectriqueService.SEUIL_SURCONSOMMATION) {
+                OverconsumptionEvent latest = latestOverconsumptions.get(pompeIds[row]);
+                LocalDateTime dateMesure = EpochTime.toLocalDateTime(timestamps[row]);
+                if (latest == null || dateMesure.isAfter(latest.getDateMesure())) {
+                    latestOverconsumptions.put(pompeIds[row], new OverconsumptionEvent(pompeIds[row],
+                            energies[row], ConsommationElectriqueService.SEUIL_SURCONSOMMATION, dateMesure));
+                }
+            }
+        }
+    }
+
+    /**
+     * Une seule alerte par pompe, et seulement pour une surconsommation encore d'actualité.
+     */
+    private void publishLatestOverconsumptions(ImportJob job) {
+        LocalDateTime since = EpochTime.toLocalDateTime(EpochTime.toEpochMillis(LocalDateTime.now()) - alertWindowMillis);
+        int published = 0;
+        for (OverconsumptionEvent event : latestOverconsumptions.values()) {
+            if (!event.getDateMesure().isBefore(since)) {
+                try {
+                    overconsumptionPublisher.publishOverconsumption(event);
+                    published++;
+                } catch (RuntimeException e) {
+                    // Les mesures sont déjà commitées : l'échec d'alerte est signalé sans faire échouer l'import
+                    log.error("❌ Import {}: overconsumption alert for pump {} not published: {}",
+                            job.getId(), event.getPompeId(), e.getMessage());
+                    job.addRejected(0, List.of("alert for pompe " + event.getPompeId() + " not published: " + e.getMessage()));
+                }
+            }
+        }
+        log.info("📥 Import {}: {} pumps with historical overconsumption, {} recent alerts published",
+                job.getId(), latestOverconsumptions.size(), published);
+        latestOverconsumptions.clear();
+    }
+
+    /**
+     * @return La position qui suit la première fin de ligne à partir de {@code from}, ou la fin du fichier
+     */
+    private static long lineEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SCAN_BYTES);
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private void saveFailure(ImportJob job) {
+        try {
+            suiviRepository.save(job.suivi());
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Could not record failure of import {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    private void purgeFinishedJobs() {
+        LocalDateTime limit = LocalDateTime.now().minus(jobRetention);
+        transactionTemplate.executeWithoutResult(status -> suiviRepository.deleteTerminesAvant(limit));
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,183 @@
+package com.irrigation.energy.ingestion;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.irrigation.commons.timeseries.EpochTime;
+import com.irrigation.energy.export.ExportFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * Parse un morceau de fichier d'import (CSV ou NDJSON) en colonnes primitives.
+ *
+ * Les colonnes attendues sont celles de l'export : {@code pompeId}, {@code dateMesure}
+ * (ISO local, ou epoch ms en NDJSON), {@code energieUtilisee} et {@code duree} ; les
+ * autres (dont {@code id}) sont ignorées. Une ligne invalide est rejetée et comptée,
+ * sans interrompre le morceau. Sans état mutable : un parser est partagé par les workers.
+ */
+final class ConsommationLineParser {
+
+    // Nombre maximal de rejets détaillés par morceau
+    private static final int MAX_ERRORS = 5;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    record Chunk(ConsommationColumns columns, long bytes, long rejected, List<String> errors) {
+    }
+
+    private final ExportFormat format;
+    private final int columnCount;
+    private final int pompeCol;
+    private final int dateCol;
+    private final int energieCol;
+    private final int dureeCol;
+
+    private ConsommationLineParser(ExportFormat format, int columnCount,
+                                   int pompeCol, int dateCol, int energieCol, int dureeCol) {
+        this.format = format;
+        this.columnCount = columnCount;
+        this.pompeCol = pompeCol;
+        this.dateCol = dateCol;
+        this.energieCol = energieCol;
+        this.dureeCol = dureeCol;
+    }
+
+    static ConsommationLineParser ndjson() {
+        return new ConsommationLineParser(ExportFormat.NDJSON, 0, -1, -1, -1, -1);
+    }
+
+    /**
+     * @throws IllegalArgumentException si une colonne obligatoire manque dans l'en-tête
+     */
+    static ConsommationLineParser csv(String header) {
+        String[] names = header.strip().split(",", -1);
+        return new ConsommationLineParser(ExportFormat.CSV, names.length,
+                indexOf(names, "pompeId"), indexOf(names, "dateMesure"),
+                indexOf(names, "energieUtilisee"), indexOf(names, "duree"));
+    }
+
+    /**
+     * @param offset     Position du morceau dans le fichier (pour les messages de rejet)
+     * @param knownPompe Vrai si la pompe existe
+     */
+    Chunk parse(ByteBuffer region, long offset, LongPredicate knownPompe) {
+        int length = region.remaining();
+        ConsommationColumns columns = new ConsommationColumns(length / 48);
+        List<String> errors = new ArrayList<>();
+        long rejected = 0;
+        String[] fields = new String[columnCount];
+        byte[] line = new byte[256];
+
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineLength = 0;
+            int position = lineStart;
+            byte b;
+            while (position < length && (b = region.get(position)) != '\n') {
+                if (lineLength == line.length) {
+                    line = Arrays.copyOf(line, line.length * 2);
+                }
+                line[lineLength++] = b;
+                position++;
+            }
+            if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                lineLength--;
+            }
+            if (lineLength > 0) {
+                try {
+                    if (format == ExportFormat.CSV) {
+                        parseCsv(new String(line, 0, lineLength, StandardCharsets.UTF_8), fields, columns, knownPompe);
+                    } else {
+                        parseJson(line, lineLength, columns, knownPompe);
+                    }
+                } catch (IllegalArgumentException | DateTimeParseException | IOException e) {
+                    rejected++;
+                    if (errors.size() < MAX_ERRORS) {
+                        errors.add("offset " + (offset + lineStart) + ": " + e.getMessage());
+                    }
+                }
+            }
+            lineStart = position + 1;
+        }
+        return new Chunk(columns, length, rejected, errors);
+    }
+
+    private void parseCsv(String line, String[] fields, ConsommationColumns columns, LongPredicate knownPompe) {
+        int start = 0;
+        for (int i = 0; i < columnCount; i++) {
+            int comma = i < columnCount - 1 ? line.indexOf(',', start) : line.length();
+            if (comma < 0) {
+                throw new IllegalArgumentException("expected " + columnCount + " fields");
+            }
+            fields[i] = line.substring(start, comma).strip();
+            start = comma + 1;
+        }
+        add(columns, knownPompe,
+                Long.parseLong(fields[pompeCol]),
+                EpochTime.toEpochMillis(LocalDateTime.parse(fields[dateCol])),
+                Double.parseDouble(fields[energieCol]),
+                Double.parseDouble(fields[dureeCol]));
+    }
+
+    private static void parseJson(byte[] line, int length, ConsommationColumns columns,
+                                  LongPredicate knownPompe) throws IOException {
+        long pompeId = -1;
+        long timestamp = Long.MIN_VALUE;
+        double energie = Double.NaN;
+        double duree = Double.NaN;
+        try (JsonParser parser = JSON.createParser(line, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "pompeId" -> pompeId = parser.getLongValue();
+                    case "dateMesure" -> timestamp = value == JsonToken.VALUE_NUMBER_INT
+                            ? parser.getLongValue()
+                            : EpochTime.toEpochMillis(LocalDateTime.parse(parser.getText()));
+                    case "energieUtilisee" -> energie = parser.getDoubleValue();
+                    case "duree" -> duree = parser.getDoubleValue();
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e.getOriginalMessage());
+        }
+        if (pompeId < 0 || timestamp == Long.MIN_VALUE) {
+            throw new IllegalArgumentException("pompeId and dateMesure are required");
+        }
+        add(columns, knownPompe, pompeId, timestamp, energie, duree);
+    }
+
+    private static void add(ConsommationColumns columns, LongPredicate knownPompe,
+                            long pompeId, long timestamp, double energie, double duree) {
+        if (!(energie > 0) || !(duree > 0)) {
+            throw new IllegalArgumentException("energieUtilisee and duree must be positive");
+        }
+        if (!knownPompe.test(pompeId)) {
+            throw new IllegalArgumentException("Pompe not found with id: " + pompeId);
+        }
+        columns.add(pompeId, timestamp, energie, duree);
+    }
+
+    private static int indexOf(String[] names, String column) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].strip().equals(column)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("CSV header is missing column " + column);
+    }
+}
@@ -0,0 +1,155 @@
+package com.irrigation.energy.ingestion;
+
+import com.irrigation.commons.ingestion.WriteBehindQueue;
+import com.irrigation.commons.ingestion.WriteBehindRejectedException;
+import com.irrigation.energy.dto.ConsommationElectriqueDTO;
+import com.irrigation.energy.entity.ConsommationElectrique;
+import com.irrigation.energy.service.ConsommationElectriqueService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Mode write-behind optionnel pour POST /consommations.
+ *
+ * La mesure est validée de façon synchrone puis déposée dans une file bornée ;
+ * un writer unique la persiste par lots (group commit). Durabilité :
+ *   ENQUEUE → accusé dès la mise en file (202, perdu en cas de crash)
+ *   COMMIT  → accusé après le commit du lot (201, bénéficie quand même du batching)
+ * Contre-pression quand la file est pleine :
+ *   REJECT → 503 immédiat
+ *   SYNC   → l'appelant persiste lui-même sa mesure
+ */
+@Slf4j
+@Component
+public class ConsommationWriteBehind {
+
+    public enum Durability { ENQUEUE, COMMIT }
+
+    public enum Backpressure { REJECT, SYNC }
+
+    private final ConsommationElectriqueService consommationService;
+    private final ConsommationIdempotence idempotence;
+    private final boolean enabled;
+    private final Durability durability;
+    private final Backpressure backpressure;
+    private final long commitTimeoutMillis;
+    private final WriteBehindQueue<ConsommationElectrique> queue;
+
+    public ConsommationWriteBehind(ConsommationElectriqueService consommationService,
+                                   ConsommationIdempotence idempotence,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${energy.write-behind.enabled:false}") boolean enabled,
+                                   @Value("${energy.write-behind.durability:ENQUEUE}") Durability durability,
+                                   @Value("${energy.write-behind.backpressure:SYNC}") Backpressure backpressure,
+                                   @Value("${energy.write-behind.capacity:10000}") int capacity,
+                                   @Value("${energy.write-behind.batch-size:500}") int batchSize,
+                                   @Value("${energy.write-behind.flush-interval-ms:5}") long flushIntervalMillis,
+                                   @Value("${energy.write-behind.max-retries:3}") int maxRetries,
+                                   @Value("${energy.write-behind.retry-backoff-ms:50}") long retryBackoffMillis,
+                                   @Value("${energy.write-behind.commit-timeout-ms:2000}") long commitTimeoutMillis) {
+        this.consommationService = consommationService;
+        this.idempotence = idempotence;
+        this.enabled = enabled;
+        this.durability = durability;
+        this.backpressure = backpressure;
+        this.commitTimeoutMillis = commitTimeoutMillis;
+        if (enabled) {
+            this.queue = new WriteBehindQueue<>("consommations", capacity, batchSize, flushIntervalMillis,
+                    maxRetries, retryBackoffMillis, consommationService::persistBatch);
+            Gauge.builder("energy.write_behind.queue.size", queue, WriteBehindQueue::size)
+                    .register(meterRegistry);
+            Gauge.builder("energy.write_behind.written", queue, WriteBehindQueue::writtenCount)
+                    .register(meterRegistry);
+            Gauge.builder("energy.write_behind.failed", queue, WriteBehindQueue::failedCount)
+                    .register(meterRegistry);
+            log.info("📝 Write-behind enabled for consommations (durability={}, backpressure={}, batch={}, interval={}ms)",
+                    durability, backpressure, batchSize, flushIntervalMillis);
+        } else {
+            this.queue = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Valide puis met en file une consommation. Une clé d'idempotence reste réservée jusqu'au
+     * commit de son lot : une réémission reçue par cette instance pendant l'attente est refusée
+     * (409). Une réémission passée par une autre instance est écartée à l'écriture, seule, et la
+     * mesure déjà enregistrée sous la clé est renvoyée.
+     *
+     * @param cleIdempotence Clé d'idempotence de la mesure, ou null
+     * @return Le DTO accepté (id null en durabilité ENQUEUE, renseigné sinon)
+     */
+    public ConsommationElectriqueDTO submit(ConsommationElectriqueDTO dto, String cleIdempotence) {
+        if (cleIdempotence != null) {
+            idempotence.reserve(cleIdempotence);
+        }
+        CompletableFuture<ConsommationElectrique> done = null;
+        try {
+            ConsommationElectrique consommation = consommationService.prepareConsommation(dto, cleIdempotence);
+            done = queue.offer(consommation);
+            if (done == null) {
+                if (backpressure == Backpressure.REJECT) {
+                    throw new WriteBehindRejectedException("Ingestion queue full, retry later");
+                }
+                consommationService.persistBatch(List.of(consommation));
+                return stored(consommation, cleIdempotence);
+            }
+            if (cleIdempotence != null) {
+                done.whenComplete((saved, failure) -> idempotence.release(cleIdempotence));
+            }
+            if (durability == Durability.COMMIT) {
+                awaitCommit(done);
+                return stored(consommation, cleIdempotence);
+            }
+            return consommationService.convertToDTO(consommation);
+        } finally {
+            if (cleIdempotence != null && done == null) {
+                idempotence.release(cleIdempotence);
+            }
+        }
+    }
+
+    /**
+     * La consommation commitée, ou celle qui détenait déjà sa clé d'idempotence.
+     */
+    private ConsommationElectriqueDTO stored(ConsommationElectrique consommation, String cleIdempotence) {
+        if (cleIdempotence == null) {
+            return consommationService.convertToDTO(consommation);
+        }
+        return consommationService.findByCleIdempotence(cleIdempotence)
+                .orElseGet(() -> consommationService.convertToDTO(consommation));
+    }
+
+    private void awaitCommit(CompletableFuture<ConsommationElectrique> done) {
+        try {
+            done.get(commitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to persist consommation: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new WriteBehindRejectedException("Group commit did not complete in time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for group commit", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (queue != null) {
+            queue.shutdown(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.irrigation.energy.limiter;
+
+import com.irrigation.commons.limiter.ConcurrencyLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Limite de concurrence adaptative du microservice Énergie (service-commons).
+ *
+ * Critiques : les contrôles d'admission appelés par water-service avant chaque démarrage
+ * de pompe. Volumineuses : collections complètes, périodes et prévisions globales.
+ */
+@Configuration
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public ConcurrencyLimitFilter concurrencyLimitFilter(
+            MeterRegistry meterRegistry,
+            @Value("${energy.concurrency-limit.enabled:true}") boolean enabled,
+            @Value("${energy.concurrency-limit.initial-limit:20}") int initialLimit,
+            @Value("${energy.concurrency-limit.min-limit:4}") int minLimit,
+            @Value("${energy.concurrency-limit.max-limit:200}") int maxLimit,
+            @Value("${energy.concurrency-limit.smoothing:0.2}") double smoothing,
+            @Value("${energy.concurrency-limit.rtt-tolerance:1.5}") double tolerance,
+            @Value("${energy.concurrency-limit.window-ms:100}") long windowMillis,
+            @Value("${energy.concurrency-limit.window-samples:10}") int windowSamples,
+            @Value("${energy.concurrency-limit.normal-share:0.9}") double normalShare,
+            @Value("${energy.concurrency-limit.bulk-share:0.5}") double bulkShare,
+            @Value("${energy.concurrency-limit.retry-after-seconds:1}") int retryAfterSeconds,
+            @Value("${energy.concurrency-limit.critical:GET /pompes/energy/check,GET /consommations/check/pompe/*}")
+            List<String> critical,
+            @Value("${energy.concurrency-limit.bulk:GET /consommations,GET /consommations/periode,"
+                    + "GET /consommations/pompe/*/periode,GET /consommations/total/periode,"
+                    + "GET /consommations/prevision}")
+            List<String> bulk,
+            @Value("${energy.concurrency-limit.excluded:/actuator/**,GET /consommations/export,POST /consommations/bulk,"
+                    + "POST /consommations/import}")
+            List<String> excluded) {
+        return new ConcurrencyLimitFilter(meterRegistry, "energy", enabled, initialLimit, minLimit, maxLimit,
+                smoothing, tolerance, windowMillis, windowSamples, normalShare, bulkShare, retryAfterSeconds,
+                critical, bulk, excluded);
+    }
+}
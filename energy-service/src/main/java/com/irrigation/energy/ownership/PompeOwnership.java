@@ -0,0 +1,154 @@
+package com.irrigation.energy.ownership;
+
+import com.irrigation.events.ring.PompeRing;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pompes possédées par cette instance, d'après l'anneau des instances d'energy-service
+ * inscrites dans l'annuaire (voir PompeRing).
+ *
+ * L'anneau est recalculé à chaque rafraîchissement ; quand la liste des instances change,
+ * un {@link PompeOwnershipChangedEvent} est publié pour que les états en mémoire par pompe
+ * (budget de puissance, tier mémoire, prévisions) suivent. Sans annuaire, ou tant qu'aucune
+ * instance n'annonce l'anneau, l'instance possède toutes les pompes (comportement d'origine).
+ *
+ * Les clients découvrent les changements avec un retard (cache Eureka, cache du load
+ * balancer) : une requête peut arriver chez un ancien propriétaire, qui y répond alors
+ * depuis la base plutôt que depuis son état mémoire.
+ */
+@Slf4j
+@Component
+public class PompeOwnership {
+
+    private final DiscoveryClient discoveryClient;
+    private final ObjectProvider<Registration> registration;
+    private final ApplicationEventPublisher events;
+    private final boolean enabled;
+    private final String serviceId;
+    private final String configuredNodeId;
+
+    private volatile State state = State.UNPARTITIONED;
+    private Map<String, Integer> members = Map.of();
+
+    public PompeOwnership(DiscoveryClient discoveryClient,
+                          ObjectProvider<Registration> registration,
+                          ApplicationEventPublisher events,
+                          MeterRegistry meterRegistry,
+                          @Value("${energy.ownership.enabled:true}") boolean enabled,
+                          @Value("${spring.application.name}") String serviceId,
+                          @Value("${energy.ownership.node-id:}") String configuredNodeId) {
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.events = events;
+        this.enabled = enabled;
+        this.serviceId = serviceId;
+        this.configuredNodeId = configuredNodeId;
+        Gauge.builder("energy.ownership.instances", this, o -> o.state.instances)
+                .description("Energy-service instances sharing the pumps")
+                .register(meterRegistry);
+        Gauge.builder("energy.ownership.share", this, PompeOwnership::localShare)
+                .description("Fraction of the pump hash space owned by this instance")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void onReady() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${energy.ownership.refresh-interval-ms:10000}",
+            initialDelayString = "${energy.ownership.refresh-interval-ms:10000}")
+    void scheduledRefresh() {
+        refresh();
+    }
+
+    synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        String self = nodeId();
+        List<ServiceInstance> instances;
+        try {
+            instances = discoveryClient.getInstances(serviceId);
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Pump ownership not refreshed, discovery unavailable: {}", e.getMessage());
+            return;
+        }
+        Map<String, Integer> current = PompeRing.members(instances);
+        if (current.equals(members)) {
+            return;
+        }
+        members = current;
+        PompeRing ring = current.isEmpty() ? null : PompeRing.of(current);
+        State next = ring == null
+                ? new State(null, self, state.version + 1, 1, 1.0)
+                : new State(ring, self, state.version + 1, current.size(),
+                        current.size() == 1 && current.containsKey(self) ? 1.0 : ring.share(self));
+        state = next;
+        if (next.ring != null && !current.containsKey(self)) {
+            log.info("🧭 Pump ownership v{}: {} instance(s), this one ({}) not registered yet, owns no pump",
+                    next.version, next.instances, self);
+        } else {
+            log.info("🧭 Pump ownership v{}: {} instance(s), this one ({}) owns {}% of pumps",
+                    next.version, next.instances, self, Math.round(next.localShare * 1000) / 10.0);
+        }
+        events.publishEvent(new PompeOwnershipChangedEvent(next.version, next.instances, next.localShare));
+    }
+
+    public boolean isOwner(long pompeId) {
+        State current = state;
+        return current.ring == null || current.self.equals(current.ring.ownerOf(pompeId));
+    }
+
+    /**
+     * @return Identifiant du nœud propriétaire, celui de cette instance hors partitionnement
+     */
+    public String ownerOf(long pompeId) {
+        State current = state;
+        return current.ring == null ? nodeId() : current.ring.ownerOf(pompeId);
+    }
+
+    /**
+     * Vrai si d'autres instances possèdent une partie des pompes : les requêtes qui
+     * portent sur toutes les pompes ne peuvent plus être servies depuis la mémoire locale.
+     */
+    public boolean isPartitioned() {
+        return state.localShare < 1.0;
+    }
+
+    public double localShare() {
+        return state.localShare;
+    }
+
+    public long version() {
+        return state.version;
+    }
+
+    public String nodeId() {
+        if (!configuredNodeId.isBlank()) {
+            return configuredNodeId;
+        }
+        Registration self = registration.getIfAvailable();
+        return self != null ? PompeRing.nodeId(self) : serviceId;
+    }
+
+    private record State(PompeRing ring, String self, long version, int instances, double localShare) {
+
+        static final State UNPARTITIONED = new State(null, "", 0, 1, 1.0);
+    }
+}
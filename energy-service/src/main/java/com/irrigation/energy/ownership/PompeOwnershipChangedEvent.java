@@ -0,0 +1,10 @@
+package com.irrigation.energy.ownership;
+
+/**
+ * Publié (événement Spring) quand la liste des instances de l'anneau change.
+ *
+ * @param version Version de l'anneau, croissante ; comparée à {@link PompeOwnership#version()}
+ *                pour abandonner un traitement dépassé par un nouveau rééquilibrage
+ */
+public record PompeOwnershipChangedEvent(long version, int instances, double localShare) {
+}
@@ -0,0 +1,66 @@
+package com.irrigation.energy.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Contrôle synchrone demandé avant le démarrage d'une pompe (appel du microservice Eau).
+ */
+@Name("com.irrigation.energy.AdmissionCheck")
+@Label("Admission Check")
+@Description("Synchronous check answered to water-service before a pump starts")
+public class AdmissionCheckEvent extends ProfilingEvent {
+
+    @Label("Pump Id")
+    long pompeId;
+
+    @Label("Check")
+    String check;
+
+    public static AdmissionCheckEvent start(Long pompeId, String check) {
+        AdmissionCheckEvent event = new AdmissionCheckEvent();
+        event.pompeId = idOf(pompeId);
+        event.check = check;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Exécute le contrôle ; l'issue vaut ALLOWED ou REFUSED selon son résultat.
+     *
+     * @return true si le contrôle est passé
+     */
+    public boolean check(BooleanSupplier passes) {
+        try {
+            boolean passed = passes.getAsBoolean();
+            outcome = passed ? ALLOWED : REFUSED;
+            return passed;
+        } catch (RuntimeException | Error e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            commit();
+        }
+    }
+
+    /**
+     * Exécute un contrôle formulé comme un motif de refus ; l'issue vaut REFUSED s'il est vérifié.
+     *
+     * @return true si le démarrage est refusé
+     */
+    public boolean refuseIf(BooleanSupplier refused) {
+        try {
+            boolean refuse = refused.getAsBoolean();
+            outcome = refuse ? REFUSED : ALLOWED;
+            return refuse;
+        } catch (RuntimeException | Error e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            commit();
+        }
+    }
+}
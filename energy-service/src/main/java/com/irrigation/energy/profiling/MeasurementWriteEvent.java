@@ -0,0 +1,29 @@
+package com.irrigation.energy.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Écriture de consommations en base (unitaire, lot write-behind ou upload groupé).
+ */
+@Name("com.irrigation.energy.MeasurementWrite")
+@Label("Measurement Write")
+@Description("Consumption readings written to the database")
+public class MeasurementWriteEvent extends ProfilingEvent {
+
+    @Label("Pump Id")
+    @Description("0 when the write spans several pumps")
+    long pompeId;
+
+    @Label("Measurements")
+    int count;
+
+    public static MeasurementWriteEvent start(Long pompeId, int count) {
+        MeasurementWriteEvent event = new MeasurementWriteEvent();
+        event.pompeId = idOf(pompeId);
+        event.count = count;
+        event.begin();
+        return event;
+    }
+}
@@ -1,21 +1,32 @@
 package com.irrigation.energy.publisher;
 
 import com.irrigation.energy.config.RabbitMQConfig;
-import com.irrigation.energy.event.OverconsumptionEvent;
-import lombok.RequiredArgsConstructor;
+import com.irrigation.energy.profiling.BrokerPublishEvent;
+import com.irrigation.events.OverconsumptionEvent;
+import com.irrigation.events.OverconsumptionForecastEvent;
+import com.irrigation.events.OverconsumptionShards;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
  * Service responsable de la publication des événements de surconsommation vers RabbitMQ.
+ * Chaque événement est routé vers le shard de sa pompe.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class OverconsumptionPublisher {
     
     private final RabbitTemplate rabbitTemplate;
+    private final int shards;
+    
+    public OverconsumptionPublisher(RabbitTemplate rabbitTemplate,
+                                    @Value("${irrigation.events.shards:4}") int shards) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.shards = shards;
+    }
     
     /**
      * Publie un événement de surconsommation vers RabbitMQ.
@@ -26,12 +37,31 @@ public class OverconsumptionPublisher {
         log.info("📤 Publishing overconsumption event: Pompe ID={}, Energy={} kWh, Threshold={} kWh", 
                  event.getPompeId(), event.getEnergieUtilisee(), event.getSeuil());
         
-        rabbitTemplate.convertAndSend(
-            RabbitMQConfig.EXCHANGE, 
-            RabbitMQConfig.ROUTING_KEY, 
-            event
-        );
+        int shard = OverconsumptionShards.shardOf(event.getPompeId(), shards);
+        String routingKey = OverconsumptionShards.shardRoutingKey(shard);
+        BrokerPublishEvent.start(routingKey, event.getPompeId())
+                .run(() -> rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE, routingKey, event));
         
-        log.info("✅ Overconsumption event published successfully");
+        log.info("✅ Overconsumption event published successfully (shard {})", shard);
+    }
+    
+    /**
+     * Publie une alerte précoce (prévision au-dessus du seuil). Appelée après commit de la
+     * mesure qui l'a déclenchée (voir ConsommationForecaster) ; un échec est journalisé sans
+     * faire échouer l'enregistrement.
+     * 
+     * @param event La prévision de surconsommation à publier
+     */
+    public void publishForecast(OverconsumptionForecastEvent event) {
+        log.warn("🔮 Overconsumption forecast: Pompe ID={}, {} kWh expected at {} (threshold {} kWh, last reading {} kWh)",
+                 event.getPompeId(), String.format("%.2f", event.getEnergiePrevue()), event.getDatePrevue(),
+                 event.getSeuil(), event.getEnergieActuelle());
+        try {
+            BrokerPublishEvent.start(RabbitMQConfig.FORECAST_ROUTING_KEY, event.getPompeId())
+                    .run(() -> rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE,
+                            RabbitMQConfig.FORECAST_ROUTING_KEY, event));
+        } catch (AmqpException e) {
+            log.error("❌ Failed to publish overconsumption forecast for pompe #{}: {}", event.getPompeId(), e.getMessage());
+        }
     }
 }
@@ -0,0 +1,25 @@
+package com.irrigation.energy.repository;
+
+import com.irrigation.energy.entity.CleIdempotence;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+@Repository
+public interface CleIdempotenceRepository extends JpaRepository<CleIdempotence, String> {
+    
+    // Lecture en curseur au démarrage (remplissage du filtre de Bloom)
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT c.cle FROM CleIdempotence c WHERE c.dateCreation >= :depuis")
+    Stream<String> streamClesDepuis(LocalDateTime depuis);
+    
+    @Modifying
+    @Query("DELETE FROM CleIdempotence c WHERE c.dateCreation < :avant")
+    int deleteCreeesAvant(LocalDateTime avant);
+}
@@ -0,0 +1,27 @@
+package com.irrigation.energy.repository;
+
+import com.irrigation.energy.entity.ConsommationAgregee;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface ConsommationAgregeeRepository extends JpaRepository<ConsommationAgregee, Long> {
+    
+    Optional<ConsommationAgregee> findByPompeIdAndGranulariteAndPeriodeDebut(
+            Long pompeId, ConsommationAgregee.Granularite granularite, LocalDateTime periodeDebut);
+    
+    // Totaux par pompe sur les résumés journaliers (toujours conservés)
+    @Query("SELECT SUM(a.energieTotale) FROM ConsommationAgregee a WHERE a.pompeId = :pompeId AND a.granularite = 'JOUR'")
+    Double getTotalEnergieByPompe(Long pompeId);
+    
+    // Totaux de période sur les résumés horaires (précision à l'heure)
+    @Query("SELECT SUM(a.energieTotale) FROM ConsommationAgregee a WHERE a.granularite = 'HEURE' AND a.periodeDebut BETWEEN :debut AND :fin")
+    Double getTotalEnergiePeriode(LocalDateTime debut, LocalDateTime fin);
+    
+    @Query("SELECT COUNT(a) > 0 FROM ConsommationAgregee a WHERE a.pompeId = :pompeId AND a.granularite = 'JOUR' AND a.energieMax >= :seuil")
+    boolean existsPompeEnergieMaxAtLeast(Long pompeId, Double seuil);
+}
@@ -1,11 +1,14 @@
 package com.irrigation.energy.repository;
 
 import com.irrigation.energy.entity.ConsommationElectrique;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,6 +18,21 @@ public interface ConsommationElectriqueRepository extends JpaRepository<Consomma
     
     List<ConsommationElectrique> findByDateMesureBetween(LocalDateTime debut, LocalDateTime fin);
     
+    List<ConsommationElectrique> findByPompeIdAndDateMesureBetween(Long pompeId, LocalDateTime debut, LocalDateTime fin);
+    
+    List<ConsommationElectrique> findByDateMesureGreaterThanEqualOrderByIdAsc(LocalDateTime debut);
+    
+    List<ConsommationElectrique> findByIdGreaterThanAndDateMesureGreaterThanEqualOrderByIdAsc(Long id, LocalDateTime debut);
+    
+    List<ConsommationElectrique> findByDateMesureBefore(LocalDateTime cutoff, Pageable pageable);
+    
+    boolean existsByPompeIdAndEnergieUtiliseeGreaterThanEqual(Long pompeId, Double seuil);
+    
+    // Borne sur la date : sur une table partitionnée, seules les partitions antérieures à la coupure sont visitées
+    @Modifying
+    @Query("DELETE FROM ConsommationElectrique c WHERE c.dateMesure < :cutoff AND c.id IN :ids")
+    int deleteByIdInBefore(Collection<Long> ids, LocalDateTime cutoff);
+    
     @Query("SELECT SUM(c.energieUtilisee) FROM ConsommationElectrique c WHERE c.pompeId = :pompeId")
     Double getTotalEnergieByPompe(Long pompeId);
     
@@ -0,0 +1,9 @@
+package com.irrigation.energy.repository;
+
+import com.irrigation.energy.entity.PompeARecharger;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PompeARechargerRepository extends JpaRepository<PompeARecharger, Long> {
+}
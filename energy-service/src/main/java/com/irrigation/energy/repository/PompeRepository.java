@@ -1,22 +1,73 @@
 package com.irrigation.energy.repository;
 
 import com.irrigation.energy.entity.Pompe;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Les requêtes de lecture passent par le cache de requêtes (région "pompes-queries"),
+ * invalidé automatiquement par Hibernate à chaque écriture sur la table pompes.
+ */
 @Repository
 public interface PompeRepository extends JpaRepository<Pompe, Long> {
     
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "pompes-queries")
+    })
     Optional<Pompe> findByReference(String reference);
     
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "pompes-queries")
+    })
     List<Pompe> findByStatut(Pompe.StatutPompe statut);
     
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "pompes-queries")
+    })
     boolean existsByReference(String reference);
     
+    // Appelé à chaque création de consommation et requête par pompe
+    @Override
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "pompes-queries")
+    })
+    boolean existsById(Long id);
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "pompes-queries")
+    })
     @Query("SELECT SUM(p.puissance) FROM Pompe p WHERE p.statut = 'ACTIVE'")
     Double getTotalPuissanceActive();
+
+    /**
+     * Ligne lue en base (pas dans le cache de l'instance) et verrouillée jusqu'à la fin de
+     * la transaction : point de départ des écritures.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Pompe p WHERE p.id = :id")
+    Optional<Pompe> findForUpdate(Long id);
+
+    /**
+     * Ne modifie que le statut énergétique, jamais la puissance ni le statut de la pompe
+     * (qui passent par le budget de puissance). La version est incrémentée comme pour une
+     * écriture de l'entité.
+     */
+    @Modifying
+    @Query("UPDATE Pompe p SET p.energyStatus = :energyStatus, p.version = p.version + 1 WHERE p.id = :id")
+    int updateEnergyStatus(Long id, String energyStatus);
 }
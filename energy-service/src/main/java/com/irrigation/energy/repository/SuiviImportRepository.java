@@ -0,0 +1,24 @@
+package com.irrigation.energy.repository;
+
+import com.irrigation.energy.entity.SuiviImport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+@Repository
+public interface SuiviImportRepository extends JpaRepository<SuiviImport, String> {
+
+    @Modifying
+    @Query("DELETE FROM SuiviImport s WHERE s.dateFin < :avant")
+    int deleteTerminesAvant(LocalDateTime avant);
+
+    // Imports interrompus par l'arrêt de l'instance qui les exécutait
+    @Modifying
+    @Query("UPDATE SuiviImport s SET s.statut = 'FAILED', s.echec = :echec, s.dateFin = :fin "
+            + "WHERE s.id IN :ids AND s.dateFin IS NULL")
+    int failNonTermines(Collection<String> ids, String echec, LocalDateTime fin);
+}
@@ -0,0 +1,190 @@
+package com.irrigation.energy.retention;
+
+import com.irrigation.energy.entity.ConsommationAgregee;
+import com.irrigation.energy.entity.ConsommationAgregee.Granularite;
+import com.irrigation.energy.entity.ConsommationElectrique;
+import com.irrigation.energy.repository.ConsommationAgregeeRepository;
+import com.irrigation.energy.repository.ConsommationElectriqueRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Job de rétention des consommations brutes.
+ *
+ * Les mesures plus anciennes que {@code raw-days} jours sont compactées en résumés
+ * horaires et journaliers par pompe, puis supprimées. Le travail se fait par lots de
+ * {@code chunk-size} lignes, chacun dans sa propre transaction (agrégation + suppression
+ * atomiques), avec une pause entre les lots pour ne pas monopoliser la base.
+ *
+ * Toutes les instances lancent le job à la même heure. En PostgreSQL, chaque lot prend
+ * d'abord un verrou consultatif transactionnel : l'instance qui ne l'obtient pas laisse la
+ * compaction à celle qui le tient. Sans ce verrou (H2), un lot dont une partie a déjà été
+ * compactée ailleurs est annulé puis relu, sans interrompre le reste du job.
+ */
+@Slf4j
+@Component
+public class ConsommationRetentionJob {
+
+    private static final String LOCK_KEY = "consommations_electriques:retention";
+    private static final int MAX_CONFLITS = 10;
+
+    private final ConsommationElectriqueRepository consommationRepository;
+    private final ConsommationAgregeeRepository agregeeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean postgres;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int rawDays;
+    private final int chunkSize;
+    private final long pauseMillis;
+
+    public ConsommationRetentionJob(ConsommationElectriqueRepository consommationRepository,
+                                    ConsommationAgregeeRepository agregeeRepository,
+                                    JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${energy.retention.enabled:true}") boolean enabled,
+                                    @Value("${energy.retention.raw-days:30}") int rawDays,
+                                    @Value("${energy.retention.chunk-size:1000}") int chunkSize,
+                                    @Value("${energy.retention.pause-ms:50}") long pauseMillis) {
+        this.consommationRepository = consommationRepository;
+        this.agregeeRepository = agregeeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.postgres = isPostgres(jdbcTemplate.getDataSource());
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.rawDays = rawDays;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    @Scheduled(cron = "${energy.retention.cron:0 30 2 * * *}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        // Coupure alignée sur le jour : un résumé journalier n'est jamais complété plus tard
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(rawDays).truncatedTo(ChronoUnit.DAYS);
+        log.info("🧹 Retention: compacting consumption readings before {}", cutoff);
+
+        long total = 0;
+        int conflits = 0;
+        int compacted;
+        do {
+            try {
+                compacted = transactionTemplate.execute(status -> compactChunk(cutoff));
+            } catch (ConcurrencyFailureException e) {
+                // Lot annulé : le suivant est relu sans les mesures compactées par l'autre instance
+                if (++conflits > MAX_CONFLITS) {
+                    log.warn("⚠️ Retention: too many conflicting chunks, resuming on the next run");
+                    break;
+                }
+                log.warn("⚠️ Retention: {}, chunk rolled back and read again", e.getMessage());
+                compacted = chunkSize;
+            }
+            if (compacted < 0) {
+                log.info("🧹 Retention: another instance is compacting consumption readings, leaving it to that one");
+                break;
+            }
+            total += compacted;
+            pause();
+        } while (compacted == chunkSize);
+
+        log.info("🧹 Retention: {} consumption readings compacted into hourly/daily summaries", total);
+    }
+
+    /**
+     * Agrège puis supprime un lot de mesures brutes antérieures à la coupure.
+     *
+     * @return Le nombre de mesures compactées, ou -1 si une autre instance compacte déjà
+     */
+    private int compactChunk(LocalDateTime cutoff) {
+        if (postgres && !Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtext(?))", Boolean.class, LOCK_KEY))) {
+            return -1;
+        }
+        List<ConsommationElectrique> chunk = consommationRepository.findByDateMesureBefore(
+                cutoff, PageRequest.of(0, chunkSize, Sort.by("id")));
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        Map<BucketKey, ConsommationAgregee> buckets = new HashMap<>();
+        List<Long> ids = new ArrayList<>(chunk.size());
+        for (ConsommationElectrique c : chunk) {
+            ids.add(c.getId());
+            accumulate(buckets, c, Granularite.HEURE, c.getDateMesure().truncatedTo(ChronoUnit.HOURS));
+            accumulate(buckets, c, Granularite.JOUR, c.getDateMesure().truncatedTo(ChronoUnit.DAYS));
+        }
+
+        for (ConsommationAgregee delta : buckets.values()) {
+            ConsommationAgregee merged = agregeeRepository
+                    .findByPompeIdAndGranulariteAndPeriodeDebut(delta.getPompeId(), delta.getGranularite(), delta.getPeriodeDebut())
+                    .map(existing -> {
+                        existing.setEnergieTotale(existing.getEnergieTotale() + delta.getEnergieTotale());
+                        existing.setDureeTotale(existing.getDureeTotale() + delta.getDureeTotale());
+                        existing.setEnergieMax(Math.max(existing.getEnergieMax(), delta.getEnergieMax()));
+                        existing.setNombreMesures(existing.getNombreMesures() + delta.getNombreMesures());
+                        return existing;
+                    })
+                    .orElse(delta);
+            agregeeRepository.save(merged);
+        }
+
+        // Une autre instance a déjà traité une partie du lot : annuler pour ne pas compter deux fois
+        int deleted = consommationRepository.deleteByIdInBefore(ids, cutoff);
+        if (deleted != ids.size()) {
+            throw new ConcurrencyFailureException("Retention chunk raced with another compaction (" + deleted + "/" + ids.size() + ")");
+        }
+        return ids.size();
+    }
+
+    private static void accumulate(Map<BucketKey, ConsommationAgregee> buckets, ConsommationElectrique c,
+                                   Granularite granularite, LocalDateTime periodeDebut) {
+        ConsommationAgregee bucket = buckets.computeIfAbsent(
+                new BucketKey(c.getPompeId(), granularite, periodeDebut),
+                key -> new ConsommationAgregee(null, key.pompeId(), granularite, periodeDebut, 0.0, 0.0, 0.0, 0L));
+        bucket.setEnergieTotale(bucket.getEnergieTotale() + c.getEnergieUtilisee());
+        bucket.setDureeTotale(bucket.getDureeTotale() + c.getDuree());
+        bucket.setEnergieMax(Math.max(bucket.getEnergieMax(), c.getEnergieUtilisee()));
+        bucket.setNombreMesures(bucket.getNombreMesures() + 1);
+    }
+
+    private static boolean isPostgres(DataSource dataSource) {
+        try {
+            return "PostgreSQL".equals(JdbcUtils.commonDatabaseName(
+                    JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName)));
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("Cannot determine the database for the retention job", e);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record BucketKey(Long pompeId, Granularite granularite, LocalDateTime periodeDebut) {
+    }
+}
@@ -1,17 +1,32 @@
 package com.irrigation.energy.service;
 
+import com.irrigation.commons.timeseries.EpochTime;
 import com.irrigation.energy.dto.ConsommationElectriqueDTO;
 import com.irrigation.energy.entity.ConsommationElectrique;
-import com.irrigation.energy.event.OverconsumptionEvent;
+import com.irrigation.energy.forecast.ConsommationForecaster;
+import com.irrigation.energy.ingestion.ConsommationBulkWriter;
+import com.irrigation.energy.ingestion.ConsommationColumns;
+import com.irrigation.energy.ingestion.ConsommationIdempotence;
+import com.irrigation.energy.profiling.AdmissionCheckEvent;
+import com.irrigation.energy.profiling.MeasurementWriteEvent;
+import com.irrigation.energy.publisher.MeasurementPublisher;
 import com.irrigation.energy.publisher.OverconsumptionPublisher;
+import com.irrigation.energy.repository.ConsommationAgregeeRepository;
 import com.irrigation.energy.repository.ConsommationElectriqueRepository;
 import com.irrigation.energy.repository.PompeRepository;
+import com.irrigation.energy.timeseries.ConsommationHotTier;
+import com.irrigation.events.OverconsumptionEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,24 +35,33 @@ import java.util.stream.Collectors;
 public class ConsommationElectriqueService {
 
     private final ConsommationElectriqueRepository consommationRepository;
+    private final ConsommationAgregeeRepository agregeeRepository;
     private final PompeRepository pompeRepository;
     private final OverconsumptionPublisher overconsumptionPublisher;
+    private final MeasurementPublisher measurementPublisher;
+    private final ConsommationForecaster forecaster;
+    private final ConsommationHotTier hotTier;
+    private final ConsommationBulkWriter bulkWriter;
+    private final ConsommationIdempotence idempotence;
     
     // Seuil de surconsommation en kWh
-    private static final Double SEUIL_SURCONSOMMATION = 100.0;
+    public static final Double SEUIL_SURCONSOMMATION = 100.0;
 
+    @Transactional(readOnly = true)
     public List<ConsommationElectriqueDTO> getAllConsommations() {
         return consommationRepository.findAll().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public ConsommationElectriqueDTO getConsommationById(Long id) {
         ConsommationElectrique consommation = consommationRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Consommation not found with id: " + id));
         return convertToDTO(consommation);
     }
 
+    @Transactional(readOnly = true)
     public List<ConsommationElectriqueDTO> getConsommationsByPompe(Long pompeId) {
         if (!pompeRepository.existsById(pompeId)) {
             throw new RuntimeException("Pompe not found with id: " + pompeId);
@@ -47,18 +71,58 @@ public class ConsommationElectriqueService {
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<ConsommationElectriqueDTO> getConsommationsByPeriode(LocalDateTime debut, LocalDateTime fin) {
-        return consommationRepository.findByDateMesureBetween(debut, fin).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return hotTier.findBetween(debut, fin)
+                .orElseGet(() -> consommationRepository.findByDateMesureBetween(debut, fin).stream()
+                        .map(this::convertToDTO)
+                        .collect(Collectors.toList()));
     }
 
-    public ConsommationElectriqueDTO createConsommation(ConsommationElectriqueDTO dto) {
-        if (!pompeRepository.existsById(dto.getPompeId())) {
-            throw new RuntimeException("Pompe not found with id: " + dto.getPompeId());
+    @Transactional(readOnly = true)
+    public List<ConsommationElectriqueDTO> getConsommationsByPompeAndPeriode(Long pompeId, LocalDateTime debut, LocalDateTime fin) {
+        if (!pompeRepository.existsById(pompeId)) {
+            throw new RuntimeException("Pompe not found with id: " + pompeId);
         }
-        ConsommationElectrique consommation = convertToEntity(dto);
-        ConsommationElectrique saved = consommationRepository.save(consommation);
+        return hotTier.findByPompeBetween(pompeId, debut, fin)
+                .orElseGet(() -> consommationRepository.findByPompeIdAndDateMesureBetween(pompeId, debut, fin).stream()
+                        .map(this::convertToDTO)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Consommation déjà enregistrée sous cette clé d'idempotence (réémission d'un client après
+     * un timeout). Sans accès base quand la clé est inconnue du filtre ou récente.
+     */
+    public Optional<ConsommationElectriqueDTO> findByCleIdempotence(String cleIdempotence) {
+        if (cleIdempotence == null) {
+            return Optional.empty();
+        }
+        return idempotence.find(cleIdempotence)
+                .flatMap(consommationRepository::findById)
+                .map(this::convertToDTO);
+    }
+
+    /**
+     * Relit la consommation après un conflit sur la clé d'idempotence (envoi simultané, ou clé
+     * enregistrée par une autre instance que le filtre local ne connaît pas).
+     */
+    public Optional<ConsommationElectriqueDTO> findAfterDuplicateKey(String cleIdempotence) {
+        idempotence.markStored(cleIdempotence);
+        return findByCleIdempotence(cleIdempotence);
+    }
+
+    public ConsommationElectriqueDTO createConsommation(ConsommationElectriqueDTO dto, String cleIdempotence) {
+        ConsommationElectrique consommation = prepareConsommation(dto, cleIdempotence);
+        List<ConsommationElectrique> stored = MeasurementWriteEvent.start(consommation.getPompeId(), 1)
+                .call(() -> insert(List.of(consommation)));
+        if (stored.isEmpty()) {
+            throw new DuplicateKeyException("Idempotency-Key already used: " + cleIdempotence);
+        }
+        ConsommationElectrique saved = stored.get(0);
+        hotTier.recordCreated(saved);
+        measurementPublisher.recordCreated(saved);
+        forecaster.recordCreated(saved);
         
         // Détection de surconsommation et publication d'événement
         detectAndPublishOverconsumption(saved);
@@ -66,38 +130,139 @@ public class ConsommationElectriqueService {
         return convertToDTO(saved);
     }
 
+    /**
+     * Valide une nouvelle consommation et construit l'entité à persister, horodatée maintenant.
+     *
+     * @param cleIdempotence Clé d'idempotence de la mesure, ou null
+     */
+    public ConsommationElectrique prepareConsommation(ConsommationElectriqueDTO dto, String cleIdempotence) {
+        if (!pompeRepository.existsById(dto.getPompeId())) {
+            throw new RuntimeException("Pompe not found with id: " + dto.getPompeId());
+        }
+        ConsommationElectrique consommation = convertToEntity(dto);
+        consommation.setDateMesure(LocalDateTime.now());
+        consommation.setCleIdempotence(cleIdempotence);
+        return consommation;
+    }
+
+    /**
+     * Persiste un lot de consommations déjà validées dans une seule transaction
+     * (group commit du mode write-behind), puis déclenche la détection de surconsommation.
+     */
+    public void persistBatch(List<ConsommationElectrique> consommations) {
+        List<ConsommationElectrique> saved = MeasurementWriteEvent.start(null, consommations.size())
+                .call(() -> insert(consommations));
+        for (ConsommationElectrique consommation : saved) {
+            hotTier.recordCreated(consommation);
+            measurementPublisher.recordCreated(consommation);
+            forecaster.recordCreated(consommation);
+            detectAndPublishOverconsumption(consommation);
+        }
+    }
+
+    /**
+     * Insère les consommations et prend leurs clés d'idempotence. Une consommation dont la clé
+     * est déjà prise (réémission passée par une autre instance) est retirée : elle ne déclenche
+     * ni tier mémoire ni événements, et ne fait pas échouer ses voisines du lot.
+     *
+     * @return Les consommations effectivement enregistrées
+     */
+    private List<ConsommationElectrique> insert(List<ConsommationElectrique> consommations) {
+        // Une tentative annulée du write-behind a pu leur attribuer un id : elles restent nouvelles
+        consommations.forEach(entity -> entity.setId(null));
+        List<ConsommationElectrique> saved = consommationRepository.saveAll(consommations);
+        List<ConsommationElectrique> stored = new ArrayList<>(saved.size());
+        for (ConsommationElectrique consommation : saved) {
+            if (consommation.getCleIdempotence() == null
+                    || idempotence.claim(consommation.getCleIdempotence(), consommation.getId()).isEmpty()) {
+                stored.add(consommation);
+            } else {
+                consommationRepository.delete(consommation);
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Persiste un upload groupé décodé en colonnes : pompes vérifiées une fois chacune,
+     * insertion JDBC par lots, puis tier mémoire, projection d'efficacité, prévision et détection
+     * de surconsommation.
+     *
+     * @return Le nombre de mesures enregistrées
+     */
+    public int persistColumns(ConsommationColumns columns) {
+        int size = columns.size();
+        long[] pompeIds = columns.pompeIds();
+        long[] distinct = Arrays.stream(pompeIds, 0, size).distinct().toArray();
+        for (long pompeId : distinct) {
+            if (!pompeRepository.existsById(pompeId)) {
+                throw new RuntimeException("Pompe not found with id: " + pompeId);
+            }
+        }
+
+        long[] ids = MeasurementWriteEvent.start(null, size).call(() -> bulkWriter.insert(columns));
+        hotTier.recordCreated(size, ids, pompeIds, columns.timestamps(), columns.energies(), columns.durees());
+        measurementPublisher.recordCreated(size, pompeIds, columns.timestamps(), columns.energies());
+        forecaster.recordCreated(size, pompeIds, columns.timestamps(), columns.energies());
+
+        double[] energies = columns.energies();
+        for (int row = 0; row < size; row++) {
+            if (energies[row] > SEUIL_SURCONSOMMATION) {
+                overconsumptionPublisher.publishOverconsumption(new OverconsumptionEvent(
+                        pompeIds[row], energies[row], SEUIL_SURCONSOMMATION,
+                        EpochTime.toLocalDateTime(columns.timestamps()[row])));
+            }
+        }
+        return size;
+    }
+
     public ConsommationElectriqueDTO updateConsommation(Long id, ConsommationElectriqueDTO dto) {
         ConsommationElectrique existing = consommationRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Consommation not found with id: " + id));
+        double ancienne = existing.getEnergieUtilisee();
         
         existing.setEnergieUtilisee(dto.getEnergieUtilisee());
         existing.setDuree(dto.getDuree());
         
         ConsommationElectrique updated = consommationRepository.save(existing);
+        hotTier.recordUpdated(updated);
+        measurementPublisher.recordUpdated(updated.getPompeId(), updated.getDateMesure(),
+                ancienne, updated.getEnergieUtilisee());
         return convertToDTO(updated);
     }
 
     public void deleteConsommation(Long id) {
-        if (!consommationRepository.existsById(id)) {
-            throw new RuntimeException("Consommation not found with id: " + id);
-        }
-        consommationRepository.deleteById(id);
+        ConsommationElectrique existing = consommationRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Consommation not found with id: " + id));
+        consommationRepository.delete(existing);
+        hotTier.recordDeleted(id);
+        measurementPublisher.recordDeleted(existing);
     }
 
+    @Transactional(readOnly = true)
     public Double getTotalEnergieByPompe(Long pompeId) {
         if (!pompeRepository.existsById(pompeId)) {
             throw new RuntimeException("Pompe not found with id: " + pompeId);
         }
+        // Mesures brutes récentes + résumés journaliers des mesures compactées
         Double total = consommationRepository.getTotalEnergieByPompe(pompeId);
-        return total != null ? total : 0.0;
+        Double compacted = agregeeRepository.getTotalEnergieByPompe(pompeId);
+        return (total != null ? total : 0.0) + (compacted != null ? compacted : 0.0);
     }
 
+    @Transactional(readOnly = true)
     public Double getTotalEnergiePeriode(LocalDateTime debut, LocalDateTime fin) {
+        OptionalDouble recent = hotTier.sumBetween(debut, fin);
+        if (recent.isPresent()) {
+            return recent.getAsDouble();
+        }
+        // Mesures brutes + résumés horaires des mesures compactées (précision à l'heure)
         Double total = consommationRepository.getTotalEnergiePeriode(debut, fin);
-        return total != null ? total : 0.0;
+        Double compacted = agregeeRepository.getTotalEnergiePeriode(debut, fin);
+        return (total != null ? total : 0.0) + (compacted != null ? compacted : 0.0);
     }
 
-    private ConsommationElectriqueDTO convertToDTO(ConsommationElectrique entity) {
+    public ConsommationElectriqueDTO convertToDTO(ConsommationElectrique entity) {
         ConsommationElectriqueDTO dto = new ConsommationElectriqueDTO();
         dto.setId(entity.getId());
         dto.setPompeId(entity.getPompeId());
@@ -126,11 +291,7 @@ public class ConsommationElectriqueService {
                 consommation.getPompeId(),
                 consommation.getEnergieUtilisee(),
                 SEUIL_SURCONSOMMATION,
-                consommation.getDateMesure(),
-                String.format("⚠️ ALERTE: Pompe #%d a consommé %.2f kWh (seuil: %.2f kWh)", 
-                             consommation.getPompeId(), 
-                             consommation.getEnergieUtilisee(), 
-                             SEUIL_SURCONSOMMATION)
+                consommation.getDateMesure()
             );
             
             overconsumptionPublisher.publishOverconsumption(event);
@@ -140,15 +301,15 @@ public class ConsommationElectriqueService {
     /**
      * Checks if a pompe has excessive energy consumption.
      * Used for synchronous communication from Water Service.
+     * Read on the primary (no readOnly): a pump start decision must not see replica lag.
      * 
      * @param pompeId The ID of the pompe to check
      * @return true if pompe has excessive consumption (>= 150 kWh), false otherwise
      */
     public boolean hasPompeExcessiveConsumption(Long pompeId) {
-        List<ConsommationElectrique> consommations = consommationRepository.findByPompeId(pompeId);
-        
-        boolean hasExcessive = consommations.stream()
-            .anyMatch(c -> c.getEnergieUtilisee() >= 150.0);
+        boolean hasExcessive = AdmissionCheckEvent.start(pompeId, "consumption-threshold")
+                .refuseIf(() -> consommationRepository.existsByPompeIdAndEnergieUtiliseeGreaterThanEqual(pompeId, 150.0)
+                        || agregeeRepository.existsPompeEnergieMaxAtLeast(pompeId, 150.0));
         
         if (hasExcessive) {
             System.out.println(String.format("⚡ SYNC CHECK: Pompe #%d has EXCESSIVE consumption (>= 150 kWh)", pompeId));
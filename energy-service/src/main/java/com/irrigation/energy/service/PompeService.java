@@ -1,14 +1,18 @@
 package com.irrigation.energy.service;
 
+import com.irrigation.energy.budget.PowerBudget;
 import com.irrigation.energy.dto.PompeDTO;
 import com.irrigation.energy.entity.Pompe;
+import com.irrigation.energy.ownership.PompeOwnership;
 import com.irrigation.energy.repository.PompeRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,27 +21,33 @@ import java.util.stream.Collectors;
 public class PompeService {
 
     private final PompeRepository pompeRepository;
+    private final PompeOwnership ownership;
+    private final PowerBudget powerBudget;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private static final Double MAX_PUISSANCE = 1000.0;
 
+    @Transactional(readOnly = true)
     public List<PompeDTO> getAllPompes() {
         return pompeRepository.findAll().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public PompeDTO getPompeById(Long id) {
         Pompe pompe = pompeRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Pompe not found with id: " + id));
         return convertToDTO(pompe);
     }
 
+    @Transactional(readOnly = true)
     public PompeDTO getPompeByReference(String reference) {
         Pompe pompe = pompeRepository.findByReference(reference)
                 .orElseThrow(() -> new RuntimeException("Pompe not found with reference: " + reference));
         return convertToDTO(pompe);
     }
 
+    @Transactional(readOnly = true)
     public List<PompeDTO> getPompesByStatut(Pompe.StatutPompe statut) {
         return pompeRepository.findByStatut(statut).stream()
                 .map(this::convertToDTO)
@@ -50,38 +60,66 @@ public class PompeService {
         }
         Pompe pompe = convertToEntity(dto);
         Pompe saved = pompeRepository.save(pompe);
+        powerBudget.adjust(0.0, puissanceActive(saved), MAX_PUISSANCE);
         return convertToDTO(saved);
     }
 
     public PompeDTO updatePompe(Long id, PompeDTO dto) {
-        Pompe existing = pompeRepository.findById(id)
+        // Lue en base et verrouillée : l'entrée du cache de l'instance peut être périmée
+        Pompe existing = pompeRepository.findForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Pompe not found with id: " + id));
+        double ancienne = puissanceActive(existing);
         
         existing.setPuissance(dto.getPuissance());
         existing.setStatut(dto.getStatut());
         
+        powerBudget.adjust(ancienne, puissanceActive(existing), MAX_PUISSANCE);
         Pompe updated = pompeRepository.save(existing);
         return convertToDTO(updated);
     }
 
     public void deletePompe(Long id) {
-        if (!pompeRepository.existsById(id)) {
-            throw new RuntimeException("Pompe not found with id: " + id);
-        }
-        pompeRepository.deleteById(id);
+        Pompe existing = pompeRepository.findForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Pompe not found with id: " + id));
+        powerBudget.adjust(puissanceActive(existing), 0.0, MAX_PUISSANCE);
+        pompeRepository.delete(existing);
     }
 
+    /**
+     * Décision de démarrage, contre la limite globale (voir PowerBudget) : reste sur le
+     * primaire, sans retard de réplica ni cache de requêtes.
+     */
     public boolean isEnergyAvailable(Double requiredPuissance) {
-        Double totalActive = pompeRepository.getTotalPuissanceActive();
-        if (totalActive == null) totalActive = 0.0;
-        return (totalActive + requiredPuissance) <= MAX_PUISSANCE;
+        return powerBudget.fits(requiredPuissance, MAX_PUISSANCE);
+    }
+
+    /**
+     * Même vérification pour une pompe ; {@code pompeId} ne sert qu'au routage vers son propriétaire.
+     */
+    public boolean isEnergyAvailable(Double requiredPuissance, Long pompeId) {
+        return isEnergyAvailable(requiredPuissance);
+    }
+
+    public Map<String, Object> getOwnership(Long pompeId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("pompeId", pompeId);
+        response.put("owner", ownership.ownerOf(pompeId));
+        response.put("local", ownership.isOwner(pompeId));
+        response.put("instance", ownership.nodeId());
+        response.put("localShare", ownership.localShare());
+        return response;
     }
 
     public void updateEnergyStatus(Long id, String status) {
-        Pompe pompe = pompeRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Pompe not found with id: " + id));
-        pompe.setEnergyStatus(status);
-        pompeRepository.save(pompe);
+        // Colonne seule : l'écriture ne peut pas contourner le budget de puissance
+        if (pompeRepository.updateEnergyStatus(id, status) == 0) {
+            throw new RuntimeException("Pompe not found with id: " + id);
+        }
+    }
+
+    private static double puissanceActive(Pompe pompe) {
+        return pompe.getStatut() == Pompe.StatutPompe.ACTIVE && pompe.getPuissance() != null
+                ? pompe.getPuissance() : 0.0;
     }
 
     private PompeDTO convertToDTO(Pompe entity) {
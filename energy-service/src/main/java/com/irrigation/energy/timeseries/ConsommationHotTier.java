@@ -0,0 +1,394 @@
+package com.irrigation.energy.timeseries;
+
+import com.irrigation.commons.timeseries.EpochTime;
+import com.irrigation.commons.timeseries.SoleWriterGuard;
+import com.irrigation.energy.dto.ConsommationElectriqueDTO;
+import com.irrigation.energy.entity.ConsommationElectrique;
+import com.irrigation.energy.entity.PompeARecharger;
+import com.irrigation.energy.ownership.PompeOwnership;
+import com.irrigation.energy.ownership.PompeOwnershipChangedEvent;
+import com.irrigation.energy.repository.ConsommationElectriqueRepository;
+import com.irrigation.energy.repository.PompeARechargerRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tier mémoire des consommations récentes (dernières N heures par pompe).
+ *
+ * Alimenté après commit à chaque écriture et préchargé depuis la base au démarrage.
+ * Les requêtes de période entièrement couvertes par la fenêtre sont servies depuis
+ * la mémoire ; sinon l'appelant retombe sur le repository (Optional vide).
+ *
+ * La mémoire ne voit que les écritures de cette instance : les requêtes toutes pompes
+ * confondues n'y sont servies que si elle est la seule à écrire (voir SoleWriterGuard).
+ * Avec plusieurs instances (voir PompeOwnership), seules les pompes possédées sont gardées
+ * et servies. Après un rééquilibrage,
+ * les pompes reprises sont rechargées depuis la base une fois {@code handoff-delay-ms} écoulé,
+ * le temps que les clients routent leurs écritures vers le nouveau propriétaire ; d'ici là,
+ * les requêtes par pompe passent elles aussi par la base.
+ *
+ * Une mesure écrite par une instance qui ne possède pas sa pompe (upload groupé ou import,
+ * qui mêlent toutes les pompes ; client en retard sur un rééquilibrage) n'entre pas dans sa
+ * mémoire : la période concernée est notée dans {@code pompes_a_recharger}, dans la transaction
+ * des mesures, et le propriétaire la relit depuis la base toutes les
+ * {@code foreign-writes-check-ms}. Jusque-là, ses réponses peuvent manquer ces mesures, comme
+ * une lecture sur réplica en retard.
+ */
+@Slf4j
+@Component
+public class ConsommationHotTier {
+
+    private final ConsommationElectriqueRepository consommationRepository;
+    private final PompeARechargerRepository rechargerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final PompeOwnership ownership;
+    private final SoleWriterGuard soleWriter;
+    private final TaskScheduler taskScheduler;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int capacityPerPump;
+    private final long handoffDelayMillis;
+
+    // Remplacée d'un bloc au rechargement qui suit un rééquilibrage
+    private volatile Map<Long, ConsommationSeries> seriesByPompe = new ConcurrentHashMap<>();
+
+    // Version de l'anneau dont les pompes possédées ont été chargées (voir PompeOwnership#version)
+    private volatile long loadedVersion;
+
+    // Horodatage le plus récent évincé d'un buffer plein, toutes pompes confondues
+    private final AtomicLong lastEvictedTimestamp = new AtomicLong(Long.MIN_VALUE);
+
+    private volatile boolean ready;
+
+    public ConsommationHotTier(ConsommationElectriqueRepository consommationRepository,
+                               PompeARechargerRepository rechargerRepository,
+                               PlatformTransactionManager transactionManager,
+                               PompeOwnership ownership,
+                               SoleWriterGuard soleWriter,
+                               TaskScheduler taskScheduler,
+                               @Value("${energy.hot-tier.enabled:true}") boolean enabled,
+                               @Value("${energy.hot-tier.window-hours:24}") long windowHours,
+                               @Value("${energy.hot-tier.capacity-per-pump:8192}") int capacityPerPump,
+                               @Value("${energy.ownership.handoff-delay-ms:90000}") long handoffDelayMillis) {
+        this.consommationRepository = consommationRepository;
+        this.rechargerRepository = rechargerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ownership = ownership;
+        this.soleWriter = soleWriter;
+        this.taskScheduler = taskScheduler;
+        this.enabled = enabled;
+        this.windowMillis = Duration.ofHours(windowHours).toMillis();
+        this.capacityPerPump = capacityPerPump;
+        this.handoffDelayMillis = handoffDelayMillis;
+    }
+
+    /**
+     * Précharge la fenêtre depuis la base avant que le serveur web n'accepte du trafic.
+     */
+    @PostConstruct
+    void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime from = EpochTime.toLocalDateTime(now() - windowMillis);
+        List<ConsommationElectrique> recent = consommationRepository.findByDateMesureGreaterThanEqualOrderByIdAsc(from);
+        recent.forEach(this::append);
+        loadedVersion = ownership.version();
+        ready = true;
+        log.info("🔥 Hot tier warmed with {} consumption readings across {} pumps", recent.size(), seriesByPompe.size());
+    }
+
+    /**
+     * Oublie tout de suite les pompes perdues ; les pompes reprises seront rechargées
+     * après le délai de passation.
+     */
+    @EventListener(PompeOwnershipChangedEvent.class)
+    void onOwnershipChanged(PompeOwnershipChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        seriesByPompe.keySet().removeIf(pompeId -> !ownership.isOwner(pompeId));
+        taskScheduler.schedule(() -> reload(event.version()), Instant.now().plusMillis(handoffDelayMillis));
+    }
+
+    /**
+     * Recharge la fenêtre des pompes possédées, sans bloquer les écritures : les séries
+     * sont construites à part puis publiées d'un bloc, et les mesures commitées entre la
+     * lecture et la publication sont rattrapées par une seconde lecture (ids plus grands).
+     */
+    void reload(long version) {
+        if (version != ownership.version()) {
+            return;
+        }
+        LocalDateTime from = EpochTime.toLocalDateTime(now() - windowMillis);
+        List<ConsommationElectrique> recent = consommationRepository.findByDateMesureGreaterThanEqualOrderByIdAsc(from);
+        Map<Long, ConsommationSeries> fresh = new ConcurrentHashMap<>();
+        long lastId = 0;
+        int loaded = 0;
+        for (ConsommationElectrique consommation : recent) {
+            lastId = Math.max(lastId, consommation.getId());
+            if (ownership.isOwner(consommation.getPompeId())) {
+                append(fresh, consommation);
+                loaded++;
+            }
+        }
+        seriesByPompe = fresh;
+        for (ConsommationElectrique consommation
+                : consommationRepository.findByIdGreaterThanAndDateMesureGreaterThanEqualOrderByIdAsc(lastId, from)) {
+            ConsommationSeries series = fresh.get(consommation.getPompeId());
+            if (series == null || !series.contains(consommation.getId())) {
+                append(consommation);
+            }
+        }
+        if (version == ownership.version()) {
+            loadedVersion = version;
+        }
+        log.info("🔥 Hot tier reloaded for pump ownership v{}: {} readings across {} owned pumps",
+                version, loaded, fresh.size());
+    }
+
+    public void recordCreated(ConsommationElectrique consommation) {
+        if (enabled) {
+            if (!ownership.isOwner(consommation.getPompeId())) {
+                rechargerRepository.save(new PompeARecharger(consommation.getPompeId(),
+                        consommation.getDateMesure(), consommation.getDateMesure()));
+            }
+            afterCommit(() -> append(consommation));
+        }
+    }
+
+    /**
+     * Ajoute un upload en colonnes après commit ; seules les mesures de la fenêtre sont gardées.
+     * Les périodes des pompes d'autres instances sont notées pour leurs propriétaires.
+     */
+    public void recordCreated(int size, long[] ids, long[] pompeIds, long[] timestamps,
+                              double[] energies, double[] durees) {
+        if (enabled) {
+            recordForeign(size, pompeIds, timestamps);
+            afterCommit(() -> {
+                long from = now() - windowMillis;
+                for (int row = 0; row < size; row++) {
+                    if (timestamps[row] >= from) {
+                        append(ids[row], pompeIds[row], timestamps[row], energies[row], durees[row]);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Relit les périodes écrites par d'autres instances pour les pompes possédées, puis les oublie.
+     * Une mesure commitée par cette instance pendant la relecture peut y être ajoutée deux fois
+     * si son ajout après commit arrive ensuite, comme au rechargement.
+     */
+    @Scheduled(fixedDelayString = "${energy.hot-tier.foreign-writes-check-ms:1000}",
+            initialDelayString = "${energy.hot-tier.foreign-writes-check-ms:1000}")
+    void absorbForeignWrites() {
+        if (!enabled || !ready) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<PompeARecharger> owned = rechargerRepository.findAll().stream()
+                        .filter(recharge -> ownership.isOwner(recharge.getPompeId()))
+                        .toList();
+                if (owned.isEmpty()) {
+                    return;
+                }
+                LocalDateTime from = EpochTime.toLocalDateTime(now() - windowMillis);
+                int added = 0;
+                for (PompeARecharger recharge : owned) {
+                    if (recharge.getFin().isBefore(from)) {
+                        continue;
+                    }
+                    LocalDateTime debut = recharge.getDebut().isBefore(from) ? from : recharge.getDebut();
+                    for (ConsommationElectrique consommation : consommationRepository
+                            .findByPompeIdAndDateMesureBetween(recharge.getPompeId(), debut, recharge.getFin())) {
+                        if (appendIfAbsent(consommation)) {
+                            added++;
+                        }
+                    }
+                }
+                rechargerRepository.deleteAllInBatch(owned);
+                log.debug("🔥 Hot tier caught up {} readings written by other instances", added);
+            });
+        } catch (RuntimeException e) {
+            log.error("❌ Failed to catch up readings written by other instances: {}", e.getMessage());
+        }
+    }
+
+    public void recordUpdated(ConsommationElectrique consommation) {
+        if (enabled) {
+            afterCommit(() -> {
+                ConsommationSeries series = seriesByPompe.get(consommation.getPompeId());
+                if (series != null) {
+                    series.update(consommation.getId(), consommation.getEnergieUtilisee(), consommation.getDuree());
+                }
+            });
+        }
+    }
+
+    public void recordDeleted(Long id) {
+        if (enabled) {
+            afterCommit(() -> {
+                for (ConsommationSeries series : seriesByPompe.values()) {
+                    if (series.remove(id)) {
+                        return;
+                    }
+                }
+            });
+        }
+    }
+
+    public Optional<List<ConsommationElectriqueDTO>> findBetween(LocalDateTime debut, LocalDateTime fin) {
+        long from = EpochTime.toEpochMillis(debut);
+        if (!coversAllPumps(from)) {
+            return Optional.empty();
+        }
+        long to = EpochTime.toEpochMillis(fin);
+        List<ConsommationElectriqueDTO> result = new ArrayList<>();
+        for (ConsommationSeries series : seriesByPompe.values()) {
+            series.collectBetween(from, to, result);
+        }
+        return Optional.of(result);
+    }
+
+    public Optional<List<ConsommationElectriqueDTO>> findByPompeBetween(Long pompeId, LocalDateTime debut, LocalDateTime fin) {
+        long from = EpochTime.toEpochMillis(debut);
+        if (!covers(from) || !(soleWriter.coversFrom(from) || ownership.isPartitioned() && ownership.isOwner(pompeId))) {
+            return Optional.empty();
+        }
+        List<ConsommationElectriqueDTO> result = new ArrayList<>();
+        ConsommationSeries series = seriesByPompe.get(pompeId);
+        if (series != null) {
+            series.collectBetween(from, EpochTime.toEpochMillis(fin), result);
+        }
+        return Optional.of(result);
+    }
+
+    public OptionalDouble sumBetween(LocalDateTime debut, LocalDateTime fin) {
+        long from = EpochTime.toEpochMillis(debut);
+        if (!coversAllPumps(from)) {
+            return OptionalDouble.empty();
+        }
+        long to = EpochTime.toEpochMillis(fin);
+        double sum = 0.0;
+        for (ConsommationSeries series : seriesByPompe.values()) {
+            sum += series.sumBetween(from, to);
+        }
+        return OptionalDouble.of(sum);
+    }
+
+    /**
+     * Une période est servie depuis la mémoire si elle commence dans la fenêtre
+     * et après toute mesure évincée faute de place.
+     */
+    private boolean covers(long from) {
+        return enabled && ready
+                && loadedVersion == ownership.version()
+                && from >= now() - windowMillis
+                && from > lastEvictedTimestamp.get();
+    }
+
+    private boolean coversAllPumps(long from) {
+        return covers(from) && soleWriter.coversFrom(from);
+    }
+
+    private void append(ConsommationElectrique consommation) {
+        append(seriesByPompe, consommation);
+    }
+
+    /**
+     * Note, dans la transaction de l'upload, la période de chaque pompe d'une autre instance.
+     */
+    private void recordForeign(int size, long[] pompeIds, long[] timestamps) {
+        long from = now() - windowMillis;
+        // Pompe → [première, dernière] mesure de la fenêtre
+        Map<Long, long[]> periodes = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+            if (timestamps[row] >= from && !ownership.isOwner(pompeIds[row])) {
+                periodes.merge(pompeIds[row], new long[] {timestamps[row], timestamps[row]},
+                        (periode, mesure) -> new long[] {Math.min(periode[0], mesure[0]), Math.max(periode[1], mesure[1])});
+            }
+        }
+        if (!periodes.isEmpty()) {
+            rechargerRepository.saveAll(periodes.entrySet().stream()
+                    .map(entry -> new PompeARecharger(entry.getKey(),
+                            EpochTime.toLocalDateTime(entry.getValue()[0]),
+                            EpochTime.toLocalDateTime(entry.getValue()[1])))
+                    .toList());
+        }
+    }
+
+    private boolean appendIfAbsent(ConsommationElectrique consommation) {
+        ConsommationSeries series = seriesByPompe.get(consommation.getPompeId());
+        if (series != null && series.contains(consommation.getId())) {
+            return false;
+        }
+        append(consommation);
+        return true;
+    }
+
+    private void append(Map<Long, ConsommationSeries> target, ConsommationElectrique consommation) {
+        append(target, consommation.getId(), consommation.getPompeId(),
+                EpochTime.toEpochMillis(consommation.getDateMesure()),
+                consommation.getEnergieUtilisee(),
+                consommation.getDuree());
+    }
+
+    private void append(long id, long pompeId, long timestamp, double energie, double duree) {
+        append(seriesByPompe, id, pompeId, timestamp, energie, duree);
+    }
+
+    private void append(Map<Long, ConsommationSeries> target, long id, long pompeId, long timestamp,
+                        double energie, double duree) {
+        // Écriture arrivée chez un ancien propriétaire : le nouveau la lira en base au rechargement
+        if (!ownership.isOwner(pompeId)) {
+            return;
+        }
+        ConsommationSeries series = target.computeIfAbsent(pompeId,
+                key -> new ConsommationSeries(key, capacityPerPump));
+        long evicted = series.append(id, timestamp, energie, duree);
+        if (evicted != Long.MIN_VALUE) {
+            lastEvictedTimestamp.accumulateAndGet(evicted, Math::max);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static long now() {
+        return EpochTime.toEpochMillis(LocalDateTime.now());
+    }
+}
@@ -0,0 +1,115 @@
+package com.irrigation.energy.timeseries;
+
+import com.irrigation.commons.timeseries.EpochTime;
+import com.irrigation.energy.dto.ConsommationElectriqueDTO;
+
+import java.util.List;
+
+/**
+ * Ring buffer colonnaire des consommations récentes d'une pompe.
+ * Chaque colonne est un tableau primitif (id, horodatage epoch ms, énergie, durée),
+ * ce qui évite les objets Double / LocalDateTime par mesure.
+ * Une mesure supprimée est marquée par une énergie NaN.
+ */
+class ConsommationSeries {
+
+    private final long pompeId;
+    private final long[] ids;
+    private final long[] timestamps;
+    private final double[] energies;
+    private final double[] durees;
+
+    private int head;
+    private int size;
+
+    ConsommationSeries(long pompeId, int capacity) {
+        this.pompeId = pompeId;
+        this.ids = new long[capacity];
+        this.timestamps = new long[capacity];
+        this.energies = new double[capacity];
+        this.durees = new double[capacity];
+    }
+
+    /**
+     * @return L'horodatage évincé par cet ajout, ou Long.MIN_VALUE si le buffer n'était pas plein
+     */
+    synchronized long append(long id, long timestamp, double energie, double duree) {
+        int capacity = ids.length;
+        long evicted = Long.MIN_VALUE;
+        int slot;
+        if (size < capacity) {
+            slot = (head + size) % capacity;
+            size++;
+        } else {
+            slot = head;
+            evicted = timestamps[slot];
+            head = (head + 1) % capacity;
+        }
+        ids[slot] = id;
+        timestamps[slot] = timestamp;
+        energies[slot] = energie;
+        durees[slot] = duree;
+        return evicted;
+    }
+
+    synchronized boolean update(long id, double energie, double duree) {
+        int slot = find(id);
+        if (slot < 0) {
+            return false;
+        }
+        energies[slot] = energie;
+        durees[slot] = duree;
+        return true;
+    }
+
+    synchronized boolean remove(long id) {
+        int slot = find(id);
+        if (slot < 0) {
+            return false;
+        }
+        energies[slot] = Double.NaN;
+        return true;
+    }
+
+    synchronized double sumBetween(long from, long to) {
+        double sum = 0.0;
+        int capacity = ids.length;
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) % capacity;
+            long ts = timestamps[slot];
+            double energie = energies[slot];
+            if (ts >= from && ts <= to && !Double.isNaN(energie)) {
+                sum += energie;
+            }
+        }
+        return sum;
+    }
+
+    synchronized void collectBetween(long from, long to, List<ConsommationElectriqueDTO> out) {
+        int capacity = ids.length;
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) % capacity;
+            long ts = timestamps[slot];
+            double energie = energies[slot];
+            if (ts >= from && ts <= to && !Double.isNaN(energie)) {
+                out.add(new ConsommationElectriqueDTO(ids[slot], pompeId, energie, durees[slot],
+                        EpochTime.toLocalDateTime(ts)));
+            }
+        }
+    }
+
+    synchronized boolean contains(long id) {
+        return find(id) >= 0;
+    }
+
+    private int find(long id) {
+        int capacity = ids.length;
+        for (int i = size - 1; i >= 0; i--) {
+            int slot = (head + i) % capacity;
+            if (ids[slot] == id) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+}
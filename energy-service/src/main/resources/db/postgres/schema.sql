@@ -0,0 +1,89 @@
+-- Schéma du profil "postgres" (ddl-auto: none) : les mesures brutes sont partitionnées par mois
+-- sur date_mesure. Les partitions mensuelles sont créées et supprimées par MonthlyPartitionManager ;
+-- la partition par défaut recueille les mesures hors des mois déjà créés (imports d'historique).
+
+CREATE TABLE IF NOT EXISTS pompes (
+    id                   bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    reference            varchar(50)      NOT NULL UNIQUE,
+    puissance            double precision NOT NULL,
+    statut               varchar(20)      NOT NULL,
+    date_mise_en_service timestamp(6)     NOT NULL,
+    energy_status        varchar(20)      NOT NULL,
+    version              bigint           NOT NULL DEFAULT 0
+);
+
+-- Bases créées avant le verrou optimiste de Pompe
+ALTER TABLE pompes ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+
+-- Puissance totale des pompes ACTIVE (ligne unique id = 1), initialisée par PowerBudget
+CREATE TABLE IF NOT EXISTS budget_puissance (
+    id               bigint           PRIMARY KEY,
+    puissance_active double precision NOT NULL
+);
+
+CREATE SEQUENCE IF NOT EXISTS consommations_electriques_seq START WITH 1 INCREMENT BY 50;
+
+-- La clé primaire d'une table partitionnée doit contenir la clé de partition
+CREATE TABLE IF NOT EXISTS consommations_electriques (
+    id               bigint           NOT NULL,
+    pompe_id         bigint           NOT NULL,
+    energie_utilisee double precision NOT NULL,
+    duree            double precision NOT NULL,
+    date_mesure      timestamp(6)     NOT NULL,
+    PRIMARY KEY (id, date_mesure)
+) PARTITION BY RANGE (date_mesure);
+
+CREATE INDEX IF NOT EXISTS idx_conso_pompe_date ON consommations_electriques (pompe_id, date_mesure);
+
+CREATE TABLE IF NOT EXISTS consommations_electriques_default
+    PARTITION OF consommations_electriques DEFAULT;
+
+-- Mesures écrites par une instance qui ne possède pas la pompe, à relire par son propriétaire
+CREATE TABLE IF NOT EXISTS pompes_a_recharger (
+    id       bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    pompe_id bigint       NOT NULL,
+    debut    timestamp(6) NOT NULL,
+    fin      timestamp(6) NOT NULL
+);
+
+-- Clés d'idempotence (en-tête Idempotency-Key) : hors de la table partitionnée, qui ne peut pas
+-- porter d'unicité sans date_mesure ; purgées après energy.idempotency.ttl-hours
+CREATE TABLE IF NOT EXISTS cles_idempotence_consommations (
+    cle             varchar(128) PRIMARY KEY,
+    consommation_id bigint       NOT NULL,
+    date_creation   timestamp(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_cle_idem_conso_date ON cles_idempotence_consommations (date_creation);
+
+CREATE TABLE IF NOT EXISTS consommations_agregees (
+    id             bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    pompe_id       bigint           NOT NULL,
+    granularite    varchar(10)      NOT NULL,
+    periode_debut  timestamp(6)     NOT NULL,
+    energie_totale double precision NOT NULL,
+    duree_totale   double precision NOT NULL,
+    energie_max    double precision NOT NULL,
+    nombre_mesures bigint           NOT NULL,
+    UNIQUE (pompe_id, granularite, periode_debut)
+);
+
+CREATE INDEX IF NOT EXISTS idx_conso_agregee_periode ON consommations_agregees (granularite, periode_debut);
+
+-- Avancement des imports de fichiers, lisible depuis toutes les instances ; purgé après
+-- import.job-retention-hours
+CREATE TABLE IF NOT EXISTS suivis_import (
+    id               varchar(36)   PRIMARY KEY,
+    format           varchar(10)   NOT NULL,
+    statut           varchar(10)   NOT NULL,
+    octets_total     bigint        NOT NULL,
+    octets_traites   bigint        NOT NULL,
+    lignes_importees bigint        NOT NULL,
+    lignes_rejetees  bigint        NOT NULL,
+    erreurs          varchar(8000),
+    echec            varchar(1000),
+    date_debut       timestamp(6)  NOT NULL,
+    date_fin         timestamp(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_suivi_import_fin ON suivis_import (date_fin);
@@ -0,0 +1,82 @@
+package com.irrigation.energy.budget;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PowerBudgetTest {
+
+    private static final double MAX = 100.0;
+
+    private JdbcTemplate jdbcTemplate;
+    private PowerBudget budget;
+    private PowerBudget autreInstance;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE pompes (id bigint PRIMARY KEY, puissance double precision, statut varchar(20))");
+        jdbcTemplate.execute("CREATE TABLE budget_puissance (id bigint PRIMARY KEY, puissance_active double precision NOT NULL)");
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        budget = new PowerBudget(jdbcTemplate, transactionManager);
+        autreInstance = new PowerBudget(jdbcTemplate, transactionManager);
+    }
+
+    @Test
+    void budgetIsInitializedFromActivePumps() {
+        pompe(1L, 30.0, "ACTIVE");
+        pompe(2L, 20.0, "ACTIVE");
+        pompe(3L, 500.0, "INACTIVE");
+
+        budget.onReady();
+
+        assertThat(budget.used()).isEqualTo(50.0);
+        assertThat(budget.fits(50.0, MAX)).isTrue();
+        assertThat(budget.fits(50.5, MAX)).isFalse();
+    }
+
+    @Test
+    void reservationOverTheLimitIsRefusedAndLeavesTheBudgetUnchanged() {
+        budget.onReady();
+        budget.adjust(0.0, 60.0, MAX);
+
+        assertThatThrownBy(() -> budget.adjust(0.0, 41.0, MAX))
+                .hasMessageContaining("Insufficient power budget");
+        assertThat(budget.used()).isEqualTo(60.0);
+    }
+
+    @Test
+    void limitIsSharedByEveryInstance() {
+        // Chaque instance est sous la limite seule ; ensemble, elles la dépasseraient
+        budget.adjust(0.0, 70.0, MAX);
+
+        assertThatThrownBy(() -> autreInstance.adjust(0.0, 40.0, MAX))
+                .hasMessageContaining("Insufficient power budget");
+        autreInstance.adjust(0.0, 30.0, MAX);
+        assertThat(budget.used()).isEqualTo(100.0);
+    }
+
+    @Test
+    void decreaseReleasesPowerForOtherPumps() {
+        budget.adjust(0.0, 80.0, MAX);
+        budget.adjust(80.0, 50.0, MAX);
+        budget.adjust(50.0, 0.0, MAX);
+
+        assertThat(autreInstance.used()).isEqualTo(0.0);
+        autreInstance.adjust(0.0, 100.0, MAX);
+        assertThat(budget.used()).isEqualTo(100.0);
+    }
+
+    private void pompe(Long id, double puissance, String statut) {
+        jdbcTemplate.update("INSERT INTO pompes (id, puissance, statut) VALUES (?, ?, ?)", id, puissance, statut);
+    }
+}
@@ -0,0 +1,92 @@
+package com.irrigation.energy.forecast;
+
+import com.irrigation.energy.entity.ConsommationElectrique;
+import com.irrigation.energy.ownership.PompeOwnership;
+import com.irrigation.energy.publisher.OverconsumptionPublisher;
+import com.irrigation.events.OverconsumptionForecastEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConsommationForecasterTest {
+
+    private static final long HOUR = PompeForecastModel.HOUR_MILLIS;
+
+    private final OverconsumptionPublisher publisher = mock(OverconsumptionPublisher.class);
+    private ConsommationForecaster forecaster;
+
+    @BeforeEach
+    void setUp() {
+        PompeOwnership ownership = mock(PompeOwnership.class);
+        when(ownership.isOwner(anyLong())).thenReturn(true);
+        // Pas d'échauffement, alerte dès qu'une prévision à 3 h atteint le seuil
+        forecaster = new ConsommationForecaster(publisher, ownership, true, 0.5, 0.2, 0.0, 1.0,
+                1, 0, 3, 1.0, 60);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void updatesTheModelOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        forecaster.recordCreated(consommation(1L, LocalDateTime.now(), 10.0));
+
+        assertThat(forecaster.getPrevision(1L, 3)).isEmpty();
+
+        commit();
+        assertThat(forecaster.getPrevision(1L, 3)).isPresent();
+    }
+
+    @Test
+    void rolledBackReadingsLeaveNoTraceNorCooldown() {
+        long[] pompeIds = {1L, 1L, 1L};
+        long[] timestamps = {0, HOUR, 2 * HOUR};
+        double[] energies = {10.0, 60.0, 99.0};
+
+        TransactionSynchronizationManager.initSynchronization();
+        forecaster.recordCreated(3, pompeIds, timestamps, energies);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertThat(forecaster.getPrevision(1L, 3)).isEmpty();
+        verify(publisher, never()).publishForecast(any());
+
+        // Rejouées après l'annulation, les mêmes mesures déclenchent l'alerte
+        TransactionSynchronizationManager.initSynchronization();
+        forecaster.recordCreated(3, pompeIds, timestamps, energies);
+        commit();
+
+        verify(publisher, times(1)).publishForecast(any(OverconsumptionForecastEvent.class));
+    }
+
+    private static void commit() {
+        var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+
+    private static ConsommationElectrique consommation(Long pompeId, LocalDateTime date, double energie) {
+        ConsommationElectrique consommation = new ConsommationElectrique();
+        consommation.setPompeId(pompeId);
+        consommation.setDateMesure(date);
+        consommation.setEnergieUtilisee(energie);
+        return consommation;
+    }
+}
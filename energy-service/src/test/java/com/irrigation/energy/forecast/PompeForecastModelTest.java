@@ -0,0 +1,83 @@
+package com.irrigation.energy.forecast;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PompeForecastModelTest {
+
+    private static final long HOUR = PompeForecastModel.HOUR_MILLIS;
+    private static final double PAS_MIN = 1.0 / 60;
+
+    private final PompeForecastModel model = new PompeForecastModel();
+
+    @Test
+    void followsALinearTrend() {
+        for (int h = 0; h < 200; h++) {
+            update(h * HOUR, 10.0 + 2.0 * h, 0.0);
+        }
+
+        assertThat(model.tendance()).isCloseTo(2.0, within(0.01));
+        assertThat(model.forecast(200 * HOUR, 1.0)).isCloseTo(410.0, within(0.5));
+    }
+
+    @Test
+    void closeReadingsDoNotInflateTheTrend() {
+        for (int h = 0; h < 50; h++) {
+            update(h * HOUR, 10.0, 0.0);
+        }
+        // Une seconde après la dernière mesure : l'écart de niveau n'est pas divisé par ~0 h
+        update(49 * HOUR + 1_000, 11.0, 0.0);
+
+        assertThat(model.tendance()).isZero();
+        assertThat(model.niveau()).isCloseTo(10.5, within(1e-9));
+    }
+
+    @Test
+    void closeReadingsAreAggregatedIntoTheNextTrendUpdate() {
+        update(0, 10.0, 0.0);
+        for (int s = 1; s <= 120; s++) {
+            // Une mesure toutes les 30 s, pente de 2 kWh par heure
+            update(s * 30_000L, 10.0 + 2.0 * s * 30_000L / HOUR, 0.0);
+        }
+
+        assertThat(model.tendance()).isBetween(0.0, 2.0);
+    }
+
+    @Test
+    void lateReadingUpdatesTheLevelOnly() {
+        for (int h = 0; h < 50; h++) {
+            update(h * HOUR, 10.0 + h, 0.0);
+        }
+        double tendance = model.tendance();
+
+        update(10 * HOUR, 100.0, 0.0);
+
+        assertThat(model.tendance()).isEqualTo(tendance);
+        assertThat(model.derniereMesure()).isEqualTo(49 * HOUR);
+        assertThat(model.mesures()).isEqualTo(51);
+    }
+
+    @Test
+    void learnsTheHourOfDayProfile() {
+        for (int h = 0; h < 24 * 30; h++) {
+            update(h * HOUR, h % 24 == 12 ? 30.0 : 10.0, 0.1);
+        }
+        long demain = 24 * 30 * HOUR;
+
+        assertThat(model.forecast(demain + 12 * HOUR, 0.95))
+                .isGreaterThan(model.forecast(demain + 3 * HOUR, 0.95) + 10.0);
+    }
+
+    @Test
+    void alertsAreSpacedByTheCooldown() {
+        assertThat(model.tryAlert(0, HOUR)).isTrue();
+        assertThat(model.tryAlert(HOUR / 2, HOUR)).isFalse();
+        assertThat(model.tryAlert(HOUR, HOUR)).isTrue();
+    }
+
+    private void update(long timestamp, double energie, double gamma) {
+        model.update(timestamp, energie, 0.5, 0.2, gamma, 1.0, PAS_MIN);
+    }
+}
@@ -0,0 +1,90 @@
+package com.irrigation.energy.ingestion;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.irrigation.commons.timeseries.EpochTime;
+import com.irrigation.energy.dto.ConsommationElectriqueDTO;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Compare le décodage d'un upload de consommations : tableau JSON de DTO (chemin
+ * POST /consommations) contre le format binaire en colonnes (POST /consommations/bulk).
+ * Lancé par scripts/bulk-decode-benchmark.sh.
+ *
+ * Usage : BulkDecodeBenchmark [mesures par upload] [itérations]
+ */
+public final class BulkDecodeBenchmark {
+
+    private static final TypeReference<List<ConsommationElectriqueDTO>> DTO_LIST = new TypeReference<>() {
+    };
+
+    private BulkDecodeBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        SplittableRandom random = new SplittableRandom(42);
+        long now = System.currentTimeMillis();
+
+        ConsommationColumns columns = new ConsommationColumns(records);
+        List<ConsommationElectriqueDTO> dtos = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            long pompeId = 1 + random.nextInt(200);
+            long timestamp = now - random.nextInt(3_600_000);
+            double energie = 1 + random.nextDouble() * 120;
+            double duree = 0.25 + random.nextDouble() * 2;
+            columns.add(pompeId, timestamp, energie, duree);
+            dtos.add(new ConsommationElectriqueDTO(null, pompeId, energie, duree, EpochTime.toLocalDateTime(timestamp)));
+        }
+        byte[] json = mapper.writeValueAsBytes(dtos);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConsommationBulkCodec.encode(columns, out);
+        byte[] cbor = out.toByteArray();
+
+        System.out.printf("%-8s %12s %16s %14s%n", "format", "payload (B)", "readings/s", "MB/s");
+        report("JSON", json.length, records, time(iterations, () -> {
+            List<ConsommationElectriqueDTO> decoded = mapper.readValue(json, DTO_LIST);
+            return decoded.size();
+        }));
+        report("CBOR", cbor.length, records, time(iterations, () ->
+                ConsommationBulkCodec.decode(new ByteArrayInputStream(cbor), Integer.MAX_VALUE).size()));
+    }
+
+    private interface Decode {
+        int run() throws IOException;
+    }
+
+    private static double time(int iterations, Decode decode) throws IOException {
+        long checksum = 0;
+        for (int i = 0; i < iterations; i++) {
+            checksum += decode.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            checksum += decode.run();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (checksum == 0) {
+            throw new IllegalStateException();
+        }
+        return seconds / iterations;
+    }
+
+    private static void report(String format, int bytes, int records, double secondsPerUpload) {
+        System.out.printf("%-8s %12d %16.0f %14.1f%n", format, bytes,
+                records / secondsPerUpload, bytes / secondsPerUpload / 1e6);
+    }
+}
@@ -0,0 +1,109 @@
+package com.irrigation.energy.ingestion;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConsommationBulkCodecTest {
+
+    @Test
+    void roundTripsColumnsBeyondTheInitialCapacity() throws IOException {
+        ConsommationColumns columns = new ConsommationColumns(4);
+        for (int i = 0; i < 3000; i++) {
+            columns.add(1 + i % 7, 1_700_000_000_000L + i, 1.5 + i, 0.25);
+        }
+
+        ConsommationColumns decoded = decode(encode(columns), 10_000);
+
+        assertThat(decoded.size()).isEqualTo(3000);
+        assertThat(Arrays.copyOf(decoded.pompeIds(), 3000)).isEqualTo(Arrays.copyOf(columns.pompeIds(), 3000));
+        assertThat(Arrays.copyOf(decoded.timestamps(), 3000)).isEqualTo(Arrays.copyOf(columns.timestamps(), 3000));
+        assertThat(Arrays.copyOf(decoded.energies(), 3000)).isEqualTo(Arrays.copyOf(columns.energies(), 3000));
+        assertThat(Arrays.copyOf(decoded.durees(), 3000)).isEqualTo(Arrays.copyOf(columns.durees(), 3000));
+    }
+
+    @Test
+    void rejectsUploadsOverTheLimit() throws IOException {
+        ConsommationColumns columns = new ConsommationColumns(16);
+        for (int i = 0; i < 11; i++) {
+            columns.add(1, i, 1, 1);
+        }
+
+        byte[] body = encode(columns);
+
+        assertThatThrownBy(() -> decode(body, 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("exceeds 10");
+    }
+
+    @Test
+    void rejectsColumnsOfDifferentLengths() throws IOException {
+        byte[] body = cbor(gen -> {
+            gen.writeNumber(ConsommationBulkCodec.VERSION);
+            gen.writeArray(new long[]{1, 2}, 0, 2);
+            gen.writeArray(new long[]{10}, 0, 1);
+            gen.writeArray(new double[]{1, 2}, 0, 2);
+            gen.writeArray(new double[]{1, 2}, 0, 2);
+        });
+
+        assertThatThrownBy(() -> decode(body, 100))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("dateMesure has 1 values, expected 2");
+    }
+
+    @Test
+    void rejectsNonPositiveEnergy() throws IOException {
+        byte[] body = cbor(gen -> {
+            gen.writeNumber(ConsommationBulkCodec.VERSION);
+            gen.writeArray(new long[]{1}, 0, 1);
+            gen.writeArray(new long[]{10}, 0, 1);
+            gen.writeArray(new double[]{0}, 0, 1);
+            gen.writeArray(new double[]{1}, 0, 1);
+        });
+
+        assertThatThrownBy(() -> decode(body, 100))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("energieUtilisee must be positive");
+    }
+
+    @Test
+    void rejectsAnotherFormatVersion() throws IOException {
+        byte[] body = cbor(gen -> gen.writeNumber(ConsommationBulkCodec.VERSION + 1));
+
+        assertThatThrownBy(() -> decode(body, 100))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unsupported bulk format version");
+    }
+
+    private interface Elements {
+        void write(CBORGenerator generator) throws IOException;
+    }
+
+    private static byte[] cbor(Elements elements) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CBORGenerator generator = new CBORFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            elements.write(generator);
+            generator.writeEndArray();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encode(ConsommationColumns columns) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConsommationBulkCodec.encode(columns, out);
+        return out.toByteArray();
+    }
+
+    private static ConsommationColumns decode(byte[] body, int maxRecords) throws IOException {
+        return ConsommationBulkCodec.decode(new ByteArrayInputStream(body), maxRecords);
+    }
+}
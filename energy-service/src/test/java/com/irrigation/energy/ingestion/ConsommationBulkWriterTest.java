@@ -0,0 +1,72 @@
+package com.irrigation.energy.ingestion;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsommationBulkWriterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ConsommationBulkWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        // Même séquence que celle générée par Hibernate pour ConsommationElectrique
+        jdbcTemplate.execute("CREATE SEQUENCE consommations_electriques_seq START WITH 1 INCREMENT BY "
+                + ConsommationBulkWriter.ALLOCATION_SIZE);
+        jdbcTemplate.execute("CREATE TABLE consommations_electriques (id BIGINT PRIMARY KEY, pompe_id BIGINT, "
+                + "energie_utilisee DOUBLE PRECISION, duree DOUBLE PRECISION, date_mesure TIMESTAMP)");
+        writer = new ConsommationBulkWriter(jdbcTemplate, 40);
+    }
+
+    @Test
+    void insertsEveryRowWithUniqueIdsInRowOrder() {
+        long[] ids = writer.insert(columns(120));
+
+        assertThat(Arrays.stream(ids).distinct().count()).isEqualTo(120);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM consommations_electriques", Long.class))
+                .isEqualTo(120);
+        // La ligne i porte l'id ids[i] : energie = i + 1
+        assertThat(jdbcTemplate.queryForObject("SELECT energie_utilisee FROM consommations_electriques WHERE id = ?",
+                Double.class, ids[77])).isEqualTo(78.0);
+    }
+
+    @Test
+    void firstSequenceBlockOnlyYieldsIdOne() {
+        long[] ids = writer.insert(columns(3));
+
+        // hi = 1 ne réserve que l'id 1, puis hi = 51 réserve 2..51
+        assertThat(ids).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void neverOverlapsIdsAllocatedByThePooledOptimizer() {
+        long[] bulk = writer.insert(columns(60));
+        // Hibernate "pooled" : un nextval = hi réserve les ids ]hi - 50, hi]
+        long hi = jdbcTemplate.queryForObject("VALUES NEXT VALUE FOR consommations_electriques_seq", Long.class);
+        List<Long> jpa = LongStream.rangeClosed(hi - ConsommationBulkWriter.ALLOCATION_SIZE + 1, hi).boxed().toList();
+        long[] next = writer.insert(columns(60));
+
+        assertThat(Arrays.stream(bulk).boxed().toList()).doesNotContainAnyElementsOf(jpa);
+        assertThat(Arrays.stream(next).boxed().toList()).doesNotContainAnyElementsOf(jpa);
+        assertThat(LongStream.concat(Arrays.stream(bulk), Arrays.stream(next)).distinct().count()).isEqualTo(120);
+    }
+
+    private static ConsommationColumns columns(int size) {
+        ConsommationColumns columns = new ConsommationColumns(size);
+        for (int i = 0; i < size; i++) {
+            columns.add(1 + i % 5, 1_700_000_000_000L + i * 60_000L, i + 1, 0.5);
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,97 @@
+package com.irrigation.energy.ingestion;
+
+import com.irrigation.energy.entity.CleIdempotence;
+import com.irrigation.energy.repository.CleIdempotenceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsommationIdempotenceTest {
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private JpaTransactionManager transactionManager;
+    private ConsommationIdempotence idempotence;
+    private ConsommationIdempotence autreInstance;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setManagedTypes(PersistenceManagedTypes.of(CleIdempotence.class.getName()));
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "create-drop"));
+        factoryBean.afterPropertiesSet();
+        EntityManagerFactory emf = factoryBean.getObject();
+        transactionManager = new JpaTransactionManager(emf);
+
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(emf);
+        CleIdempotenceRepository repository = new JpaRepositoryFactory(entityManager)
+                .getRepository(CleIdempotenceRepository.class);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        idempotence = newInstance(repository, jdbcTemplate);
+        autreInstance = newInstance(repository, jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        factoryBean.destroy();
+    }
+
+    @Test
+    void secondClaimReturnsTheReadingThatHoldsTheKey() {
+        assertThat(inTransaction(idempotence, "pompe-1:42", 10L)).isEmpty();
+
+        // Réémission passée par l'autre instance : son filtre ne connaît pas la clé
+        assertThat(inTransaction(autreInstance, "pompe-1:42", 11L)).contains(10L);
+        assertThat(autreInstance.find("pompe-1:42")).contains(10L);
+    }
+
+    @Test
+    void losingClaimDoesNotRollBackTheTransaction() {
+        inTransaction(idempotence, "pompe-1:42", 10L);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertThat(autreInstance.claim("pompe-1:42", 11L)).contains(10L);
+            assertThat(autreInstance.claim("pompe-1:43", 12L)).isEmpty();
+        });
+
+        assertThat(autreInstance.find("pompe-1:43")).contains(12L);
+    }
+
+    @Test
+    void claimedKeyIsRememberedAfterCommit() {
+        inTransaction(idempotence, "pompe-1:42", 10L);
+
+        assertThat(idempotence.find("pompe-1:42")).contains(10L);
+        assertThat(idempotence.find("pompe-1:99")).isEmpty();
+    }
+
+    private Optional<Long> inTransaction(ConsommationIdempotence instance, String cle, Long consommationId) {
+        return new TransactionTemplate(transactionManager).execute(status -> instance.claim(cle, consommationId));
+    }
+
+    private ConsommationIdempotence newInstance(CleIdempotenceRepository repository, JdbcTemplate jdbcTemplate) {
+        return new ConsommationIdempotence(repository, jdbcTemplate, transactionManager, new SimpleMeterRegistry(),
+                1000, 0.01, 100, 48);
+    }
+}
@@ -0,0 +1,103 @@
+package com.irrigation.energy.ingestion;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Débit d'ingestion unitaire (POST /consommations) contre un service lancé.
+ *
+ * Générateur en boucle fermée : {@code concurrence} threads partagent un même client HTTP
+ * (connexions keep-alive) et enchaînent les requêtes, après une phase de chauffe non mesurée.
+ * À lancer une fois sans et une fois avec energy.write-behind.enabled pour comparer le chemin
+ * synchrone au group commit. Lancé par scripts/ingest-benchmark.sh.
+ *
+ * Usage : IngestBenchmark [url de base] [requêtes] [concurrence] [pompeId]
+ */
+public final class IngestBenchmark {
+
+    private IngestBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8081";
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+        long pompeId = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/consommations"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"pompeId\":" + pompeId + ",\"energieUtilisee\":12.5,\"duree\":1.0}"))
+                .build();
+
+        System.out.printf("POST %s x %d (concurrency %d)%n", request.uri(), requests, concurrency);
+        run(client, request, Math.max(requests / 10, concurrency), concurrency, null);
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        long[] latencies = new long[requests];
+        long start = System.nanoTime();
+        run(client, request, requests, concurrency, (index, status, nanos) -> {
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+            latencies[index] = nanos;
+        });
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        new TreeMap<>(statuses).forEach((status, count) -> System.out.printf("%8d %s%n", count.sum(), status));
+        Arrays.sort(latencies);
+        System.out.printf("Elapsed: %.2fs  Throughput: %.0f req/s%n", elapsed, requests / elapsed);
+        System.out.printf("Latency ms: p50 %.2f  p99 %.2f  max %.2f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[requests - 1] / 1e6);
+    }
+
+    private interface Recorder {
+        void record(int index, int status, long nanos);
+    }
+
+    /**
+     * Envoie {@code requests} requêtes réparties sur {@code concurrency} threads ;
+     * status -1 pour une erreur réseau.
+     */
+    private static void run(HttpClient client, HttpRequest request, int requests, int concurrency,
+                            Recorder recorder) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int t = 0; t < concurrency; t++) {
+            Thread worker = new Thread(() -> {
+                int index;
+                while ((index = next.getAndIncrement()) < requests) {
+                    long begin = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    if (recorder != null) {
+                        recorder.record(index, status, System.nanoTime() - begin);
+                    }
+                }
+                done.countDown();
+            }, "ingest-" + t);
+            worker.start();
+        }
+        done.await();
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,158 @@
+package com.irrigation.energy.partition;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Partitionnement mensuel sur un vrai PostgreSQL embarqué, avec le schéma du profil "postgres".
+ */
+class MonthlyPartitionManagerTest {
+
+    private static final String TABLE = "consommations_electriques";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("'_p'uuuu_MM");
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void start() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        dataSource = postgres.getPostgresDatabase();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void resetSchema() {
+        jdbcTemplate.execute("DROP SCHEMA public CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA public");
+        new ResourceDatabasePopulator(new ClassPathResource("db/postgres/schema.sql")).execute(dataSource);
+    }
+
+    @Test
+    void createsMonthsFromTheRetentionCutoffToMonthsAhead() {
+        manager(3, 30).maintain();
+        manager(3, 30).maintain();
+
+        YearMonth first = YearMonth.from(LocalDate.now().minusDays(30));
+        YearMonth last = YearMonth.now().plusMonths(3);
+        List<String> expected = new ArrayList<>();
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            expected.add(partition(month));
+        }
+        assertThat(partitions()).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @Test
+    void movesStrandedReadingsOutOfTheDefaultPartition() {
+        manager(0, 30).maintain();
+        YearMonth future = YearMonth.now().plusMonths(2);
+        insert(1L, future.atDay(10).atTime(8, 0));
+        insert(2L, future.atDay(20).atTime(8, 0));
+        assertThat(count(TABLE + "_default")).isEqualTo(2);
+
+        manager(3, 30).maintain();
+
+        assertThat(count(TABLE + "_default")).isZero();
+        assertThat(count(partition(future))).isEqualTo(2);
+        assertThat(count(TABLE)).isEqualTo(2);
+    }
+
+    @Test
+    void dropsExpiredPartitionsOnceEmpty() {
+        manager(0, 400).maintain();
+        YearMonth expiredEmpty = YearMonth.now().minusMonths(10);
+        YearMonth expiredFull = YearMonth.now().minusMonths(11);
+        insert(1L, expiredFull.atDay(5).atTime(12, 0));
+
+        manager(0, 30).maintain();
+
+        assertThat(partitions()).doesNotContain(partition(expiredEmpty)).contains(partition(expiredFull));
+        assertThat(count(TABLE)).isEqualTo(1);
+    }
+
+    @Test
+    void prunesPartitionsOnADateRangeQuery() {
+        manager(3, 30).maintain();
+        YearMonth month = YearMonth.now().plusMonths(1);
+
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN SELECT * FROM " + TABLE
+                        + " WHERE pompe_id = 1 AND date_mesure >= ? AND date_mesure < ?", String.class,
+                month.atDay(1).atStartOfDay(), month.atDay(15).atStartOfDay()));
+
+        assertThat(plan).contains(partition(month))
+                .doesNotContain(partition(month.plusMonths(1)))
+                .doesNotContain(partition(YearMonth.now()))
+                .doesNotContain(TABLE + "_default");
+    }
+
+    @Test
+    void instancesStartingTogetherDoNotFail() {
+        CyclicBarrier start = new CyclicBarrier(4);
+        List<CompletableFuture<Void>> instances = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            MonthlyPartitionManager manager = manager(3, 30);
+            instances.add(CompletableFuture.runAsync(() -> {
+                try {
+                    start.await();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                manager.maintain();
+            }));
+        }
+
+        CompletableFuture.allOf(instances.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(partitions()).contains(partition(YearMonth.now()), partition(YearMonth.now().plusMonths(3)));
+    }
+
+    private static MonthlyPartitionManager manager(int monthsAhead, int rawDays) {
+        return new MonthlyPartitionManager(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                monthsAhead, rawDays);
+    }
+
+    private static void insert(long pompeId, LocalDateTime dateMesure) {
+        jdbcTemplate.update("INSERT INTO " + TABLE + " (id, pompe_id, energie_utilisee, duree, date_mesure) "
+                + "VALUES (nextval('" + TABLE + "_seq'), ?, 10, 1, ?)", pompeId, dateMesure);
+    }
+
+    private static List<String> partitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i "
+                + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+                + "WHERE p.relname = ? AND c.relname LIKE ?", String.class, TABLE, TABLE + "\\_p%");
+    }
+
+    private static long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private static String partition(YearMonth month) {
+        return TABLE + month.format(SUFFIX);
+    }
+}
@@ -0,0 +1,46 @@
+package com.irrigation.energy.profiling;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FlightRecorderEndpointTest {
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void closeRecordings() {
+        if (FlightRecorder.isAvailable()) {
+            FlightRecorder.getFlightRecorder().getRecordings().forEach(Recording::close);
+        }
+    }
+
+    @Test
+    void recordingsLeaveOutEnvironmentAndSystemProperties() {
+        assumeTrue(FlightRecorder.isAvailable());
+        FlightRecorderEndpoint endpoint = new FlightRecorderEndpoint("energy-service", true, "default",
+                30, 5, 100, "profile", dir.toString());
+
+        endpoint.startContinuous();
+        endpoint.start("on-demand", null, null);
+
+        List<Recording> recordings = FlightRecorder.getFlightRecorder().getRecordings();
+        assertThat(recordings).extracting(Recording::getName)
+                .contains(FlightRecorderEndpoint.CONTINUOUS, "on-demand");
+        for (Recording recording : recordings) {
+            assertThat(recording.getSettings())
+                    .containsEntry("jdk.InitialEnvironmentVariable#enabled", "false")
+                    .containsEntry("jdk.InitialSystemProperty#enabled", "false")
+                    .containsEntry("jdk.JVMInformation#enabled", "false");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.irrigation.energy.retention;
+
+import com.irrigation.energy.entity.ConsommationElectrique;
+import com.irrigation.energy.repository.ConsommationAgregeeRepository;
+import com.irrigation.energy.repository.ConsommationElectriqueRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConsommationRetentionJobTest {
+
+    private final ConsommationElectriqueRepository consommationRepository = mock(ConsommationElectriqueRepository.class);
+    private final ConsommationAgregeeRepository agregeeRepository = mock(ConsommationAgregeeRepository.class);
+    private final LocalDateTime ancienne = LocalDateTime.now().minusDays(60);
+
+    @Test
+    void chunkRacedByAnotherInstanceIsRolledBackAndTheRunGoesOn() {
+        // 1er lot : l'autre instance en a déjà supprimé une mesure ; 2e lot relu sans elle
+        when(consommationRepository.findByDateMesureBefore(any(), any()))
+                .thenReturn(List.of(mesure(1L), mesure(2L)))
+                .thenReturn(List.of(mesure(2L), mesure(3L)))
+                .thenReturn(List.of());
+        when(consommationRepository.deleteByIdInBefore(anyCollection(), any())).thenReturn(1, 2);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        DataSource h2 = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+
+        job(new JdbcTemplate(h2), transactionManager).run();
+
+        verify(transactionManager).rollback(any());
+        verify(consommationRepository, times(3)).findByDateMesureBefore(any(), any());
+        verify(consommationRepository, times(2)).deleteByIdInBefore(anyCollection(), any());
+    }
+
+    @Test
+    void instanceWithoutTheAdvisoryLockLeavesTheCompactionToTheOtherOne() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+             Connection autreInstance = postgres.getPostgresDatabase().getConnection()) {
+            DataSource dataSource = postgres.getPostgresDatabase();
+            autreInstance.setAutoCommit(false);
+            try (PreparedStatement lock = autreInstance.prepareStatement("SELECT pg_advisory_xact_lock(hashtext(?))")) {
+                lock.setString(1, "consommations_electriques:retention");
+                lock.execute();
+            }
+
+            job(new JdbcTemplate(dataSource), new DataSourceTransactionManager(dataSource)).run();
+
+            verify(consommationRepository, never()).findByDateMesureBefore(any(), any());
+            autreInstance.rollback();
+        }
+    }
+
+    private ConsommationRetentionJob job(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        return new ConsommationRetentionJob(consommationRepository, agregeeRepository, jdbcTemplate,
+                transactionManager, true, 30, 2, 0L);
+    }
+
+    private ConsommationElectrique mesure(Long id) {
+        return new ConsommationElectrique(id, 1L, 5.0, 2.0, ancienne, null);
+    }
+}
@@ -0,0 +1,182 @@
+package com.irrigation.energy.service;
+
+import com.irrigation.energy.budget.PowerBudget;
+import com.irrigation.energy.dto.PompeDTO;
+import com.irrigation.energy.entity.BudgetPuissance;
+import com.irrigation.energy.entity.Pompe;
+import com.irrigation.energy.ownership.PompeOwnership;
+import com.irrigation.energy.repository.PompeRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Deux instances sur la même base, chacune avec son propre cache de second niveau.
+ */
+class PompeServiceTest {
+
+    private final String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+    private Instance instance;
+    private Instance autreInstance;
+
+    @BeforeEach
+    void setUp() {
+        instance = new Instance("create-drop");
+        autreInstance = new Instance("none");
+    }
+
+    @AfterEach
+    void tearDown() {
+        autreInstance.close();
+        instance.close();
+    }
+
+    @Test
+    void staleCacheEntryCannotOverwriteANewerRow() {
+        Long id = instance.create("P-1", 100.0, Pompe.StatutPompe.ACTIVE);
+        Pompe enCache = instance.inTransaction(() -> instance.repository.findById(id).orElseThrow());
+
+        autreInstance.inTransaction(() -> autreInstance.service.updatePompe(id, dto("P-1", 200.0, Pompe.StatutPompe.ACTIVE)));
+
+        Pompe perimee = instance.inTransaction(() -> instance.repository.findById(id).orElseThrow());
+        assertThat(perimee.getVersion()).isEqualTo(enCache.getVersion());
+        assertThat(perimee.getPuissance()).isEqualTo(100.0);
+        perimee.setEnergyStatus("Critique");
+        assertThatThrownBy(() -> instance.inTransaction(() -> instance.repository.save(perimee)))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(autreInstance.service.getPompeById(id).getPuissance()).isEqualTo(200.0);
+    }
+
+    @Test
+    void writesStartFromTheRowNotFromTheCache() {
+        Long id = instance.create("P-1", 100.0, Pompe.StatutPompe.ACTIVE);
+        instance.inTransaction(() -> instance.repository.findById(id).orElseThrow());
+
+        autreInstance.inTransaction(() -> {
+            autreInstance.service.updateEnergyStatus(id, "Critique");
+            return null;
+        });
+        PompeDTO updated = instance.inTransaction(() ->
+                instance.service.updatePompe(id, dto("P-1", 150.0, Pompe.StatutPompe.ACTIVE)));
+
+        assertThat(updated.getEnergyStatus()).isEqualTo("Critique");
+        assertThat(instance.budget.used()).isEqualTo(150.0);
+    }
+
+    @Test
+    void energyStatusUpdateFromAStaleInstanceKeepsThePowerBudget() {
+        Long id = instance.create("P-1", 600.0, Pompe.StatutPompe.ACTIVE);
+        instance.inTransaction(() -> instance.repository.findById(id).orElseThrow());
+
+        // Arrêtée sur l'autre instance, qui active alors une autre pompe
+        autreInstance.inTransaction(() -> autreInstance.service.updatePompe(id, dto("P-1", 600.0, Pompe.StatutPompe.INACTIVE)));
+        autreInstance.create("P-2", 900.0, Pompe.StatutPompe.ACTIVE);
+
+        // Le cache de cette instance la croit encore ACTIVE
+        assertThat(instance.service.getPompeById(id).getStatut()).isEqualTo(Pompe.StatutPompe.ACTIVE);
+        instance.inTransaction(() -> {
+            instance.service.updateEnergyStatus(id, "Critique");
+            return null;
+        });
+
+        Pompe stored = autreInstance.inTransaction(() -> autreInstance.repository.findForUpdate(id).orElseThrow());
+        assertThat(stored.getStatut()).isEqualTo(Pompe.StatutPompe.INACTIVE);
+        assertThat(stored.getEnergyStatus()).isEqualTo("Critique");
+        assertThat(instance.budget.used()).isEqualTo(900.0);
+        assertThatThrownBy(() -> instance.inTransaction(() ->
+                instance.service.updatePompe(id, dto("P-1", 600.0, Pompe.StatutPompe.ACTIVE))))
+                .hasMessageContaining("Insufficient power budget");
+        assertThat(instance.budget.used()).isEqualTo(900.0);
+    }
+
+    @Test
+    void energyStatusOfAMissingPumpIsRejected() {
+        assertThatThrownBy(() -> instance.inTransaction(() -> {
+            instance.service.updateEnergyStatus(42L, "Critique");
+            return null;
+        })).hasMessageContaining("Pompe not found");
+    }
+
+    private static PompeDTO dto(String reference, double puissance, Pompe.StatutPompe statut) {
+        PompeDTO dto = new PompeDTO();
+        dto.setReference(reference);
+        dto.setPuissance(puissance);
+        dto.setStatut(statut);
+        return dto;
+    }
+
+    private class Instance {
+
+        private final CacheManager cacheManager;
+        private final LocalContainerEntityManagerFactoryBean factoryBean;
+        private final TransactionTemplate transactionTemplate;
+        private final PompeRepository repository;
+        private final PowerBudget budget;
+        private final PompeService service;
+
+        Instance(String ddl) {
+            // Un gestionnaire de cache par instance, comme dans deux JVM distinctes
+            CachingProvider provider = Caching.getCachingProvider("org.ehcache.jsr107.EhcacheCachingProvider");
+            cacheManager = provider.getCacheManager(provider.getDefaultURI(),
+                    new URLClassLoader(new URL[0], getClass().getClassLoader()));
+            DriverManagerDataSource dataSource = new DriverManagerDataSource(url);
+            factoryBean = new LocalContainerEntityManagerFactoryBean();
+            factoryBean.setDataSource(dataSource);
+            factoryBean.setManagedTypes(PersistenceManagedTypes.of(
+                    Pompe.class.getName(), BudgetPuissance.class.getName()));
+            factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+            factoryBean.setJpaPropertyMap(Map.of(
+                    "hibernate.hbm2ddl.auto", ddl,
+                    "hibernate.cache.use_second_level_cache", "true",
+                    "hibernate.cache.region.factory_class", "jcache",
+                    "hibernate.javax.cache.cache_manager", cacheManager,
+                    "hibernate.javax.cache.missing_cache_strategy", "create"));
+            factoryBean.afterPropertiesSet();
+            EntityManagerFactory emf = factoryBean.getObject();
+            JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+            transactionTemplate = new TransactionTemplate(transactionManager);
+
+            repository = new JpaRepositoryFactory(SharedEntityManagerCreator.createSharedEntityManager(emf))
+                    .getRepository(PompeRepository.class);
+            budget = new PowerBudget(new JdbcTemplate(dataSource), transactionManager);
+            service = new PompeService(repository, mock(PompeOwnership.class), budget);
+        }
+
+        Long create(String reference, double puissance, Pompe.StatutPompe statut) {
+            return inTransaction(() -> service.createPompe(dto(reference, puissance, statut)).getId());
+        }
+
+        <T> T inTransaction(Supplier<T> action) {
+            return transactionTemplate.execute(status -> action.get());
+        }
+
+        void close() {
+            factoryBean.destroy();
+            cacheManager.close();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.irrigation.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Event publié par le microservice Eau lorsqu'une mesure de débit s'écarte de la
+ * ligne de base de sa pompe (moyenne et variance mobiles exponentielles).
+ *
+ * Contrat partagé : émis en JSON (événement rare, pas de codec binaire).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlowAnomalyEvent implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    // Version du schéma, portée par l'en-tête x-event-version (voir EventMessageConverter)
+    public static final int SCHEMA_VERSION = 1;
+    
+    /**
+     * ID de la pompe concernée
+     */
+    private Long pompeId;
+    
+    /**
+     * Nature de l'anomalie
+     */
+    private Type type;
+    
+    /**
+     * Débit mesuré
+     */
+    private Double debit;
+    
+    /**
+     * Débit attendu (moyenne mobile avant la mesure)
+     */
+    private Double moyenne;
+    
+    /**
+     * Écart type mobile avant la mesure
+     */
+    private Double ecartType;
+    
+    /**
+     * Écart à la moyenne en nombre d'écarts types (0 pour un capteur figé)
+     */
+    private Double score;
+    
+    /**
+     * Date et heure de la mesure
+     */
+    private LocalDateTime dateMesure;
+    
+    public enum Type {
+        /**
+         * Débit anormalement haut (fuite, rupture de canalisation)
+         */
+        PIC,
+        /**
+         * Débit anormalement bas (canalisation obstruée, pompe désamorcée)
+         */
+        CHUTE,
+        /**
+         * Valeur identique répétée (capteur figé ou défaillant)
+         */
+        CAPTEUR_FIGE
+    }
+}
@@ -0,0 +1,60 @@
+package com.irrigation.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Event publié par les microservices Énergie et Eau lorsque des mesures sont enregistrées,
+ * modifiées ou supprimées. Alimente la projection d'efficacité des pompes (kWh par m³).
+ *
+ * Un événement porte un delta pour une pompe et une heure : le producteur regroupe les
+ * mesures d'une même heure avant publication, et une suppression est un delta négatif.
+ * Les deltas sont commutatifs : l'ordre de réception est indifférent.
+ *
+ * Contrat partagé : la représentation sur le fil est définie par les codecs de
+ * {@code com.irrigation.events.codec}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MeasurementRecordedEvent implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    // Version du schéma, portée par l'en-tête x-event-version (voir EventMessageConverter)
+    public static final int SCHEMA_VERSION = 1;
+    
+    /**
+     * Grandeur mesurée (énergie en kWh, volume pompé en m³)
+     */
+    private Grandeur grandeur;
+    
+    /**
+     * ID de la pompe mesurée
+     */
+    private Long pompeId;
+    
+    /**
+     * Début de l'heure des mesures
+     */
+    private LocalDateTime heure;
+    
+    /**
+     * Variation de la grandeur sur l'heure (kWh ou m³)
+     */
+    private Double valeur;
+    
+    /**
+     * Variation du nombre de mesures sur l'heure
+     */
+    private Long mesures;
+    
+    public enum Grandeur {
+        ENERGIE,
+        VOLUME
+    }
+}
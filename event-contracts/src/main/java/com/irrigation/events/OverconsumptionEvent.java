@@ -0,0 +1,67 @@
+package com.irrigation.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Event publié par le microservice Énergie lorsqu'une surconsommation est détectée,
+ * et consommé par le microservice Eau pour réagir en conséquence.
+ *
+ * Contrat partagé : la représentation sur le fil est définie par les codecs de
+ * {@code com.irrigation.events.codec}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OverconsumptionEvent implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    // Version du schéma, portée par l'en-tête x-event-version (voir EventMessageConverter)
+    public static final int SCHEMA_VERSION = 1;
+    
+    /**
+     * ID de la pompe ayant surconsommé
+     */
+    private Long pompeId;
+    
+    /**
+     * Énergie utilisée en kWh
+     */
+    private Double energieUtilisee;
+    
+    /**
+     * Seuil de consommation dépassé en kWh
+     */
+    private Double seuil;
+    
+    /**
+     * Date et heure de la mesure
+     */
+    private LocalDateTime dateMesure;
+    
+    /**
+     * Message d'alerte (non transmis par le codec binaire : dérivé à la demande)
+     */
+    private String message;
+    
+    public OverconsumptionEvent(Long pompeId, Double energieUtilisee, Double seuil, LocalDateTime dateMesure) {
+        this(pompeId, energieUtilisee, seuil, dateMesure, null);
+    }
+    
+    public String getMessage() {
+        return message != null ? message : formatMessage(pompeId, energieUtilisee, seuil);
+    }
+    
+    /**
+     * Message d'alerte standard, dérivé des autres champs.
+     */
+    public static String formatMessage(Long pompeId, Double energieUtilisee, Double seuil) {
+        return String.format("⚠️ ALERTE: Pompe #%d a consommé %.2f kWh (seuil: %.2f kWh)",
+                pompeId, energieUtilisee, seuil);
+    }
+}
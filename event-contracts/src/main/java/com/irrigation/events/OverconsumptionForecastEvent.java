@@ -0,0 +1,55 @@
+package com.irrigation.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Alerte précoce publiée par le microservice Énergie lorsque la prévision de consommation
+ * d'une pompe atteint le seuil de surconsommation, avant qu'une mesure ne le dépasse.
+ *
+ * Contrat partagé : émis en JSON (événement rare, pas de codec binaire).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OverconsumptionForecastEvent implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    // Version du schéma, portée par l'en-tête x-event-version (voir EventMessageConverter)
+    public static final int SCHEMA_VERSION = 1;
+    
+    /**
+     * ID de la pompe concernée
+     */
+    private Long pompeId;
+    
+    /**
+     * Énergie prévue en kWh pour une mesure à {@link #datePrevue}
+     */
+    private Double energiePrevue;
+    
+    /**
+     * Seuil de surconsommation en kWh
+     */
+    private Double seuil;
+    
+    /**
+     * Date à laquelle le seuil devrait être atteint
+     */
+    private LocalDateTime datePrevue;
+    
+    /**
+     * Énergie de la dernière mesure en kWh
+     */
+    private Double energieActuelle;
+    
+    /**
+     * Date de la dernière mesure
+     */
+    private LocalDateTime dateMesure;
+}
@@ -0,0 +1,66 @@
+package com.irrigation.events;
+
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Topologie shardée des événements de surconsommation, partagée par l'émetteur
+ * (energy-service) et le consommateur (water-service).
+ *
+ * N queues "overconsumption.queue.&lt;i&gt;", chacune liée par la routing key
+ * "overconsumption.routing.key.&lt;i&gt;". Un événement part sur le shard de sa pompe
+ * ({@link #shardOf}) : les événements d'une même pompe restent ordonnés, et le débit
+ * augmente avec le nombre de shards. Le nombre de shards (irrigation.events.shards)
+ * doit être identique dans les deux microservices.
+ */
+public final class OverconsumptionShards {
+
+    // Préfixe des queues (suffixé par le numéro de shard)
+    public static final String QUEUE_PREFIX = "overconsumption.queue";
+
+    // Préfixe des routing keys (suffixé par le numéro de shard)
+    public static final String ROUTING_KEY_PREFIX = "overconsumption.routing.key";
+
+    // Ancienne queue unique, d'avant le sharding : plus liée, seulement vidée (voir water-service)
+    public static final String LEGACY_QUEUE = QUEUE_PREFIX;
+
+    private OverconsumptionShards() {
+    }
+
+    /**
+     * Shard d'une pompe : tous ses événements passent par la même queue.
+     */
+    public static int shardOf(Long pompeId, int shards) {
+        return pompeId == null ? 0 : Math.floorMod(Long.hashCode(pompeId), shards);
+    }
+
+    public static String shardQueue(int shard) {
+        return QUEUE_PREFIX + "." + shard;
+    }
+
+    public static String shardRoutingKey(int shard) {
+        return ROUTING_KEY_PREFIX + "." + shard;
+    }
+
+    /**
+     * Queues durables (une par shard) et leurs bindings.
+     * Single active consumer : même avec plusieurs instances du microservice Eau,
+     * un seul consumer lit un shard à la fois, ce qui préserve l'ordre par pompe.
+     */
+    public static Declarables declarables(DirectExchange exchange, int shards) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            Queue queue = QueueBuilder.durable(shardQueue(shard)).singleActiveConsumer().build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(exchange).with(shardRoutingKey(shard)));
+        }
+        return new Declarables(declarables);
+    }
+}
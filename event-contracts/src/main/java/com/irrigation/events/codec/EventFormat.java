@@ -0,0 +1,39 @@
+package com.irrigation.events.codec;
+
+/**
+ * Formats de sérialisation des événements inter-services.
+ *
+ * Le format est porté par le content-type du message AMQP et sa version par l'en-tête
+ * {@link EventMessageConverter#FORMAT_VERSION_HEADER} ; la version du schéma de chaque type
+ * d'événement est portée à part ({@link EventMessageConverter#VERSION_HEADER}). Un consommateur sait
+ * lire tous les formats ; le producteur choisit celui qu'il émet (irrigation.events.codec),
+ * ce qui permet de déployer les consommateurs avant de basculer les producteurs.
+ */
+public enum EventFormat {
+
+    /**
+     * v1 : JSON avec noms de champs et message d'alerte (format historique).
+     */
+    JSON("application/json", 1),
+
+    /**
+     * v2 : tableau CBOR positionnel, sans noms de champs ni message.
+     */
+    CBOR("application/cbor", 2);
+
+    private final String contentType;
+    private final int version;
+
+    EventFormat(String contentType, int version) {
+        this.contentType = contentType;
+        this.version = version;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+}
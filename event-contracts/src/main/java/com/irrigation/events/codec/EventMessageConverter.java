@@ -0,0 +1,166 @@
+package com.irrigation.events.codec;
+
+import com.irrigation.events.FlowAnomalyEvent;
+import com.irrigation.events.MeasurementRecordedEvent;
+import com.irrigation.events.OverconsumptionEvent;
+import com.irrigation.events.OverconsumptionForecastEvent;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+/**
+ * MessageConverter des événements inter-services.
+ *
+ * En émission, encode dans le format configuré et marque le message : content-type,
+ * type d'événement, version du schéma de ce type ({@link #VERSION_HEADER}, SCHEMA_VERSION
+ * de la classe d'événement) et version du format ({@link #FORMAT_VERSION_HEADER}). Les deux
+ * versions évoluent séparément : un champ ajouté à un événement ne change pas le format,
+ * et un nouveau format ne change pas les schémas. Les types sans codec binaire
+ * ({@link #OVERCONSUMPTION_FORECAST}, {@link #FLOW_ANOMALY}) partent toujours en JSON.
+ * Chaque message reçoit aussi un message-id unique, qui permet à un consommateur non
+ * idempotent d'écarter une redelivery.
+ *
+ * En réception, choisit le décodeur d'après le content-type : un consommateur lit donc
+ * aussi bien le JSON historique que le CBOR, quel que soit le format du producteur. Le
+ * décodeur CBOR est choisi d'après l'en-tête de type. Un message illisible (type CBOR
+ * inconnu, schéma plus récent que celui connu, contenu corrompu) lève
+ * MessageConversionException : le consommateur l'écarte vers sa dead-letter queue.
+ *
+ * Compatibilité : les producteurs antérieurs à l'en-tête de format mettaient la version du
+ * format dans {@link #VERSION_HEADER} ; sans {@link #FORMAT_VERSION_HEADER}, cette valeur
+ * n'est donc pas comparée aux versions de schéma.
+ */
+public class EventMessageConverter implements MessageConverter {
+
+    public static final String TYPE_HEADER = "x-event-type";
+    public static final String VERSION_HEADER = "x-event-version";
+    public static final String FORMAT_VERSION_HEADER = "x-event-format-version";
+    public static final String OVERCONSUMPTION = "overconsumption";
+    public static final String MEASUREMENT_RECORDED = "measurement-recorded";
+    public static final String OVERCONSUMPTION_FORECAST = "overconsumption-forecast";
+    public static final String FLOW_ANOMALY = "flow-anomaly";
+
+    private final EventFormat outgoing;
+    private final Jackson2JsonMessageConverter json = new Jackson2JsonMessageConverter();
+
+    public EventMessageConverter(EventFormat outgoing) {
+        this.outgoing = outgoing;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        if (messageProperties.getMessageId() == null) {
+            messageProperties.setMessageId(UUID.randomUUID().toString());
+        }
+        String type = typeOf(object);
+        if (type == null || outgoing == EventFormat.JSON || !hasBinaryCodec(type)) {
+            Message message = json.toMessage(object, messageProperties);
+            if (type != null) {
+                tag(messageProperties, type, EventFormat.JSON);
+            }
+            return message;
+        }
+        messageProperties.setContentType(EventFormat.CBOR.getContentType());
+        tag(messageProperties, type, EventFormat.CBOR);
+        byte[] body = object instanceof OverconsumptionEvent event
+                ? OverconsumptionCborCodec.encode(event)
+                : MeasurementCborCodec.encode((MeasurementRecordedEvent) object);
+        messageProperties.setContentLength(body.length);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        Object type = properties.getHeader(TYPE_HEADER);
+        checkSchemaVersion(properties, type);
+        String contentType = properties.getContentType();
+        if (contentType == null || !contentType.startsWith(EventFormat.CBOR.getContentType())) {
+            return json.fromMessage(message);
+        }
+        if (!OVERCONSUMPTION.equals(type) && !MEASUREMENT_RECORDED.equals(type)) {
+            throw new MessageConversionException("Unknown CBOR event type: " + type);
+        }
+        try {
+            return OVERCONSUMPTION.equals(type)
+                    ? OverconsumptionCborCodec.decode(message.getBody())
+                    : MeasurementCborCodec.decode(message.getBody());
+        } catch (UncheckedIOException e) {
+            throw new MessageConversionException("Malformed " + type + " event", e);
+        }
+    }
+
+    /**
+     * @return La version de schéma connue de ce type d'événement, ou 0 pour un type inconnu
+     */
+    public static int schemaVersion(Object type) {
+        if (OVERCONSUMPTION.equals(type)) {
+            return OverconsumptionEvent.SCHEMA_VERSION;
+        }
+        if (MEASUREMENT_RECORDED.equals(type)) {
+            return MeasurementRecordedEvent.SCHEMA_VERSION;
+        }
+        if (OVERCONSUMPTION_FORECAST.equals(type)) {
+            return OverconsumptionForecastEvent.SCHEMA_VERSION;
+        }
+        if (FLOW_ANOMALY.equals(type)) {
+            return FlowAnomalyEvent.SCHEMA_VERSION;
+        }
+        return 0;
+    }
+
+    private static void checkSchemaVersion(MessageProperties properties, Object type) {
+        int known = schemaVersion(type);
+        if (known == 0 || properties.getHeader(FORMAT_VERSION_HEADER) == null) {
+            return;
+        }
+        int version = intHeader(properties, VERSION_HEADER, known);
+        if (version > known) {
+            throw new MessageConversionException("Unsupported " + type + " schema version " + version
+                    + " (max " + known + ")");
+        }
+    }
+
+    private static String typeOf(Object object) {
+        if (object instanceof OverconsumptionEvent) {
+            return OVERCONSUMPTION;
+        }
+        if (object instanceof MeasurementRecordedEvent) {
+            return MEASUREMENT_RECORDED;
+        }
+        if (object instanceof OverconsumptionForecastEvent) {
+            return OVERCONSUMPTION_FORECAST;
+        }
+        if (object instanceof FlowAnomalyEvent) {
+            return FLOW_ANOMALY;
+        }
+        return null;
+    }
+
+    private static boolean hasBinaryCodec(String type) {
+        return OVERCONSUMPTION.equals(type) || MEASUREMENT_RECORDED.equals(type);
+    }
+
+    private static void tag(MessageProperties properties, String type, EventFormat format) {
+        properties.setHeader(TYPE_HEADER, type);
+        properties.setHeader(VERSION_HEADER, schemaVersion(type));
+        properties.setHeader(FORMAT_VERSION_HEADER, format.getVersion());
+    }
+
+    private static int intHeader(MessageProperties properties, String header, int absent) {
+        Object value = properties.getHeader(header);
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        try {
+            return value != null ? Integer.parseInt(value.toString()) : absent;
+        } catch (NumberFormatException e) {
+            throw new MessageConversionException("Invalid " + header + " header: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.irrigation.events.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.irrigation.events.MeasurementRecordedEvent;
+import com.irrigation.events.MeasurementRecordedEvent.Grandeur;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Codec binaire de {@link MeasurementRecordedEvent} (format v2, {@link EventFormat#CBOR}).
+ *
+ * Un événement est un tableau CBOR positionnel :
+ * <pre>
+ *   [ grandeur (ordinal), pompeId, heure (epoch ms, UTC), valeur, mesures ]
+ * </pre>
+ * Mêmes règles d'évolution que {@link OverconsumptionCborCodec} : ajouts en fin de
+ * tableau uniquement, éléments inconnus ignorés, éléments manquants laissés à null.
+ */
+public final class MeasurementCborCodec {
+
+    private static final CBORFactory FACTORY = new CBORFactory();
+    private static final Grandeur[] GRANDEURS = Grandeur.values();
+
+    private MeasurementCborCodec() {
+    }
+
+    public static byte[] encode(MeasurementRecordedEvent event) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(40);
+        try (CBORGenerator generator = FACTORY.createGenerator(out)) {
+            generator.writeStartArray(null, 5);
+            if (event.getGrandeur() == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(event.getGrandeur().ordinal());
+            }
+            writeLong(generator, event.getPompeId());
+            writeLong(generator, event.getHeure() != null
+                    ? event.getHeure().toInstant(ZoneOffset.UTC).toEpochMilli()
+                    : null);
+            if (event.getValeur() == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(event.getValeur());
+            }
+            writeLong(generator, event.getMesures());
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static MeasurementRecordedEvent decode(byte[] payload) {
+        try (JsonParser parser = FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a CBOR array");
+            }
+            MeasurementRecordedEvent event = new MeasurementRecordedEvent();
+            int index = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                boolean isNull = token == JsonToken.VALUE_NULL;
+                switch (index++) {
+                    case 0 -> event.setGrandeur(isNull ? null : grandeur(parser.getIntValue()));
+                    case 1 -> event.setPompeId(isNull ? null : parser.getLongValue());
+                    case 2 -> event.setHeure(isNull ? null
+                            : LocalDateTime.ofInstant(Instant.ofEpochMilli(parser.getLongValue()), ZoneOffset.UTC));
+                    case 3 -> event.setValeur(isNull ? null : parser.getDoubleValue());
+                    case 4 -> event.setMesures(isNull ? null : parser.getLongValue());
+                    default -> parser.skipChildren();
+                }
+            }
+            return event;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Grandeur grandeur(int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= GRANDEURS.length) {
+            throw new IOException("Unknown grandeur " + ordinal);
+        }
+        return GRANDEURS[ordinal];
+    }
+
+    private static void writeLong(CBORGenerator generator, Long value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+}
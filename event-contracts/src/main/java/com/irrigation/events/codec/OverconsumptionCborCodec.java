@@ -0,0 +1,92 @@
+package com.irrigation.events.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.irrigation.events.OverconsumptionEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Codec binaire de {@link OverconsumptionEvent} (format v2, {@link EventFormat#CBOR}).
+ *
+ * Un événement est un tableau CBOR positionnel :
+ * <pre>
+ *   [ pompeId, energieUtilisee, seuil, dateMesure (epoch ms, UTC) ]
+ * </pre>
+ * Le message d'alerte n'est pas transmis : il est dérivé des autres champs à la lecture.
+ * Évolution compatible : une version mineure ne peut qu'ajouter des éléments en fin de
+ * tableau ; un lecteur ignore les éléments qu'il ne connaît pas et laisse à null ceux
+ * qui manquent.
+ */
+public final class OverconsumptionCborCodec {
+
+    private static final CBORFactory FACTORY = new CBORFactory();
+
+    private OverconsumptionCborCodec() {
+    }
+
+    public static byte[] encode(OverconsumptionEvent event) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32);
+        try (CBORGenerator generator = FACTORY.createGenerator(out)) {
+            generator.writeStartArray(null, 4);
+            writeLong(generator, event.getPompeId());
+            writeDouble(generator, event.getEnergieUtilisee());
+            writeDouble(generator, event.getSeuil());
+            writeLong(generator, event.getDateMesure() != null
+                    ? event.getDateMesure().toInstant(ZoneOffset.UTC).toEpochMilli()
+                    : null);
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static OverconsumptionEvent decode(byte[] payload) {
+        try (JsonParser parser = FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a CBOR array");
+            }
+            OverconsumptionEvent event = new OverconsumptionEvent();
+            int index = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                boolean isNull = token == JsonToken.VALUE_NULL;
+                switch (index++) {
+                    case 0 -> event.setPompeId(isNull ? null : parser.getLongValue());
+                    case 1 -> event.setEnergieUtilisee(isNull ? null : parser.getDoubleValue());
+                    case 2 -> event.setSeuil(isNull ? null : parser.getDoubleValue());
+                    case 3 -> event.setDateMesure(isNull ? null
+                            : LocalDateTime.ofInstant(Instant.ofEpochMilli(parser.getLongValue()), ZoneOffset.UTC));
+                    default -> parser.skipChildren();
+                }
+            }
+            return event;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeLong(CBORGenerator generator, Long value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+
+    private static void writeDouble(CBORGenerator generator, Double value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+}
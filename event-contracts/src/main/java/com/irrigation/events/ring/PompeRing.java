@@ -0,0 +1,152 @@
+package com.irrigation.events.ring;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Anneau de hachage cohérent des pompes sur les instances d'energy-service.
+ *
+ * Chaque instance place {@code pompe-ring-vnodes} nœuds virtuels sur l'anneau (métadonnée
+ * Eureka) ; une pompe appartient au premier nœud virtuel qui suit le hachage de son id.
+ * Quand une instance arrive ou part, seules les pompes de ses arcs changent de propriétaire.
+ *
+ * Partagé par energy-service, water-service et api-gateway : tous désignent le même
+ * propriétaire pour une même liste d'instances.
+ */
+public final class PompeRing {
+
+    public static final String VNODES_METADATA = "pompe-ring-vnodes";
+
+    private final long[] positions;
+    private final String[] owners;
+
+    private PompeRing(long[] positions, String[] owners) {
+        this.positions = positions;
+        this.owners = owners;
+    }
+
+    /**
+     * @param members Identifiant de nœud → nombre de nœuds virtuels
+     */
+    public static PompeRing of(Map<String, Integer> members) {
+        int total = members.values().stream().mapToInt(Integer::intValue).sum();
+        long[][] entries = new long[total][];
+        String[] nodes = members.keySet().toArray(String[]::new);
+        int next = 0;
+        for (int n = 0; n < nodes.length; n++) {
+            for (int v = 0; v < members.get(nodes[n]); v++) {
+                entries[next++] = new long[]{hash(nodes[n] + "#" + v), n};
+            }
+        }
+        // À position égale (collision), le plus petit identifiant de nœud gagne partout
+        Arrays.sort(entries, (a, b) -> a[0] != b[0]
+                ? Long.compare(a[0], b[0])
+                : nodes[(int) a[1]].compareTo(nodes[(int) b[1]]));
+        long[] positions = new long[total];
+        String[] owners = new String[total];
+        for (int i = 0; i < total; i++) {
+            positions[i] = entries[i][0];
+            owners[i] = nodes[(int) entries[i][1]];
+        }
+        return new PompeRing(positions, owners);
+    }
+
+    /**
+     * Membres de l'anneau parmi les instances découvertes ; une instance sans métadonnée
+     * {@code pompe-ring-vnodes} (ancienne version) n'en fait pas partie.
+     */
+    public static Map<String, Integer> members(List<ServiceInstance> instances) {
+        Map<String, Integer> members = new HashMap<>();
+        for (ServiceInstance instance : instances) {
+            String vnodes = instance.getMetadata().get(VNODES_METADATA);
+            if (vnodes == null) {
+                continue;
+            }
+            try {
+                int count = Integer.parseInt(vnodes.trim());
+                if (count > 0) {
+                    members.put(nodeId(instance), count);
+                }
+            } catch (NumberFormatException e) {
+                // Métadonnée invalide : instance ignorée
+            }
+        }
+        return members;
+    }
+
+    public static String nodeId(ServiceInstance instance) {
+        return instance.getInstanceId() != null
+                ? instance.getInstanceId()
+                : instance.getHost() + ":" + instance.getPort();
+    }
+
+    public boolean isEmpty() {
+        return positions.length == 0;
+    }
+
+    /**
+     * @return L'identifiant du nœud propriétaire, ou null si l'anneau est vide
+     */
+    public String ownerOf(long pompeId) {
+        if (positions.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(positions, mix(pompeId));
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            while (index > 0 && positions[index - 1] == positions[index]) {
+                index--;
+            }
+        }
+        return owners[index == positions.length ? 0 : index];
+    }
+
+    /**
+     * Part de l'espace de hachage (donc, en moyenne, des pompes) possédée par un nœud.
+     */
+    public double share(String node) {
+        if (positions.length == 0) {
+            return 0.0;
+        }
+        double owned = 0.0;
+        for (int i = 0; i < positions.length; i++) {
+            if (owners[i].equals(node)) {
+                // Arc ]précédent, courant], en arithmétique non signée modulo 2^64
+                long arc = positions[i] - positions[i == 0 ? positions.length - 1 : i - 1];
+                owned += arc == 0 && positions.length == 1 ? 0x1p64 : unsigned(arc);
+            }
+        }
+        return owned / 0x1p64;
+    }
+
+    private static double unsigned(long value) {
+        return (value >>> 1) * 2.0 + (value & 1);
+    }
+
+    /**
+     * FNV-1a 64 bits sur les octets UTF-8, puis mélange final de MurmurHash3.
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53f4a15L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,34 @@
+package com.irrigation.events;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OverconsumptionShardsTest {
+
+    @Test
+    void sendsEveryEventOfAPumpToTheSameShard() {
+        assertThat(OverconsumptionShards.shardOf(42L, 4)).isEqualTo(OverconsumptionShards.shardOf(42L, 4)).isBetween(0, 3);
+        assertThat(OverconsumptionShards.shardOf(-7L, 4)).isBetween(0, 3);
+        assertThat(OverconsumptionShards.shardOf(null, 4)).isZero();
+    }
+
+    @Test
+    void declaresOneSingleActiveConsumerQueuePerShard() {
+        Declarables declarables = OverconsumptionShards.declarables(new DirectExchange("irrigation.exchange"), 3);
+
+        assertThat(declarables.getDeclarablesByType(Queue.class))
+                .extracting(Queue::getName)
+                .containsExactly("overconsumption.queue.0", "overconsumption.queue.1", "overconsumption.queue.2");
+        assertThat(declarables.getDeclarablesByType(Queue.class))
+                .allSatisfy(queue -> assertThat(queue.getArguments()).containsEntry("x-single-active-consumer", true));
+        assertThat(declarables.getDeclarablesByType(Binding.class))
+                .extracting(Binding::getDestination, Binding::getRoutingKey)
+                .contains(tuple("overconsumption.queue.1", "overconsumption.routing.key.1"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.irrigation.events.codec;
+
+import com.irrigation.events.OverconsumptionEvent;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compare la taille et le coût de (dé)sérialisation d'un OverconsumptionEvent
+ * en JSON (v1, format historique) et en CBOR (v2).
+ * Lancé par scripts/event-codec-benchmark.sh.
+ *
+ * Usage : EventCodecBenchmark [itérations]
+ */
+public final class EventCodecBenchmark {
+
+    private EventCodecBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        OverconsumptionEvent event = new OverconsumptionEvent(42L, 187.35, 150.0, LocalDateTime.now());
+
+        System.out.printf("%-6s %14s %18s %18s%n", "format", "payload (B)", "serialize (ns)", "deserialize (ns)");
+        for (EventFormat format : EventFormat.values()) {
+            run(format, event, iterations);
+        }
+    }
+
+    private static void run(EventFormat format, OverconsumptionEvent event, int iterations) {
+        EventMessageConverter converter = new EventMessageConverter(format);
+        Message sample = converter.toMessage(event, new MessageProperties());
+        Object blackhole = null;
+
+        // Warm-up puis mesure
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                blackhole = converter.toMessage(event, new MessageProperties());
+            }
+            long serialized = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                blackhole = converter.fromMessage(sample);
+            }
+            long deserialized = System.nanoTime();
+            if (pass == 1) {
+                System.out.printf("%-6s %14d %18.0f %18.0f%n", format, sample.getBody().length,
+                        (serialized - start) / (double) iterations,
+                        (deserialized - serialized) / (double) iterations);
+            }
+        }
+        if (blackhole == null) {
+            throw new IllegalStateException();
+        }
+    }
+}
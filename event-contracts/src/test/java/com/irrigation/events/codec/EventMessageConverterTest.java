@@ -0,0 +1,112 @@
+package com.irrigation.events.codec;
+
+import com.irrigation.events.FlowAnomalyEvent;
+import com.irrigation.events.MeasurementRecordedEvent;
+import com.irrigation.events.MeasurementRecordedEvent.Grandeur;
+import com.irrigation.events.OverconsumptionEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventMessageConverterTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 3, 14, 9, 26, 53);
+
+    private final EventMessageConverter cbor = new EventMessageConverter(EventFormat.CBOR);
+    private final EventMessageConverter json = new EventMessageConverter(EventFormat.JSON);
+
+    @Test
+    void tagsSchemaAndFormatVersionsSeparately() {
+        Message message = cbor.toMessage(new OverconsumptionEvent(42L, 187.35, 150.0, DATE), new MessageProperties());
+
+        MessageProperties properties = message.getMessageProperties();
+        assertThat(properties.getContentType()).isEqualTo("application/cbor");
+        assertThat((Object) properties.getHeader(EventMessageConverter.TYPE_HEADER))
+                .isEqualTo(EventMessageConverter.OVERCONSUMPTION);
+        assertThat((Object) properties.getHeader(EventMessageConverter.VERSION_HEADER))
+                .isEqualTo(OverconsumptionEvent.SCHEMA_VERSION);
+        assertThat((Object) properties.getHeader(EventMessageConverter.FORMAT_VERSION_HEADER))
+                .isEqualTo(EventFormat.CBOR.getVersion());
+    }
+
+    @Test
+    void givesEveryMessageItsOwnId() {
+        OverconsumptionEvent event = new OverconsumptionEvent(42L, 187.35, 150.0, DATE);
+
+        String first = cbor.toMessage(event, new MessageProperties()).getMessageProperties().getMessageId();
+        String second = json.toMessage(event, new MessageProperties()).getMessageProperties().getMessageId();
+
+        assertThat(first).isNotBlank().isNotEqualTo(second);
+    }
+
+    @Test
+    void readsBothFormatsWhateverItEmits() {
+        MeasurementRecordedEvent event = new MeasurementRecordedEvent(Grandeur.ENERGIE, 3L, DATE, 12.5, 1L);
+
+        assertThat(json.fromMessage(cbor.toMessage(event, new MessageProperties()))).isEqualTo(event);
+        assertThat(cbor.fromMessage(json.toMessage(event, new MessageProperties()))).isEqualTo(event);
+    }
+
+    @Test
+    void sendsTypesWithoutBinaryCodecAsJson() {
+        FlowAnomalyEvent event = new FlowAnomalyEvent();
+        event.setPompeId(9L);
+
+        Message message = cbor.toMessage(event, new MessageProperties());
+
+        assertThat(message.getMessageProperties().getContentType()).isEqualTo("application/json");
+        assertThat((Object) message.getMessageProperties().getHeader(EventMessageConverter.TYPE_HEADER))
+                .isEqualTo(EventMessageConverter.FLOW_ANOMALY);
+        assertThat(((FlowAnomalyEvent) cbor.fromMessage(message)).getPompeId()).isEqualTo(9L);
+    }
+
+    @Test
+    void rejectsANewerSchemaInEitherFormat() {
+        for (EventMessageConverter converter : new EventMessageConverter[]{cbor, json}) {
+            Message message = converter.toMessage(new OverconsumptionEvent(42L, 187.35, 150.0, DATE),
+                    new MessageProperties());
+            message.getMessageProperties().setHeader(EventMessageConverter.VERSION_HEADER,
+                    OverconsumptionEvent.SCHEMA_VERSION + 1);
+
+            assertThatThrownBy(() -> converter.fromMessage(message))
+                    .isInstanceOf(MessageConversionException.class)
+                    .hasMessageContaining("schema version");
+        }
+    }
+
+    @Test
+    void readsLegacyMessagesWhoseVersionHeaderWasTheFormatVersion() {
+        byte[] body = OverconsumptionCborCodec.encode(new OverconsumptionEvent(42L, 187.35, 150.0, DATE));
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType("application/cbor");
+        properties.setHeader(EventMessageConverter.TYPE_HEADER, EventMessageConverter.OVERCONSUMPTION);
+        properties.setHeader(EventMessageConverter.VERSION_HEADER, 2);
+
+        OverconsumptionEvent decoded = (OverconsumptionEvent) cbor.fromMessage(new Message(body, properties));
+
+        assertThat(decoded.getPompeId()).isEqualTo(42L);
+    }
+
+    @Test
+    void rejectsUnknownAndMalformedCborMessages() {
+        MessageProperties unknown = new MessageProperties();
+        unknown.setContentType("application/cbor");
+        unknown.setHeader(EventMessageConverter.TYPE_HEADER, "irrigation-started");
+        assertThatThrownBy(() -> cbor.fromMessage(new Message(new byte[]{(byte) 0x80}, unknown)))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("Unknown CBOR event type");
+
+        MessageProperties malformed = new MessageProperties();
+        malformed.setContentType("application/cbor");
+        malformed.setHeader(EventMessageConverter.TYPE_HEADER, EventMessageConverter.MEASUREMENT_RECORDED);
+        assertThatThrownBy(() -> cbor.fromMessage(new Message(new byte[]{0x0a}, malformed)))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("Malformed");
+    }
+}
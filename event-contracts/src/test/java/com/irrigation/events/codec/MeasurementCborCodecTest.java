@@ -0,0 +1,66 @@
+package com.irrigation.events.codec;
+
+import com.irrigation.events.MeasurementRecordedEvent;
+import com.irrigation.events.MeasurementRecordedEvent.Grandeur;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+
+import static com.irrigation.events.codec.OverconsumptionCborCodecTest.array;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MeasurementCborCodecTest {
+
+    private static final LocalDateTime HEURE = LocalDateTime.of(2024, 3, 14, 9, 0);
+
+    @Test
+    void roundTripsEveryField() {
+        MeasurementRecordedEvent event = new MeasurementRecordedEvent(Grandeur.VOLUME, 12L, HEURE, 48.5, 3L);
+
+        MeasurementRecordedEvent decoded = MeasurementCborCodec.decode(MeasurementCborCodec.encode(event));
+
+        assertThat(decoded).isEqualTo(event);
+    }
+
+    @Test
+    void roundTripsNegativeDeltas() {
+        // Une suppression est publiée comme un delta négatif
+        MeasurementRecordedEvent event = new MeasurementRecordedEvent(Grandeur.ENERGIE, 12L, HEURE, -7.25, -1L);
+
+        assertThat(MeasurementCborCodec.decode(MeasurementCborCodec.encode(event))).isEqualTo(event);
+    }
+
+    @Test
+    void keepsNullFields() {
+        MeasurementRecordedEvent event = new MeasurementRecordedEvent(null, 12L, null, null, null);
+
+        assertThat(MeasurementCborCodec.decode(MeasurementCborCodec.encode(event))).isEqualTo(event);
+    }
+
+    @Test
+    void ignoresTrailingElementsOfANewerMinorVersion() throws Exception {
+        byte[] payload = array(gen -> {
+            gen.writeNumber(Grandeur.ENERGIE.ordinal());
+            gen.writeNumber(12L);
+            gen.writeNull();
+            gen.writeNumber(1.5);
+            gen.writeNumber(1L);
+            gen.writeNumber(99);
+        });
+
+        MeasurementRecordedEvent decoded = MeasurementCborCodec.decode(payload);
+
+        assertThat(decoded).isEqualTo(new MeasurementRecordedEvent(Grandeur.ENERGIE, 12L, null, 1.5, 1L));
+    }
+
+    @Test
+    void rejectsAnUnknownGrandeur() throws Exception {
+        byte[] payload = array(gen -> gen.writeNumber(Grandeur.values().length));
+
+        assertThatThrownBy(() -> MeasurementCborCodec.decode(payload))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasMessageContaining("Unknown grandeur");
+    }
+}
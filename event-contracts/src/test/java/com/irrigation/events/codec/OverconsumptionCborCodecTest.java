@@ -0,0 +1,104 @@
+package com.irrigation.events.codec;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.irrigation.events.OverconsumptionEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OverconsumptionCborCodecTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 3, 14, 9, 26, 53, 589_000_000);
+
+    @Test
+    void roundTripsEveryField() {
+        OverconsumptionEvent event = new OverconsumptionEvent(42L, 187.35, 150.0, DATE);
+
+        OverconsumptionEvent decoded = OverconsumptionCborCodec.decode(OverconsumptionCborCodec.encode(event));
+
+        assertThat(decoded.getPompeId()).isEqualTo(42L);
+        assertThat(decoded.getEnergieUtilisee()).isEqualTo(187.35);
+        assertThat(decoded.getSeuil()).isEqualTo(150.0);
+        assertThat(decoded.getDateMesure()).isEqualTo(DATE);
+        // Le message n'est pas transmis : il est dérivé des autres champs
+        assertThat(decoded.getMessage()).isEqualTo(event.getMessage());
+    }
+
+    @Test
+    void keepsNullFields() {
+        OverconsumptionEvent decoded = OverconsumptionCborCodec.decode(
+                OverconsumptionCborCodec.encode(new OverconsumptionEvent(7L, null, 150.0, null)));
+
+        assertThat(decoded.getPompeId()).isEqualTo(7L);
+        assertThat(decoded.getEnergieUtilisee()).isNull();
+        assertThat(decoded.getDateMesure()).isNull();
+    }
+
+    @Test
+    void isSmallerThanTheJsonPayload() {
+        byte[] cbor = OverconsumptionCborCodec.encode(new OverconsumptionEvent(42L, 187.35, 150.0, DATE));
+
+        assertThat(cbor.length).isLessThan(40);
+    }
+
+    @Test
+    void ignoresTrailingElementsOfANewerMinorVersion() throws IOException {
+        byte[] payload = array(gen -> {
+            gen.writeNumber(42L);
+            gen.writeNumber(187.35);
+            gen.writeNumber(150.0);
+            gen.writeNumber(DATE.toInstant(ZoneOffset.UTC).toEpochMilli());
+            gen.writeString("ajouté en v2.1");
+            gen.writeStartArray();
+            gen.writeNumber(1);
+            gen.writeEndArray();
+        });
+
+        OverconsumptionEvent decoded = OverconsumptionCborCodec.decode(payload);
+
+        assertThat(decoded.getPompeId()).isEqualTo(42L);
+        assertThat(decoded.getDateMesure()).isEqualTo(DATE);
+    }
+
+    @Test
+    void leavesMissingTrailingElementsNull() throws IOException {
+        byte[] payload = array(gen -> {
+            gen.writeNumber(42L);
+            gen.writeNumber(187.35);
+        });
+
+        OverconsumptionEvent decoded = OverconsumptionCborCodec.decode(payload);
+
+        assertThat(decoded.getEnergieUtilisee()).isEqualTo(187.35);
+        assertThat(decoded.getSeuil()).isNull();
+        assertThat(decoded.getDateMesure()).isNull();
+    }
+
+    @Test
+    void rejectsAPayloadThatIsNotAnArray() {
+        assertThatThrownBy(() -> OverconsumptionCborCodec.decode(new byte[]{0x0a}))
+                .isInstanceOf(UncheckedIOException.class);
+    }
+
+    interface Elements {
+        void write(CBORGenerator generator) throws IOException;
+    }
+
+    static byte[] array(Elements elements) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CBORGenerator generator = new CBORFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            elements.write(generator);
+            generator.writeEndArray();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,72 @@
+package com.irrigation.events.ring;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PompeRingTest {
+
+    @Test
+    void ownerDoesNotDependOnMemberOrder() {
+        Map<String, Integer> membres = new LinkedHashMap<>();
+        membres.put("a", 64);
+        membres.put("b", 64);
+        membres.put("c", 64);
+        Map<String, Integer> inverses = new LinkedHashMap<>();
+        inverses.put("c", 64);
+        inverses.put("b", 64);
+        inverses.put("a", 64);
+
+        PompeRing ring = PompeRing.of(membres);
+        PompeRing autre = PompeRing.of(inverses);
+        for (long pompeId = 1; pompeId <= 1000; pompeId++) {
+            assertThat(autre.ownerOf(pompeId)).isEqualTo(ring.ownerOf(pompeId));
+        }
+    }
+
+    @Test
+    void onlyPumpsOfTheLeavingNodeChangeOwner() {
+        PompeRing avant = PompeRing.of(Map.of("a", 64, "b", 64, "c", 64));
+        PompeRing apres = PompeRing.of(Map.of("a", 64, "b", 64));
+
+        for (long pompeId = 1; pompeId <= 1000; pompeId++) {
+            if (!"c".equals(avant.ownerOf(pompeId))) {
+                assertThat(apres.ownerOf(pompeId)).isEqualTo(avant.ownerOf(pompeId));
+            }
+        }
+    }
+
+    @Test
+    void sharesCoverTheWholeRing() {
+        PompeRing ring = PompeRing.of(Map.of("a", 64, "b", 128));
+
+        assertThat(ring.share("a") + ring.share("b")).isCloseTo(1.0, within(1e-9));
+        assertThat(ring.share("b")).isGreaterThan(ring.share("a"));
+        assertThat(PompeRing.of(Map.of("a", 1)).share("a")).isEqualTo(1.0);
+    }
+
+    @Test
+    void instancesWithoutValidVnodesMetadataAreNotMembers() {
+        List<ServiceInstance> instances = List.of(
+                instance("a", "16"), instance("b", null), instance("c", "abc"), instance("d", "0"));
+
+        assertThat(PompeRing.members(instances)).containsExactly(Map.entry("a", 16));
+        assertThat(PompeRing.of(Map.of()).isEmpty()).isTrue();
+        assertThat(PompeRing.of(Map.of()).ownerOf(1L)).isNull();
+    }
+
+    private ServiceInstance instance(String id, String vnodes) {
+        DefaultServiceInstance instance = new DefaultServiceInstance(id, "energy-service", "localhost", 8080, false);
+        if (vnodes != null) {
+            instance.getMetadata().put(PompeRing.VNODES_METADATA, vnodes);
+        }
+        return instance;
+    }
+}
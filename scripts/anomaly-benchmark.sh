@@ -0,0 +1,17 @@
+#!/usr/bin/env bash
+# Per-reading cost of the flow anomaly detector (EWMA baselines per pump), measured with JMH:
+# the EWMA update alone, FlowAnomalyDetector.accept on one thread, then on every core.
+# Add -prof gc for allocated bytes per reading. No Spring context, no running services needed.
+#
+# Usage: scripts/anomaly-benchmark.sh [JMH options]
+# Example: scripts/anomaly-benchmark.sh -p pompes=10000 -prof gc
+
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+CP_FILE="$(mktemp)"
+trap 'rm -f "$CP_FILE"' EXIT
+
+cd "$ROOT/water-service"
+mvn -B -q test-compile dependency:build-classpath -Dmdep.outputFile="$CP_FILE"
+java -cp "target/test-classes:target/classes:$(cat "$CP_FILE")" org.openjdk.jmh.Main FlowAnomalyBenchmark "$@"
@@ -0,0 +1,15 @@
+#!/usr/bin/env bash
+# Decode throughput of a consumption upload: JSON array of DTOs (POST /consommations)
+# against the columnar CBOR format (POST /consommations/bulk). No running service needed.
+#
+# Usage: scripts/bulk-decode-benchmark.sh [readings per upload] [iterations]
+
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+CP_FILE="$(mktemp)"
+trap 'rm -f "$CP_FILE"' EXIT
+
+cd "$ROOT/energy-service"
+mvn -B -q test-compile dependency:build-classpath -Dmdep.outputFile="$CP_FILE"
+java -cp "target/test-classes:target/classes:$(cat "$CP_FILE")" com.irrigation.energy.ingestion.BulkDecodeBenchmark "$@"
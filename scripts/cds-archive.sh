@@ -0,0 +1,87 @@
+#!/usr/bin/env bash
+# Unpacks a Spring Boot jar into a class-data-sharing friendly layout and records a CDS
+# archive with a training run: the service starts on a random port, without config server
+# or Eureka, and is stopped once started. (spring.context.exit=onRefresh would stop at the
+# refresh of the Spring Cloud bootstrap context, before the application classes load.)
+#
+#   <out-dir>/application.jar   application classes, Class-Path lib/*.jar (classpath.idx order)
+#   <out-dir>/lib/              dependencies
+#   <out-dir>/application.jsa   CDS archive (valid only for this JDK and this exact layout)
+#
+# Jars built with -Pfast-startup are detected and trained with -Dspring.aot.enabled=true.
+# Start the service from <out-dir>, with the same JDK and flags as the training run:
+#   java -XX:SharedArchiveFile=application.jsa [-Dspring.aot.enabled=true ...] -jar application.jar
+#
+# The training run must reach "Started": the storage profile (H2 by default) must be
+# reachable; RabbitMQ may be down. Extra JVM options are passed through, e.g.
+# -Dspring.profiles.active=postgres or -Dspring.config.import=optional:file:config-repo/...
+#
+# Usage: scripts/cds-archive.sh <boot-jar> <out-dir> [training JVM options...]
+
+set -euo pipefail
+
+if [ $# -lt 2 ]; then
+  echo "Usage: $0 <boot-jar> <out-dir> [training JVM options...]" >&2
+  exit 1
+fi
+
+JAR="$(cd "$(dirname "$1")" && pwd)/$(basename "$1")"
+OUT=$2
+shift 2
+
+WORK="$(mktemp -d)"
+trap 'rm -rf "$WORK"' EXIT
+
+rm -rf "$OUT"
+mkdir -p "$OUT/lib"
+OUT="$(cd "$OUT" && pwd)"
+
+unzip -q "$JAR" -d "$WORK"
+START_CLASS=$(sed -n 's/^Start-Class: *//p' "$WORK/META-INF/MANIFEST.MF" | tr -d '\r')
+if [ -z "$START_CLASS" ]; then
+  echo "$JAR is not a Spring Boot executable jar (no Start-Class)" >&2
+  exit 1
+fi
+
+# Dependencies in the launcher's order; the manifest keeps 72-byte lines
+CLASS_PATH=""
+while read -r entry; do
+  mv "$WORK/$entry" "$OUT/lib/"
+  CLASS_PATH="$CLASS_PATH lib/$(basename "$entry")"
+done < <(sed -n 's/^- "\(.*\)"$/\1/p' "$WORK/BOOT-INF/classpath.idx")
+
+{
+  echo "Main-Class: $START_CLASS"
+  echo "Class-Path:$CLASS_PATH" | fold -w 70 | sed '2,$s/^/ /'
+} > "$WORK/MANIFEST.MF"
+jar --create --file "$OUT/application.jar" --manifest "$WORK/MANIFEST.MF" -C "$WORK/BOOT-INF/classes" .
+
+TRAINING_OPTS=(
+  -Dserver.port=0
+  -Dspring.cloud.config.enabled=false
+  -Dspring.cloud.config.import-check.enabled=false
+  -Deureka.client.register-with-eureka=false
+  -Deureka.client.fetch-registry=false
+)
+if [ -n "$(find "$WORK/BOOT-INF/classes" -name '*__ApplicationContextInitializer.class' -print -quit)" ]; then
+  TRAINING_OPTS+=(-Dspring.aot.enabled=true -Dspring.cloud.refresh.enabled=false)
+  echo "AOT-processed jar: training with -Dspring.aot.enabled=true"
+fi
+
+cd "$OUT"
+java -XX:ArchiveClassesAtExit=application.jsa "${TRAINING_OPTS[@]}" "$@" -jar application.jar > training.log 2>&1 &
+PID=$!
+for _ in $(seq 600); do
+  if grep -q "Started .* in .* seconds" training.log || ! kill -0 "$PID" 2>/dev/null; then
+    break
+  fi
+  sleep 0.5
+done
+# The archive is written when the JVM exits after a graceful shutdown
+kill -TERM "$PID" 2>/dev/null || true
+wait "$PID" || true
+if ! grep -q "Started .* in .* seconds" training.log || [ ! -s application.jsa ]; then
+  echo "Training run did not produce a CDS archive, see $OUT/training.log" >&2
+  exit 1
+fi
+echo "$(ls lib | wc -l) dependencies, archive $(du -h application.jsa | cut -f1) -> $OUT"
@@ -0,0 +1,15 @@
+#!/usr/bin/env bash
+# Payload size and serialize/deserialize cost of an OverconsumptionEvent:
+# legacy JSON (v1) against the compact CBOR codec (v2).
+#
+# Usage: scripts/event-codec-benchmark.sh [iterations]
+
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+CP_FILE="$(mktemp)"
+trap 'rm -f "$CP_FILE"' EXIT
+
+cd "$ROOT/event-contracts"
+mvn -B -q test-compile dependency:build-classpath -Dmdep.outputFile="$CP_FILE"
+java -cp "target/test-classes:target/classes:$(cat "$CP_FILE")" com.irrigation.events.codec.EventCodecBenchmark "$@"
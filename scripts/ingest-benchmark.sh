@@ -0,0 +1,42 @@
+#!/usr/bin/env bash
+# Throughput benchmark for single-reading ingestion (POST /consommations or /debits).
+#
+# Run it once with write-behind disabled and once with it enabled
+# (energy.write-behind.enabled / water.write-behind.enabled in config-repo)
+# to compare the synchronous path against group commit.
+#
+# The load comes from a Java closed-loop generator (IngestBenchmark, in the service's
+# test sources) sharing keep-alive connections, with a warm-up phase; it reports
+# status counts, throughput and p50/p99 latency.
+#
+# Usage: scripts/ingest-benchmark.sh [energy|water] [requests] [concurrency]
+# Env:   ENERGY_URL (default http://localhost:8081), WATER_URL (default http://localhost:8082),
+#        POMPE_ID (default 1, must exist in energy-service)
+
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+SERVICE=${1:-energy}
+REQUESTS=${2:-5000}
+CONCURRENCY=${3:-32}
+POMPE_ID=${POMPE_ID:-1}
+
+case "$SERVICE" in
+  energy)
+    MODULE=energy-service
+    URL="${ENERGY_URL:-http://localhost:8081}"
+    ;;
+  water)
+    MODULE=water-service
+    URL="${WATER_URL:-http://localhost:8082}"
+    ;;
+  *)
+    echo "Unknown service: $SERVICE (expected energy or water)" >&2
+    exit 1
+    ;;
+esac
+
+cd "$ROOT/$MODULE"
+mvn -B -q test-compile
+java -cp target/test-classes "com.irrigation.${SERVICE}.ingestion.IngestBenchmark" \
+  "$URL" "$REQUESTS" "$CONCURRENCY" "$POMPE_ID"
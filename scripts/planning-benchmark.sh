@@ -0,0 +1,17 @@
+#!/usr/bin/env bash
+# Planning time against fleet size for the joint energy/water irrigation planner.
+#
+# Builds water-service and runs the planner on synthetic fleets (no Spring context,
+# no running services needed): full plan time, then incremental replan time per
+# overconsumption event.
+#
+# Usage: scripts/planning-benchmark.sh [fleet sizes...]
+# Example: scripts/planning-benchmark.sh 1000 5000 20000
+
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+
+(cd "$ROOT/water-service" && mvn -B -q test-compile)
+java -cp "$ROOT/water-service/target/test-classes:$ROOT/water-service/target/classes" \
+  com.irrigation.water.planning.PlanningBenchmark "$@"
@@ -0,0 +1,3 @@
+-- Bases du profil "postgres" : energydb est créée par POSTGRES_DB, waterdb ici.
+-- Les tables sont créées au démarrage de chaque service (db/postgres/schema.sql).
+CREATE DATABASE waterdb;
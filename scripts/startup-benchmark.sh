@@ -0,0 +1,120 @@
+#!/usr/bin/env bash
+# Startup time and resident memory of one service across the fast-startup variants (Linux):
+#
+#   jar       java -jar <service>.jar                        (regular build)
+#   cds       unpacked jar + CDS archive                     (regular build)
+#   aot       java -Dspring.aot.enabled=true -jar            (mvn -Pfast-startup)
+#   aot+cds   unpacked AOT jar + CDS archive                 (mvn -Pfast-startup)
+#
+# Each variant is started <runs> times on its own, with config-repo read from disk
+# (no config server) and without Eureka registration; RabbitMQ may be down.
+# Reported per variant (median): "process running for" at the Started log line, and VmRSS
+# right after it. eureka-server has no AOT variant (its auto-configuration is not
+# AOT-compatible).
+#
+# Usage: scripts/startup-benchmark.sh [energy-service|water-service|api-gateway|config-server|eureka-server] [runs]
+# Env:   JIT_JAR / AOT_JAR to benchmark prebuilt jars instead of building them
+
+set -euo pipefail
+
+SERVICE=${1:-energy-service}
+RUNS=${2:-5}
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+WORK="$(mktemp -d)"
+trap 'rm -rf "$WORK"' EXIT
+
+case "$SERVICE" in
+  energy-service|water-service|api-gateway|config-server) AOT=true ;;
+  eureka-server) AOT=false ;;
+  *)
+    echo "Unknown service: $SERVICE" >&2
+    exit 1
+    ;;
+esac
+
+build() {
+  (cd "$ROOT/$SERVICE" && mvn -B -q clean package -DskipTests "$@")
+  ls "$ROOT/$SERVICE"/target/"$SERVICE"-*.jar | head -1
+}
+
+if [ -z "${JIT_JAR:-}" ]; then
+  cp "$(build)" "$WORK/jit.jar"
+else
+  cp "$JIT_JAR" "$WORK/jit.jar"
+fi
+if [ "$AOT" = true ]; then
+  if [ -z "${AOT_JAR:-}" ]; then
+    cp "$(build -Pfast-startup)" "$WORK/aot.jar"
+  else
+    cp "$AOT_JAR" "$WORK/aot.jar"
+  fi
+fi
+
+# Same standalone settings for every variant and for the CDS training runs
+OPTS=(
+  -Dspring.cloud.config.enabled=false
+  -Dspring.cloud.config.import-check.enabled=false
+  -Dspring.config.import=optional:file:"$ROOT"/config-repo/"$SERVICE"/application.yml
+  -Deureka.client.register-with-eureka=false
+  -Deureka.client.fetch-registry=false
+)
+if [ "$SERVICE" = config-server ]; then
+  OPTS+=(-Dspring.profiles.active=native
+         -Dspring.cloud.config.server.native.search-locations=file:"$ROOT"/config-repo/{application})
+fi
+AOT_OPTS=(-Dspring.aot.enabled=true -Dspring.cloud.refresh.enabled=false)
+
+"$ROOT/scripts/cds-archive.sh" "$WORK/jit.jar" "$WORK/jit-cds" "${OPTS[@]}"
+if [ "$AOT" = true ]; then
+  "$ROOT/scripts/cds-archive.sh" "$WORK/aot.jar" "$WORK/aot-cds" "${OPTS[@]}"
+fi
+
+# measure <dir> <java args...> : prints "<seconds> <rss kB>"
+measure() {
+  local dir=$1 log="$WORK/run.log"
+  shift
+  (cd "$dir" && exec java "${OPTS[@]}" "$@") > "$log" 2>&1 &
+  local pid=$! line=""
+  for _ in $(seq 1200); do
+    line=$(grep -m1 "Started .* in .* seconds" "$log" || true)
+    if [ -n "$line" ] || ! kill -0 "$pid" 2>/dev/null; then
+      break
+    fi
+    sleep 0.1
+  done
+  local rss
+  rss=$(awk '/^VmRSS:/ { print $2 }' "/proc/$pid/status" 2>/dev/null || echo 0)
+  kill -TERM "$pid" 2>/dev/null || true
+  wait "$pid" 2>/dev/null || true
+  if [ -z "$line" ]; then
+    echo "Startup failed, log:" >&2
+    tail -20 "$log" >&2
+    exit 1
+  fi
+  echo "$(echo "$line" | sed 's/.*process running for \([0-9.]*\)).*/\1/') $rss"
+}
+
+median() {
+  sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2 }'
+}
+
+run_variant() {
+  local name=$1
+  shift
+  : > "$WORK/results"
+  for _ in $(seq "$RUNS"); do
+    measure "$@" >> "$WORK/results"
+  done
+  printf "%-10s %10.2f s %10.0f MB\n" "$name" \
+    "$(cut -d' ' -f1 "$WORK/results" | median)" \
+    "$(cut -d' ' -f2 "$WORK/results" | median | awk '{ print $1 / 1024 }')"
+}
+
+echo "$SERVICE, $RUNS runs per variant, $(java -version 2>&1 | head -1)"
+printf "%-10s %12s %13s\n" variant startup rss
+run_variant jar "$WORK" -jar jit.jar
+run_variant cds "$WORK/jit-cds" -XX:SharedArchiveFile=application.jsa -jar application.jar
+if [ "$AOT" = true ]; then
+  run_variant aot "$WORK" "${AOT_OPTS[@]}" -jar aot.jar
+  run_variant aot+cds "$WORK/aot-cds" -XX:SharedArchiveFile=application.jsa "${AOT_OPTS[@]}" -jar application.jar
+fi
@@ -0,0 +1,25 @@
+package com.irrigation.commons.config.snapshot;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.config.client.ConfigClientProperties;
+import org.springframework.cloud.config.client.ConfigServicePropertySourceLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Remplace le locator du config-server dans le contexte bootstrap
+ * (META-INF/spring.factories de chaque service, avant ConfigServiceBootstrapConfiguration).
+ *
+ * Volontairement sans @Configuration : la classe ne doit pas être reprise par le scan
+ * du contexte applicatif.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConfigSnapshotBootstrapConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "spring.cloud.config.enabled", matchIfMissing = true)
+    public ConfigServicePropertySourceLocator configServicePropertySource(ConfigClientProperties properties) {
+        return new SnapshotConfigServicePropertySourceLocator(properties);
+    }
+}
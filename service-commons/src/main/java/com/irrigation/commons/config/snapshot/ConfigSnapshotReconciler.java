@@ -0,0 +1,123 @@
+package com.irrigation.commons.config.snapshot;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.config.client.ConfigClientProperties;
+import org.springframework.cloud.config.client.ConfigServicePropertySourceLocator;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.PropertySource;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Réconcilie en arrière-plan un démarrage fait sur le snapshot local (config-server
+ * injoignable au démarrage).
+ *
+ * Une fois le service prêt, interroge le config-server jusqu'à obtenir une réponse. Si la
+ * configuration a changé, le snapshot est réécrit puis le contexte rafraîchi : Environment,
+ * beans @ConfigurationProperties (dont les niveaux de log) et beans @RefreshScope prennent les
+ * nouvelles valeurs sans redémarrage. Les valeurs injectées par constructeur (@Value)
+ * s'appliquent au prochain démarrage.
+ *
+ * Importé par chaque service (config.ConfigSnapshotConfig).
+ */
+@Slf4j
+public class ConfigSnapshotReconciler {
+
+    private final ConfigurableEnvironment environment;
+    private final ObjectProvider<ConfigClientProperties> configClientProperties;
+    private final ObjectProvider<ContextRefresher> contextRefresher;
+    private final long retryIntervalMillis;
+
+    private volatile Thread reconciler;
+
+    public ConfigSnapshotReconciler(ConfigurableEnvironment environment,
+                                    ObjectProvider<ConfigClientProperties> configClientProperties,
+                                    ObjectProvider<ContextRefresher> contextRefresher,
+                                    @Value("${irrigation.config.snapshot.retry-interval-ms:5000}") long retryIntervalMillis) {
+        this.environment = environment;
+        this.configClientProperties = configClientProperties;
+        this.contextRefresher = contextRefresher;
+        this.retryIntervalMillis = retryIntervalMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void onReady() {
+        ConfigClientProperties properties = configClientProperties.getIfAvailable();
+        if (properties == null || !startedFromSnapshot()) {
+            return;
+        }
+        reconciler = new Thread(() -> reconcile(properties), "config-snapshot-reconciler");
+        reconciler.setDaemon(true);
+        reconciler.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        Thread thread = reconciler;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private boolean startedFromSnapshot() {
+        for (PropertySource<?> source : environment.getPropertySources()) {
+            if (source.getName().endsWith(SnapshotConfigServicePropertySourceLocator.SNAPSHOT_SOURCE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reconcile(ConfigClientProperties properties) {
+        ConfigServicePropertySourceLocator locator = new ConfigServicePropertySourceLocator(properties);
+        ConfigSnapshotStore store = ConfigSnapshotStore.from(environment);
+        String key = ConfigSnapshotStore.key(properties, environment);
+        boolean warned = false;
+        while (!Thread.currentThread().isInterrupted()) {
+            PropertySource<?> remote = null;
+            String failure = "no configuration returned";
+            try {
+                remote = locator.locate(environment);
+            } catch (RuntimeException e) {
+                failure = e.getMessage();
+            }
+            if (remote != null) {
+                apply(store, key, ConfigSnapshotStore.flatten(remote));
+                return;
+            }
+            if (!warned) {
+                log.warn("⚠️ Config server unavailable ({}), running on the local snapshot; retrying every {} ms",
+                        failure, retryIntervalMillis);
+                warned = true;
+            }
+            try {
+                Thread.sleep(retryIntervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void apply(ConfigSnapshotStore store, String key, Map<String, String> fetched) {
+        if (fetched.equals(store.load(key).orElse(Map.of()))) {
+            log.info("✅ Config snapshot {} is up to date with the config server", key);
+            return;
+        }
+        store.save(key, fetched);
+        ContextRefresher refresher = contextRefresher.getIfAvailable();
+        if (refresher == null) {
+            log.info("📦 Config snapshot {} updated; changes apply at the next restart", key);
+            return;
+        }
+        Set<String> changed = refresher.refresh();
+        log.info("🔄 Config reconciled with the config server: {} keys changed {}; "
+                + "constructor-injected settings apply at the next restart", changed.size(), changed);
+    }
+}
@@ -0,0 +1,111 @@
+package com.irrigation.commons.config.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.config.client.ConfigClientProperties;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Copie locale de la dernière configuration reçue du config-server.
+ *
+ * Un fichier par application et profils ({@code energy-service-default.properties}), contenant
+ * les valeurs effectives déjà fusionnées. L'écriture passe par un fichier temporaire renommé
+ * atomiquement : plusieurs instances peuvent partager le même répertoire.
+ */
+@Slf4j
+class ConfigSnapshotStore {
+
+    static final String ENABLED_PROPERTY = "irrigation.config.snapshot.enabled";
+    static final String DIR_PROPERTY = "irrigation.config.snapshot.dir";
+
+    private final boolean enabled;
+    private final Path dir;
+
+    private ConfigSnapshotStore(boolean enabled, Path dir) {
+        this.enabled = enabled;
+        this.dir = dir;
+    }
+
+    static ConfigSnapshotStore from(Environment environment) {
+        return new ConfigSnapshotStore(
+                environment.getProperty(ENABLED_PROPERTY, Boolean.class, true),
+                Paths.get(environment.getProperty(DIR_PROPERTY,
+                        System.getProperty("java.io.tmpdir") + "/irrigation-config")));
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Nom du fichier pour l'application et les profils demandés au config-server.
+     */
+    static String key(ConfigClientProperties properties, Environment environment) {
+        ConfigClientProperties resolved = properties.override(environment);
+        return resolved.getName() + "-" + resolved.getProfile().replace(',', '+');
+    }
+
+    Optional<Map<String, String>> load(String key) {
+        Path file = dir.resolve(key + ".properties");
+        if (!Files.isReadable(file)) {
+            return Optional.empty();
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Properties properties = new Properties();
+            properties.load(reader);
+            Map<String, String> values = new TreeMap<>();
+            properties.stringPropertyNames().forEach(name -> values.put(name, properties.getProperty(name)));
+            return Optional.of(values);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("⚠️ Ignoring unreadable config snapshot {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    void save(String key, Map<String, String> values) {
+        try {
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, key, ".tmp");
+            Properties properties = new Properties();
+            properties.putAll(values);
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "Fetched from config-server at " + Instant.now());
+            }
+            Files.move(tmp, dir.resolve(key + ".properties"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("⚠️ Could not write config snapshot {} to {}: {}", key, dir, e.getMessage());
+        }
+    }
+
+    /**
+     * Valeurs effectives d'une source (composite : la première source qui définit une clé l'emporte).
+     */
+    static Map<String, String> flatten(PropertySource<?> source) {
+        Map<String, String> values = new TreeMap<>();
+        if (source instanceof EnumerablePropertySource<?> enumerable) {
+            for (String name : enumerable.getPropertyNames()) {
+                Object value = enumerable.getProperty(name);
+                if (value != null) {
+                    values.put(name, value.toString());
+                }
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,74 @@
+package com.irrigation.commons.config.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.config.client.ConfigClientProperties;
+import org.springframework.cloud.config.client.ConfigServicePropertySourceLocator;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Locator du contexte bootstrap : s'il existe un snapshot local, le config-server est d'abord
+ * interrogé une seule fois avec un délai court, et le snapshot ne sert que s'il ne répond pas
+ * (la réconciliation se fait alors après le démarrage, voir ConfigSnapshotReconciler). Un
+ * snapshot périmé ne fige donc pas les valeurs injectées par constructeur tant que le serveur
+ * est joignable. Sans snapshot, la configuration est récupérée normalement (fail-fast et retry
+ * de bootstrap.yml) puis enregistrée.
+ */
+@Slf4j
+public class SnapshotConfigServicePropertySourceLocator extends ConfigServicePropertySourceLocator {
+
+    static final String SNAPSHOT_SOURCE = "configSnapshot";
+    static final String PROBE_TIMEOUT_PROPERTY = "irrigation.config.snapshot.probe-timeout-ms";
+
+    private final ConfigClientProperties properties;
+
+    public SnapshotConfigServicePropertySourceLocator(ConfigClientProperties properties) {
+        super(properties);
+        this.properties = properties;
+    }
+
+    @Override
+    public PropertySource<?> locate(Environment environment) {
+        ConfigSnapshotStore store = ConfigSnapshotStore.from(environment);
+        if (!store.isEnabled()) {
+            return super.locate(environment);
+        }
+        String key = ConfigSnapshotStore.key(properties, environment);
+        Optional<Map<String, String>> snapshot = store.load(key);
+        PropertySource<?> remote = snapshot.isPresent() ? probe(environment) : super.locate(environment);
+        if (remote != null) {
+            store.save(key, ConfigSnapshotStore.flatten(remote));
+            return remote;
+        }
+        if (snapshot.isPresent()) {
+            log.info("📦 Config server unreachable, starting from local config snapshot {} ({} properties)",
+                    key, snapshot.get().size());
+            return new MapPropertySource(SNAPSHOT_SOURCE, new HashMap<>(snapshot.get()));
+        }
+        return null;
+    }
+
+    /**
+     * Une seule tentative, sans fail-fast ni retry, bornée par {@value #PROBE_TIMEOUT_PROPERTY}.
+     *
+     * @return La configuration du serveur, ou null s'il n'a pas répondu
+     */
+    private PropertySource<?> probe(Environment environment) {
+        ConfigClientProperties probe = properties.override(environment);
+        int timeout = environment.getProperty(PROBE_TIMEOUT_PROPERTY, Integer.class, 2000);
+        probe.setFailFast(false);
+        probe.setRequestConnectTimeout(timeout);
+        probe.setRequestReadTimeout(timeout);
+        try {
+            return new ConfigServicePropertySourceLocator(probe).locate(environment);
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Config server probe failed: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.irrigation.commons.ingestion;
+
+/**
+ * Levée quand une mesure portant la même clé d'idempotence est encore en cours d'enregistrement.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
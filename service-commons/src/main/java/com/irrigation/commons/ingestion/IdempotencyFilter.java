@@ -0,0 +1,120 @@
+package com.irrigation.commons.ingestion;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Mémoire des clés d'idempotence déjà enregistrées, sans accès base.
+ *
+ * Un filtre de Bloom répond « jamais vue » (certain) ou « peut-être vue » ; un LRU borné
+ * des clés récentes donne l'identifiant de la mesure pour la plupart des « peut-être ».
+ * Le filtre tourne sur deux générations de {@code expectedKeys} clés : quand la génération
+ * courante est pleine, la précédente est oubliée. La mémoire et le taux de faux positifs
+ * restent bornés ; une clé oubliée est de nouveau « jamais vue » et c'est la contrainte
+ * d'unicité en base qui la détecte.
+ */
+public class IdempotencyFilter {
+
+    private final int expectedKeys;
+    private final int bits;
+    private final int hashes;
+    private final Map<String, Long> recent;
+
+    private long[] current;
+    private long[] previous;
+    private int currentKeys;
+
+    public IdempotencyFilter(int expectedKeys, double falsePositiveRate, int recentKeys) {
+        this.expectedKeys = expectedKeys;
+        // m = -n ln p / (ln 2)², k = m/n ln 2
+        double ln2 = Math.log(2);
+        this.bits = (int) Math.max(64, Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedKeys * ln2));
+        this.current = new long[(bits + 63) / 64];
+        this.previous = new long[current.length];
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > recentKeys;
+            }
+        };
+    }
+
+    /**
+     * @return false si la clé n'a certainement jamais été ajoutée
+     */
+    public synchronized boolean mightContain(String key) {
+        long hash = hash(key);
+        return contains(current, hash) || contains(previous, hash);
+    }
+
+    /**
+     * Identifiant de la mesure enregistrée sous cette clé, si elle fait partie des clés récentes.
+     */
+    public synchronized Optional<Long> recent(String key) {
+        return Optional.ofNullable(recent.get(key));
+    }
+
+    public synchronized void add(String key) {
+        if (currentKeys >= expectedKeys) {
+            long[] recycled = previous;
+            Arrays.fill(recycled, 0L);
+            previous = current;
+            current = recycled;
+            currentKeys = 0;
+        }
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bits);
+            current[bit >>> 6] |= 1L << bit;
+        }
+        currentKeys++;
+    }
+
+    public synchronized void remember(String key, Long mesureId) {
+        add(key);
+        recent.put(key, mesureId);
+    }
+
+    /**
+     * Taille mémoire des deux générations du filtre, en octets.
+     */
+    public long sizeInBytes() {
+        return 2L * current.length * Long.BYTES;
+    }
+
+    private boolean contains(long[] generation, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bits);
+            if ((generation[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a 64 bits sur les octets UTF-8, puis mélange final de MurmurHash3 ; les deux moitiés
+     * donnent les k positions par double hachage.
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53f4a15L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,217 @@
+package com.irrigation.commons.ingestion;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * File bornée sans verrou + thread d'écriture qui regroupe les commits.
+ *
+ * Les producteurs déposent des éléments ; le writer les persiste par lots dès que
+ * {@code batchSize} éléments sont en attente ou que {@code flushInterval} s'est
+ * écoulé depuis le début du lot. Chaque élément est accompagné d'un future complété
+ * après le commit de son lot (ou en erreur si sa propre écriture échoue).
+ *
+ * Un échec transitoire (verrou, connexion, timeout) est retenté avec un backoff exponentiel ;
+ * tout autre échec (contrainte violée...) fait réécrire le lot ligne par ligne, pour que
+ * seule la mesure fautive soit rejetée et non ses voisines.
+ *
+ * @param <E> Type des éléments persistés
+ */
+@Slf4j
+public class WriteBehindQueue<E> {
+
+    private record Pending<E>(E item, CompletableFuture<E> done) {
+    }
+
+    private final ConcurrentLinkedQueue<Pending<E>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private final String name;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Consumer<List<E>> batchWriter;
+    private final int maxRetries;
+    private final long retryBackoffNanos;
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    public WriteBehindQueue(String name, int capacity, int batchSize, long flushIntervalMillis,
+                            int maxRetries, long retryBackoffMillis, Consumer<List<E>> batchWriter) {
+        this.name = name;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.batchWriter = batchWriter;
+        this.maxRetries = maxRetries;
+        this.retryBackoffNanos = TimeUnit.MILLISECONDS.toNanos(retryBackoffMillis);
+        this.writer = new Thread(this::run, name + "-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Dépose un élément sans bloquer.
+     *
+     * @return Le future complété après commit, ou null si la file est pleine
+     */
+    public CompletableFuture<E> offer(E item) {
+        if (!running || size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return null;
+        }
+        CompletableFuture<E> done = new CompletableFuture<>();
+        queue.add(new Pending<>(item, done));
+        if (size.get() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+        return done;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public long writtenCount() {
+        return written.get();
+    }
+
+    public long failedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Arrête le writer après avoir vidé la file (dans la limite du délai donné).
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (size.get() > 0) {
+            log.error("❌ {}: {} readings still queued at shutdown were not persisted", name, size.get());
+        }
+    }
+
+    private void run() {
+        List<Pending<E>> batch = new ArrayList<>(batchSize);
+        while (running || size.get() > 0) {
+            awaitBatch();
+            Pending<E> pending;
+            while (batch.size() < batchSize && (pending = queue.poll()) != null) {
+                size.decrementAndGet();
+                batch.add(pending);
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Attend qu'un lot soit plein ou que l'intervalle de flush soit écoulé.
+     */
+    private void awaitBatch() {
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        long remaining;
+        while (running && size.get() < batchSize && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    private void flush(List<Pending<E>> batch) {
+        List<E> items = new ArrayList<>(batch.size());
+        for (Pending<E> pending : batch) {
+            items.add(pending.item());
+        }
+        try {
+            write(items);
+            written.addAndGet(items.size());
+            for (Pending<E> pending : batch) {
+                pending.done().complete(pending.item());
+            }
+        } catch (RuntimeException e) {
+            if (batch.size() == 1 || isTransient(e)) {
+                failed.addAndGet(items.size());
+                log.error("❌ {}: group commit of {} readings failed: {}", name, items.size(), e.getMessage());
+                for (Pending<E> pending : batch) {
+                    pending.done().completeExceptionally(e);
+                }
+                return;
+            }
+            log.warn("⚠️ {}: group commit of {} readings failed ({}), writing them one by one",
+                    name, items.size(), e.getMessage());
+            for (Pending<E> pending : batch) {
+                flushOne(pending);
+            }
+        }
+    }
+
+    private void flushOne(Pending<E> pending) {
+        try {
+            write(List.of(pending.item()));
+            written.incrementAndGet();
+            pending.done().complete(pending.item());
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            log.error("❌ {}: reading rejected: {}", name, e.getMessage());
+            pending.done().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Écrit un lot en retentant les échecs transitoires, au plus {@code maxRetries} fois.
+     */
+    private void write(List<E> items) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                batchWriter.accept(items);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxRetries || !isTransient(e)) {
+                    throw e;
+                }
+                log.warn("⚠️ {}: transient failure writing {} readings, retry {}/{}: {}",
+                        name, items.size(), attempt + 1, maxRetries, e.getMessage());
+                LockSupport.parkNanos(this, retryBackoffNanos << attempt);
+            }
+        }
+    }
+
+    /**
+     * @return true si l'échec peut disparaître en réessayant (verrou, connexion, timeout)
+     */
+    static boolean isTransient(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,11 @@
+package com.irrigation.commons.ingestion;
+
+/**
+ * Levée quand la file write-behind est pleine et que la politique de contre-pression est REJECT.
+ */
+public class WriteBehindRejectedException extends RuntimeException {
+
+    public WriteBehindRejectedException(String message) {
+        super(message);
+    }
+}
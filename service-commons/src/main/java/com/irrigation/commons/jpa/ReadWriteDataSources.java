@@ -0,0 +1,74 @@
+package com.irrigation.commons.jpa;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Deux pools de connexions : écriture (primaire) et lecture (réplica, ou le primaire si
+ * aucune URL de lecture n'est configurée).
+ *
+ * Le DataSource exposé à JPA et JdbcTemplate n'obtient la connexion physique qu'à la
+ * première requête : les transactions {@code @Transactional(readOnly = true)} sont alors
+ * servies par le pool de lecture, toutes les autres par le pool d'écriture. Une rafale de
+ * lectures de tableau de bord ne peut donc plus priver les insertions de connexions.
+ *
+ * Chaque service déclare ses beans (config.DataSourceConfig) avec ses propres propriétés et
+ * noms de pool (métriques hikaricp.*, tag pool).
+ */
+public final class ReadWriteDataSources {
+
+    private ReadWriteDataSources() {
+    }
+
+    public static HikariDataSource writePool(DataSourceProperties properties, String poolName, int maximumPoolSize) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(poolName);
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        return dataSource;
+    }
+
+    /**
+     * @param url URL du réplica ; vide : le pool de lecture pointe sur le primaire
+     */
+    public static HikariDataSource readPool(DataSourceProperties properties, String poolName, String url,
+                                            String username, String password, int maximumPoolSize) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (!url.isBlank()) {
+            dataSource.setJdbcUrl(url);
+            dataSource.setUsername(username.isBlank() ? properties.determineUsername() : username);
+            dataSource.setPassword(password.isBlank() ? properties.determinePassword() : password);
+        }
+        dataSource.setPoolName(poolName);
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    public static DataSource routing(DataSource writeDataSource, DataSource readDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(writeDataSource);
+        dataSource.setReadOnlyDataSource(readDataSource);
+        return dataSource;
+    }
+
+    /**
+     * Avec un réplica, les lectures readOnly n'alimentent pas le cache L2 partagé
+     * (voir {@link ReplicaReadJpaDialect}). À déclarer en bean static.
+     */
+    public static BeanPostProcessor replicaReadJpaDialect(String url) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Après initialisation : le gestionnaire a déjà repris le dialecte de l'EntityManagerFactory
+                if (!url.isBlank() && bean instanceof JpaTransactionManager transactionManager) {
+                    transactionManager.setJpaDialect(new ReplicaReadJpaDialect());
+                }
+                return bean;
+            }
+        };
+    }
+}
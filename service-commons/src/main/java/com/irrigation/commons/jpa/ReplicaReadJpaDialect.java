@@ -0,0 +1,51 @@
+package com.irrigation.commons.jpa;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import java.sql.SQLException;
+
+/**
+ * Dialecte JPA utilisé quand un réplica de lecture est configuré : une transaction
+ * {@code readOnly} lit le cache L2 mais ne l'alimente pas ({@link CacheStoreMode#BYPASS}).
+ *
+ * Les lignes lues sur un réplica peuvent être en retard sur le primaire : mises en cache,
+ * elles seraient servies à toutes les lectures suivantes, et une écriture partant d'une
+ * telle entrée échouerait sur sa {@code @Version}. Le mode précédent est restauré en fin
+ * de transaction, la session pouvant être partagée par plusieurs transactions (open-in-view).
+ * Installé par {@link ReadWriteDataSources#replicaReadJpaDialect}.
+ */
+public class ReplicaReadJpaDialect extends HibernateJpaDialect {
+
+    // Propriété de session, relue par Hibernate à chaque find() et chaque requête
+    static final String STORE_MODE = "jakarta.persistence.cache.storeMode";
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly()) {
+            return transactionData;
+        }
+        Object previous = entityManager.getProperties().getOrDefault(STORE_MODE, CacheStoreMode.USE);
+        entityManager.setProperty(STORE_MODE, CacheStoreMode.BYPASS);
+        return new ReadOnlyTransactionData(entityManager, previous, transactionData);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReadOnlyTransactionData readOnly) {
+            readOnly.entityManager().setProperty(STORE_MODE, readOnly.previous());
+            super.cleanupTransaction(readOnly.transactionData());
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+
+    private record ReadOnlyTransactionData(EntityManager entityManager, Object previous, Object transactionData) {
+    }
+}
@@ -0,0 +1,123 @@
+package com.irrigation.commons.limiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limite de concurrence adaptative, pilotée par la latence mesurée (algorithme du gradient).
+ *
+ * Les latences sont moyennées par fenêtre (au moins {@code windowSamples} requêtes et
+ * {@code windowMillis} ms) ; une moyenne longue suit la latence « sans file d'attente ».
+ * À chaque fenêtre :
+ *   gradient = clamp(tolérance × latence longue / latence courte, 0.5, 1)
+ *   limite   = limite × gradient + √limite   (lissée, bornée à [min, max])
+ * Tant que la latence reste dans la tolérance, la limite croît de √limite ; quand elle
+ * monte (dépendance lente, base saturée), la limite baisse jusqu'à moitié par fenêtre et
+ * l'excédent de requêtes est refusé au lieu de s'empiler sur des threads bloqués.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    // Nombre de fenêtres de la moyenne longue (~1 min à 10 fenêtres/s)
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double tolerance;
+    private final long windowNanos;
+    private final int windowSamples;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+
+    // Fenêtre courante et moyenne longue, sous le verrou de onSample
+    private long windowStart;
+    private long windowRttSum;
+    private int windowCount;
+    private int windowMaxInFlight;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                                    double smoothing, double tolerance, long windowMillis, int windowSamples) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.tolerance = tolerance;
+        this.windowNanos = windowMillis * 1_000_000L;
+        this.windowSamples = windowSamples;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Réserve une place si moins de {@code share} × limite requêtes sont en cours.
+     *
+     * @param share Part de la limite accessible à la priorité de la requête (0 à 1)
+     * @return false si la requête doit être refusée
+     */
+    public boolean tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Enregistre la latence d'une requête admise.
+     *
+     * @param inFlightAtStart Requêtes en cours à son admission (elle comprise)
+     */
+    public synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        long now = System.nanoTime();
+        if (windowCount == 0) {
+            windowStart = now;
+        }
+        windowRttSum += rttNanos;
+        windowCount++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+        if (windowCount < windowSamples || now - windowStart < windowNanos) {
+            return;
+        }
+        double shortRtt = (double) windowRttSum / windowCount;
+        int maxInFlight = windowMaxInFlight;
+        windowRttSum = 0;
+        windowCount = 0;
+        windowMaxInFlight = 0;
+
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) / LONG_WINDOW;
+            // Retour à la normale après une longue surcharge : la moyenne longue rattrape plus vite
+            if (longRtt > 2 * shortRtt) {
+                longRtt *= 0.95;
+            }
+        }
+
+        double current = limit;
+        // Trafic trop faible pour éprouver la limite : la latence ne dit rien de la capacité
+        if (maxInFlight < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+        double target = current * gradient + Math.sqrt(current);
+        double smoothed = current * (1 - smoothing) + target * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
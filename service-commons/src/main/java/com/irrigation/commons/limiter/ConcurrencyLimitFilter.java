@@ -0,0 +1,159 @@
+package com.irrigation.commons.limiter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Délestage des requêtes HTTP par une limite de concurrence adaptative (voir AdaptiveConcurrencyLimit).
+ *
+ * Une requête au-delà de la part de limite de sa priorité reçoit immédiatement un 503 avec
+ * Retry-After, au lieu d'attendre un thread. Les routes sont décrites par « [MÉTHODE] motif »
+ * (motifs Ant, ex. {@code GET /consommations/check/pompe/*}). Les routes exclues (actuator,
+ * exports et uploads en streaming, dont la durée dépend du volume) ne sont ni limitées ni mesurées.
+ *
+ * Déclaré par chaque microservice (limiter.ConcurrencyLimitConfig), avec ses propres routes
+ * et le préfixe de ses métriques ({@code <prefix>.concurrency_limit.*}).
+ */
+@Slf4j
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+    private static final long WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final boolean enabled;
+    private final AdaptiveConcurrencyLimit limit;
+    private final List<Route> criticalRoutes;
+    private final List<Route> bulkRoutes;
+    private final List<Route> excludedRoutes;
+    private final Map<RequestPriority, Double> shares = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, Counter> rejected = new EnumMap<>(RequestPriority.class);
+    private final String retryAfterSeconds;
+    private final AtomicLong lastWarn = new AtomicLong(System.nanoTime() - WARN_INTERVAL_NANOS);
+
+    public ConcurrencyLimitFilter(MeterRegistry meterRegistry, String metricPrefix, boolean enabled,
+                                  int initialLimit, int minLimit, int maxLimit, double smoothing, double tolerance,
+                                  long windowMillis, int windowSamples, double normalShare, double bulkShare,
+                                  int retryAfterSeconds, List<String> critical, List<String> bulk, List<String> excluded) {
+        this.enabled = enabled;
+        this.limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit,
+                smoothing, tolerance, windowMillis, windowSamples);
+        this.criticalRoutes = Route.parse(critical);
+        this.bulkRoutes = Route.parse(bulk);
+        this.excludedRoutes = Route.parse(excluded);
+        this.shares.put(RequestPriority.CRITICAL, 1.0);
+        this.shares.put(RequestPriority.NORMAL, normalShare);
+        this.shares.put(RequestPriority.BULK, bulkShare);
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+        for (RequestPriority priority : RequestPriority.values()) {
+            rejected.put(priority, Counter.builder(metricPrefix + ".concurrency_limit.rejected")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        Gauge.builder(metricPrefix + ".concurrency_limit.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .register(meterRegistry);
+        Gauge.builder(metricPrefix + ".concurrency_limit.in_flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .register(meterRegistry);
+        if (enabled) {
+            log.info("🚦 Adaptive concurrency limit enabled (initial={}, min={}, max={}, shares normal={} bulk={})",
+                    initialLimit, minLimit, maxLimit, normalShare, bulkShare);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || Route.matchesAny(excludedRoutes, request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestPriority priority = classify(request);
+        if (!limit.tryAcquire(shares.get(priority))) {
+            reject(priority, response);
+            return;
+        }
+        int inFlight = limit.getInFlight();
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limit.release();
+            limit.onSample(System.nanoTime() - start, inFlight);
+        }
+    }
+
+    private RequestPriority classify(HttpServletRequest request) {
+        if (Route.matchesAny(criticalRoutes, request)) {
+            return RequestPriority.CRITICAL;
+        }
+        if (Route.matchesAny(bulkRoutes, request)) {
+            return RequestPriority.BULK;
+        }
+        return RequestPriority.NORMAL;
+    }
+
+    private void reject(RequestPriority priority, HttpServletResponse response) throws IOException {
+        rejected.get(priority).increment();
+        long now = System.nanoTime();
+        long last = lastWarn.get();
+        if (now - last >= WARN_INTERVAL_NANOS && lastWarn.compareAndSet(last, now)) {
+            log.warn("🚦 Shedding load: {} request refused (limit={}, in flight={})",
+                    priority, limit.getLimit(), limit.getInFlight());
+        }
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Service overloaded, retry later\"}");
+    }
+
+    /**
+     * Route « [MÉTHODE] motif » ; sans méthode, toutes les méthodes correspondent.
+     */
+    private record Route(String method, String pattern) {
+
+        static List<Route> parse(List<String> specs) {
+            return specs.stream()
+                    .map(String::trim)
+                    .filter(spec -> !spec.isEmpty())
+                    .map(spec -> {
+                        int space = spec.indexOf(' ');
+                        return space < 0
+                                ? new Route(null, spec)
+                                : new Route(spec.substring(0, space), spec.substring(space + 1).trim());
+                    })
+                    .toList();
+        }
+
+        static boolean matchesAny(List<Route> routes, HttpServletRequest request) {
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            for (Route route : routes) {
+                if ((route.method == null || route.method.equalsIgnoreCase(request.getMethod()))
+                        && MATCHER.match(route.pattern, path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.irrigation.commons.limiter;
+
+/**
+ * Classe de priorité d'une requête face à la limite de concurrence : chaque classe n'accède
+ * qu'à une part de la limite, les requêtes les moins prioritaires sont donc refusées les premières.
+ */
+public enum RequestPriority {
+    // Contrôles synchrones appelés par l'autre microservice (admission d'une pompe, disponibilité)
+    CRITICAL,
+    NORMAL,
+    // Lectures volumineuses (collections complètes, périodes, agrégats)
+    BULK
+}
@@ -0,0 +1,23 @@
+package com.irrigation.commons.timeseries;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Conversion LocalDateTime ↔ epoch ms utilisée par le tier mémoire.
+ * Les dates de mesure sont sans fuseau : l'offset UTC sert uniquement d'encodage stable.
+ */
+public final class EpochTime {
+
+    private EpochTime() {
+    }
+
+    public static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
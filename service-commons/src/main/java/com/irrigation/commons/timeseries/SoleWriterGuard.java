@@ -0,0 +1,109 @@
+package com.irrigation.commons.timeseries;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.time.Duration;
+
+import java.util.List;
+
+/**
+ * Dit depuis quand cette instance est la seule à écrire des mesures.
+ *
+ * Le tier mémoire ne contient que les écritures passées par cette instance (plus le
+ * préchargement) : il n'est complet que si aucune autre instance du service n'écrit.
+ * Tant qu'une autre instance est inscrite dans l'annuaire, aucune période n'est couverte ;
+ * quand elle disparaît, seules les périodes qui commencent après un délai de passation
+ * (ses dernières écritures commitées) le redeviennent. Une instance seule dès le démarrage
+ * couvre toute la fenêtre préchargée.
+ *
+ * Déclaré par chaque service avec ses propres délais ; l'annuaire est revérifié toutes
+ * les checkIntervalMillis (tâche planifiée, @EnableScheduling requis).
+ */
+@Slf4j
+public class SoleWriterGuard implements SchedulingConfigurer {
+
+    private final DiscoveryClient discoveryClient;
+    private final ObjectProvider<Registration> registration;
+    private final String serviceId;
+    private final long handoffDelayMillis;
+    private final long checkIntervalMillis;
+
+    // Début des périodes couvertes (epoch ms) : MIN_VALUE depuis le démarrage, MAX_VALUE si une autre instance écrit
+    private volatile long soleSince = Long.MAX_VALUE;
+
+    public SoleWriterGuard(DiscoveryClient discoveryClient,
+                           ObjectProvider<Registration> registration,
+                           String serviceId,
+                           long handoffDelayMillis,
+                           long checkIntervalMillis) {
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.serviceId = serviceId;
+        this.handoffDelayMillis = handoffDelayMillis;
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    @PostConstruct
+    void init() {
+        soleSince = othersRegistered() ? Long.MAX_VALUE : Long.MIN_VALUE;
+        if (soleSince == Long.MAX_VALUE) {
+            log.info("🔥 Other {} instances registered: hot tier reads go to the database", serviceId);
+        }
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        Duration interval = Duration.ofMillis(checkIntervalMillis);
+        registrar.addFixedDelayTask(new FixedDelayTask(this::refresh, interval, interval));
+    }
+
+    void refresh() {
+        boolean others = othersRegistered();
+        if (others && soleSince != Long.MAX_VALUE) {
+            soleSince = Long.MAX_VALUE;
+            log.info("🔥 Another {} instance registered: hot tier reads go to the database", serviceId);
+        } else if (!others && soleSince == Long.MAX_VALUE) {
+            soleSince = System.currentTimeMillis() + handoffDelayMillis;
+            log.info("🔥 Sole {} instance again: hot tier serves periods starting after the handoff delay", serviceId);
+        }
+    }
+
+    /**
+     * @param from Début de la période demandée (epoch ms)
+     * @return true si toutes les écritures de la période sont passées par cette instance
+     */
+    public boolean coversFrom(long from) {
+        return from >= soleSince;
+    }
+
+    private boolean othersRegistered() {
+        Registration self = registration.getIfAvailable();
+        List<ServiceInstance> instances;
+        try {
+            instances = discoveryClient.getInstances(serviceId);
+        } catch (RuntimeException e) {
+            // Annuaire injoignable : on ne peut rien prouver
+            return true;
+        }
+        for (ServiceInstance instance : instances) {
+            if (self == null || !isSelf(self, instance)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSelf(Registration self, ServiceInstance instance) {
+        return self.getInstanceId() != null
+                ? self.getInstanceId().equals(instance.getInstanceId())
+                : self.getHost().equals(instance.getHost()) && self.getPort() == instance.getPort();
+    }
+}
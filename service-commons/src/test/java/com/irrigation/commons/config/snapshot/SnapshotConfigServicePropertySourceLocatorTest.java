@@ -0,0 +1,95 @@
+package com.irrigation.commons.config.snapshot;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cloud.config.client.ConfigClientProperties;
+import org.springframework.core.env.PropertySource;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotConfigServicePropertySourceLocatorTest {
+
+    private static final String KEY = "energy-service-default";
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    private MockEnvironment environment;
+
+    @BeforeEach
+    void setUp() {
+        environment = new MockEnvironment()
+                .withProperty("spring.application.name", "energy-service")
+                .withProperty(ConfigSnapshotStore.DIR_PROPERTY, dir.toString())
+                .withProperty(SnapshotConfigServicePropertySourceLocator.PROBE_TIMEOUT_PROPERTY, "500");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void prefersTheConfigServerOverAnExistingSnapshot() throws IOException {
+        ConfigSnapshotStore.from(environment).save(KEY, Map.of("energy.forecast.alpha", "0.5"));
+        String uri = startServer("{\"name\":\"energy-service\",\"profiles\":[\"default\"],\"propertySources\":"
+                + "[{\"name\":\"config-repo\",\"source\":{\"energy.forecast.alpha\":\"0.3\"}}]}");
+
+        PropertySource<?> source = locator(uri).locate(environment);
+
+        assertThat(source.getName()).doesNotEndWith(SnapshotConfigServicePropertySourceLocator.SNAPSHOT_SOURCE);
+        assertThat(source.getProperty("energy.forecast.alpha")).isEqualTo("0.3");
+        assertThat(ConfigSnapshotStore.from(environment).load(KEY)).contains(Map.of("energy.forecast.alpha", "0.3"));
+    }
+
+    @Test
+    void fallsBackToTheSnapshotWhenTheServerIsUnreachable() throws IOException {
+        ConfigSnapshotStore.from(environment).save(KEY, Map.of("energy.forecast.alpha", "0.5"));
+
+        PropertySource<?> source = locator("http://localhost:" + freePort()).locate(environment);
+
+        assertThat(source.getName()).isEqualTo(SnapshotConfigServicePropertySourceLocator.SNAPSHOT_SOURCE);
+        assertThat(source.getProperty("energy.forecast.alpha")).isEqualTo("0.5");
+    }
+
+    private SnapshotConfigServicePropertySourceLocator locator(String uri) {
+        ConfigClientProperties properties = new ConfigClientProperties(environment);
+        properties.setUri(new String[] {uri});
+        return new SnapshotConfigServicePropertySourceLocator(properties);
+    }
+
+    private String startServer(String body) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.irrigation.commons.ingestion;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyFilterTest {
+
+    @Test
+    void neverForgetsAKeyOfTheCurrentGenerations() {
+        IdempotencyFilter filter = new IdempotencyFilter(10_000, 0.01, 10);
+        IntStream.range(0, 10_000).forEach(i -> filter.add("pompe-" + i));
+
+        assertThat(IntStream.range(0, 10_000)).allMatch(i -> filter.mightContain("pompe-" + i));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTarget() {
+        IdempotencyFilter filter = new IdempotencyFilter(10_000, 0.01, 10);
+        IntStream.range(0, 10_000).forEach(i -> filter.add("pompe-" + i));
+
+        long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("autre-" + i)).count();
+
+        // Deux générations : la précédente est vide, le taux vise 1 %
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+    }
+
+    @Test
+    void oldestGenerationIsForgottenWhenTheCurrentOneIsFull() {
+        IdempotencyFilter filter = new IdempotencyFilter(100, 0.01, 10);
+        IntStream.range(0, 100).forEach(i -> filter.add("ancienne-" + i));
+        IntStream.range(0, 201).forEach(i -> filter.add("recente-" + i));
+
+        long restantes = IntStream.range(0, 100).filter(i -> filter.mightContain("ancienne-" + i)).count();
+
+        assertThat(restantes).isLessThan(10);
+        assertThat(filter.mightContain("recente-200")).isTrue();
+    }
+
+    @Test
+    void recentKeysAreBoundedLeastRecentlyUsedFirst() {
+        IdempotencyFilter filter = new IdempotencyFilter(100, 0.01, 2);
+        filter.remember("a", 1L);
+        filter.remember("b", 2L);
+        filter.recent("a");
+        filter.remember("c", 3L);
+
+        assertThat(filter.recent("a")).contains(1L);
+        assertThat(filter.recent("b")).isEmpty();
+        assertThat(filter.recent("c")).contains(3L);
+        assertThat(filter.mightContain("b")).isTrue();
+    }
+}
@@ -0,0 +1,113 @@
+package com.irrigation.commons.ingestion;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WriteBehindQueueTest {
+
+    private WriteBehindQueue<Integer> queue;
+
+    @AfterEach
+    void shutdown() {
+        if (queue != null) {
+            queue.shutdown(1000);
+        }
+    }
+
+    @Test
+    void retriesTransientFailures() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        List<Integer> stored = new CopyOnWriteArrayList<>();
+        queue = queue(items -> {
+            if (attempts.getAndIncrement() < 2) {
+                throw new CannotAcquireLockException("lock timeout");
+            }
+            stored.addAll(items);
+        });
+
+        List<CompletableFuture<Integer>> done = offerAll(1, 2, 3);
+
+        for (CompletableFuture<Integer> future : done) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(stored).containsExactly(1, 2, 3);
+        assertThat(attempts).hasValue(3);
+        assertThat(queue.writtenCount()).isEqualTo(3);
+        assertThat(queue.failedCount()).isZero();
+    }
+
+    @Test
+    void constraintFailureOnlyRejectsTheBadRow() throws Exception {
+        List<Integer> stored = new CopyOnWriteArrayList<>();
+        queue = queue(items -> {
+            if (items.contains(2)) {
+                throw new DataIntegrityViolationException("duplicate key");
+            }
+            stored.addAll(items);
+        });
+
+        List<CompletableFuture<Integer>> done = offerAll(1, 2, 3);
+
+        assertThat(done.get(0).get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(done.get(2).get(5, TimeUnit.SECONDS)).isEqualTo(3);
+        assertThatThrownBy(() -> done.get(1).get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(DataIntegrityViolationException.class);
+        assertThat(stored).containsExactly(1, 3);
+        assertThat(queue.writtenCount()).isEqualTo(2);
+        assertThat(queue.failedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void failsTheBatchOnceRetriesAreExhausted() {
+        AtomicInteger attempts = new AtomicInteger();
+        queue = queue(items -> {
+            attempts.incrementAndGet();
+            throw new CannotAcquireLockException("database down");
+        });
+
+        List<CompletableFuture<Integer>> done = offerAll(1, 2);
+
+        for (CompletableFuture<Integer> future : done) {
+            assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(CannotAcquireLockException.class);
+        }
+        // Pas de repli ligne par ligne sur une panne transitoire : 1 essai + 2 reprises
+        assertThat(attempts).hasValue(3);
+        assertThat(queue.failedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void recognisesTransientCauses() {
+        assertThat(WriteBehindQueue.isTransient(
+                new RuntimeException(new CannotAcquireLockException("deadlock")))).isTrue();
+        assertThat(WriteBehindQueue.isTransient(new DataIntegrityViolationException("duplicate key"))).isFalse();
+    }
+
+    /**
+     * File dont le writer attend les 3 éléments offerts avant de flusher en un seul lot.
+     */
+    private static WriteBehindQueue<Integer> queue(Consumer<List<Integer>> batchWriter) {
+        return new WriteBehindQueue<>("test", 100, 3, 200, 2, 1, batchWriter);
+    }
+
+    private List<CompletableFuture<Integer>> offerAll(Integer... items) {
+        List<CompletableFuture<Integer>> done = new ArrayList<>();
+        for (Integer item : items) {
+            done.add(queue.offer(item));
+        }
+        return done;
+    }
+}
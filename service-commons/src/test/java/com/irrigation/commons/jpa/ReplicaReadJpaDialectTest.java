@@ -0,0 +1,113 @@
+package com.irrigation.commons.jpa;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaReadJpaDialectTest {
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EntityManagerFactory emf;
+    private Long equipementId;
+
+    @BeforeEach
+    void setUp() {
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        factoryBean.setManagedTypes(PersistenceManagedTypes.of(Equipement.class.getName()));
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of(
+                "hibernate.hbm2ddl.auto", "create-drop",
+                "hibernate.cache.use_second_level_cache", "true",
+                "hibernate.cache.region.factory_class", "jcache",
+                "hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider",
+                "hibernate.javax.cache.missing_cache_strategy", "create"));
+        factoryBean.afterPropertiesSet();
+        emf = factoryBean.getObject();
+
+        equipementId = transactions("", false).execute(status -> {
+            Equipement equipement = new Equipement();
+            equipement.setNom("Pompe nord");
+            entityManager().persist(equipement);
+            return equipement.getId();
+        });
+        emf.getCache().evictAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        factoryBean.destroy();
+    }
+
+    @Test
+    void replicaReadsDoNotFillTheSecondLevelCache() {
+        transactions("jdbc:postgresql://replica/db", true)
+                .executeWithoutResult(status -> entityManager().find(Equipement.class, equipementId));
+
+        assertThat(emf.getCache().contains(Equipement.class, equipementId)).isFalse();
+    }
+
+    @Test
+    void writeTransactionsStillFillTheCache() {
+        transactions("jdbc:postgresql://replica/db", false)
+                .executeWithoutResult(status -> entityManager().find(Equipement.class, equipementId));
+
+        assertThat(emf.getCache().contains(Equipement.class, equipementId)).isTrue();
+    }
+
+    @Test
+    void readsFillTheCacheWithoutReplica() {
+        transactions("", true).executeWithoutResult(status -> entityManager().find(Equipement.class, equipementId));
+
+        assertThat(emf.getCache().contains(Equipement.class, equipementId)).isTrue();
+    }
+
+    @Test
+    void restoresTheStoreModeOfASharedSession() {
+        // Open-in-view : une même session sert plusieurs transactions de la requête
+        EntityManager shared = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(shared));
+        try {
+            transactions("jdbc:postgresql://replica/db", true)
+                    .executeWithoutResult(status -> entityManager().find(Equipement.class, equipementId));
+
+            assertThat(shared.getProperties().get(ReplicaReadJpaDialect.STORE_MODE)).isEqualTo(CacheStoreMode.USE);
+            shared.clear();
+            shared.find(Equipement.class, equipementId);
+            assertThat(emf.getCache().contains(Equipement.class, equipementId)).isTrue();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            shared.close();
+        }
+    }
+
+    private TransactionTemplate transactions(String replicaUrl, boolean readOnly) {
+        JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+        ReadWriteDataSources.replicaReadJpaDialect(replicaUrl)
+                .postProcessAfterInitialization(transactionManager, "transactionManager");
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template;
+    }
+
+    private EntityManager entityManager() {
+        return EntityManagerFactoryUtils.getTransactionalEntityManager(emf);
+    }
+}
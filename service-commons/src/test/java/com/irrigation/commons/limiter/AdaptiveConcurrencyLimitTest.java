@@ -0,0 +1,83 @@
+package com.irrigation.commons.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // Une fenêtre par échantillon : chaque onSample recalcule la limite
+    private final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 200, 0.2, 1.5, 0, 1);
+
+    @Test
+    void eachPriorityOnlyGetsItsShareOfTheLimit() {
+        assertThat(IntStream.range(0, 20).filter(i -> limit.tryAcquire(0.5)).count()).isEqualTo(10);
+        // Les requêtes critiques ont accès à toute la limite
+        assertThat(IntStream.range(0, 20).filter(i -> limit.tryAcquire(1.0)).count()).isEqualTo(10);
+        assertThat(limit.getInFlight()).isEqualTo(20);
+
+        limit.release();
+
+        assertThat(limit.tryAcquire(0.5)).isFalse();
+        assertThat(limit.tryAcquire(1.0)).isTrue();
+    }
+
+    @Test
+    void growsWhileLatencyStaysWithinTolerance() {
+        saturate(RTT, 20);
+
+        assertThat(limit.getLimit()).isGreaterThan(40);
+    }
+
+    @Test
+    void shrinksToTheMinimumWhenLatencyClimbs() {
+        saturate(RTT, 5);
+        int avant = limit.getLimit();
+
+        saturate(10 * RTT, 1);
+        assertThat(limit.getLimit()).isLessThan(avant);
+
+        saturate(10 * RTT, 100);
+        assertThat(limit.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void recoversOnceLatencyIsBackToNormal() {
+        saturate(RTT, 5);
+        saturate(10 * RTT, 100);
+
+        saturate(RTT, 20);
+
+        assertThat(limit.getLimit()).isGreaterThan(10);
+    }
+
+    @Test
+    void lightTrafficLeavesTheLimitUnchanged() {
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(i % 2 == 0 ? RTT : 10 * RTT, 2);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    void neverExceedsTheMaximum() {
+        saturate(RTT, 1000);
+
+        assertThat(limit.getLimit()).isEqualTo(200);
+    }
+
+    /**
+     * Fenêtres où la limite courante est entièrement occupée.
+     */
+    private void saturate(long rttNanos, int windows) {
+        for (int i = 0; i < windows; i++) {
+            limit.onSample(rttNanos, limit.getLimit());
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.irrigation.water.accounting;
+
+import com.irrigation.water.entity.Reservoir;
+import com.irrigation.water.repository.ReservoirRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moteur de comptabilité de l'eau.
+ *
+ * Chaque réservoir a un compteur atomique en mémoire : les mesures de débit acceptées
+ * y prélèvent leur volume, les réservations y bloquent du volume, et les contrôles de
+ * disponibilité y sont répondus sans requête SQL. Un prélèvement qui rendrait le
+ * réservoir négatif est refusé. Une mesure rattachée à une réservation consomme le volume
+ * réservé plutôt que le disponible. Les prélèvements sont retirés périodiquement de la base.
+ * Chaque mouvement repositionne le réservoir dans le {@link ReservoirPriorityIndex}.
+ */
+@Slf4j
+@Component
+public class ReservoirAccounting {
+
+    private record Reservation(Long reservoirId, long amount, long expiresAtNanos) {
+    }
+
+    private final ReservoirRepository reservoirRepository;
+    private final ReservoirPriorityIndex priorityIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final double samplingHours;
+    private final long reservationTtlNanos;
+
+    private final Map<Long, VolumeCounter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+    // Total disponible, maintenu à chaque mouvement (évite de sommer tous les compteurs)
+    private final LongAdder totalAvailable = new LongAdder();
+
+    public ReservoirAccounting(ReservoirRepository reservoirRepository,
+                               ReservoirPriorityIndex priorityIndex,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${water.accounting.sampling-seconds:60}") long samplingSeconds,
+                               @Value("${water.accounting.reservation-ttl-seconds:900}") long reservationTtlSeconds) {
+        this.reservoirRepository = reservoirRepository;
+        this.priorityIndex = priorityIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.samplingHours = samplingSeconds / 3600.0;
+        this.reservationTtlNanos = Duration.ofSeconds(reservationTtlSeconds).toNanos();
+    }
+
+    @PostConstruct
+    void load() {
+        reservoirRepository.findAll().forEach(this::register);
+        log.info("💧 Water accounting loaded {} reservoirs", counters.size());
+    }
+
+    // ==================== Cycle de vie des réservoirs ====================
+
+    public void recordCreated(Reservoir reservoir) {
+        afterCommit(() -> register(reservoir));
+    }
+
+    public void recordUpdated(Reservoir reservoir) {
+        afterCommit(() -> {
+            VolumeCounter counter = counters.get(reservoir.getId());
+            if (counter == null) {
+                register(reservoir);
+                return;
+            }
+            long before = counter.available();
+            counter.reset(VolumeCounter.toUnits(reservoir.getVolumeActuel()),
+                    VolumeCounter.toUnits(reservoir.getCapaciteTotale()));
+            totalAvailable.add(counter.available() - before);
+            priorityIndex.update(reservoir.getId(), counter);
+        });
+    }
+
+    public void recordDeleted(Long reservoirId) {
+        afterCommit(() -> {
+            VolumeCounter counter = counters.remove(reservoirId);
+            if (counter != null) {
+                totalAvailable.add(-counter.available());
+            }
+            priorityIndex.remove(reservoirId);
+        });
+    }
+
+    // ==================== Prélèvements ====================
+
+    /**
+     * Volume correspondant à une mesure de débit (débit horaire × période d'échantillonnage).
+     */
+    public double volumeForDebit(double debit) {
+        return debit * samplingHours;
+    }
+
+    /**
+     * Prélève le volume d'une mesure de débit, d'abord sur la réservation donnée : le volume
+     * réservé pour l'irrigation est consommé au lieu d'être prélevé une seconde fois sur le
+     * disponible. Le reste (réservation épuisée ou absente) est prélevé sur le disponible.
+     * Une réservation entièrement consommée est libérée. Annulé automatiquement si la
+     * transaction courante est annulée.
+     *
+     * @param reservationId Réservation de l'irrigation mesurée, ou null
+     * @throws RuntimeException si le réservoir est inconnu ou insuffisant, ou si la réservation
+     *                          porte sur un autre réservoir
+     */
+    public void draw(Long reservoirId, double volume, String reservationId) {
+        VolumeCounter counter = counter(reservoirId);
+        long amount = VolumeCounter.toUnits(volume);
+        Reservation taken = reservationId != null ? consumeReservation(reservationId, reservoirId, amount) : null;
+        long fromReservation = taken != null ? taken.amount() : 0;
+        long fromAvailable = amount - fromReservation;
+        if (fromAvailable > 0 && !counter.tryDraw(fromAvailable)) {
+            restoreReservation(reservationId, taken);
+            throw new RuntimeException(String.format(
+                    "⚠️ Insufficient water in reservoir %d: %.2f requested, %.2f available",
+                    reservoirId, volume, VolumeCounter.toVolume(counter.available())));
+        }
+        counter.drawReserved(fromReservation);
+        totalAvailable.add(-fromAvailable);
+        priorityIndex.update(reservoirId, counter);
+        onRollback(() -> {
+            counter.refundReserved(fromReservation);
+            restoreReservation(reservationId, taken);
+            refund(reservoirId, VolumeCounter.toVolume(fromAvailable));
+        });
+    }
+
+    /**
+     * Rend un volume prélevé (mesure finalement non persistée).
+     */
+    public void refund(Long reservoirId, double volume) {
+        VolumeCounter counter = counters.get(reservoirId);
+        if (counter != null) {
+            long amount = VolumeCounter.toUnits(volume);
+            counter.refund(amount);
+            totalAvailable.add(amount);
+            priorityIndex.update(reservoirId, counter);
+        }
+    }
+
+    // ==================== Réservations ====================
+
+    /**
+     * Bloque un volume pour une irrigation à venir.
+     *
+     * @return L'identifiant de réservation, ou null si le volume n'est pas disponible
+     */
+    public String reserve(Long reservoirId, double volume) {
+        VolumeCounter counter = counter(reservoirId);
+        long amount = VolumeCounter.toUnits(volume);
+        if (!counter.tryReserve(amount)) {
+            return null;
+        }
+        totalAvailable.add(-amount);
+        String id = UUID.randomUUID().toString();
+        reservations.put(id, new Reservation(reservoirId, amount, System.nanoTime() + reservationTtlNanos));
+        return id;
+    }
+
+    /**
+     * Libère une réservation (fin ou annulation de l'irrigation).
+     */
+    public boolean release(String reservationId) {
+        Reservation reservation = reservations.remove(reservationId);
+        if (reservation == null) {
+            return false;
+        }
+        VolumeCounter counter = counters.get(reservation.reservoirId());
+        if (counter != null) {
+            counter.release(reservation.amount());
+            totalAvailable.add(reservation.amount());
+        }
+        return true;
+    }
+
+    /**
+     * Retire jusqu'à {@code amount} d'une réservation ; la réservation épuisée disparaît.
+     *
+     * @return La part prise sur la réservation, ou null si elle est inconnue ou expirée
+     */
+    private Reservation consumeReservation(String reservationId, Long reservoirId, long amount) {
+        Reservation[] taken = new Reservation[1];
+        reservations.computeIfPresent(reservationId, (id, reservation) -> {
+            if (!reservation.reservoirId().equals(reservoirId)) {
+                throw new RuntimeException("Reservation " + reservationId + " is on reservoir "
+                        + reservation.reservoirId() + ", not " + reservoirId);
+            }
+            long part = Math.min(amount, reservation.amount());
+            taken[0] = new Reservation(reservoirId, part, reservation.expiresAtNanos());
+            long left = reservation.amount() - part;
+            return left > 0 ? new Reservation(reservoirId, left, reservation.expiresAtNanos()) : null;
+        });
+        return taken[0];
+    }
+
+    /**
+     * Rend à sa réservation (recréée si elle avait été épuisée) la part consommée par une mesure
+     * annulée.
+     */
+    private void restoreReservation(String reservationId, Reservation taken) {
+        if (taken != null) {
+            reservations.merge(reservationId, taken, (current, part) ->
+                    new Reservation(current.reservoirId(), current.amount() + part.amount(), current.expiresAtNanos()));
+        }
+    }
+
+    // ==================== Lectures ====================
+
+    public boolean isAvailable(double volume) {
+        return totalAvailable.sum() >= VolumeCounter.toUnits(volume);
+    }
+
+    public double getTotalAvailable() {
+        return VolumeCounter.toVolume(totalAvailable.sum());
+    }
+
+    /**
+     * @return Le volume physique courant du réservoir, s'il est suivi
+     */
+    public OptionalDouble currentVolume(Long reservoirId) {
+        VolumeCounter counter = counters.get(reservoirId);
+        return counter != null ? OptionalDouble.of(VolumeCounter.toVolume(counter.physical())) : OptionalDouble.empty();
+    }
+
+    /**
+     * @return Le volume prélevable (hors réservations) de chaque réservoir suivi
+     */
+    public Map<Long, Double> availableVolumes() {
+        Map<Long, Double> result = new HashMap<>(counters.size());
+        counters.forEach((id, counter) -> result.put(id, VolumeCounter.toVolume(counter.available())));
+        return result;
+    }
+
+    // ==================== Persistance ====================
+
+    /**
+     * Retire de la base les volumes prélevés depuis le dernier flush, recale chaque compteur
+     * sur le volume relu (prélèvements des autres instances compris) et expire les réservations
+     * abandonnées.
+     */
+    @Scheduled(fixedDelayString = "${water.accounting.flush-interval-ms:5000}")
+    public void flush() {
+        long now = System.nanoTime();
+        reservations.entrySet().removeIf(entry -> {
+            Reservation reservation = entry.getValue();
+            if (now - reservation.expiresAtNanos() < 0) {
+                return false;
+            }
+            VolumeCounter counter = counters.get(reservation.reservoirId());
+            if (counter != null) {
+                counter.release(reservation.amount());
+                totalAvailable.add(reservation.amount());
+            }
+            log.warn("💧 Reservation {} on reservoir {} expired", entry.getKey(), reservation.reservoirId());
+            return true;
+        });
+
+        counters.forEach((id, counter) -> {
+            long delta = counter.takePending();
+            if (delta == 0) {
+                return;
+            }
+            try {
+                Double volume = transactionTemplate.execute(status -> persistDelta(id, delta));
+                if (volume != null) {
+                    totalAvailable.add(counter.synced(delta, VolumeCounter.toUnits(volume)));
+                    priorityIndex.update(id, counter);
+                }
+            } catch (RuntimeException e) {
+                counter.restorePending(delta);
+                log.error("❌ Failed to flush volume of reservoir {}: {}", id, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Retire de la base le volume prélevé ici depuis le dernier flush, sans écraser les
+     * prélèvements des autres instances, puis relit le volume obtenu.
+     *
+     * @return Le volume en base après retrait, ou null si le réservoir n'existe plus
+     */
+    private Double persistDelta(Long id, long delta) {
+        double volume = VolumeCounter.toVolume(delta);
+        if (reservoirRepository.drawVolume(id, volume) == 0 && reservoirRepository.empty(id) > 0) {
+            // Plus assez en base : d'autres instances ont prélevé sur ce réservoir en même temps
+            log.error("❌ Reservoir {} held less than the {} drawn here since the last flush: emptied", id, volume);
+        }
+        return reservoirRepository.findVolumeActuel(id).orElse(null);
+    }
+
+    private void register(Reservoir reservoir) {
+        VolumeCounter counter = new VolumeCounter(VolumeCounter.toUnits(reservoir.getVolumeActuel()),
+                VolumeCounter.toUnits(reservoir.getCapaciteTotale()));
+        VolumeCounter previous = counters.put(reservoir.getId(), counter);
+        if (previous != null) {
+            totalAvailable.add(-previous.available());
+        }
+        totalAvailable.add(counter.available());
+        priorityIndex.update(reservoir.getId(), counter);
+    }
+
+    private VolumeCounter counter(Long reservoirId) {
+        VolumeCounter counter = counters.get(reservoirId);
+        if (counter == null) {
+            throw new RuntimeException("Reservoir not found with id: " + reservoirId);
+        }
+        return counter;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static void onRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.irrigation.water.accounting;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Index des réservoirs trié par taux de remplissage (volumeActuel / capaciteTotale).
+ *
+ * Maintenu par {@link ReservoirAccounting} à chaque création, modification et mouvement
+ * de volume. Une mise à jour coûte O(log n) ; les réservoirs les plus critiques et ceux
+ * sous un seuil sont lus en O(log n + k) sans toucher la base.
+ */
+@Component
+public class ReservoirPriorityIndex {
+
+    /**
+     * Position d'un réservoir dans l'index.
+     */
+    public record ReservoirFill(Long reservoirId, double fillRatio) {
+    }
+
+    private static final Comparator<ReservoirFill> BY_FILL_RATIO =
+            Comparator.comparingDouble(ReservoirFill::fillRatio).thenComparing(ReservoirFill::reservoirId);
+
+    private final NavigableSet<ReservoirFill> byFillRatio = new ConcurrentSkipListSet<>(BY_FILL_RATIO);
+    private final Map<Long, ReservoirFill> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Repositionne un réservoir. Le taux est relu dans le compteur sous le verrou de la clé,
+     * de sorte que deux mises à jour concurrentes laissent toujours la valeur la plus récente.
+     */
+    void update(Long reservoirId, VolumeCounter counter) {
+        entries.compute(reservoirId, (id, previous) -> {
+            if (previous != null) {
+                byFillRatio.remove(previous);
+            }
+            ReservoirFill current = new ReservoirFill(id, fillRatio(counter));
+            byFillRatio.add(current);
+            return current;
+        });
+    }
+
+    void remove(Long reservoirId) {
+        entries.computeIfPresent(reservoirId, (id, previous) -> {
+            byFillRatio.remove(previous);
+            return null;
+        });
+    }
+
+    /**
+     * @return Les {@code limit} réservoirs les moins remplis, du plus critique au moins critique
+     */
+    public List<ReservoirFill> mostCritical(int limit) {
+        List<ReservoirFill> result = new ArrayList<>(Math.min(limit, entries.size()));
+        Iterator<ReservoirFill> it = byFillRatio.iterator();
+        while (result.size() < limit && it.hasNext()) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    /**
+     * @return Les réservoirs dont le taux de remplissage est strictement inférieur au seuil
+     */
+    public List<ReservoirFill> below(double threshold) {
+        return new ArrayList<>(byFillRatio.headSet(new ReservoirFill(Long.MIN_VALUE, threshold), false));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static double fillRatio(VolumeCounter counter) {
+        long capacity = counter.capacity();
+        return capacity > 0 ? (double) counter.physical() / capacity : 0.0;
+    }
+}
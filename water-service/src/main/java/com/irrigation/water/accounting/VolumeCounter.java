@@ -0,0 +1,155 @@
+package com.irrigation.water.accounting;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compteur de volume d'un réservoir, en virgule fixe (millièmes d'unité de volume).
+ *
+ * {@code available} = volume physique - volume réservé. Les prélèvements et réservations
+ * sont des CAS sur ce seul compteur, ce qui garantit qu'il ne devient jamais négatif
+ * même sous forte concurrence, sans verrou.
+ *
+ * Les prélèvements non encore recopiés en base sont cumulés dans {@code pending} : la base
+ * reçoit ce delta (et non un volume absolu qui écraserait les prélèvements des autres
+ * instances), puis {@code persisted} et le compteur sont recalés sur le volume relu.
+ */
+class VolumeCounter {
+
+    static final double SCALE = 1000.0;
+
+    private final AtomicLong available = new AtomicLong();
+    private final AtomicLong reserved = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+    // Volume en base au dernier recalage (avant les prélèvements en attente)
+    private volatile long persisted;
+    private volatile long capacity;
+
+    VolumeCounter(long volume, long capacity) {
+        this.available.set(volume);
+        this.persisted = volume;
+        this.capacity = capacity;
+    }
+
+    static long toUnits(double volume) {
+        return Math.round(volume * SCALE);
+    }
+
+    static double toVolume(long units) {
+        return units / SCALE;
+    }
+
+    /**
+     * Prélève {@code amount} si le volume disponible le permet.
+     */
+    boolean tryTake(long amount) {
+        long current;
+        do {
+            current = available.get();
+            if (current < amount) {
+                return false;
+            }
+        } while (!available.compareAndSet(current, current - amount));
+        return true;
+    }
+
+    void giveBack(long amount) {
+        available.addAndGet(amount);
+    }
+
+    /**
+     * Prélèvement physique (mesure de débit) : à retirer de la base au prochain flush.
+     */
+    boolean tryDraw(long amount) {
+        if (tryTake(amount)) {
+            pending.addAndGet(amount);
+            return true;
+        }
+        return false;
+    }
+
+    void refund(long amount) {
+        available.addAndGet(amount);
+        pending.addAndGet(-amount);
+    }
+
+    /**
+     * Prélèvement physique sur un volume déjà réservé (mesure d'une irrigation réservée) :
+     * le disponible ne bouge pas, la réservation fond.
+     */
+    void drawReserved(long amount) {
+        reserved.addAndGet(-amount);
+        pending.addAndGet(amount);
+    }
+
+    /**
+     * Annule {@link #drawReserved} (mesure finalement non persistée).
+     */
+    void refundReserved(long amount) {
+        reserved.addAndGet(amount);
+        pending.addAndGet(-amount);
+    }
+
+    boolean tryReserve(long amount) {
+        if (tryTake(amount)) {
+            reserved.addAndGet(amount);
+            return true;
+        }
+        return false;
+    }
+
+    void release(long amount) {
+        reserved.addAndGet(-amount);
+        available.addAndGet(amount);
+    }
+
+    /**
+     * Réinitialise le volume physique après une correction manuelle (updateReservoir),
+     * déjà écrite en base.
+     */
+    void reset(long volume, long capacity) {
+        this.capacity = capacity;
+        pending.set(0);
+        persisted = volume;
+        available.set(volume - reserved.get());
+    }
+
+    /**
+     * @return Le delta à retirer de la base, désormais considéré comme recopié
+     */
+    long takePending() {
+        return pending.getAndSet(0);
+    }
+
+    /**
+     * Remet en attente un delta dont la recopie a échoué.
+     */
+    void restorePending(long delta) {
+        pending.addAndGet(delta);
+    }
+
+    /**
+     * Recale le compteur sur le volume relu en base après y avoir retiré {@code delta} :
+     * l'écart avec le volume attendu (prélèvements d'autres instances, correction SQL)
+     * est reporté sur le disponible.
+     *
+     * @return L'écart appliqué au disponible
+     */
+    long synced(long delta, long volume) {
+        long drift = volume - (persisted - delta);
+        persisted = volume;
+        available.addAndGet(drift);
+        return drift;
+    }
+
+    long available() {
+        return available.get();
+    }
+
+    long physical() {
+        return available.get() + reserved.get();
+    }
+
+    long capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,212 @@
+package com.irrigation.water.anomaly;
+
+import java.util.Arrays;
+
+/**
+ * Lignes de base des débits d'un groupe de pompes : moyenne et variance mobiles
+ * exponentielles (EWMA), dernière valeur et nombre de répétitions, dans des colonnes
+ * primitives indexées par une table de hachage ouverte (sondage linéaire) sur l'ID de pompe.
+ *
+ * Une mise à jour ne fait aucune allocation, hors agrandissement de la table à
+ * l'arrivée de nouvelles pompes. Non thread-safe : l'appelant synchronise
+ * (voir {@link FlowAnomalyDetector}).
+ */
+final class EwmaBaselines {
+
+    // Codes = ordinal de FlowAnomalyEvent.Type
+    static final int NONE = -1;
+    static final int PIC = 0;
+    static final int CHUTE = 1;
+    static final int CAPTEUR_FIGE = 2;
+
+    private static final int TYPES = 3;
+
+    private final double alpha;
+    private final double threshold;
+    private final double relativeFloor;
+    private final long warmupReadings;
+    private final int stuckRepeats;
+    private final long cooldownMillis;
+
+    private long[] keys;
+    private boolean[] used;
+    private double[] means;
+    private double[] variances;
+    private double[] lasts;
+    private long[] counts;
+    private int[] repeats;
+    private long[] lastAlerts;
+    private int size;
+
+    // Ligne de base avant la dernière mise à jour, lue par l'appelant quand une anomalie est signalée
+    private double lastMean;
+    private double lastEcartType;
+    private double lastScore;
+
+    EwmaBaselines(int initialCapacity, double alpha, double threshold, double relativeFloor,
+                  long warmupReadings, int stuckRepeats, long cooldownMillis) {
+        this.alpha = alpha;
+        this.threshold = threshold;
+        this.relativeFloor = relativeFloor;
+        this.warmupReadings = warmupReadings;
+        this.stuckRepeats = stuckRepeats;
+        this.cooldownMillis = cooldownMillis;
+        allocate(Integer.highestOneBit(Math.max(4, initialCapacity - 1)) << 1);
+    }
+
+    /**
+     * Intègre une mesure à la ligne de base de sa pompe.
+     *
+     * Pic ou chute : écart à la moyenne supérieur à {@code threshold} écarts types, une fois
+     * la pompe rodée ({@code warmupReadings} mesures). L'écart type est borné par
+     * {@code relativeFloor} × moyenne pour qu'une série très stable ne déclenche pas sur du bruit.
+     * Capteur figé : {@code stuckRepeats} valeurs non nulles identiques consécutives (un débit
+     * nul répété est une pompe à l'arrêt). La mesure est écrêtée à ±threshold écarts types avant
+     * d'entrer dans la moyenne, pour qu'une anomalie isolée ne déforme pas la ligne de base.
+     * Une même anomalie n'est signalée qu'une fois par {@code cooldownMillis} et par pompe.
+     *
+     * @return Le code de l'anomalie détectée ({@link #PIC}, {@link #CHUTE}, {@link #CAPTEUR_FIGE}) ou {@link #NONE}
+     */
+    int update(long pompeId, long timestamp, double debit) {
+        int slot = slotOf(pompeId);
+        long count = counts[slot];
+        if (count == 0) {
+            means[slot] = debit;
+            variances[slot] = 0.0;
+            lasts[slot] = debit;
+            repeats[slot] = 0;
+            counts[slot] = 1;
+            return NONE;
+        }
+
+        double mean = means[slot];
+        double ecartType = Math.max(Math.sqrt(variances[slot]), relativeFloor * Math.abs(mean));
+        lastMean = mean;
+        lastEcartType = ecartType;
+        lastScore = 0.0;
+
+        int anomaly = NONE;
+        double x = debit;
+        if (count >= warmupReadings && ecartType > 0) {
+            double score = (debit - mean) / ecartType;
+            if (score > threshold) {
+                anomaly = PIC;
+                x = mean + threshold * ecartType;
+            } else if (score < -threshold) {
+                anomaly = CHUTE;
+                x = mean - threshold * ecartType;
+            }
+            lastScore = score;
+        }
+
+        if (debit == lasts[slot] && debit != 0.0) {
+            if (++repeats[slot] == stuckRepeats && anomaly == NONE) {
+                anomaly = CAPTEUR_FIGE;
+                lastScore = 0.0;
+            }
+        } else {
+            repeats[slot] = 0;
+            lasts[slot] = debit;
+        }
+
+        double diff = x - mean;
+        double increment = alpha * diff;
+        means[slot] = mean + increment;
+        variances[slot] = (1 - alpha) * (variances[slot] + diff * increment);
+        counts[slot] = count + 1;
+
+        if (anomaly != NONE) {
+            int alert = slot * TYPES + anomaly;
+            if (timestamp - lastAlerts[alert] < cooldownMillis) {
+                return NONE;
+            }
+            lastAlerts[alert] = timestamp;
+        }
+        return anomaly;
+    }
+
+    double lastMean() {
+        return lastMean;
+    }
+
+    double lastEcartType() {
+        return lastEcartType;
+    }
+
+    double lastScore() {
+        return lastScore;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slotOf(long pompeId) {
+        int mask = keys.length - 1;
+        int slot = mix(pompeId) & mask;
+        while (used[slot]) {
+            if (keys[slot] == pompeId) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+            return slotOf(pompeId);
+        }
+        used[slot] = true;
+        keys[slot] = pompeId;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        double[] oldMeans = means;
+        double[] oldVariances = variances;
+        double[] oldLasts = lasts;
+        long[] oldCounts = counts;
+        int[] oldRepeats = repeats;
+        long[] oldLastAlerts = lastAlerts;
+
+        allocate(oldKeys.length << 1);
+        int mask = keys.length - 1;
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (!oldUsed[old]) {
+                continue;
+            }
+            int slot = mix(oldKeys[old]) & mask;
+            while (used[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            keys[slot] = oldKeys[old];
+            means[slot] = oldMeans[old];
+            variances[slot] = oldVariances[old];
+            lasts[slot] = oldLasts[old];
+            counts[slot] = oldCounts[old];
+            repeats[slot] = oldRepeats[old];
+            System.arraycopy(oldLastAlerts, old * TYPES, lastAlerts, slot * TYPES, TYPES);
+            size++;
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        used = new boolean[capacity];
+        means = new double[capacity];
+        variances = new double[capacity];
+        lasts = new double[capacity];
+        counts = new long[capacity];
+        repeats = new int[capacity];
+        lastAlerts = new long[capacity * TYPES];
+        Arrays.fill(lastAlerts, Long.MIN_VALUE / 2);
+        size = 0;
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
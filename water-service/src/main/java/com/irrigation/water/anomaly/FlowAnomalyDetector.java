@@ -0,0 +1,87 @@
+package com.irrigation.water.anomaly;
+
+import com.irrigation.commons.timeseries.EpochTime;
+import com.irrigation.events.FlowAnomalyEvent;
+import com.irrigation.water.publisher.FlowAnomalyPublisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Détection en ligne des anomalies de débit (fuite, canalisation obstruée, capteur figé).
+ *
+ * Chaque mesure acceptée met à jour la ligne de base EWMA de sa pompe ({@link EwmaBaselines}).
+ * Les pompes sont réparties sur des segments indépendants, chacun protégé par son propre
+ * verrou : des mesures de pompes différentes se mettent à jour en parallèle, sans allocation.
+ * Seule une anomalie (rare) construit un événement, publié après commit.
+ */
+@Component
+public class FlowAnomalyDetector {
+
+    private static final FlowAnomalyEvent.Type[] TYPES = FlowAnomalyEvent.Type.values();
+
+    private final EwmaBaselines[] segments;
+    private final Consumer<FlowAnomalyEvent> sink;
+    private final boolean enabled;
+
+    @Autowired
+    public FlowAnomalyDetector(FlowAnomalyPublisher publisher,
+                               @Value("${water.anomaly.enabled:true}") boolean enabled,
+                               @Value("${water.anomaly.segments:16}") int segments,
+                               @Value("${water.anomaly.alpha:0.05}") double alpha,
+                               @Value("${water.anomaly.threshold:4.0}") double threshold,
+                               @Value("${water.anomaly.relative-floor:0.05}") double relativeFloor,
+                               @Value("${water.anomaly.warmup-readings:30}") long warmupReadings,
+                               @Value("${water.anomaly.stuck-repeats:20}") int stuckRepeats,
+                               @Value("${water.anomaly.cooldown-minutes:15}") long cooldownMinutes) {
+        this(publisher::publish, enabled, segments, alpha, threshold, relativeFloor,
+                warmupReadings, stuckRepeats, Duration.ofMinutes(cooldownMinutes).toMillis());
+    }
+
+    FlowAnomalyDetector(Consumer<FlowAnomalyEvent> sink, boolean enabled, int segments, double alpha,
+                        double threshold, double relativeFloor, long warmupReadings, int stuckRepeats,
+                        long cooldownMillis) {
+        this.sink = sink;
+        this.enabled = enabled;
+        this.segments = new EwmaBaselines[Integer.highestOneBit(Math.max(1, segments))];
+        for (int i = 0; i < this.segments.length; i++) {
+            this.segments[i] = new EwmaBaselines(64, alpha, threshold, relativeFloor,
+                    warmupReadings, stuckRepeats, cooldownMillis);
+        }
+    }
+
+    public void accept(long pompeId, LocalDateTime dateMesure, double debit) {
+        accept(pompeId, EpochTime.toEpochMillis(dateMesure), debit);
+    }
+
+    /**
+     * Intègre un upload en colonnes, dans l'ordre des lignes.
+     */
+    public void accept(int size, long[] pompeIds, long[] timestamps, double[] debits) {
+        for (int row = 0; row < size; row++) {
+            accept(pompeIds[row], timestamps[row], debits[row]);
+        }
+    }
+
+    void accept(long pompeId, long timestamp, double debit) {
+        if (!enabled) {
+            return;
+        }
+        EwmaBaselines segment = segments[(EwmaBaselines.mix(pompeId) >>> 24) & (segments.length - 1)];
+        FlowAnomalyEvent event = null;
+        synchronized (segment) {
+            int anomaly = segment.update(pompeId, timestamp, debit);
+            if (anomaly != EwmaBaselines.NONE) {
+                event = new FlowAnomalyEvent(pompeId, TYPES[anomaly], debit, segment.lastMean(),
+                        segment.lastEcartType(), segment.lastScore(), EpochTime.toLocalDateTime(timestamp));
+            }
+        }
+        if (event != null) {
+            sink.accept(event);
+        }
+    }
+}
@@ -5,11 +5,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Synchronous REST Client to Energy Service
  * Eau → Énergie: Check electrical availability before pump start
+ * Pump-scoped calls carry the pompe ID in the path or query, so the load balancer
+ * sends them to the energy-service instance owning the pump
  */
 @Slf4j
 @Component
@@ -22,13 +26,15 @@ public class EnergyServiceClient {
 
     /**
      * SYNCHRONOUS CALL: Check if energy is available before starting pump
+     * Sent to the instance owning the pump, which answers from its in-memory power budget
      * 
      * @param requiredPower Power required in kW
+     * @param pompeId ID of the pompe to start
      * @return true if energy available, false otherwise
      */
-    public boolean checkEnergyAvailability(Double requiredPower) {
-        String url = String.format("http://%s/pompes/energy/check?requiredPuissance=%s", 
-                                   ENERGY_SERVICE_NAME, requiredPower);
+    public boolean checkEnergyAvailability(Double requiredPower, Long pompeId) {
+        String url = String.format("http://%s/pompes/energy/check?requiredPuissance=%s&pompeId=%d", 
+                                   ENERGY_SERVICE_NAME, requiredPower, pompeId);
         
         try {
             log.info("⚡ SYNC CALL → Energy Service: Checking availability for {}kW", requiredPower);
@@ -78,4 +84,27 @@ public class EnergyServiceClient {
             return false;
         }
     }
+
+    /**
+     * SYNCHRONOUS CALL: Fetch the whole pump fleet (power, status, energy status)
+     * for the irrigation planner
+     * 
+     * @return One map per pompe, as returned by GET /pompes
+     */
+    public List<Map<String, Object>> getPompes() {
+        String url = String.format("http://%s/pompes", ENERGY_SERVICE_NAME);
+        
+        try {
+            log.info("⚡ SYNC CALL → Energy Service: Fetching pump fleet for planning");
+            
+            @SuppressWarnings("unchecked")
+            Map<String, Object>[] response = restTemplate.getForObject(url, Map[].class);
+            
+            return response != null ? Arrays.asList(response) : List.of();
+            
+        } catch (Exception e) {
+            log.error("❌ Failed to fetch pump fleet: {}", e.getMessage());
+            throw new RuntimeException("Energy Service unreachable", e);
+        }
+    }
 }
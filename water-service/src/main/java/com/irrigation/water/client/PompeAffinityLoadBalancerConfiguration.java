@@ -0,0 +1,23 @@
+package com.irrigation.water.client;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Configuration du contexte load balancer d'energy-service (voir RestTemplateConfig).
+ * Volontairement sans @Configuration : elle ne doit pas être vue par le scan de composants,
+ * sinon elle s'appliquerait à tous les services appelés.
+ */
+public class PompeAffinityLoadBalancerConfiguration {
+
+    @Bean
+    ReactorLoadBalancer<ServiceInstance> pompeAffinityLoadBalancer(Environment environment,
+                                                                   LoadBalancerClientFactory factory) {
+        String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new PompeAffinityLoadBalancer(factory.getLazyProvider(name, ServiceInstanceListSupplier.class));
+    }
+}
@@ -0,0 +1,46 @@
+package com.irrigation.water.config;
+
+import com.irrigation.commons.jpa.ReadWriteDataSources;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+
+/**
+ * Pools d'écriture et de lecture (service-commons, {@link ReadWriteDataSources}).
+ * Métriques hikaricp.*, tag pool water-write / water-read.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    public HikariDataSource writeDataSource(DataSourceProperties properties,
+                                            @Value("${water.datasource.write.maximum-pool-size:10}") int maximumPoolSize) {
+        return ReadWriteDataSources.writePool(properties, "water-write", maximumPoolSize);
+    }
+
+    @Bean
+    public HikariDataSource readDataSource(DataSourceProperties properties,
+                                           @Value("${water.datasource.read.url:}") String url,
+                                           @Value("${water.datasource.read.username:}") String username,
+                                           @Value("${water.datasource.read.password:}") String password,
+                                           @Value("${water.datasource.read.maximum-pool-size:10}") int maximumPoolSize) {
+        return ReadWriteDataSources.readPool(properties, "water-read", url, username, password, maximumPoolSize);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource writeDataSource, HikariDataSource readDataSource) {
+        return ReadWriteDataSources.routing(writeDataSource, readDataSource);
+    }
+
+    @Bean
+    static BeanPostProcessor replicaReadJpaDialect(@Value("${water.datasource.read.url:}") String url) {
+        return ReadWriteDataSources.replicaReadJpaDialect(url);
+    }
+}
@@ -0,0 +1,53 @@
+package com.irrigation.water.config;
+
+import com.irrigation.events.FlowAnomalyEvent;
+import com.irrigation.events.MeasurementRecordedEvent;
+import com.irrigation.events.OverconsumptionEvent;
+import com.irrigation.water.listener.MeasurementListener;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+/**
+ * Indications d'exécution pour le traitement AOT (profil Maven fast-startup) et une
+ * éventuelle image native.
+ *
+ * Spring Data JPA, Spring AMQP et le client Eureka fournissent leurs propres indications ;
+ * on ne déclare ici que ce que le service fait en dehors de leur analyse : événements
+ * lus et écrits en JSON par EventMessageConverter, méthode @RabbitListener invoquée par
+ * réflexion, proxy JDK de LazyConnectionDataSourceProxy, fournisseur JCache chargé par
+ * son nom et fichiers lus depuis le classpath.
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.ServiceHints.class)
+@RegisterReflectionForBinding({
+        OverconsumptionEvent.class,
+        MeasurementRecordedEvent.class,
+        FlowAnomalyEvent.class
+})
+public class NativeHintsConfig {
+
+    static class ServiceHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.reflection().registerType(MeasurementListener.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+
+            // Connexions physiques obtenues à la première requête (DataSourceConfig)
+            hints.proxies().registerJdkProxy(ConnectionProxy.class);
+
+            // hibernate.javax.cache.provider
+            hints.reflection().registerTypeIfPresent(classLoader, "org.ehcache.jsr107.EhcacheCachingProvider",
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+
+            // Régions de cache Hibernate et schéma du profil postgres
+            hints.resources()
+                    .registerPattern("ehcache.xml")
+                    .registerPattern("db/postgres/*.sql");
+        }
+    }
+}
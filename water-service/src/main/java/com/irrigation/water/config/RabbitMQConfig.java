@@ -1,24 +1,45 @@
 package com.irrigation.water.config;
 
+import com.irrigation.events.OverconsumptionShards;
+import com.irrigation.events.codec.EventFormat;
+import com.irrigation.events.codec.EventMessageConverter;
+import com.irrigation.water.listener.DeadLetterErrorHandler;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.ContainerCustomizer;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
  * Configuration RabbitMQ pour le microservice Eau.
- * Définit l'exchange, la queue et le binding pour consommer les événements de surconsommation.
+ * Définit l'exchange, les queues et les bindings pour consommer les événements de surconsommation.
+ *
+ * Topologie shardée décrite par {@link OverconsumptionShards} (event-contracts), la même
+ * que dans le microservice Énergie (voir OverconsumptionShardListeners pour la consommation,
+ * un consumer par shard).
  */
 @Configuration
 public class RabbitMQConfig {
     
-    // Mêmes valeurs que dans le microservice Énergie
+    // Même valeur que dans le microservice Énergie
     public static final String EXCHANGE = "irrigation.exchange";
-    public static final String QUEUE = "overconsumption.queue";
-    public static final String ROUTING_KEY = "overconsumption.routing.key";
+    
+    // Queue de la projection d'efficacité des pompes (mesures des deux microservices)
+    public static final String MEASUREMENT_QUEUE = "efficiency.projection.queue";
+    public static final String MEASUREMENT_ROUTING_KEY = "measurement.recorded";
+    
+    // Queue des anomalies de débit (consommée par la supervision)
+    public static final String ANOMALY_QUEUE = "flow.anomaly.queue";
+    public static final String ANOMALY_ROUTING_KEY = "flow.anomaly";
+    
+    // Messages que les consumers n'ont pas pu lire (voir DeadLetterErrorHandler)
+    public static final String DEAD_LETTER_QUEUE = "water.dead-letter.queue";
+    public static final String DEAD_LETTER_ROUTING_KEY = "water.dead-letter";
     
     /**
      * Déclaration de l'exchange Direct
@@ -29,36 +50,82 @@ public class RabbitMQConfig {
     }
     
     /**
-     * Déclaration de la queue durable
+     * Déclaration des queues durables (une par shard) et de leurs bindings
+     */
+    @Bean
+    public Declarables shardedQueues(DirectExchange exchange, @Value("${irrigation.events.shards:4}") int shards) {
+        return OverconsumptionShards.declarables(exchange, shards);
+    }
+    
+    /**
+     * Ancienne queue unique d'avant le sharding, redéclarée à l'identique (durable) pour être
+     * vidée par OverconsumptionShardListeners. Aucun binding n'est ajouté : seuls les messages
+     * restés en attente, ou publiés par un microservice Énergie pas encore mis à jour, y arrivent.
+     * Une fois vide sur toutes les instances, la supprimer (rabbitmqctl delete_queue
+     * overconsumption.queue) et passer irrigation.events.drain-legacy-queue à false.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "irrigation.events.drain-legacy-queue", havingValue = "true", matchIfMissing = true)
+    public Queue legacyOverconsumptionQueue() {
+        return QueueBuilder.durable(OverconsumptionShards.LEGACY_QUEUE).build();
+    }
+    
+    /**
+     * Queue durable des événements de mesure, déclarée par les deux microservices :
+     * les mesures publiées avant le démarrage du consommateur ne sont pas perdues.
+     */
+    @Bean
+    public Declarables measurementQueue(DirectExchange exchange) {
+        Queue queue = QueueBuilder.durable(MEASUREMENT_QUEUE).build();
+        return new Declarables(queue, BindingBuilder.bind(queue).to(exchange).with(MEASUREMENT_ROUTING_KEY));
+    }
+    
+    /**
+     * Queue durable des anomalies de débit, bornée : sans consommateur, les plus
+     * anciennes sont écartées au-delà de {@code water.anomaly.queue-max-length}.
+     */
+    @Bean
+    public Declarables anomalyQueue(DirectExchange exchange,
+                                    @Value("${water.anomaly.queue-max-length:10000}") int maxLength) {
+        Queue queue = QueueBuilder.durable(ANOMALY_QUEUE).maxLength(maxLength).build();
+        return new Declarables(queue, BindingBuilder.bind(queue).to(exchange).with(ANOMALY_ROUTING_KEY));
+    }
+    
+    /**
+     * Queue durable des messages illisibles, bornée par {@code water.dead-letter.queue-max-length} :
+     * à inspecter puis rejouer ou purger à la main.
      */
     @Bean
-    public Queue queue() {
-        return new Queue(QUEUE, true);
+    public Declarables deadLetterQueue(DirectExchange exchange,
+                                       @Value("${water.dead-letter.queue-max-length:100000}") int maxLength) {
+        Queue queue = QueueBuilder.durable(DEAD_LETTER_QUEUE).maxLength(maxLength).build();
+        return new Declarables(queue, BindingBuilder.bind(queue).to(exchange).with(DEAD_LETTER_ROUTING_KEY));
     }
     
     /**
-     * Binding entre l'exchange et la queue via la routing key
+     * Appliqué à tous les containers de listeners (@RabbitListener et shards de surconsommation)
      */
     @Bean
-    public Binding binding(Queue queue, DirectExchange exchange) {
-        return BindingBuilder.bind(queue).to(exchange).with(ROUTING_KEY);
+    public ContainerCustomizer<SimpleMessageListenerContainer> deadLetterContainerCustomizer(RabbitTemplate rabbitTemplate) {
+        return container -> container.setErrorHandler(new DeadLetterErrorHandler(rabbitTemplate));
     }
     
     /**
-     * Convertisseur JSON pour sérialiser/désérialiser les événements
+     * Convertisseur des événements partagés : émet dans le format configuré
+     * (irrigation.events.codec), lit tous les formats d'après le content-type
      */
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter eventMessageConverter(@Value("${irrigation.events.codec:CBOR}") EventFormat codec) {
+        return new EventMessageConverter(codec);
     }
     
     /**
-     * RabbitTemplate configuré avec le convertisseur JSON
+     * RabbitTemplate configuré avec le convertisseur d'événements
      */
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter eventMessageConverter) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
-        template.setMessageConverter(jsonMessageConverter());
+        template.setMessageConverter(eventMessageConverter);
         return template;
     }
 }
@@ -1,6 +1,8 @@
 package com.irrigation.water.config;
 
+import com.irrigation.water.client.PompeAffinityLoadBalancerConfiguration;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
@@ -8,8 +10,10 @@ import org.springframework.web.client.RestTemplate;
 /**
  * REST Template Configuration for Synchronous Communication
  * Enables Water Service to call Energy Service
+ * Pump-scoped calls go to the energy-service instance owning the pump (PompeAffinityLoadBalancer)
  */
 @Configuration
+@LoadBalancerClient(name = "ENERGY-SERVICE", configuration = PompeAffinityLoadBalancerConfiguration.class)
 public class RestTemplateConfig {
     
     @Bean
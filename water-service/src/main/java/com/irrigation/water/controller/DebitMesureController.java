@@ -1,25 +1,61 @@
 package com.irrigation.water.controller;
 
+import com.irrigation.commons.ingestion.IdempotencyConflictException;
+import com.irrigation.commons.ingestion.WriteBehindRejectedException;
 import com.irrigation.water.dto.DebitMesureDTO;
+import com.irrigation.water.export.DebitExporter;
+import com.irrigation.water.export.ExportFormat;
+import com.irrigation.water.ingestion.DebitBulkCodec;
+import com.irrigation.water.ingestion.DebitColumns;
+import com.irrigation.water.ingestion.DebitImporter;
+import com.irrigation.water.ingestion.ImportJob;
+import com.irrigation.water.ingestion.DebitWriteBehind;
 import com.irrigation.water.service.DebitMesureService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/debits")
-@RequiredArgsConstructor
 public class DebitMesureController {
 
+    // Clé fournie par le client pour ses réémissions (ex. identifiant d'équipement + numéro de séquence)
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+    private static final int IDEMPOTENCY_KEY_MAX_LENGTH = 128;
+
     private final DebitMesureService debitMesureService;
+    private final DebitWriteBehind writeBehind;
+    private final DebitExporter exporter;
+    private final DebitImporter importer;
+    private final int bulkMaxRecords;
+
+    public DebitMesureController(DebitMesureService debitMesureService,
+                                 DebitWriteBehind writeBehind,
+                                 DebitExporter exporter,
+                                 DebitImporter importer,
+                                 @Value("${water.bulk.max-records:100000}") int bulkMaxRecords) {
+        this.debitMesureService = debitMesureService;
+        this.writeBehind = writeBehind;
+        this.exporter = exporter;
+        this.importer = importer;
+        this.bulkMaxRecords = bulkMaxRecords;
+    }
 
     @GetMapping
     public ResponseEntity<List<DebitMesureDTO>> getAllDebits() {
@@ -43,10 +79,115 @@ public class DebitMesureController {
         return ResponseEntity.ok(debitMesureService.getDebitsByPeriode(debut, fin));
     }
 
+    @GetMapping("/pompe/{pompeId}/periode")
+    public ResponseEntity<List<DebitMesureDTO>> getDebitsByPompeAndPeriode(
+            @PathVariable Long pompeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime debut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin) {
+        return ResponseEntity.ok(debitMesureService.getDebitsByPompeAndPeriode(pompeId, debut, fin));
+    }
+
+    /**
+     * Export en streaming de l'historique brut (CSV ou NDJSON, gzip optionnel),
+     * pour une pompe ou pour toutes si pompeId est absent.
+     */
+    @GetMapping("/export")
+    public void exportDebits(
+            @RequestParam(required = false) Long pompeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime debut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) {
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        String filename = "debits" + (pompeId != null ? "-pompe-" + pompeId : "")
+                + "." + exportFormat.extension() + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip" : exportFormat.contentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        try {
+            exporter.export(pompeId, debut, fin, exportFormat, gzip, response.getOutputStream());
+        } catch (IOException e) {
+            // Client déconnecté : le curseur est déjà fermé, il n'y a plus personne à qui répondre
+        }
+    }
+
+    /**
+     * Enregistre un débit. Avec l'en-tête Idempotency-Key, une réémission renvoie la mesure
+     * déjà enregistrée (200, Idempotent-Replayed: true) sans rien prélever, écrire ni publier.
+     */
     @PostMapping
-    public ResponseEntity<DebitMesureDTO> createDebit(@Valid @RequestBody DebitMesureDTO dto) {
-        DebitMesureDTO created = debitMesureService.createDebit(dto);
-        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+    public ResponseEntity<DebitMesureDTO> createDebit(
+            @Valid @RequestBody DebitMesureDTO dto,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String cleIdempotence) {
+        checkIdempotencyKey(cleIdempotence);
+        // Avant prepareDebit : une réémission ne doit pas prélever une seconde fois sur le réservoir
+        Optional<DebitMesureDTO> replay = debitMesureService.findByCleIdempotence(cleIdempotence);
+        if (replay.isPresent()) {
+            return replayed(replay.get());
+        }
+        try {
+            if (writeBehind.isEnabled()) {
+                DebitMesureDTO accepted = writeBehind.submit(dto, cleIdempotence);
+                return ResponseEntity.status(accepted.getId() != null ? HttpStatus.CREATED : HttpStatus.ACCEPTED)
+                        .body(accepted);
+            }
+            DebitMesureDTO created = debitMesureService.createDebit(dto, cleIdempotence);
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        } catch (DataIntegrityViolationException e) {
+            if (cleIdempotence == null) {
+                throw e;
+            }
+            return debitMesureService.findAfterDuplicateKey(cleIdempotence)
+                    .map(this::replayed)
+                    .orElseThrow(() -> new IdempotencyConflictException(
+                            "A reading with this Idempotency-Key is being recorded, retry later"));
+        }
+    }
+
+    private ResponseEntity<DebitMesureDTO> replayed(DebitMesureDTO dto) {
+        return ResponseEntity.ok().header(IDEMPOTENT_REPLAYED, "true").body(dto);
+    }
+
+    private static void checkIdempotencyKey(String cleIdempotence) {
+        if (cleIdempotence != null
+                && (cleIdempotence.isBlank() || cleIdempotence.length() > IDEMPOTENCY_KEY_MAX_LENGTH)) {
+            throw new RuntimeException(IDEMPOTENCY_KEY + " must be 1 to " + IDEMPOTENCY_KEY_MAX_LENGTH + " characters");
+        }
+    }
+
+    /**
+     * Upload groupé au format binaire en colonnes (voir DebitBulkCodec).
+     * Le corps est décodé en streaming, sans DTO par mesure.
+     */
+    @PostMapping(value = "/bulk", consumes = DebitBulkCodec.CONTENT_TYPE)
+    public ResponseEntity<Map<String, Object>> createDebitsBulk(HttpServletRequest request) throws IOException {
+        DebitColumns columns = DebitBulkCodec.decode(request.getInputStream(), bulkMaxRecords);
+        int count = debitMesureService.persistColumns(columns);
+        Map<String, Object> response = new HashMap<>();
+        response.put("count", count);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * Import d'un historique (fichier CSV ou NDJSON au format de l'export, gzip optionnel).
+     * L'import est asynchrone : l'avancement se lit sur la ressource renvoyée.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson", "application/gzip",
+            MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<Map<String, Object>> importDebits(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletRequest request) throws IOException {
+        ImportJob job = importer.submit(request.getInputStream(), ExportFormat.parse(format), gzip);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(HttpHeaders.LOCATION, "/debits/import/" + job.getId())
+                .body(job.progress());
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<Map<String, Object>> getImportProgress(@PathVariable String jobId) {
+        return ResponseEntity.ok(importer.progress(jobId)
+                .orElseThrow(() -> new RuntimeException("Import job not found with id: " + jobId)));
     }
 
     @PutMapping("/{id}")
@@ -81,6 +222,24 @@ public class DebitMesureController {
         return ResponseEntity.ok(response);
     }
 
+    @ExceptionHandler(WriteBehindRejectedException.class)
+    public ResponseEntity<Map<String, String>> handleWriteBehindRejected(WriteBehindRejectedException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<Map<String, String>> handleIdempotencyConflict(IdempotencyConflictException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, String>> handleRuntimeException(RuntimeException ex) {
         Map<String, String> error = new HashMap<>();
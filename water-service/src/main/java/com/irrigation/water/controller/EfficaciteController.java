@@ -0,0 +1,52 @@
+package com.irrigation.water.controller;
+
+import com.irrigation.water.dto.EfficaciteHoraireDTO;
+import com.irrigation.water.dto.EfficacitePompeDTO;
+import com.irrigation.water.projection.EfficiencyProjection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lecture de la projection d'efficacité des pompes (kWh par m³), servie depuis
+ * les buckets horaires partagés en base.
+ */
+@RestController
+@RequestMapping("/efficacite")
+@RequiredArgsConstructor
+public class EfficaciteController {
+
+    private final EfficiencyProjection efficiencyProjection;
+
+    @GetMapping
+    public ResponseEntity<List<EfficacitePompeDTO>> getAllEfficacites() {
+        return ResponseEntity.ok(efficiencyProjection.findAll());
+    }
+
+    @GetMapping("/pompe/{pompeId}")
+    public ResponseEntity<EfficacitePompeDTO> getEfficaciteByPompe(@PathVariable Long pompeId) {
+        return ResponseEntity.ok(efficiencyProjection.findByPompe(pompeId)
+                .orElseThrow(() -> new RuntimeException("No efficiency data for pompe: " + pompeId)));
+    }
+
+    @GetMapping("/pompe/{pompeId}/horaire")
+    public ResponseEntity<List<EfficaciteHoraireDTO>> getEfficaciteHoraire(
+            @PathVariable Long pompeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime debut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin) {
+        return ResponseEntity.ok(efficiencyProjection.findHoraire(pompeId, debut, fin));
+    }
+
+    @ExceptionHandler(RuntimeException.class)
+    public ResponseEntity<Map<String, String>> handleRuntimeException(RuntimeException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.badRequest().body(error);
+    }
+}
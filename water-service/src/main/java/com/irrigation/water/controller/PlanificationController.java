@@ -0,0 +1,56 @@
+package com.irrigation.water.controller;
+
+import com.irrigation.water.dto.DemandeIrrigationDTO;
+import com.irrigation.water.dto.PlanIrrigationDTO;
+import com.irrigation.water.service.PlanificationService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/planification")
+@RequiredArgsConstructor
+public class PlanificationController {
+
+    private final PlanificationService planificationService;
+
+    @GetMapping("/demandes")
+    public ResponseEntity<List<DemandeIrrigationDTO>> getAllDemandes() {
+        return ResponseEntity.ok(planificationService.getAllDemandes());
+    }
+
+    @PostMapping("/demandes")
+    public ResponseEntity<DemandeIrrigationDTO> createDemande(@Valid @RequestBody DemandeIrrigationDTO dto) {
+        DemandeIrrigationDTO created = planificationService.createDemande(dto);
+        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+    }
+
+    @DeleteMapping("/demandes/{id}")
+    public ResponseEntity<Void> deleteDemande(@PathVariable Long id) {
+        planificationService.deleteDemande(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping
+    public ResponseEntity<PlanIrrigationDTO> planifier() {
+        return ResponseEntity.ok(planificationService.planifier());
+    }
+
+    @GetMapping
+    public ResponseEntity<PlanIrrigationDTO> getPlanCourant() {
+        return ResponseEntity.ok(planificationService.getPlanCourant());
+    }
+
+    @ExceptionHandler(RuntimeException.class)
+    public ResponseEntity<Map<String, String>> handleRuntimeException(RuntimeException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.badRequest().body(error);
+    }
+}
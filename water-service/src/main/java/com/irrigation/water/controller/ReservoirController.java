@@ -1,9 +1,11 @@
 package com.irrigation.water.controller;
 
+import com.irrigation.water.accounting.ReservoirPriorityIndex.ReservoirFill;
 import com.irrigation.water.dto.ReservoirDTO;
 import com.irrigation.water.service.ReservoirService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -68,6 +70,37 @@ public class ReservoirController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/critical")
+    public ResponseEntity<List<ReservoirFill>> getCriticalReservoirs(
+            @RequestParam(required = false) Double threshold,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(reservoirService.getCriticalReservoirs(threshold, limit));
+    }
+
+    @PostMapping("/{id}/reservations")
+    public ResponseEntity<Map<String, Object>> reserveVolume(@PathVariable Long id, @RequestParam Double volume) {
+        String reservationId = reservoirService.reserveVolume(id, volume);
+        Map<String, Object> response = new HashMap<>();
+        response.put("reservationId", reservationId);
+        response.put("reservoirId", id);
+        response.put("volume", volume);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable String reservationId) {
+        reservoirService.releaseReservation(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Écriture concurrente d'une autre instance : à relire puis réessayer
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Reservoir was modified concurrently, retry the request");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, String>> handleRuntimeException(RuntimeException ex) {
         Map<String, String> error = new HashMap<>();
@@ -0,0 +1,23 @@
+package com.irrigation.water.dto;
+
+import com.irrigation.water.planning.Activation;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreneauDTO {
+    
+    private int index;
+    
+    private LocalDateTime debut;
+    
+    private Double puissanceUtilisee;
+    
+    private List<Activation> activations;
+}
@@ -27,4 +27,9 @@ public class DebitMesureDTO {
     
     @NotBlank(message = "Unite is required")
     private String unite;
+
+    private Long reservoirId;
+
+    // Réservation de l'irrigation mesurée : son volume réservé est consommé en premier (non persistée)
+    private String reservationId;
 }
@@ -0,0 +1,34 @@
+package com.irrigation.water.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DemandeIrrigationDTO {
+    
+    private Long id;
+    
+    @NotNull(message = "Pompe ID is required")
+    private Long pompeId;
+    
+    @NotNull(message = "Reservoir ID is required")
+    private Long reservoirId;
+    
+    @NotNull(message = "Volume is required")
+    @Positive(message = "Volume must be positive")
+    private Double volume;
+    
+    // Débit nominal de la pompe (volume par heure)
+    @NotNull(message = "Debit is required")
+    @Positive(message = "Debit must be positive")
+    private Double debit;
+    
+    private LocalDateTime dateDemande;
+}
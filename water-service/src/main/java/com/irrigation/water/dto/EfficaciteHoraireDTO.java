@@ -0,0 +1,25 @@
+package com.irrigation.water.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EfficaciteHoraireDTO {
+    
+    private LocalDateTime heure;
+    
+    private Double energieKwh;
+    
+    private Double volumeM3;
+    
+    private Double kwhParM3;
+    
+    private Long mesuresEnergie;
+    
+    private Long mesuresVolume;
+}
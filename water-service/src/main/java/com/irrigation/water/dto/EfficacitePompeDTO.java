@@ -0,0 +1,29 @@
+package com.irrigation.water.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Efficacité d'une pompe sur la fenêtre glissante de la projection.
+ * {@code kwhParM3} est null tant qu'aucun volume n'a été mesuré.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EfficacitePompeDTO {
+    
+    private Long pompeId;
+    
+    private Long fenetreHeures;
+    
+    private Double energieKwh;
+    
+    private Double volumeM3;
+    
+    private Double kwhParM3;
+    
+    private LocalDateTime derniereHeure;
+}
@@ -0,0 +1,32 @@
+package com.irrigation.water.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanIrrigationDTO {
+    
+    private LocalDateTime debut;
+    
+    private int dureeCreneauMinutes;
+    
+    private Double puissanceMax;
+    
+    private Double volumePlanifie;
+    
+    // Volume restant par demande, faute de puissance, de créneaux ou d'eau
+    private Map<Long, Double> volumesNonPlanifies;
+    
+    // Demandes dont la pompe est restreinte, en maintenance ou inconnue
+    private List<Long> demandesBloquees;
+    
+    // Créneaux non vides uniquement
+    private List<CreneauDTO> creneaux;
+}
@@ -0,0 +1,53 @@
+package com.irrigation.water.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Résumé horaire ou journalier des débits d'une pompe, produit par le job de
+ * rétention à partir des mesures brutes compactées.
+ */
+@Entity
+@Table(name = "debits_agreges",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"pompe_id", "granularite", "periode_debut"}),
+       indexes = @Index(name = "idx_debit_agrege_periode", columnList = "granularite, periode_debut"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DebitAgrege {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, name = "pompe_id")
+    private Long pompeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Granularite granularite;
+
+    @Column(nullable = false, name = "periode_debut")
+    private LocalDateTime periodeDebut;
+
+    @Column(nullable = false, name = "debit_total")
+    private Double debitTotal;
+
+    @Column(nullable = false, name = "debit_min")
+    private Double debitMin;
+
+    @Column(nullable = false, name = "debit_max")
+    private Double debitMax;
+
+    @Column(nullable = false, name = "nombre_mesures")
+    private Long nombreMesures;
+
+    public enum Granularite {
+        HEURE,
+        JOUR
+    }
+}
@@ -14,8 +14,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class DebitMesure {
 
+    // Séquence avec pré-allocation : permet le batching JDBC des inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "debit_seq")
+    @SequenceGenerator(name = "debit_seq", sequenceName = "debits_mesures_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, name = "pompe_id")
@@ -30,6 +32,14 @@ public class DebitMesure {
     @Column(nullable = false, length = 20)
     private String unite;
 
+    // Réservoir alimentant la pompe : le volume de la mesure y est prélevé (optionnel)
+    @Column(name = "reservoir_id")
+    private Long reservoirId;
+
+    // Clé d'idempotence reçue avec la mesure, enregistrée à part (CleIdempotence)
+    @Transient
+    private String cleIdempotence;
+
     @PrePersist
     protected void onCreate() {
         if (dateMesure == null) {
@@ -0,0 +1,40 @@
+package com.irrigation.water.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Demande d'irrigation en attente de planification. En base : conservée au redémarrage
+ * et identique sur toutes les instances du microservice Eau.
+ */
+@Entity
+@Table(name = "demandes_irrigation")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DemandeIrrigation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, name = "pompe_id")
+    private Long pompeId;
+
+    @Column(nullable = false, name = "reservoir_id")
+    private Long reservoirId;
+
+    @Column(nullable = false)
+    private Double volume;
+
+    // Débit nominal de la pompe (volume par heure)
+    @Column(nullable = false)
+    private Double debit;
+
+    @Column(nullable = false, name = "date_demande")
+    private LocalDateTime dateDemande;
+}
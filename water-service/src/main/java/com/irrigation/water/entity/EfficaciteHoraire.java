@@ -0,0 +1,44 @@
+package com.irrigation.water.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bucket horaire de la projection d'efficacité d'une pompe (énergie et volume cumulés
+ * sur l'heure), incrémenté à chaque événement de mesure appliqué.
+ */
+@Entity
+@Table(name = "efficacite_horaire",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"pompe_id", "heure"}),
+       indexes = @Index(name = "idx_efficacite_heure", columnList = "heure"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EfficaciteHoraire {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, name = "pompe_id")
+    private Long pompeId;
+
+    @Column(nullable = false)
+    private LocalDateTime heure;
+
+    @Column(nullable = false, name = "energie_kwh")
+    private Double energieKwh;
+
+    @Column(nullable = false, name = "volume_m3")
+    private Double volumeM3;
+
+    @Column(nullable = false, name = "mesures_energie")
+    private Long mesuresEnergie;
+
+    @Column(nullable = false, name = "mesures_volume")
+    private Long mesuresVolume;
+}
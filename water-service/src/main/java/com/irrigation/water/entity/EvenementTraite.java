@@ -0,0 +1,53 @@
+package com.irrigation.water.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Événement de mesure déjà appliqué à la projection d'efficacité, identifié par son
+ * message-id AMQP. Enregistré dans la même transaction que l'incrément : un message
+ * redélivré (consumer arrêté avant l'ack) n'est pas compté deux fois.
+ */
+@Entity
+@Table(name = "evenements_traites",
+       indexes = @Index(name = "idx_evenement_traite_date", columnList = "date_traitement"))
+@Getter
+@NoArgsConstructor
+public class EvenementTraite implements Persistable<String> {
+
+    @Id
+    @Column(length = 64, name = "message_id")
+    private String messageId;
+
+    @Column(nullable = false, name = "date_traitement")
+    private LocalDateTime dateTraitement;
+
+    // Toujours inséré, jamais mis à jour : pas de SELECT préalable au persist
+    @Transient
+    private boolean nouveau = true;
+
+    public EvenementTraite(String messageId, LocalDateTime dateTraitement) {
+        this.messageId = messageId;
+        this.dateTraitement = dateTraitement;
+    }
+
+    @Override
+    public String getId() {
+        return messageId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return nouveau;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marquerEnregistre() {
+        nouveau = false;
+    }
+}
@@ -4,9 +4,23 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+/**
+ * Donnée de référence lue bien plus souvent qu'écrite : mise en cache de second niveau
+ * (région "reservoirs"). La stratégie READ_WRITE met à jour le cache au commit des
+ * modifications faites via l'entité (updateReservoir, suppression).
+ *
+ * Le cache est propre à chaque instance : une entrée peut dater d'avant l'écriture d'une
+ * autre instance. La version fait échouer l'écriture d'une telle entrée au lieu d'écraser
+ * la ligne plus récente ; les écritures relisent donc la ligne en base (findForUpdate).
+ * Les prélèvements (drawVolume) ne changent que le volume et ne la modifient pas.
+ */
 @Entity
 @Table(name = "reservoirs")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reservoirs")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -27,4 +41,8 @@ public class Reservoir {
 
     @Column(nullable = false, length = 255)
     private String localisation;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
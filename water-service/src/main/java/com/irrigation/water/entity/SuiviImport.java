@@ -0,0 +1,84 @@
+package com.irrigation.water.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Avancement d'un import de fichier, enregistré après chaque morceau traité.
+ *
+ * L'import s'exécute sur l'instance qui a reçu le fichier, mais la ressource
+ * {@code /debits/import/{jobId}} n'est pas liée à une pompe : la passerelle la
+ * répartit sur toutes les instances, qui lisent donc l'avancement dans cette table.
+ */
+@Entity
+@Table(name = "suivis_import",
+       indexes = @Index(name = "idx_suivi_import_fin", columnList = "date_fin"))
+@Data
+@NoArgsConstructor
+public class SuiviImport {
+
+    // Taille maximale du détail des lignes rejetées (une erreur par ligne)
+    public static final int MAX_ERREURS_LENGTH = 8000;
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false, length = 10)
+    private String format;
+
+    @Column(nullable = false, length = 10)
+    private String statut;
+
+    @Column(nullable = false, name = "octets_total")
+    private Long octetsTotal;
+
+    @Column(nullable = false, name = "octets_traites")
+    private Long octetsTraites;
+
+    @Column(nullable = false, name = "lignes_importees")
+    private Long lignesImportees;
+
+    @Column(nullable = false, name = "lignes_rejetees")
+    private Long lignesRejetees;
+
+    @Column(length = MAX_ERREURS_LENGTH)
+    private String erreurs;
+
+    @Column(length = 1000)
+    private String echec;
+
+    @Column(nullable = false, name = "date_debut")
+    private LocalDateTime dateDebut;
+
+    @Column(name = "date_fin")
+    private LocalDateTime dateFin;
+
+    /**
+     * Vue de l'avancement pour l'API.
+     */
+    public Map<String, Object> progress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("jobId", id);
+        progress.put("status", statut);
+        progress.put("format", format);
+        progress.put("bytesTotal", octetsTotal);
+        progress.put("bytesProcessed", octetsTraites);
+        progress.put("percent", octetsTotal > 0 ? Math.min(100, octetsTraites * 100 / octetsTotal) : 100);
+        progress.put("rowsImported", lignesImportees);
+        progress.put("rowsRejected", lignesRejetees);
+        progress.put("errors", erreurs == null || erreurs.isEmpty() ? List.of() : List.of(erreurs.split("\n")));
+        progress.put("startedAt", dateDebut);
+        progress.put("finishedAt", dateFin);
+        if (echec != null) {
+            progress.put("error", echec);
+        }
+        return progress;
+    }
+}
@@ -0,0 +1,190 @@
+package com.irrigation.water.export;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export en streaming de l'historique brut des débits.
+ *
+ * Les lignes sont lues par un curseur JDBC en avant seulement ({@code fetchSize} lignes
+ * à la fois) et écrites une à une dans la réponse à travers un buffer borné : le tas
+ * utilisé ne dépend pas du nombre de lignes exportées. Une déconnexion du client fait
+ * échouer l'écriture, ce qui ferme le curseur et interrompt la requête.
+ */
+@Slf4j
+@Component
+public class DebitExporter {
+
+    private static final String SELECT = "SELECT id, pompe_id, debit, date_mesure, unite, reservoir_id "
+            + "FROM debits_mesures WHERE date_mesure BETWEEN ? AND ?";
+    private static final String AND_POMPE = " AND pompe_id = ?";
+    private static final String ORDER = " ORDER BY date_mesure, id";
+
+    private static final String CSV_HEADER = "id,pompeId,debit,dateMesure,unite,reservoirId\n";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+    private final int bufferBytes;
+
+    public DebitExporter(JdbcTemplate jdbcTemplate,
+                         @Value("${water.export.fetch-size:1000}") int fetchSize,
+                         @Value("${water.export.buffer-bytes:65536}") int bufferBytes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+        this.bufferBytes = bufferBytes;
+    }
+
+    /**
+     * Écrit les débits de la période (d'une pompe, ou de toutes si pompeId est null).
+     * La transaction en lecture seule garde le curseur ouvert côté base pendant l'export.
+     *
+     * @return Le nombre de lignes écrites
+     * @throws IOException Si le client s'est déconnecté en cours d'export
+     */
+    @Transactional(readOnly = true)
+    public long export(Long pompeId, LocalDateTime debut, LocalDateTime fin,
+                       ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, bufferBytes) : out;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), bufferBytes);
+        RowWriter rows = new RowWriter(writer, format);
+        try {
+            if (format == ExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+            }
+            jdbcTemplate.query(cursor(pompeId, debut, fin), rows);
+            writer.flush();
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
+            }
+        } catch (UncheckedIOException e) {
+            throw cancelled(rows.count, e.getCause());
+        } catch (IOException e) {
+            throw cancelled(rows.count, e);
+        }
+        log.info("📤 Exported {} flow readings as {}{}", rows.count, format, gzip ? " (gzip)" : "");
+        return rows.count;
+    }
+
+    private static IOException cancelled(long count, IOException cause) {
+        log.info("⏹️ Flow export cancelled after {} rows: {}", count, cause.getMessage());
+        return cause;
+    }
+
+    private PreparedStatementCreator cursor(Long pompeId, LocalDateTime debut, LocalDateTime fin) {
+        String sql = SELECT + (pompeId != null ? AND_POMPE : "") + ORDER;
+        return connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setObject(1, debut);
+            ps.setObject(2, fin);
+            if (pompeId != null) {
+                ps.setLong(3, pompeId);
+            }
+            return ps;
+        };
+    }
+
+    private static final class RowWriter implements RowCallbackHandler {
+
+        private final Writer writer;
+        private final ExportFormat format;
+        private long count;
+
+        RowWriter(Writer writer, ExportFormat format) {
+            this.writer = writer;
+            this.format = format;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long id = rs.getLong(1);
+            long pompeId = rs.getLong(2);
+            double debit = rs.getDouble(3);
+            LocalDateTime dateMesure = rs.getObject(4, LocalDateTime.class);
+            String unite = rs.getString(5);
+            long reservoirId = rs.getLong(6);
+            boolean hasReservoir = !rs.wasNull();
+            try {
+                if (format == ExportFormat.CSV) {
+                    writer.write(Long.toString(id));
+                    writer.write(',');
+                    writer.write(Long.toString(pompeId));
+                    writer.write(',');
+                    writer.write(Double.toString(debit));
+                    writer.write(',');
+                    writer.write(dateMesure.toString());
+                    writer.write(',');
+                    writeCsvField(unite);
+                    writer.write(',');
+                    if (hasReservoir) {
+                        writer.write(Long.toString(reservoirId));
+                    }
+                    writer.write('\n');
+                } else {
+                    writer.write("{\"id\":");
+                    writer.write(Long.toString(id));
+                    writer.write(",\"pompeId\":");
+                    writer.write(Long.toString(pompeId));
+                    writer.write(",\"debit\":");
+                    writer.write(Double.toString(debit));
+                    writer.write(",\"dateMesure\":\"");
+                    writer.write(dateMesure.toString());
+                    writer.write("\",\"unite\":");
+                    writeJsonString(unite);
+                    writer.write(",\"reservoirId\":");
+                    writer.write(hasReservoir ? Long.toString(reservoirId) : "null");
+                    writer.write("}\n");
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count++;
+        }
+
+        private void writeCsvField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        private void writeJsonString(String value) throws IOException {
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    writer.write('\\');
+                    writer.write(c);
+                } else if (c < 0x20) {
+                    writer.write(String.format("\\u%04x", (int) c));
+                } else {
+                    writer.write(c);
+                }
+            }
+            writer.write('"');
+        }
+    }
+}
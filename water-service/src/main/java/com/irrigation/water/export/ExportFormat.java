@@ -0,0 +1,35 @@
+package com.irrigation.water.export;
+
+/**
+ * Formats d'export de l'historique des mesures.
+ */
+public enum ExportFormat {
+
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static ExportFormat parse(String value) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new RuntimeException("Unsupported export format: " + value + " (csv or ndjson)");
+    }
+}
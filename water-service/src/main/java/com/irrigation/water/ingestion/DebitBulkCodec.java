@@ -0,0 +1,132 @@
+package com.irrigation.water.ingestion;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Format d'upload groupé des débits (Content-Type application/cbor).
+ *
+ * Le corps est un tableau CBOR : version, unité (une seule fois pour tout le lot),
+ * puis des colonnes de même longueur :
+ * <pre>
+ *   [ 1, "m3/h", [pompeId...], [dateMesure epoch ms (UTC)...], [debit...] ]
+ * </pre>
+ * Le parser streaming remplit directement les colonnes primitives : pas de DTO,
+ * de Double, de LocalDateTime ni de chaîne d'unité par mesure.
+ */
+public final class DebitBulkCodec {
+
+    public static final String CONTENT_TYPE = "application/cbor";
+    public static final int VERSION = 1;
+
+    private static final int MAX_UNITE_LENGTH = 20;
+    private static final CBORFactory FACTORY = new CBORFactory();
+
+    private DebitBulkCodec() {
+    }
+
+    /**
+     * @param maxRecords Nombre maximal de mesures acceptées dans un upload
+     * @throws IllegalArgumentException si le corps n'est pas conforme au format
+     */
+    public static DebitColumns decode(InputStream body, int maxRecords) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(body)) {
+            expect(parser.nextToken(), JsonToken.START_ARRAY, "upload");
+            expect(parser.nextToken(), JsonToken.VALUE_NUMBER_INT, "version");
+            if (parser.getIntValue() != VERSION) {
+                throw new IllegalArgumentException("Unsupported bulk format version " + parser.getIntValue()
+                        + " (expected " + VERSION + ")");
+            }
+            expect(parser.nextToken(), JsonToken.VALUE_STRING, "unite");
+            String unite = parser.getText();
+            if (unite.isBlank() || unite.length() > MAX_UNITE_LENGTH) {
+                throw new IllegalArgumentException("Unite must be 1 to " + MAX_UNITE_LENGTH + " characters");
+            }
+            DebitColumns columns = new DebitColumns(1024);
+            columns.setUnite(unite);
+            int size = readLongs(parser, columns, maxRecords, true);
+            checkLength(readLongs(parser, columns, maxRecords, false), size, "dateMesure");
+            checkLength(readDebits(parser, columns, maxRecords), size, "debit");
+            expect(parser.nextToken(), JsonToken.END_ARRAY, "end of upload");
+            columns.setSize(size);
+            return columns;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed bulk upload: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    /**
+     * Encode un lot au même format (clients Java).
+     */
+    public static void encode(DebitColumns columns, OutputStream out) throws IOException {
+        int size = columns.size();
+        try (CBORGenerator generator = FACTORY.createGenerator(out)) {
+            generator.writeStartArray(null, 5);
+            generator.writeNumber(VERSION);
+            generator.writeString(columns.unite());
+            generator.writeArray(columns.pompeIds(), 0, size);
+            generator.writeArray(columns.timestamps(), 0, size);
+            generator.writeArray(columns.debits(), 0, size);
+            generator.writeEndArray();
+        }
+    }
+
+    private static int readLongs(JsonParser parser, DebitColumns columns, int maxRecords,
+                                 boolean pompeIds) throws IOException {
+        expect(parser.nextToken(), JsonToken.START_ARRAY, pompeIds ? "pompeId" : "dateMesure");
+        int row = 0;
+        while (parser.nextToken() == JsonToken.VALUE_NUMBER_INT) {
+            checkRow(row, maxRecords);
+            if (pompeIds) {
+                columns.setPompeId(row++, parser.getLongValue());
+            } else {
+                columns.setTimestamp(row++, parser.getLongValue());
+            }
+        }
+        expect(parser.currentToken(), JsonToken.END_ARRAY, pompeIds ? "pompeId" : "dateMesure");
+        return row;
+    }
+
+    private static int readDebits(JsonParser parser, DebitColumns columns, int maxRecords) throws IOException {
+        expect(parser.nextToken(), JsonToken.START_ARRAY, "debit");
+        int row = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT) {
+            checkRow(row, maxRecords);
+            double value = parser.getDoubleValue();
+            if (!(value > 0)) {
+                throw new IllegalArgumentException("debit must be positive (row " + row + ")");
+            }
+            columns.setDebit(row++, value);
+        }
+        expect(token, JsonToken.END_ARRAY, "debit");
+        return row;
+    }
+
+    private static void checkRow(int row, int maxRecords) {
+        if (row >= maxRecords) {
+            throw new IllegalArgumentException("Bulk upload exceeds " + maxRecords + " readings");
+        }
+    }
+
+    private static void checkLength(int length, int expected, String column) {
+        if (length != expected) {
+            throw new IllegalArgumentException("Column " + column + " has " + length
+                    + " values, expected " + expected);
+        }
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected, String what) {
+        if (actual != expected) {
+            throw new IllegalArgumentException("Malformed bulk upload: expected " + expected
+                    + " for " + what + ", got " + actual);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.irrigation.water.ingestion;
+
+import com.irrigation.commons.timeseries.EpochTime;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+import org.springframework.jdbc.support.incrementer.H2SequenceMaxValueIncrementer;
+import org.springframework.jdbc.support.incrementer.PostgresSequenceMaxValueIncrementer;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Insertion JDBC par lots d'un upload en colonnes, sans passer par des entités.
+ *
+ * Les ids viennent de la séquence de DebitMesure avec la même stratégie que
+ * l'optimiseur "pooled" d'Hibernate (un appel à la séquence réserve les
+ * {@link #ALLOCATION_SIZE} ids qui précèdent la valeur obtenue) : les ids attribués ici
+ * et ceux attribués par JPA ne se chevauchent jamais.
+ */
+@Component
+public class DebitBulkWriter {
+
+    // Doit rester égal à allocationSize de DebitMesure
+    static final int ALLOCATION_SIZE = 50;
+
+    private static final String SEQUENCE = "debits_mesures_seq";
+    private static final String INSERT = "INSERT INTO debits_mesures "
+            + "(id, pompe_id, debit, date_mesure, unite) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataFieldMaxValueIncrementer idBlocks;
+    private final int batchSize;
+
+    public DebitBulkWriter(JdbcTemplate jdbcTemplate,
+                                  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idBlocks = sequenceIncrementer(jdbcTemplate.getDataSource());
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Insère les mesures dans la transaction courante.
+     *
+     * @return Les ids attribués, dans l'ordre des lignes
+     */
+    public long[] insert(DebitColumns columns) {
+        int size = columns.size();
+        long[] ids = allocateIds(size);
+        long[] pompeIds = columns.pompeIds();
+        long[] timestamps = columns.timestamps();
+        double[] debits = columns.debits();
+        String unite = columns.unite();
+
+        for (int from = 0; from < size; from += batchSize) {
+            int offset = from;
+            int count = Math.min(batchSize, size - from);
+            jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    int row = offset + i;
+                    ps.setLong(1, ids[row]);
+                    ps.setLong(2, pompeIds[row]);
+                    ps.setDouble(3, debits[row]);
+                    ps.setObject(4, EpochTime.toLocalDateTime(timestamps[row]));
+                    ps.setString(5, unite);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return count;
+                }
+            });
+        }
+        return ids;
+    }
+
+    private long[] allocateIds(int size) {
+        long[] ids = new long[size];
+        int row = 0;
+        while (row < size) {
+            long hi = idBlocks.nextLongValue();
+            // Premier bloc de la séquence (hi = 1) : seul l'id 1 est positif
+            for (long id = Math.max(1, hi - ALLOCATION_SIZE + 1); id <= hi && row < size; id++) {
+                ids[row++] = id;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Lecture de la séquence dans la syntaxe de la base (H2 en local, PostgreSQL avec le profil "postgres").
+     */
+    private static DataFieldMaxValueIncrementer sequenceIncrementer(DataSource dataSource) {
+        try {
+            String product = JdbcUtils.commonDatabaseName(
+                    JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
+            return "PostgreSQL".equals(product)
+                    ? new PostgresSequenceMaxValueIncrementer(dataSource, SEQUENCE)
+                    : new H2SequenceMaxValueIncrementer(dataSource, SEQUENCE);
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("Cannot determine the database for " + SEQUENCE, e);
+        }
+    }
+}
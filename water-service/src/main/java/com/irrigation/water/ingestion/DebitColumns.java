@@ -0,0 +1,86 @@
+package com.irrigation.water.ingestion;
+
+import java.util.Arrays;
+
+/**
+ * Lot de débits en colonnes primitives, tel que décodé d'un upload binaire.
+ * L'unité est commune à tout le lot.
+ * Aucun objet par mesure : les colonnes sont lues telles quelles par l'insertion JDBC
+ * et le tier mémoire.
+ */
+public class DebitColumns {
+
+    private long[] pompeIds;
+    private long[] timestamps;
+    private double[] debits;
+    private String unite;
+    private int size;
+
+    public DebitColumns(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        this.pompeIds = new long[capacity];
+        this.timestamps = new long[capacity];
+        this.debits = new double[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long[] pompeIds() {
+        return pompeIds;
+    }
+
+    public long[] timestamps() {
+        return timestamps;
+    }
+
+    public double[] debits() {
+        return debits;
+    }
+
+    public String unite() {
+        return unite;
+    }
+
+    public void setUnite(String unite) {
+        this.unite = unite;
+    }
+
+    /**
+     * Ajoute une mesure en fin de lot.
+     */
+    public void add(long pompeId, long timestamp, double debit) {
+        setPompeId(size, pompeId);
+        setTimestamp(size, timestamp);
+        setDebit(size, debit);
+        size++;
+    }
+
+    void setPompeId(int row, long value) {
+        pompeIds = ensure(pompeIds, row);
+        pompeIds[row] = value;
+    }
+
+    void setTimestamp(int row, long value) {
+        timestamps = ensure(timestamps, row);
+        timestamps[row] = value;
+    }
+
+    void setDebit(int row, double value) {
+        debits = ensure(debits, row);
+        debits[row] = value;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    private static long[] ensure(long[] column, int row) {
+        return row < column.length ? column : Arrays.copyOf(column, column.length * 2);
+    }
+
+    private static double[] ensure(double[] column, int row) {
+        return row < column.length ? column : Arrays.copyOf(column, column.length * 2);
+    }
+}
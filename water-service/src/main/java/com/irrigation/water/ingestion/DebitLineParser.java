@@ -0,0 +1,221 @@
+package com.irrigation.water.ingestion;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.irrigation.commons.timeseries.EpochTime;
+import com.irrigation.water.export.ExportFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parse un morceau de fichier d'import (CSV ou NDJSON) en colonnes primitives.
+ *
+ * Les colonnes attendues sont celles de l'export : {@code pompeId}, {@code dateMesure}
+ * (ISO local, ou epoch ms en NDJSON), {@code debit} et {@code unite} ; les autres (dont
+ * {@code id} et {@code reservoirId}) sont ignorées. Les mesures sont regroupées par unité,
+ * une colonne d'unité étant commune à un lot. Une ligne invalide est rejetée et comptée,
+ * sans interrompre le morceau. Sans état mutable : un parser est partagé par les workers.
+ */
+final class DebitLineParser {
+
+    // Nombre maximal de rejets détaillés par morceau
+    private static final int MAX_ERRORS = 5;
+    private static final int MAX_UNITE_LENGTH = 20;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    record Chunk(Collection<DebitColumns> batches, int rows, long bytes, long rejected, List<String> errors) {
+    }
+
+    private final ExportFormat format;
+    private final int columnCount;
+    private final int pompeCol;
+    private final int dateCol;
+    private final int debitCol;
+    private final int uniteCol;
+
+    private DebitLineParser(ExportFormat format, int columnCount,
+                            int pompeCol, int dateCol, int debitCol, int uniteCol) {
+        this.format = format;
+        this.columnCount = columnCount;
+        this.pompeCol = pompeCol;
+        this.dateCol = dateCol;
+        this.debitCol = debitCol;
+        this.uniteCol = uniteCol;
+    }
+
+    static DebitLineParser ndjson() {
+        return new DebitLineParser(ExportFormat.NDJSON, 0, -1, -1, -1, -1);
+    }
+
+    /**
+     * @throws IllegalArgumentException si une colonne obligatoire manque dans l'en-tête
+     */
+    static DebitLineParser csv(String header) {
+        String[] names = header.strip().split(",", -1);
+        return new DebitLineParser(ExportFormat.CSV, names.length,
+                indexOf(names, "pompeId"), indexOf(names, "dateMesure"),
+                indexOf(names, "debit"), indexOf(names, "unite"));
+    }
+
+    /**
+     * @param offset Position du morceau dans le fichier (pour les messages de rejet)
+     */
+    Chunk parse(ByteBuffer region, long offset) {
+        int length = region.remaining();
+        Map<String, DebitColumns> batches = new HashMap<>();
+        List<String> errors = new ArrayList<>();
+        int rows = 0;
+        long rejected = 0;
+        String[] fields = new String[columnCount];
+        byte[] line = new byte[256];
+
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineLength = 0;
+            int position = lineStart;
+            byte b;
+            while (position < length && (b = region.get(position)) != '\n') {
+                if (lineLength == line.length) {
+                    line = Arrays.copyOf(line, line.length * 2);
+                }
+                line[lineLength++] = b;
+                position++;
+            }
+            if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                lineLength--;
+            }
+            if (lineLength > 0) {
+                try {
+                    if (format == ExportFormat.CSV) {
+                        parseCsv(new String(line, 0, lineLength, StandardCharsets.UTF_8), fields, batches);
+                    } else {
+                        parseJson(line, lineLength, batches);
+                    }
+                    rows++;
+                } catch (IllegalArgumentException | DateTimeParseException | IOException e) {
+                    rejected++;
+                    if (errors.size() < MAX_ERRORS) {
+                        errors.add("offset " + (offset + lineStart) + ": " + e.getMessage());
+                    }
+                }
+            }
+            lineStart = position + 1;
+        }
+        return new Chunk(batches.values(), rows, length, rejected, errors);
+    }
+
+    private void parseCsv(String line, String[] fields, Map<String, DebitColumns> batches) {
+        split(line, fields);
+        add(batches,
+                Long.parseLong(fields[pompeCol]),
+                EpochTime.toEpochMillis(LocalDateTime.parse(fields[dateCol])),
+                Double.parseDouble(fields[debitCol]),
+                fields[uniteCol]);
+    }
+
+    /**
+     * Découpe une ligne CSV ; un champ entre guillemets peut contenir des virgules
+     * (guillemet doublé pour un guillemet littéral).
+     */
+    private void split(String line, String[] fields) {
+        int position = 0;
+        for (int i = 0; i < columnCount; i++) {
+            if (position > line.length()) {
+                throw new IllegalArgumentException("expected " + columnCount + " fields");
+            }
+            if (position < line.length() && line.charAt(position) == '"') {
+                StringBuilder value = new StringBuilder();
+                int cursor = position + 1;
+                while (true) {
+                    int quote = line.indexOf('"', cursor);
+                    if (quote < 0) {
+                        throw new IllegalArgumentException("unterminated quoted field");
+                    }
+                    value.append(line, cursor, quote);
+                    if (quote + 1 < line.length() && line.charAt(quote + 1) == '"') {
+                        value.append('"');
+                        cursor = quote + 2;
+                    } else {
+                        cursor = quote + 1;
+                        break;
+                    }
+                }
+                fields[i] = value.toString();
+                position = cursor + 1;
+            } else {
+                int comma = line.indexOf(',', position);
+                int end = comma < 0 || i == columnCount - 1 ? line.length() : comma;
+                fields[i] = line.substring(position, end).strip();
+                position = end + 1;
+            }
+        }
+    }
+
+    private static void parseJson(byte[] line, int length, Map<String, DebitColumns> batches) throws IOException {
+        long pompeId = -1;
+        long timestamp = Long.MIN_VALUE;
+        double debit = Double.NaN;
+        String unite = null;
+        try (JsonParser parser = JSON.createParser(line, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "pompeId" -> pompeId = parser.getLongValue();
+                    case "dateMesure" -> timestamp = value == JsonToken.VALUE_NUMBER_INT
+                            ? parser.getLongValue()
+                            : EpochTime.toEpochMillis(LocalDateTime.parse(parser.getText()));
+                    case "debit" -> debit = parser.getDoubleValue();
+                    case "unite" -> unite = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e.getOriginalMessage());
+        }
+        if (pompeId < 0 || timestamp == Long.MIN_VALUE) {
+            throw new IllegalArgumentException("pompeId and dateMesure are required");
+        }
+        add(batches, pompeId, timestamp, debit, unite);
+    }
+
+    private static void add(Map<String, DebitColumns> batches, long pompeId, long timestamp,
+                            double debit, String unite) {
+        if (!(debit > 0)) {
+            throw new IllegalArgumentException("debit must be positive");
+        }
+        if (unite == null || unite.isBlank() || unite.length() > MAX_UNITE_LENGTH) {
+            throw new IllegalArgumentException("unite must be 1 to " + MAX_UNITE_LENGTH + " characters");
+        }
+        batches.computeIfAbsent(unite, key -> {
+            DebitColumns columns = new DebitColumns(1024);
+            columns.setUnite(key);
+            return columns;
+        }).add(pompeId, timestamp, debit);
+    }
+
+    private static int indexOf(String[] names, String column) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].strip().equals(column)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("CSV header is missing column " + column);
+    }
+}
@@ -0,0 +1,167 @@
+package com.irrigation.water.ingestion;
+
+import com.irrigation.commons.ingestion.WriteBehindQueue;
+import com.irrigation.commons.ingestion.WriteBehindRejectedException;
+import com.irrigation.water.dto.DebitMesureDTO;
+import com.irrigation.water.entity.DebitMesure;
+import com.irrigation.water.service.DebitMesureService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Mode write-behind optionnel pour POST /debits.
+ *
+ * La mesure est validée de façon synchrone puis déposée dans une file bornée ;
+ * un writer unique la persiste par lots (group commit). Durabilité :
+ *   ENQUEUE → accusé dès la mise en file (202, perdu en cas de crash)
+ *   COMMIT  → accusé après le commit du lot (201, bénéficie quand même du batching)
+ * Contre-pression quand la file est pleine :
+ *   REJECT → 503 immédiat
+ *   SYNC   → l'appelant persiste lui-même sa mesure
+ */
+@Slf4j
+@Component
+public class DebitWriteBehind {
+
+    public enum Durability { ENQUEUE, COMMIT }
+
+    public enum Backpressure { REJECT, SYNC }
+
+    private final DebitMesureService debitMesureService;
+    private final DebitIdempotence idempotence;
+    private final boolean enabled;
+    private final Durability durability;
+    private final Backpressure backpressure;
+    private final long commitTimeoutMillis;
+    private final WriteBehindQueue<DebitMesure> queue;
+
+    public DebitWriteBehind(DebitMesureService debitMesureService,
+                                   DebitIdempotence idempotence,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${water.write-behind.enabled:false}") boolean enabled,
+                                   @Value("${water.write-behind.durability:ENQUEUE}") Durability durability,
+                                   @Value("${water.write-behind.backpressure:SYNC}") Backpressure backpressure,
+                                   @Value("${water.write-behind.capacity:10000}") int capacity,
+                                   @Value("${water.write-behind.batch-size:500}") int batchSize,
+                                   @Value("${water.write-behind.flush-interval-ms:5}") long flushIntervalMillis,
+                                   @Value("${water.write-behind.max-retries:3}") int maxRetries,
+                                   @Value("${water.write-behind.retry-backoff-ms:50}") long retryBackoffMillis,
+                                   @Value("${water.write-behind.commit-timeout-ms:2000}") long commitTimeoutMillis) {
+        this.debitMesureService = debitMesureService;
+        this.idempotence = idempotence;
+        this.enabled = enabled;
+        this.durability = durability;
+        this.backpressure = backpressure;
+        this.commitTimeoutMillis = commitTimeoutMillis;
+        if (enabled) {
+            this.queue = new WriteBehindQueue<>("debits", capacity, batchSize, flushIntervalMillis,
+                    maxRetries, retryBackoffMillis, debitMesureService::persistBatch);
+            Gauge.builder("water.write_behind.queue.size", queue, WriteBehindQueue::size)
+                    .register(meterRegistry);
+            Gauge.builder("water.write_behind.written", queue, WriteBehindQueue::writtenCount)
+                    .register(meterRegistry);
+            Gauge.builder("water.write_behind.failed", queue, WriteBehindQueue::failedCount)
+                    .register(meterRegistry);
+            log.info("📝 Write-behind enabled for debits (durability={}, backpressure={}, batch={}, interval={}ms)",
+                    durability, backpressure, batchSize, flushIntervalMillis);
+        } else {
+            this.queue = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Valide puis met en file un débit. Une clé d'idempotence reste réservée jusqu'au commit
+     * de son lot : une réémission reçue par cette instance pendant l'attente est refusée (409).
+     * Une réémission passée par une autre instance est écartée à l'écriture, seule, et le débit
+     * déjà enregistré sous la clé est renvoyé.
+     *
+     * @param cleIdempotence Clé d'idempotence de la mesure, ou null
+     * @return Le DTO accepté (id null en durabilité ENQUEUE, renseigné sinon)
+     */
+    public DebitMesureDTO submit(DebitMesureDTO dto, String cleIdempotence) {
+        if (cleIdempotence != null) {
+            idempotence.reserve(cleIdempotence);
+        }
+        CompletableFuture<DebitMesure> done = null;
+        try {
+            DebitMesure debit = debitMesureService.prepareDebit(dto, cleIdempotence);
+            done = queue.offer(debit);
+            if (done == null) {
+                if (backpressure == Backpressure.REJECT) {
+                    debitMesureService.refundDebit(debit);
+                    throw new WriteBehindRejectedException("Ingestion queue full, retry later");
+                }
+                try {
+                    debitMesureService.persistBatch(List.of(debit));
+                } catch (RuntimeException e) {
+                    debitMesureService.refundDebit(debit);
+                    throw e;
+                }
+                return stored(debit, cleIdempotence);
+            }
+            // Le volume prélevé à la validation est rendu si le lot n'est jamais commité
+            done.whenComplete((saved, error) -> {
+                if (error != null) {
+                    debitMesureService.refundDebit(debit);
+                }
+                if (cleIdempotence != null) {
+                    idempotence.release(cleIdempotence);
+                }
+            });
+            if (durability == Durability.COMMIT) {
+                awaitCommit(done);
+                return stored(debit, cleIdempotence);
+            }
+            return debitMesureService.convertToDTO(debit);
+        } finally {
+            if (cleIdempotence != null && done == null) {
+                idempotence.release(cleIdempotence);
+            }
+        }
+    }
+
+    /**
+     * Le débit commité, ou celui qui détenait déjà sa clé d'idempotence.
+     */
+    private DebitMesureDTO stored(DebitMesure debit, String cleIdempotence) {
+        if (cleIdempotence == null) {
+            return debitMesureService.convertToDTO(debit);
+        }
+        return debitMesureService.findByCleIdempotence(cleIdempotence)
+                .orElseGet(() -> debitMesureService.convertToDTO(debit));
+    }
+
+    private void awaitCommit(CompletableFuture<DebitMesure> done) {
+        try {
+            done.get(commitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to persist debit: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new WriteBehindRejectedException("Group commit did not complete in time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for group commit", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (queue != null) {
+            queue.shutdown(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.irrigation.water.ingestion;
+
+import com.irrigation.water.entity.SuiviImport;
+import com.irrigation.water.export.ExportFormat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * État d'un import de fichier, tenu par l'instance qui l'exécute et recopié dans
+ * {@link SuiviImport} après chaque morceau.
+ */
+public class ImportJob {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    // Nombre maximal de lignes rejetées détaillées dans le rapport
+    private static final int MAX_ERRORS = 20;
+
+    private final String id;
+    private final ExportFormat format;
+    private final long bytesTotal;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final AtomicLong bytesProcessed = new AtomicLong();
+    private final AtomicLong rowsImported = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final List<String> errors = new ArrayList<>();
+
+    private volatile Status status = Status.RUNNING;
+    private volatile LocalDateTime finishedAt;
+    private volatile String failure;
+
+    ImportJob(String id, ExportFormat format, long bytesTotal) {
+        this.id = id;
+        this.format = format;
+        this.bytesTotal = bytesTotal;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    void addBytes(long bytes) {
+        bytesProcessed.addAndGet(bytes);
+    }
+
+    void addImported(long rows) {
+        rowsImported.addAndGet(rows);
+    }
+
+    void addRejected(long rows, List<String> details) {
+        rowsRejected.addAndGet(rows);
+        synchronized (errors) {
+            for (String detail : details) {
+                if (errors.size() >= MAX_ERRORS) {
+                    break;
+                }
+                errors.add(detail);
+            }
+        }
+    }
+
+    long rowsImported() {
+        return rowsImported.get();
+    }
+
+    void complete() {
+        finishedAt = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+
+    void fail(String message) {
+        failure = message;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+
+    /**
+     * Instantané de l'avancement, enregistré pour que toute instance puisse le servir.
+     */
+    public SuiviImport suivi() {
+        SuiviImport suivi = new SuiviImport();
+        suivi.setId(id);
+        suivi.setFormat(format.name());
+        suivi.setStatut(status.name());
+        suivi.setOctetsTotal(bytesTotal);
+        suivi.setOctetsTraites(bytesProcessed.get());
+        suivi.setLignesImportees(rowsImported.get());
+        suivi.setLignesRejetees(rowsRejected.get());
+        synchronized (errors) {
+            String joined = String.join("\n", errors);
+            suivi.setErreurs(joined.length() > SuiviImport.MAX_ERREURS_LENGTH
+                    ? joined.substring(0, SuiviImport.MAX_ERREURS_LENGTH) : joined);
+        }
+        suivi.setEchec(failure == null || failure.length() <= 1000 ? failure : failure.substring(0, 1000));
+        suivi.setDateDebut(startedAt);
+        suivi.setDateFin(finishedAt);
+        return suivi;
+    }
+
+    public Map<String, Object> progress() {
+        return suivi().progress();
+    }
+}
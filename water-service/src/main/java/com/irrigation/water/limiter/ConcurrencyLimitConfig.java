@@ -0,0 +1,49 @@
+package com.irrigation.water.limiter;
+
+import com.irrigation.commons.limiter.ConcurrencyLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Limite de concurrence adaptative du microservice Eau (service-commons).
+ *
+ * Quand energy-service ralentit, les contrôles synchrones de POST /debits s'allongent, la
+ * limite baisse et l'excédent est refusé au lieu de bloquer tous les threads du serveur.
+ * Critiques : les contrôles de disponibilité (volume d'eau des réservoirs). Volumineuses :
+ * collections complètes, périodes et rendements.
+ */
+@Configuration
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public ConcurrencyLimitFilter concurrencyLimitFilter(
+            MeterRegistry meterRegistry,
+            @Value("${water.concurrency-limit.enabled:true}") boolean enabled,
+            @Value("${water.concurrency-limit.initial-limit:20}") int initialLimit,
+            @Value("${water.concurrency-limit.min-limit:4}") int minLimit,
+            @Value("${water.concurrency-limit.max-limit:200}") int maxLimit,
+            @Value("${water.concurrency-limit.smoothing:0.2}") double smoothing,
+            @Value("${water.concurrency-limit.rtt-tolerance:1.5}") double tolerance,
+            @Value("${water.concurrency-limit.window-ms:100}") long windowMillis,
+            @Value("${water.concurrency-limit.window-samples:10}") int windowSamples,
+            @Value("${water.concurrency-limit.normal-share:0.9}") double normalShare,
+            @Value("${water.concurrency-limit.bulk-share:0.5}") double bulkShare,
+            @Value("${water.concurrency-limit.retry-after-seconds:1}") int retryAfterSeconds,
+            @Value("${water.concurrency-limit.critical:GET /reservoirs/water/check}")
+            List<String> critical,
+            @Value("${water.concurrency-limit.bulk:GET /debits,GET /debits/periode,"
+                    + "GET /debits/pompe/*/periode,GET /debits/total/periode,"
+                    + "GET /efficacite,GET /efficacite/pompe/*/horaire}")
+            List<String> bulk,
+            @Value("${water.concurrency-limit.excluded:/actuator/**,GET /debits/export,POST /debits/bulk,"
+                    + "POST /debits/import}")
+            List<String> excluded) {
+        return new ConcurrencyLimitFilter(meterRegistry, "water", enabled, initialLimit, minLimit, maxLimit,
+                smoothing, tolerance, windowMillis, windowSamples, normalShare, bulkShare, retryAfterSeconds,
+                critical, bulk, excluded);
+    }
+}
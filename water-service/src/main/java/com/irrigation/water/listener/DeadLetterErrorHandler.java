@@ -0,0 +1,47 @@
+package com.irrigation.water.listener;
+
+import com.irrigation.water.config.RabbitMQConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.ConditionalRejectingErrorHandler;
+import org.springframework.amqp.rabbit.support.ListenerExecutionFailedException;
+
+/**
+ * Gestion des erreurs des consumers : un message que l'on ne pourra jamais traiter
+ * (illisible, schéma plus récent, argument invalide) est recopié tel quel dans la
+ * dead-letter queue avant d'être rejeté sans remise en queue, au lieu d'être perdu.
+ *
+ * La copie est publiée explicitement plutôt que par un x-dead-letter-exchange : les
+ * arguments d'une queue existante ne peuvent pas être modifiés sans la recréer.
+ * Si la copie échoue, l'exception remonte et le message est remis en queue.
+ */
+@Slf4j
+public class DeadLetterErrorHandler extends ConditionalRejectingErrorHandler {
+
+    public static final String EXCEPTION_HEADER = "x-exception-message";
+    public static final String ORIGINAL_QUEUE_HEADER = "x-original-queue";
+
+    private final RabbitTemplate rabbitTemplate;
+
+    public DeadLetterErrorHandler(RabbitTemplate rabbitTemplate) {
+        this.rabbitTemplate = rabbitTemplate;
+    }
+
+    @Override
+    public void handleError(Throwable t) {
+        if (t instanceof ListenerExecutionFailedException failure
+                && failure.getFailedMessage() != null
+                && getExceptionStrategy().isFatal(t)) {
+            Message message = failure.getFailedMessage();
+            String queue = message.getMessageProperties().getConsumerQueue();
+            Throwable cause = t.getCause() != null ? t.getCause() : t;
+            message.getMessageProperties().setHeader(EXCEPTION_HEADER, String.valueOf(cause.getMessage()));
+            message.getMessageProperties().setHeader(ORIGINAL_QUEUE_HEADER, queue);
+            rabbitTemplate.send(RabbitMQConfig.EXCHANGE, RabbitMQConfig.DEAD_LETTER_ROUTING_KEY, message);
+            log.error("☠️ Unreadable message from {} moved to {}: {}",
+                    queue, RabbitMQConfig.DEAD_LETTER_QUEUE, cause.getMessage());
+        }
+        super.handleError(t);
+    }
+}
@@ -0,0 +1,30 @@
+package com.irrigation.water.listener;
+
+import com.irrigation.events.MeasurementRecordedEvent;
+import com.irrigation.water.config.RabbitMQConfig;
+import com.irrigation.water.profiling.MessageHandlingEvent;
+import com.irrigation.water.projection.EfficiencyProjection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener qui alimente la projection d'efficacité avec les événements de mesure
+ * publiés par les microservices Énergie et Eau. Les deltas étant commutatifs,
+ * l'ordre de consommation est indifférent ; le message-id sert à écarter les redeliveries.
+ */
+@Component
+@RequiredArgsConstructor
+public class MeasurementListener {
+    
+    private final EfficiencyProjection efficiencyProjection;
+    
+    @RabbitListener(queues = RabbitMQConfig.MEASUREMENT_QUEUE)
+    public void handleMeasurement(MeasurementRecordedEvent event,
+                                  @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId) {
+        MessageHandlingEvent.start(RabbitMQConfig.MEASUREMENT_QUEUE, event.getPompeId())
+                .run(() -> efficiencyProjection.apply(event, messageId));
+    }
+}
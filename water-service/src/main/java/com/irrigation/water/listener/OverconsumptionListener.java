@@ -1,32 +1,46 @@
 package com.irrigation.water.listener;
 
-import com.irrigation.water.config.RabbitMQConfig;
-import com.irrigation.water.event.OverconsumptionEvent;
-import com.irrigation.water.service.ReservoirService;
-import lombok.RequiredArgsConstructor;
+import com.irrigation.events.OverconsumptionEvent;
+import com.irrigation.water.accounting.ReservoirPriorityIndex;
+import com.irrigation.water.accounting.ReservoirPriorityIndex.ReservoirFill;
+import com.irrigation.water.service.PlanificationService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * Listener qui consomme les événements de surconsommation publiés par le microservice Énergie.
  * Réagit aux alertes en loggant et en déclenchant des actions appropriées.
  */
 @Component
 @Slf4j
-@RequiredArgsConstructor
 public class OverconsumptionListener {
     
-    private final ReservoirService reservoirService;
+    private final ReservoirPriorityIndex priorityIndex;
+    private final PlanificationService planificationService;
     private final RestTemplate restTemplate;
+    private final double criticalThreshold;
+    
+    public OverconsumptionListener(ReservoirPriorityIndex priorityIndex,
+                                   PlanificationService planificationService,
+                                   RestTemplate restTemplate,
+                                   @Value("${water.priority.critical-threshold:0.3}") double criticalThreshold) {
+        this.priorityIndex = priorityIndex;
+        this.planificationService = planificationService;
+        this.restTemplate = restTemplate;
+        this.criticalThreshold = criticalThreshold;
+    }
     
     /**
-     * Consomme les événements de surconsommation depuis la queue RabbitMQ.
+     * Consomme les événements de surconsommation depuis les queues RabbitMQ
+     * (un consumer par shard, voir OverconsumptionShardListeners).
      * 
      * @param event L'événement de surconsumption reçu
      */
-    @RabbitListener(queues = RabbitMQConfig.QUEUE)
     public void handleOverconsumption(OverconsumptionEvent event) {
         log.warn("═══════════════════════════════════════════════════════════════");
         log.warn("📥 OVERCONSUMPTION EVENT RECEIVED");
@@ -56,19 +70,26 @@ public class OverconsumptionListener {
         // ACTION 1: Update pump energy status in Energy Service (async callback)
         updatePumpEnergyStatus(event.getPompeId(), "Overconsumption");
         
-        // ACTION 2: Analyze reservoirs to prioritize critical ones
-        try {
-            long count = reservoirService.getAllReservoirs().size();
-            log.info("   → Analyzing {} reservoirs for priority irrigation", count);
-            log.info("   → Critical reservoirs (<30%) maintain supply, others reduced");
-        } catch (Exception e) {
-            log.warn("   → Could not analyze reservoirs: {}", e.getMessage());
+        // ACTION 2: Prioritize critical reservoirs (in-memory fill-ratio index, no DB access)
+        List<ReservoirFill> critical = priorityIndex.below(criticalThreshold);
+        log.info("   → Analyzing {} reservoirs for priority irrigation", priorityIndex.size());
+        for (ReservoirFill fill : critical) {
+            log.info("   → Reservoir #{} critical ({}% full): supply maintained",
+                     fill.reservoirId(), Math.round(fill.fillRatio() * 100));
         }
+        log.info("   → {} critical reservoirs (<{}%) maintain supply, {} others reduced",
+                 critical.size(), Math.round(criticalThreshold * 100), priorityIndex.size() - critical.size());
+        
+        // ACTION 3: Replan irrigation without the pump (incremental, current plan only):
+        // the freed power goes to the demands of the critical reservoirs first
+        planificationService.onOverconsumption(event.getPompeId(), critical.stream()
+                .map(ReservoirFill::reservoirId)
+                .collect(Collectors.toSet()));
         
-        // ACTION 3: Alert operators
+        // ACTION 4: Alert operators
         log.info("   → Alert sent to operators - Manual intervention may be required");
         
-        // ACTION 4: Log incident
+        // ACTION 5: Log incident
         log.info("   → Incident logged at: {}", event.getDateMesure());
         
         log.info("✅ OPTIMIZATION: Water Service adapted to energy constraints");
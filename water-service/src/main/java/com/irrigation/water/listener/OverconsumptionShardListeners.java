@@ -0,0 +1,70 @@
+package com.irrigation.water.listener;
+
+import com.irrigation.events.OverconsumptionEvent;
+import com.irrigation.events.OverconsumptionShards;
+import com.irrigation.water.profiling.MessageHandlingEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enregistre un consumer par shard de surconsommation.
+ *
+ * Chaque shard a son propre container avec un unique consumer : les événements d'une
+ * pompe sont traités dans l'ordre, et des pompes de shards différents en parallèle.
+ * Le nombre de shards vient de la configuration (irrigation.events.shards).
+ *
+ * Tant que irrigation.events.drain-legacy-queue est vrai, un consumer vide aussi
+ * l'ancienne queue unique (voir RabbitMQConfig#legacyOverconsumptionQueue) avec le même
+ * traitement.
+ */
+@Slf4j
+@Configuration
+public class OverconsumptionShardListeners implements RabbitListenerConfigurer {
+
+    private final OverconsumptionListener overconsumptionListener;
+    private final MessageConverter messageConverter;
+    private final int shards;
+    private final boolean drainLegacyQueue;
+
+    public OverconsumptionShardListeners(OverconsumptionListener overconsumptionListener,
+                                         MessageConverter messageConverter,
+                                         @Value("${irrigation.events.shards:4}") int shards,
+                                         @Value("${irrigation.events.drain-legacy-queue:true}") boolean drainLegacyQueue) {
+        this.overconsumptionListener = overconsumptionListener;
+        this.messageConverter = messageConverter;
+        this.shards = shards;
+        this.drainLegacyQueue = drainLegacyQueue;
+    }
+
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        for (int shard = 0; shard < shards; shard++) {
+            registrar.registerEndpoint(endpoint("overconsumption-shard-" + shard, OverconsumptionShards.shardQueue(shard)));
+        }
+        log.info("📥 Listening to {} overconsumption shards", shards);
+        if (drainLegacyQueue) {
+            registrar.registerEndpoint(endpoint("overconsumption-legacy", OverconsumptionShards.LEGACY_QUEUE));
+            log.info("📥 Draining legacy queue {}", OverconsumptionShards.LEGACY_QUEUE);
+        }
+    }
+
+    SimpleRabbitListenerEndpoint endpoint(String id, String queue) {
+        SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+        endpoint.setId(id);
+        endpoint.setQueueNames(queue);
+        endpoint.setConcurrency("1");
+        endpoint.setMessageListener(message -> {
+            // Le type de l'événement est celui du microservice Eau, pas l'en-tête __TypeId__ de l'émetteur
+            message.getMessageProperties().setInferredArgumentType(OverconsumptionEvent.class);
+            OverconsumptionEvent event = (OverconsumptionEvent) messageConverter.fromMessage(message);
+            MessageHandlingEvent.start(queue, event.getPompeId())
+                    .run(() -> overconsumptionListener.handleOverconsumption(event));
+        });
+        return endpoint;
+    }
+}
@@ -0,0 +1,146 @@
+package com.irrigation.water.partition;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Gestion des partitions mensuelles de debits_mesures (profil "postgres").
+ *
+ * Au démarrage puis chaque jour : création des partitions du mois le plus ancien encore
+ * conservé en brut jusqu'à {@code months-ahead} mois dans le futur, et suppression des
+ * partitions entièrement antérieures à la coupure de rétention une fois vidées par le job
+ * de rétention (DROP au lieu d'un DELETE ligne à ligne suivi d'un VACUUM).
+ *
+ * Si la partition par défaut contient déjà des mesures du mois à créer (import
+ * d'historique), elles sont déplacées dans la nouvelle partition avant son attachement.
+ *
+ * Toutes les instances exécutent cette maintenance, souvent au même moment (démarrage
+ * simultané) : chaque création ou suppression prend d'abord un verrou consultatif
+ * transactionnel, puis revérifie l'état de la partition avant d'agir.
+ */
+@Slf4j
+@Component
+@Profile("postgres")
+@DependsOnDatabaseInitialization
+public class MonthlyPartitionManager {
+
+    private static final String TABLE = "debits_mesures";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("'_p'uuuu_MM");
+
+    private static final String LIST_PARTITIONS = "SELECT c.relname FROM pg_inherits i "
+            + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+            + "WHERE p.relname = ? AND c.relname LIKE ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int rawDays;
+
+    public MonthlyPartitionManager(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${water.partitions.months-ahead:3}") int monthsAhead,
+                                   @Value("${water.retention.raw-days:30}") int rawDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.rawDays = rawDays;
+    }
+
+    @PostConstruct
+    void init() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${water.partitions.cron:0 0 1 * * *}")
+    public void maintain() {
+        LocalDate cutoff = LocalDate.now().minusDays(rawDays);
+        YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+        for (YearMonth month = YearMonth.from(cutoff); !month.isAfter(last); month = month.plusMonths(1)) {
+            create(month);
+        }
+        dropExpired(cutoff);
+    }
+
+    private void create(YearMonth month) {
+        String partition = TABLE + month.format(SUFFIX);
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        String bounds = "FOR VALUES FROM ('" + from + "') TO ('" + to + "')";
+
+        transactionTemplate.executeWithoutResult(status -> {
+            lock();
+            if (exists(partition)) {
+                return;
+            }
+            Boolean stranded = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION
+                    + " WHERE date_mesure >= ? AND date_mesure < ?)", Boolean.class, from, to);
+            if (Boolean.TRUE.equals(stranded)) {
+                // Attacher une partition dont les lignes sont encore dans la partition par défaut est refusé
+                jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+                int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                        + " WHERE date_mesure >= ? AND date_mesure < ? RETURNING *) INSERT INTO " + partition
+                        + " SELECT * FROM moved", from, to);
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + partition + " " + bounds);
+                log.info("🗂️ Partition {} created with {} readings moved from the default partition", partition, moved);
+            } else {
+                jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF " + TABLE + " " + bounds);
+                log.info("🗂️ Partition {} created", partition);
+            }
+        });
+    }
+
+    /**
+     * Supprime les partitions dont tout le mois précède la coupure et que la rétention a vidées.
+     */
+    private void dropExpired(LocalDate cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList(LIST_PARTITIONS, String.class, TABLE, TABLE + "\\_p%");
+        for (String partition : partitions) {
+            YearMonth month = YearMonth.parse(partition.substring(TABLE.length()), SUFFIX);
+            if (!month.plusMonths(1).atDay(1).isAfter(cutoff)) {
+                transactionTemplate.executeWithoutResult(status -> drop(partition));
+            }
+        }
+    }
+
+    private void drop(String partition) {
+        lock();
+        if (!exists(partition)) {
+            return;
+        }
+        Boolean empty = jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM " + partition + ")", Boolean.class);
+        if (Boolean.TRUE.equals(empty)) {
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            log.info("🗂️ Partition {} dropped (older than the retention cutoff)", partition);
+        } else {
+            log.debug("Partition {} is past the retention cutoff but not yet compacted", partition);
+        }
+    }
+
+    /**
+     * Sérialise la maintenance entre instances jusqu'à la fin de la transaction courante.
+     */
+    private void lock() {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext(?))", TABLE);
+    }
+
+    private boolean exists(String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition));
+    }
+}
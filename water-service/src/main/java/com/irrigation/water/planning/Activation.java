@@ -0,0 +1,8 @@
+package com.irrigation.water.planning;
+
+/**
+ * Mise en marche d'une pompe pendant un créneau du plan.
+ */
+public record Activation(int creneau, long demandeId, long pompeId, long reservoirId,
+                         double volume, double puissance) {
+}
@@ -0,0 +1,8 @@
+package com.irrigation.water.planning;
+
+/**
+ * Demande d'irrigation en attente : {@code volume} à délivrer par la pompe, au débit
+ * {@code debit} (volume par heure), depuis le réservoir {@code reservoirId}.
+ */
+public record Demande(long id, long pompeId, long reservoirId, double volume, double debit) {
+}
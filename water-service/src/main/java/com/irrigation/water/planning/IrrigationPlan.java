@@ -0,0 +1,270 @@
+package com.irrigation.water.planning;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Plan d'activation des pompes découpé en créneaux, sous un plafond de puissance.
+ *
+ * Construction gloutonne : les demandes sont triées une fois par rendement
+ * (volume délivré par kW), puis chaque créneau est rempli dans cet ordre tant que la
+ * puissance restante, la disponibilité de la pompe et le volume du réservoir le
+ * permettent. Coût O(n log n + créneaux × n), sans allocation par créneau hors activations.
+ *
+ * Replanification incrémentale : {@link #excludePompe} retire les activations futures
+ * d'une pompe et ne remplit que la puissance libérée avec les demandes encore en
+ * attente ; le reste du plan n'est pas remis en cause. Les demandes des réservoirs
+ * prioritaires (réservoirs critiques) passent alors avant les autres, quel que soit
+ * leur rendement.
+ */
+public class IrrigationPlan {
+
+    private static final double EPSILON = 1e-9;
+
+    private final double puissanceMax;
+    private final int nombreCreneaux;
+
+    // Demandes, en colonnes (indice = position dans la liste d'entrée)
+    private final long[] demandeIds;
+    private final long[] pompeIds;
+    private final long[] reservoirIds;
+    private final double[] puissances;
+    private final double[] volumesParCreneau;
+    private final double[] restants;
+    private final boolean[] bloquees;
+    private final int[] ordre;
+
+    private final Map<Long, double[]> budgets = new HashMap<>();
+    private final Map<Long, BitSet> pompesOccupees = new HashMap<>();
+    private final Map<Long, List<Integer>> demandesParPompe = new HashMap<>();
+
+    private final double[] puissancesUtilisees;
+    private final List<List<Activation>> creneaux;
+
+    private IrrigationPlan(List<Demande> demandes, Map<Long, PompeCapacite> pompes,
+                           Map<Long, Double> volumesReservoirs, double puissanceMax,
+                           int nombreCreneaux, double heuresParCreneau) {
+        int n = demandes.size();
+        this.puissanceMax = puissanceMax;
+        this.nombreCreneaux = nombreCreneaux;
+        this.demandeIds = new long[n];
+        this.pompeIds = new long[n];
+        this.reservoirIds = new long[n];
+        this.puissances = new double[n];
+        this.volumesParCreneau = new double[n];
+        this.restants = new double[n];
+        this.bloquees = new boolean[n];
+        this.puissancesUtilisees = new double[nombreCreneaux];
+        this.creneaux = new ArrayList<>(nombreCreneaux);
+        for (int s = 0; s < nombreCreneaux; s++) {
+            creneaux.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < n; i++) {
+            Demande demande = demandes.get(i);
+            PompeCapacite pompe = pompes.get(demande.pompeId());
+            demandeIds[i] = demande.id();
+            pompeIds[i] = demande.pompeId();
+            reservoirIds[i] = demande.reservoirId();
+            restants[i] = demande.volume();
+            volumesParCreneau[i] = demande.debit() * heuresParCreneau;
+            puissances[i] = pompe != null ? pompe.puissance() : Double.POSITIVE_INFINITY;
+            bloquees[i] = pompe == null || pompe.restreinte() || pompe.puissance() > puissanceMax;
+            budgets.computeIfAbsent(demande.reservoirId(),
+                    id -> new double[]{volumesReservoirs.getOrDefault(id, 0.0)});
+            demandesParPompe.computeIfAbsent(demande.pompeId(), id -> new ArrayList<>()).add(i);
+        }
+
+        // Meilleur rendement d'abord ; à rendement égal, la demande la plus ancienne
+        this.ordre = IntStream.range(0, n)
+                .filter(i -> !bloquees[i])
+                .boxed()
+                .sorted(Comparator.<Integer>comparingDouble(i -> -volumesParCreneau[i] / puissances[i])
+                        .thenComparingLong(i -> demandeIds[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Construit un plan complet.
+     *
+     * @param demandes          Demandes en attente
+     * @param pompes            Capacités des pompes, par id (une pompe absente bloque ses demandes)
+     * @param volumesReservoirs Volume prélevable par réservoir
+     * @param puissanceMax      Plafond de puissance simultanée (kW)
+     * @param nombreCreneaux    Horizon du plan, en créneaux
+     * @param heuresParCreneau  Durée d'un créneau, en heures
+     */
+    public static IrrigationPlan build(List<Demande> demandes, Map<Long, PompeCapacite> pompes,
+                                       Map<Long, Double> volumesReservoirs, double puissanceMax,
+                                       int nombreCreneaux, double heuresParCreneau) {
+        IrrigationPlan plan = new IrrigationPlan(demandes, pompes, volumesReservoirs, puissanceMax,
+                nombreCreneaux, heuresParCreneau);
+        BitSet tous = new BitSet(nombreCreneaux);
+        tous.set(0, nombreCreneaux);
+        plan.fill(tous, Set.of());
+        return plan;
+    }
+
+    public int excludePompe(long pompeId, int depuisCreneau) {
+        return excludePompe(pompeId, depuisCreneau, Set.of());
+    }
+
+    /**
+     * Retire une pompe du plan à partir d'un créneau (pompe passée en surconsommation)
+     * et redistribue la puissance libérée aux demandes en attente, celles des réservoirs
+     * prioritaires d'abord.
+     *
+     * @param reservoirsPrioritaires Réservoirs dont les demandes sont servies en premier
+     * @return Le nombre d'activations retirées
+     */
+    public synchronized int excludePompe(long pompeId, int depuisCreneau, Set<Long> reservoirsPrioritaires) {
+        List<Integer> indices = demandesParPompe.get(pompeId);
+        if (indices == null) {
+            return 0;
+        }
+        indices.forEach(i -> bloquees[i] = true);
+        int debut = Math.max(0, depuisCreneau);
+        int retirees = 0;
+        BitSet liberes = new BitSet(nombreCreneaux);
+        BitSet occupee = pompesOccupees.get(pompeId);
+        if (occupee != null) {
+            for (int s = occupee.nextSetBit(debut); s >= 0 && s < nombreCreneaux; s = occupee.nextSetBit(s + 1)) {
+                Iterator<Activation> it = creneaux.get(s).iterator();
+                while (it.hasNext()) {
+                    Activation activation = it.next();
+                    if (activation.pompeId() == pompeId) {
+                        it.remove();
+                        puissancesUtilisees[s] -= activation.puissance();
+                        budgets.get(activation.reservoirId())[0] += activation.volume();
+                        restants[indexOf(activation.demandeId(), indices)] += activation.volume();
+                        retirees++;
+                    }
+                }
+                occupee.clear(s);
+                liberes.set(s);
+            }
+        }
+        // Seuls les créneaux libérés gagnent de la puissance ; les autres sont déjà pleins
+        // pour les demandes en attente (le volume rendu au réservoir n'y change rien
+        // tant que la puissance manque)
+        fill(liberes, reservoirsPrioritaires);
+        return retirees;
+    }
+
+    public synchronized List<Activation> getActivations(int creneau) {
+        return List.copyOf(creneaux.get(creneau));
+    }
+
+    public synchronized double getPuissanceUtilisee(int creneau) {
+        return puissancesUtilisees[creneau];
+    }
+
+    public int getNombreCreneaux() {
+        return nombreCreneaux;
+    }
+
+    public synchronized double getVolumePlanifie() {
+        double total = 0.0;
+        for (List<Activation> creneau : creneaux) {
+            for (Activation activation : creneau) {
+                total += activation.volume();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return Volume restant à planifier par demande (demandes non entièrement servies)
+     */
+    public synchronized Map<Long, Double> getVolumesNonPlanifies() {
+        Map<Long, Double> result = new HashMap<>();
+        for (int i = 0; i < demandeIds.length; i++) {
+            if (restants[i] > EPSILON) {
+                result.put(demandeIds[i], restants[i]);
+            }
+        }
+        return result;
+    }
+
+    public synchronized List<Long> getDemandesBloquees() {
+        List<Long> result = new ArrayList<>();
+        for (int i = 0; i < demandeIds.length; i++) {
+            if (bloquees[i]) {
+                result.add(demandeIds[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remplit les créneaux donnés avec les demandes non bloquées qui ont encore du
+     * volume à délivrer. La liste de travail est compactée au fil des créneaux : une
+     * demande servie ou dont le réservoir est vide n'est plus parcourue, et le parcours
+     * d'un créneau s'arrête dès qu'aucune pompe en attente ne tient dans la puissance libre.
+     * Les demandes des réservoirs prioritaires sont placées en tête, dans l'ordre de rendement.
+     */
+    private void fill(BitSet aRemplir, Set<Long> prioritaires) {
+        int[] enAttente = new int[ordre.length];
+        int taille = 0;
+        double puissanceMin = Double.POSITIVE_INFINITY;
+        // Première passe : réservoirs prioritaires ; seconde : les autres (toutes sans priorité)
+        for (int passe = prioritaires.isEmpty() ? 1 : 0; passe < 2; passe++) {
+            boolean prioritaire = passe == 0;
+            for (int i : ordre) {
+                if (!bloquees[i] && restants[i] > EPSILON
+                        && (prioritaires.isEmpty() || prioritaires.contains(reservoirIds[i]) == prioritaire)) {
+                    enAttente[taille++] = i;
+                    puissanceMin = Math.min(puissanceMin, puissances[i]);
+                }
+            }
+        }
+        for (int s = aRemplir.nextSetBit(0); s >= 0 && s < nombreCreneaux && taille > 0; s = aRemplir.nextSetBit(s + 1)) {
+            double libre = puissanceMax - puissancesUtilisees[s];
+            int conservees = 0;
+            int k = 0;
+            for (; k < taille && libre + EPSILON >= puissanceMin; k++) {
+                int i = enAttente[k];
+                double[] budget = budgets.get(reservoirIds[i]);
+                if (restants[i] <= EPSILON || budget[0] <= EPSILON) {
+                    continue;
+                }
+                enAttente[conservees++] = i;
+                if (puissances[i] > libre + EPSILON) {
+                    continue;
+                }
+                BitSet occupee = pompesOccupees.computeIfAbsent(pompeIds[i], id -> new BitSet(nombreCreneaux));
+                if (occupee.get(s)) {
+                    continue;
+                }
+                double volume = Math.min(volumesParCreneau[i], Math.min(restants[i], budget[0]));
+                creneaux.get(s).add(new Activation(s, demandeIds[i], pompeIds[i], reservoirIds[i],
+                        volume, puissances[i]));
+                occupee.set(s);
+                libre -= puissances[i];
+                puissancesUtilisees[s] += puissances[i];
+                restants[i] -= volume;
+                budget[0] -= volume;
+            }
+            // Créneau plein : les demandes non parcourues restent en attente telles quelles
+            System.arraycopy(enAttente, k, enAttente, conservees, taille - k);
+            taille = conservees + (taille - k);
+        }
+    }
+
+    private int indexOf(long demandeId, List<Integer> indices) {
+        for (int i : indices) {
+            if (demandeIds[i] == demandeId) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Unknown demande " + demandeId);
+    }
+}
@@ -0,0 +1,8 @@
+package com.irrigation.water.planning;
+
+/**
+ * Ce que le planificateur doit savoir d'une pompe : sa puissance (kW) et si elle est
+ * interdite de démarrage (maintenance ou surconsommation).
+ */
+public record PompeCapacite(long pompeId, double puissance, boolean restreinte) {
+}
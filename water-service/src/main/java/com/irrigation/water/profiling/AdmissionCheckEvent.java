@@ -0,0 +1,49 @@
+package com.irrigation.water.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Contrôle effectué avant le démarrage d'une pompe : restriction et capacité énergétique
+ * (appels synchrones au microservice Énergie), volume du réservoir.
+ */
+@Name("com.irrigation.water.AdmissionCheck")
+@Label("Admission Check")
+@Description("Check run before a pump starts (energy-service calls, reservoir volume)")
+public class AdmissionCheckEvent extends ProfilingEvent {
+
+    @Label("Pump Id")
+    long pompeId;
+
+    @Label("Check")
+    String check;
+
+    public static AdmissionCheckEvent start(Long pompeId, String check) {
+        AdmissionCheckEvent event = new AdmissionCheckEvent();
+        event.pompeId = idOf(pompeId);
+        event.check = check;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Exécute le contrôle ; l'issue vaut ALLOWED ou REFUSED selon son résultat.
+     *
+     * @return true si le contrôle est passé
+     */
+    public boolean check(BooleanSupplier passes) {
+        try {
+            boolean passed = passes.getAsBoolean();
+            outcome = passed ? ALLOWED : REFUSED;
+            return passed;
+        } catch (RuntimeException | Error e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.irrigation.water.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Publication d'un message vers RabbitMQ.
+ */
+@Name("com.irrigation.water.BrokerPublish")
+@Label("Broker Publish")
+@Description("Message sent to RabbitMQ")
+public class BrokerPublishEvent extends ProfilingEvent {
+
+    @Label("Routing Key")
+    String routingKey;
+
+    @Label("Pump Id")
+    long pompeId;
+
+    public static BrokerPublishEvent start(String routingKey, Long pompeId) {
+        BrokerPublishEvent event = new BrokerPublishEvent();
+        event.routingKey = routingKey;
+        event.pompeId = idOf(pompeId);
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,281 @@
+package com.irrigation.water.profiling;
+
+import jakarta.annotation.PostConstruct;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Enregistrements JDK Flight Recorder pilotés par l'actuator ({@code /actuator/flightrecorder}).
+ *
+ * Un enregistrement continu tourne dès le démarrage, sur disque et borné en âge et en taille :
+ * un incident peut être analysé après coup en téléchargeant ses dernières minutes. Il est
+ * aussi écrit à l'arrêt de la JVM. Les enregistrements à la demande (réglages « profile »,
+ * tous les événements du service) se démarrent, s'arrêtent, se téléchargent et se ferment.
+ * Aucun n'enregistre les variables d'environnement, propriétés système ni arguments de la JVM.
+ *
+ * <pre>
+ * GET    /actuator/flightrecorder        enregistrements en cours
+ * POST   /actuator/flightrecorder        démarre ({"name", "durationSeconds", "settings"}, tous optionnels)
+ * POST   /actuator/flightrecorder/{id}   arrête
+ * GET    /actuator/flightrecorder/{id}   télécharge (.jfr, aussi pendant l'enregistrement)
+ * DELETE /actuator/flightrecorder/{id}   ferme et supprime les données
+ * </pre>
+ */
+@Slf4j
+@Component
+@WebEndpoint(id = "flightrecorder")
+public class FlightRecorderEndpoint {
+
+    static final String CONTINUOUS = "irrigation-continuous";
+
+    private static final List<Class<? extends Event>> EVENTS = List.of(
+            AdmissionCheckEvent.class, MeasurementWriteEvent.class, BrokerPublishEvent.class,
+            MessageHandlingEvent.class);
+
+    // Peuvent contenir des secrets (mots de passe passés par variable d'environnement ou -D)
+    private static final List<String> SENSITIVE_EVENTS = List.of(
+            "jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.JVMInformation");
+
+    private final String applicationName;
+    private final boolean continuousEnabled;
+    private final String continuousSettings;
+    private final Duration continuousMaxAge;
+    private final long maxSizeBytes;
+    private final Duration continuousThreshold;
+    private final String onDemandSettings;
+    private final Path dir;
+
+    private volatile Recording continuous;
+
+    public FlightRecorderEndpoint(@Value("${spring.application.name:water-service}") String applicationName,
+                                  @Value("${irrigation.jfr.continuous.enabled:true}") boolean continuousEnabled,
+                                  @Value("${irrigation.jfr.continuous.settings:default}") String continuousSettings,
+                                  @Value("${irrigation.jfr.continuous.max-age-minutes:30}") long maxAgeMinutes,
+                                  @Value("${irrigation.jfr.continuous.event-threshold-ms:5}") long thresholdMillis,
+                                  @Value("${irrigation.jfr.max-size-mb:100}") long maxSizeMb,
+                                  @Value("${irrigation.jfr.on-demand.settings:profile}") String onDemandSettings,
+                                  @Value("${irrigation.jfr.dir:${java.io.tmpdir}/irrigation-jfr}") String dir) {
+        this.applicationName = applicationName;
+        this.continuousEnabled = continuousEnabled;
+        this.continuousSettings = continuousSettings;
+        this.continuousMaxAge = Duration.ofMinutes(maxAgeMinutes);
+        this.continuousThreshold = Duration.ofMillis(thresholdMillis);
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+        this.onDemandSettings = onDemandSettings;
+        this.dir = Paths.get(dir);
+    }
+
+    @PostConstruct
+    void startContinuous() {
+        if (!continuousEnabled || !FlightRecorder.isAvailable()) {
+            return;
+        }
+        try {
+            Files.createDirectories(dir);
+            Recording recording = new Recording(Configuration.getConfiguration(continuousSettings));
+            recording.setName(CONTINUOUS);
+            recording.setToDisk(true);
+            recording.setMaxAge(continuousMaxAge);
+            recording.setMaxSize(maxSizeBytes);
+            recording.setDestination(dir.resolve(applicationName + "-exit.jfr"));
+            recording.setDumpOnExit(true);
+            enableServiceEvents(recording, continuousThreshold);
+            disableSensitiveEvents(recording);
+            recording.start();
+            continuous = recording;
+            log.info("🎥 Continuous flight recording started (last {} min, at most {} MB, service events >= {} ms)",
+                    continuousMaxAge.toMinutes(), maxSizeBytes / (1024 * 1024), continuousThreshold.toMillis());
+        } catch (IOException | ParseException | IllegalStateException e) {
+            log.warn("⚠️ Continuous flight recording not started: {}", e.getMessage());
+        }
+    }
+
+    @ReadOperation
+    public List<Map<String, Object>> recordings() {
+        if (!FlightRecorder.isAvailable()) {
+            return List.of();
+        }
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .map(FlightRecorderEndpoint::describe)
+                .toList();
+    }
+
+    @WriteOperation
+    public Map<String, Object> start(@Nullable String name, @Nullable Long durationSeconds,
+                                     @Nullable String settings) {
+        if (!FlightRecorder.isAvailable()) {
+            throw new InvalidEndpointRequestException("Flight Recorder is not available in this JVM",
+                    "Flight Recorder unavailable");
+        }
+        String configurationName = settings != null ? settings : onDemandSettings;
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(configurationName);
+        } catch (IOException | ParseException e) {
+            throw new InvalidEndpointRequestException("Unknown JFR settings '" + configurationName + "'",
+                    "Unknown settings");
+        }
+        Recording recording = new Recording(configuration);
+        recording.setName(name != null ? name : applicationName + "-" + System.currentTimeMillis());
+        recording.setToDisk(true);
+        recording.setMaxSize(maxSizeBytes);
+        if (durationSeconds != null) {
+            recording.setDuration(Duration.ofSeconds(durationSeconds));
+        }
+        enableServiceEvents(recording, Duration.ZERO);
+        disableSensitiveEvents(recording);
+        recording.start();
+        log.info("🎥 Flight recording #{} '{}' started ({} settings{})", recording.getId(), recording.getName(),
+                configurationName, durationSeconds != null ? ", " + durationSeconds + " s" : "");
+        return describe(recording);
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> stop(@Selector long id) {
+        Optional<Recording> found = find(id);
+        if (found.isEmpty()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Recording recording = requireOnDemand(found.get());
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            log.info("⏹️ Flight recording #{} '{}' stopped", id, recording.getName());
+        }
+        return new WebEndpointResponse<>(describe(recording));
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> download(@Selector long id) {
+        Optional<Recording> found = find(id);
+        if (found.isEmpty()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        try {
+            Path file = Files.createTempFile(applicationName + "-" + id + "-", ".jfr");
+            found.get().dump(file);
+            return new WebEndpointResponse<>(new TemporaryFileResource(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not dump flight recording #" + id, e);
+        }
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<Void> close(@Selector long id) {
+        Optional<Recording> found = find(id);
+        if (found.isEmpty()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        requireOnDemand(found.get()).close();
+        log.info("🗑️ Flight recording #{} closed", id);
+        return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NO_CONTENT);
+    }
+
+    /**
+     * Active les événements du service avec un seuil de durée ; les réglages JFR standard ne les
+     * connaissent pas.
+     */
+    private static void enableServiceEvents(Recording recording, Duration threshold) {
+        for (Class<? extends Event> event : EVENTS) {
+            recording.enable(event).withThreshold(threshold);
+        }
+    }
+
+    /**
+     * Retire les événements JDK qui recopient l'environnement et les arguments de la JVM,
+     * quels que soient les réglages choisis : un enregistrement se télécharge et se partage.
+     */
+    private static void disableSensitiveEvents(Recording recording) {
+        SENSITIVE_EVENTS.forEach(recording::disable);
+    }
+
+    private Optional<Recording> find(long id) {
+        if (!FlightRecorder.isAvailable()) {
+            return Optional.empty();
+        }
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .filter(recording -> recording.getId() == id)
+                .findFirst();
+    }
+
+    private Recording requireOnDemand(Recording recording) {
+        if (recording == continuous) {
+            throw new InvalidEndpointRequestException(
+                    "The continuous recording runs for the whole process (irrigation.jfr.continuous.enabled=false to disable it)",
+                    "Continuous recording");
+        }
+        return recording;
+    }
+
+    private static Map<String, Object> describe(Recording recording) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("id", recording.getId());
+        info.put("name", recording.getName());
+        info.put("state", recording.getState());
+        info.put("startTime", recording.getStartTime());
+        info.put("stopTime", recording.getStopTime());
+        info.put("duration", recording.getDuration());
+        info.put("maxAge", recording.getMaxAge());
+        info.put("sizeBytes", recording.getSize());
+        return info;
+    }
+
+    /**
+     * Fichier .jfr supprimé une fois envoyé.
+     */
+    private static final class TemporaryFileResource extends FileSystemResource {
+
+        TemporaryFileResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(getFile().toPath());
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean isFile() {
+            // Force la lecture par getInputStream(), sans transfert direct du fichier
+            return false;
+        }
+    }
+}
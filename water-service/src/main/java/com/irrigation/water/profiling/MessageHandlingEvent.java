@@ -0,0 +1,28 @@
+package com.irrigation.water.profiling;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Traitement d'un message RabbitMQ par un listener du service (message déjà désérialisé).
+ */
+@Name("com.irrigation.water.MessageHandling")
+@Label("Message Handling")
+@Description("RabbitMQ message processed by a listener")
+public class MessageHandlingEvent extends ProfilingEvent {
+
+    @Label("Queue")
+    String queue;
+
+    @Label("Pump Id")
+    long pompeId;
+
+    public static MessageHandlingEvent start(String queue, Long pompeId) {
+        MessageHandlingEvent event = new MessageHandlingEvent();
+        event.queue = queue;
+        event.pompeId = idOf(pompeId);
+        event.begin();
+        return event;
+    }
+}
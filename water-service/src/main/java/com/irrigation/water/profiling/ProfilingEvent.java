@@ -0,0 +1,56 @@
+package com.irrigation.water.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+import java.util.function.Supplier;
+
+/**
+ * Base des événements JDK Flight Recorder du microservice : durée de l'opération
+ * (begin/commit) et son issue.
+ *
+ * Sans enregistrement actif, commit() ne fait rien : l'instrumentation reste en place en
+ * production. Pas de pile d'appels, pour que l'enregistrement continu reste léger.
+ */
+@Category({"Irrigation", "Water"})
+@StackTrace(false)
+public abstract class ProfilingEvent extends Event {
+
+    static final String OK = "OK";
+    static final String ALLOWED = "ALLOWED";
+    static final String REFUSED = "REFUSED";
+
+    @Label("Outcome")
+    @Description("OK, ALLOWED, REFUSED, or the class name of the exception thrown")
+    String outcome;
+
+    /**
+     * Exécute l'opération mesurée et enregistre l'événement, en échec comme en succès.
+     */
+    public <T> T call(Supplier<T> action) {
+        try {
+            T result = action.get();
+            outcome = OK;
+            return result;
+        } catch (RuntimeException | Error e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            commit();
+        }
+    }
+
+    public void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    static long idOf(Long pompeId) {
+        return pompeId != null ? pompeId : 0L;
+    }
+}
@@ -0,0 +1,169 @@
+package com.irrigation.water.projection;
+
+import com.irrigation.commons.timeseries.EpochTime;
+import com.irrigation.events.MeasurementRecordedEvent;
+import com.irrigation.events.MeasurementRecordedEvent.Grandeur;
+import com.irrigation.water.dto.EfficaciteHoraireDTO;
+import com.irrigation.water.dto.EfficacitePompeDTO;
+import com.irrigation.water.entity.EfficaciteHoraire;
+import com.irrigation.water.entity.EvenementTraite;
+import com.irrigation.water.repository.EfficaciteHoraireRepository;
+import com.irrigation.water.repository.EvenementTraiteRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Projection CQRS de l'efficacité des pompes (kWh par m³ pompé).
+ *
+ * Alimentée uniquement par les événements {@link MeasurementRecordedEvent} des deux
+ * microservices (énergie par le microservice Énergie, volume par le microservice Eau) :
+ * chaque delta est ajouté en base au bucket horaire de sa pompe, par un incrément relatif
+ * exécuté dans la transaction du listener. Toutes les instances partagent la queue de la
+ * projection et donc la table : chacune applique sa part des deltas sans écraser celle
+ * des autres, et toutes répondent la même chose. Le message n'est acquitté qu'après le
+ * commit ; son message-id est enregistré dans la même transaction pour qu'une redelivery
+ * ne soit pas comptée deux fois. Les deltas antérieurs à la fenêtre sont ignorés.
+ */
+@Slf4j
+@Component
+public class EfficiencyProjection {
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    private final EfficaciteHoraireRepository repository;
+    private final EvenementTraiteRepository evenementRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readTemplate;
+    private final int windowHours;
+
+    public EfficiencyProjection(EfficaciteHoraireRepository repository,
+                                EvenementTraiteRepository evenementRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${water.efficiency.window-hours:168}") int windowHours) {
+        this.repository = repository;
+        this.evenementRepository = evenementRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+        this.windowHours = windowHours;
+    }
+
+    /**
+     * Applique un delta ; sans effet si le message {@code messageId} a déjà été appliqué.
+     *
+     * @param messageId Message-id AMQP, ou null pour un producteur qui n'en pose pas (pas de dédoublonnage)
+     */
+    public void apply(MeasurementRecordedEvent event, String messageId) {
+        if (event.getPompeId() == null || event.getGrandeur() == null
+                || event.getHeure() == null || event.getValeur() == null) {
+            log.warn("⚠️ Incomplete measurement event ignored: {}", event);
+            return;
+        }
+        long timestamp = EpochTime.toEpochMillis(event.getHeure());
+        long heure = timestamp - Math.floorMod(timestamp, HOUR_MILLIS);
+        if (heure < windowStart()) {
+            log.debug("Measurement event outside the {}h efficiency window ignored: {}", windowHours, event);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (messageId != null) {
+                if (evenementRepository.existsById(messageId)) {
+                    log.debug("Measurement event {} already applied, redelivery ignored", messageId);
+                    return;
+                }
+                evenementRepository.save(new EvenementTraite(messageId, LocalDateTime.now()));
+            }
+            increment(event.getPompeId(), EpochTime.toLocalDateTime(heure), event.getGrandeur(),
+                    event.getValeur(), event.getMesures() != null ? event.getMesures() : 0L);
+        });
+    }
+
+    public Optional<EfficacitePompeDTO> findByPompe(Long pompeId) {
+        return readTemplate.execute(status -> repository
+                .sumPompeDepuis(pompeId, EpochTime.toLocalDateTime(windowStart()))
+                .map(this::summary));
+    }
+
+    /**
+     * Toutes les pompes, de la moins efficace (plus de kWh par m³) à la plus efficace.
+     */
+    public List<EfficacitePompeDTO> findAll() {
+        List<EfficacitePompeDTO> result = readTemplate.execute(status -> repository
+                .sumParPompeDepuis(EpochTime.toLocalDateTime(windowStart())).stream()
+                .map(this::summary)
+                .collect(Collectors.toCollection(ArrayList::new)));
+        result.sort(Comparator.comparing(EfficacitePompeDTO::getKwhParM3,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return result;
+    }
+
+    public List<EfficaciteHoraireDTO> findHoraire(Long pompeId, LocalDateTime debut, LocalDateTime fin) {
+        return readTemplate.execute(status -> repository
+                .findByPompeIdAndHeureBetweenOrderByHeure(pompeId, debut, fin).stream()
+                .map(hour -> new EfficaciteHoraireDTO(hour.getHeure(), hour.getEnergieKwh(), hour.getVolumeM3(),
+                        ratio(hour.getEnergieKwh(), hour.getVolumeM3()),
+                        hour.getMesuresEnergie(), hour.getMesuresVolume()))
+                .toList());
+    }
+
+    /**
+     * Purge les heures sorties de la fenêtre et les message-ids plus anciens qu'elle.
+     */
+    @Scheduled(fixedDelayString = "${water.efficiency.purge-interval-ms:60000}")
+    public void purge() {
+        LocalDateTime start = EpochTime.toLocalDateTime(windowStart());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                repository.deleteByHeureBefore(start);
+                evenementRepository.deleteTraitesAvant(start);
+            });
+        } catch (RuntimeException e) {
+            log.error("❌ Failed to purge expired efficiency hours: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ajoute le delta au bucket ; le crée s'il n'existe pas encore. Si une autre instance
+     * crée le même bucket en même temps, la contrainte d'unicité fait échouer la transaction
+     * et le message est redélivré, puis appliqué par incrément.
+     */
+    private void increment(Long pompeId, LocalDateTime heure, Grandeur grandeur, double valeur, long mesures) {
+        boolean energie = grandeur == Grandeur.ENERGIE;
+        double energieKwh = energie ? valeur : 0.0;
+        double volumeM3 = energie ? 0.0 : valeur;
+        long mesuresEnergie = energie ? mesures : 0L;
+        long mesuresVolume = energie ? 0L : mesures;
+        if (repository.increment(pompeId, heure, energieKwh, volumeM3, mesuresEnergie, mesuresVolume) == 0) {
+            repository.save(new EfficaciteHoraire(null, pompeId, heure, energieKwh, volumeM3,
+                    mesuresEnergie, mesuresVolume));
+        }
+    }
+
+    private EfficacitePompeDTO summary(EfficaciteHoraireRepository.Totaux totaux) {
+        return new EfficacitePompeDTO(totaux.getPompeId(), (long) windowHours, totaux.getEnergieKwh(),
+                totaux.getVolumeM3(), ratio(totaux.getEnergieKwh(), totaux.getVolumeM3()), totaux.getDerniereHeure());
+    }
+
+    /**
+     * kWh par m³, ou null sans volume mesuré.
+     */
+    static Double ratio(double energie, double volume) {
+        return volume > 0 ? energie / volume : null;
+    }
+
+    private long windowStart() {
+        long now = EpochTime.toEpochMillis(LocalDateTime.now());
+        return now - Math.floorMod(now, HOUR_MILLIS) - (windowHours - 1) * HOUR_MILLIS;
+    }
+}
@@ -0,0 +1,51 @@
+package com.irrigation.water.publisher;
+
+import com.irrigation.events.FlowAnomalyEvent;
+import com.irrigation.water.config.RabbitMQConfig;
+import com.irrigation.water.profiling.BrokerPublishEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Publie les anomalies de débit vers RabbitMQ, après commit de la mesure qui les a révélées.
+ * Un échec de publication est journalisé sans faire échouer l'enregistrement de la mesure.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FlowAnomalyPublisher {
+
+    private final RabbitTemplate rabbitTemplate;
+
+    public void publish(FlowAnomalyEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(event);
+                }
+            });
+        } else {
+            send(event);
+        }
+    }
+
+    private void send(FlowAnomalyEvent event) {
+        log.warn("🚨 Flow anomaly {} on pump #{}: {} (expected {} ± {}, score {})",
+                event.getType(), event.getPompeId(), event.getDebit(),
+                String.format("%.2f", event.getMoyenne()), String.format("%.2f", event.getEcartType()),
+                String.format("%.1f", event.getScore()));
+        try {
+            BrokerPublishEvent.start(RabbitMQConfig.ANOMALY_ROUTING_KEY, event.getPompeId())
+                    .run(() -> rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE,
+                            RabbitMQConfig.ANOMALY_ROUTING_KEY, event));
+        } catch (AmqpException e) {
+            log.error("❌ Failed to publish flow anomaly of pump #{}: {}", event.getPompeId(), e.getMessage());
+        }
+    }
+}
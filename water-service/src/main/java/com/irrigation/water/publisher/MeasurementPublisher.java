@@ -0,0 +1,156 @@
+package com.irrigation.water.publisher;
+
+import com.irrigation.commons.timeseries.EpochTime;
+import com.irrigation.water.accounting.ReservoirAccounting;
+import com.irrigation.water.config.RabbitMQConfig;
+import com.irrigation.water.entity.DebitMesure;
+import com.irrigation.water.profiling.BrokerPublishEvent;
+import com.irrigation.events.MeasurementRecordedEvent;
+import com.irrigation.events.MeasurementRecordedEvent.Grandeur;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publie les débits enregistrés vers la projection d'efficacité des pompes, sous forme
+ * de deltas de volume pompé (m³) par pompe et par heure. Le volume d'une mesure est
+ * celui de la comptabilité des réservoirs ({@link ReservoirAccounting#volumeForDebit}).
+ *
+ * Les mesures sont cumulées en mémoire après commit et publiées périodiquement, un
+ * événement par pompe et par heure modifiées : une rafale d'écritures ou un import ne
+ * produit que quelques messages. Un delta non publié (RabbitMQ indisponible) reste
+ * cumulé et repart au flush suivant.
+ */
+@Slf4j
+@Service
+public class MeasurementPublisher {
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    private record Key(long pompeId, long heure) {
+    }
+
+    private static final class Delta {
+        private double valeur;
+        private long mesures;
+    }
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ReservoirAccounting reservoirAccounting;
+    private final boolean enabled;
+
+    private final Map<Key, Delta> pending = new ConcurrentHashMap<>();
+
+    public MeasurementPublisher(RabbitTemplate rabbitTemplate,
+                                ReservoirAccounting reservoirAccounting,
+                                @Value("${irrigation.events.measurements.enabled:true}") boolean enabled) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.reservoirAccounting = reservoirAccounting;
+        this.enabled = enabled;
+    }
+
+    public void recordCreated(DebitMesure debit) {
+        if (enabled) {
+            record(debit.getPompeId(), debit.getDateMesure(), reservoirAccounting.volumeForDebit(debit.getDebit()), 1);
+        }
+    }
+
+    /**
+     * Cumule un upload en colonnes : regroupé par pompe et par heure avant le commit.
+     */
+    public void recordCreated(int size, long[] pompeIds, long[] timestamps, double[] debits) {
+        if (!enabled) {
+            return;
+        }
+        Map<Key, Delta> batch = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+            Delta delta = batch.computeIfAbsent(new Key(pompeIds[row], hourOf(timestamps[row])), key -> new Delta());
+            delta.valeur += reservoirAccounting.volumeForDebit(debits[row]);
+            delta.mesures++;
+        }
+        afterCommit(() -> batch.forEach((key, delta) -> merge(key, delta.valeur, delta.mesures)));
+    }
+
+    public void recordUpdated(Long pompeId, LocalDateTime dateMesure, double ancienDebit, double nouveauDebit) {
+        if (enabled && ancienDebit != nouveauDebit) {
+            record(pompeId, dateMesure, reservoirAccounting.volumeForDebit(nouveauDebit - ancienDebit), 0);
+        }
+    }
+
+    public void recordDeleted(DebitMesure debit) {
+        if (enabled) {
+            record(debit.getPompeId(), debit.getDateMesure(), -reservoirAccounting.volumeForDebit(debit.getDebit()), -1);
+        }
+    }
+
+    /**
+     * Publie les deltas cumulés ; s'arrête au premier échec et garde le reste pour le flush suivant.
+     */
+    @Scheduled(fixedDelayString = "${irrigation.events.measurements.flush-interval-ms:1000}")
+    public void flush() {
+        int published = 0;
+        for (Key key : pending.keySet()) {
+            Delta delta = pending.remove(key);
+            if (delta == null) {
+                continue;
+            }
+            try {
+                MeasurementRecordedEvent event = new MeasurementRecordedEvent(Grandeur.VOLUME, key.pompeId(),
+                        EpochTime.toLocalDateTime(key.heure()), delta.valeur, delta.mesures);
+                BrokerPublishEvent.start(RabbitMQConfig.MEASUREMENT_ROUTING_KEY, key.pompeId())
+                        .run(() -> rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE,
+                                RabbitMQConfig.MEASUREMENT_ROUTING_KEY, event));
+                published++;
+            } catch (AmqpException e) {
+                merge(key, delta.valeur, delta.mesures);
+                log.warn("⚠️ Measurement events not published, {} pump-hours kept for retry: {}",
+                        pending.size(), e.getMessage());
+                return;
+            }
+        }
+        if (published > 0) {
+            log.debug("📤 Published {} measurement events", published);
+        }
+    }
+
+    private void record(Long pompeId, LocalDateTime dateMesure, double valeur, long mesures) {
+        Key key = new Key(pompeId, hourOf(EpochTime.toEpochMillis(dateMesure)));
+        afterCommit(() -> merge(key, valeur, mesures));
+    }
+
+    private void merge(Key key, double valeur, long mesures) {
+        pending.compute(key, (k, delta) -> {
+            Delta merged = delta != null ? delta : new Delta();
+            merged.valeur += valeur;
+            merged.mesures += mesures;
+            return merged;
+        });
+    }
+
+    private static long hourOf(long epochMillis) {
+        return epochMillis - Math.floorMod(epochMillis, HOUR_MILLIS);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
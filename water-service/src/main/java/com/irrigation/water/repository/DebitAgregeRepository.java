@@ -0,0 +1,27 @@
+package com.irrigation.water.repository;
+
+import com.irrigation.water.entity.DebitAgrege;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface DebitAgregeRepository extends JpaRepository<DebitAgrege, Long> {
+    
+    Optional<DebitAgrege> findByPompeIdAndGranulariteAndPeriodeDebut(
+            Long pompeId, DebitAgrege.Granularite granularite, LocalDateTime periodeDebut);
+    
+    // Totaux par pompe sur les résumés journaliers (toujours conservés)
+    @Query("SELECT SUM(a.debitTotal) FROM DebitAgrege a WHERE a.pompeId = :pompeId AND a.granularite = 'JOUR'")
+    Double getTotalDebitByPompe(Long pompeId);
+    
+    @Query("SELECT SUM(a.nombreMesures) FROM DebitAgrege a WHERE a.pompeId = :pompeId AND a.granularite = 'JOUR'")
+    Long getNombreMesuresByPompe(Long pompeId);
+    
+    // Totaux de période sur les résumés horaires (précision à l'heure)
+    @Query("SELECT SUM(a.debitTotal) FROM DebitAgrege a WHERE a.granularite = 'HEURE' AND a.periodeDebut BETWEEN :debut AND :fin")
+    Double getTotalDebitPeriode(LocalDateTime debut, LocalDateTime fin);
+}
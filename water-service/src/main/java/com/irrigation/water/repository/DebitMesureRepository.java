@@ -1,11 +1,14 @@
 package com.irrigation.water.repository;
 
 import com.irrigation.water.entity.DebitMesure;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,9 +18,25 @@ public interface DebitMesureRepository extends JpaRepository<DebitMesure, Long>
     
     List<DebitMesure> findByDateMesureBetween(LocalDateTime debut, LocalDateTime fin);
     
+    List<DebitMesure> findByPompeIdAndDateMesureBetween(Long pompeId, LocalDateTime debut, LocalDateTime fin);
+    
+    List<DebitMesure> findByDateMesureGreaterThanEqualOrderByIdAsc(LocalDateTime debut);
+    
     @Query("SELECT AVG(d.debit) FROM DebitMesure d WHERE d.pompeId = :pompeId")
     Double getDebitMoyenByPompe(Long pompeId);
     
+    @Query("SELECT SUM(d.debit) FROM DebitMesure d WHERE d.pompeId = :pompeId")
+    Double getTotalDebitByPompe(Long pompeId);
+    
+    long countByPompeId(Long pompeId);
+    
+    List<DebitMesure> findByDateMesureBefore(LocalDateTime cutoff, Pageable pageable);
+    
+    // Borne sur la date : sur une table partitionnée, seules les partitions antérieures à la coupure sont visitées
+    @Modifying
+    @Query("DELETE FROM DebitMesure d WHERE d.dateMesure < :cutoff AND d.id IN :ids")
+    int deleteByIdInBefore(Collection<Long> ids, LocalDateTime cutoff);
+    
     @Query("SELECT SUM(d.debit) FROM DebitMesure d WHERE d.dateMesure BETWEEN :debut AND :fin")
     Double getTotalDebitPeriode(LocalDateTime debut, LocalDateTime fin);
 }
@@ -0,0 +1,13 @@
+package com.irrigation.water.repository;
+
+import com.irrigation.water.entity.DemandeIrrigation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DemandeIrrigationRepository extends JpaRepository<DemandeIrrigation, Long> {
+
+    List<DemandeIrrigation> findAllByOrderByIdAsc();
+}
@@ -0,0 +1,49 @@
+package com.irrigation.water.repository;
+
+import com.irrigation.water.entity.EfficaciteHoraire;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EfficaciteHoraireRepository extends JpaRepository<EfficaciteHoraire, Long> {
+
+    /**
+     * Cumuls d'une pompe sur une période.
+     */
+    interface Totaux {
+        Long getPompeId();
+        Double getEnergieKwh();
+        Double getVolumeM3();
+        LocalDateTime getDerniereHeure();
+    }
+
+    List<EfficaciteHoraire> findByPompeIdAndHeureBetweenOrderByHeure(Long pompeId, LocalDateTime debut, LocalDateTime fin);
+
+    @Query("SELECT e.pompeId AS pompeId, SUM(e.energieKwh) AS energieKwh, SUM(e.volumeM3) AS volumeM3, "
+            + "MAX(e.heure) AS derniereHeure FROM EfficaciteHoraire e WHERE e.heure >= :debut GROUP BY e.pompeId")
+    List<Totaux> sumParPompeDepuis(LocalDateTime debut);
+
+    @Query("SELECT e.pompeId AS pompeId, SUM(e.energieKwh) AS energieKwh, SUM(e.volumeM3) AS volumeM3, "
+            + "MAX(e.heure) AS derniereHeure FROM EfficaciteHoraire e "
+            + "WHERE e.pompeId = :pompeId AND e.heure >= :debut GROUP BY e.pompeId")
+    Optional<Totaux> sumPompeDepuis(Long pompeId, LocalDateTime debut);
+
+    // Incrément relatif : les instances qui consomment la queue ne s'écrasent pas.
+    // En SQL natif : Hibernate caste les paramètres double en float($p), refusé par H2
+    @Modifying
+    @Query(value = "UPDATE efficacite_horaire SET energie_kwh = energie_kwh + :energie, volume_m3 = volume_m3 + :volume, "
+            + "mesures_energie = mesures_energie + :mesuresEnergie, mesures_volume = mesures_volume + :mesuresVolume "
+            + "WHERE pompe_id = :pompeId AND heure = :heure", nativeQuery = true)
+    int increment(Long pompeId, LocalDateTime heure, double energie, double volume,
+                  long mesuresEnergie, long mesuresVolume);
+
+    @Modifying
+    @Query("DELETE FROM EfficaciteHoraire e WHERE e.heure < :cutoff")
+    int deleteByHeureBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,17 @@
+package com.irrigation.water.repository;
+
+import com.irrigation.water.entity.EvenementTraite;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface EvenementTraiteRepository extends JpaRepository<EvenementTraite, String> {
+
+    @Modifying
+    @Query("DELETE FROM EvenementTraite e WHERE e.dateTraitement < :avant")
+    int deleteTraitesAvant(LocalDateTime avant);
+}
@@ -1,20 +1,74 @@
 package com.irrigation.water.repository;
 
 import com.irrigation.water.entity.Reservoir;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Les requêtes de lecture passent par le cache de requêtes (région "reservoirs-queries"),
+ * invalidé automatiquement par Hibernate à chaque écriture sur la table reservoirs.
+ */
 @Repository
 public interface ReservoirRepository extends JpaRepository<Reservoir, Long> {
     
+    // Appelé à chaque événement de surconsommation
+    @Override
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reservoirs-queries")
+    })
+    List<Reservoir> findAll();
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reservoirs-queries")
+    })
     Optional<Reservoir> findByNom(String nom);
     
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reservoirs-queries")
+    })
     List<Reservoir> findByLocalisation(String localisation);
     
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reservoirs-queries")
+    })
     @Query("SELECT SUM(r.volumeActuel) FROM Reservoir r")
     Double getTotalVolumeDisponible();
+
+    /**
+     * Retire un volume prélevé sans écraser ceux des autres instances ; refusé (0 ligne)
+     * si le réservoir n'en contient plus assez.
+     */
+    @Modifying
+    @Query("UPDATE Reservoir r SET r.volumeActuel = r.volumeActuel - :delta WHERE r.id = :id AND r.volumeActuel >= :delta")
+    int drawVolume(Long id, double delta);
+
+    @Modifying
+    @Query("UPDATE Reservoir r SET r.volumeActuel = 0 WHERE r.id = :id")
+    int empty(Long id);
+
+    // Hors cache : relu juste après drawVolume pour recaler le compteur mémoire
+    @Query("SELECT r.volumeActuel FROM Reservoir r WHERE r.id = :id")
+    Optional<Double> findVolumeActuel(Long id);
+
+    /**
+     * Ligne lue en base (pas dans le cache de l'instance) et verrouillée jusqu'à la fin de
+     * la transaction : point de départ des écritures.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reservoir r WHERE r.id = :id")
+    Optional<Reservoir> findForUpdate(Long id);
 }
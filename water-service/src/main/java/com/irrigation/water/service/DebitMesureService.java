@@ -1,16 +1,32 @@
 package com.irrigation.water.service;
 
+import com.irrigation.water.accounting.ReservoirAccounting;
+import com.irrigation.water.anomaly.FlowAnomalyDetector;
 import com.irrigation.water.client.EnergyServiceClient;
 import com.irrigation.water.dto.DebitMesureDTO;
 import com.irrigation.water.entity.DebitMesure;
+import com.irrigation.water.ingestion.DebitBulkWriter;
+import com.irrigation.water.ingestion.DebitColumns;
+import com.irrigation.water.ingestion.DebitIdempotence;
+import com.irrigation.water.profiling.AdmissionCheckEvent;
+import com.irrigation.water.profiling.MeasurementWriteEvent;
+import com.irrigation.water.publisher.MeasurementPublisher;
+import com.irrigation.water.repository.DebitAgregeRepository;
 import com.irrigation.water.repository.DebitMesureRepository;
+import com.irrigation.water.timeseries.DebitHotTier;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -20,41 +36,107 @@ import java.util.stream.Collectors;
 public class DebitMesureService {
 
     private final DebitMesureRepository debitMesureRepository;
+    private final DebitAgregeRepository agregeRepository;
     private final EnergyServiceClient energyServiceClient;
+    private final DebitHotTier hotTier;
+    private final ReservoirAccounting reservoirAccounting;
+    private final DebitBulkWriter bulkWriter;
+    private final MeasurementPublisher measurementPublisher;
+    private final FlowAnomalyDetector anomalyDetector;
+    private final DebitIdempotence idempotence;
 
     private static final Double PUMP_POWER_KW = 50.0; // Average pump power consumption
 
+    @Transactional(readOnly = true)
     public List<DebitMesureDTO> getAllDebits() {
         return debitMesureRepository.findAll().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public DebitMesureDTO getDebitById(Long id) {
         DebitMesure debit = debitMesureRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Debit not found with id: " + id));
         return convertToDTO(debit);
     }
 
+    @Transactional(readOnly = true)
     public List<DebitMesureDTO> getDebitsByPompe(Long pompeId) {
         return debitMesureRepository.findByPompeId(pompeId).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<DebitMesureDTO> getDebitsByPeriode(LocalDateTime debut, LocalDateTime fin) {
-        return debitMesureRepository.findByDateMesureBetween(debut, fin).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return hotTier.findBetween(debut, fin)
+                .orElseGet(() -> debitMesureRepository.findByDateMesureBetween(debut, fin).stream()
+                        .map(this::convertToDTO)
+                        .collect(Collectors.toList()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<DebitMesureDTO> getDebitsByPompeAndPeriode(Long pompeId, LocalDateTime debut, LocalDateTime fin) {
+        return hotTier.findByPompeBetween(pompeId, debut, fin)
+                .orElseGet(() -> debitMesureRepository.findByPompeIdAndDateMesureBetween(pompeId, debut, fin).stream()
+                        .map(this::convertToDTO)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Débit déjà enregistré sous cette clé d'idempotence (réémission d'un client après un
+     * timeout). Sans accès base quand la clé est inconnue du filtre ou récente.
+     */
+    public Optional<DebitMesureDTO> findByCleIdempotence(String cleIdempotence) {
+        if (cleIdempotence == null) {
+            return Optional.empty();
+        }
+        return idempotence.find(cleIdempotence)
+                .flatMap(debitMesureRepository::findById)
+                .map(this::convertToDTO);
+    }
+
+    /**
+     * Relit le débit après un conflit sur la clé d'idempotence (envoi simultané, ou clé
+     * enregistrée par une autre instance que le filtre local ne connaît pas).
+     */
+    public Optional<DebitMesureDTO> findAfterDuplicateKey(String cleIdempotence) {
+        idempotence.markStored(cleIdempotence);
+        return findByCleIdempotence(cleIdempotence);
     }
 
-    public DebitMesureDTO createDebit(DebitMesureDTO dto) {
+    public DebitMesureDTO createDebit(DebitMesureDTO dto, String cleIdempotence) {
+        DebitMesure debit = prepareDebit(dto, cleIdempotence);
+        List<DebitMesure> stored = MeasurementWriteEvent.start(debit.getPompeId(), 1)
+                .call(() -> insert(List.of(debit)));
+        if (stored.isEmpty()) {
+            // L'annulation de la transaction rend le prélèvement
+            throw new DuplicateKeyException("Idempotency-Key already used: " + cleIdempotence);
+        }
+        DebitMesure saved = stored.get(0);
+        hotTier.recordCreated(saved);
+        measurementPublisher.recordCreated(saved);
+        anomalyDetector.accept(saved.getPompeId(), saved.getDateMesure(), saved.getDebit());
+        return convertToDTO(saved);
+    }
+
+    /**
+     * Effectue les contrôles synchrones auprès du microservice Énergie, prélève le volume
+     * de la mesure sur son réservoir et construit l'entité à persister, horodatée maintenant.
+     * Le prélèvement est rendu si la transaction appelante est annulée ; en write-behind,
+     * l'appelant doit le rendre via {@link #refundDebit} si le lot échoue.
+     *
+     * @param cleIdempotence Clé d'idempotence de la mesure, ou null
+     */
+    public DebitMesure prepareDebit(DebitMesureDTO dto, String cleIdempotence) {
         // ⚡ SYNCHRONOUS COMMUNICATION 1: Check if pompe has excessive consumption
         log.info("⚡ Checking pompe #{} consumption status...", dto.getPompeId());
         
-        boolean pompeRestricted = energyServiceClient.isPompeRestricted(dto.getPompeId());
+        boolean pompeAllowed = AdmissionCheckEvent.start(dto.getPompeId(), "restriction")
+                .check(() -> !energyServiceClient.isPompeRestricted(dto.getPompeId()));
         
-        if (pompeRestricted) {
+        if (!pompeAllowed) {
             log.error("❌ Cannot start pump #{}: Pump restricted due to high energy consumption", dto.getPompeId());
             throw new RuntimeException("⚠️ Pump restricted due to high energy consumption (>= 150 kWh)");
         }
@@ -62,55 +144,170 @@ public class DebitMesureService {
         // ⚡ SYNCHRONOUS COMMUNICATION 2: Check general energy availability
         log.info("🔌 Checking general energy availability before starting pump #{}", dto.getPompeId());
         
-        boolean energyAvailable = energyServiceClient.checkEnergyAvailability(PUMP_POWER_KW);
+        boolean energyAvailable = AdmissionCheckEvent.start(dto.getPompeId(), "energy-capacity")
+                .check(() -> energyServiceClient.checkEnergyAvailability(PUMP_POWER_KW, dto.getPompeId()));
         
         if (!energyAvailable) {
             log.error("❌ Cannot start pump #{}: Insufficient energy capacity", dto.getPompeId());
             throw new RuntimeException("⚠️ Insufficient energy to start pump. Current load too high.");
         }
         
+        // 💧 Water accounting: draw the measured volume (from its reservation first), refused if the reservoir would go negative
+        if (dto.getReservoirId() != null) {
+            AdmissionCheckEvent.start(dto.getPompeId(), "reservoir")
+                    .run(() -> reservoirAccounting.draw(dto.getReservoirId(),
+                            reservoirAccounting.volumeForDebit(dto.getDebit()), dto.getReservationId()));
+        }
+        
         log.info("✅ All checks passed! Starting pump #{}", dto.getPompeId());
         
         DebitMesure debit = convertToEntity(dto);
-        DebitMesure saved = debitMesureRepository.save(debit);
-        return convertToDTO(saved);
+        debit.setDateMesure(LocalDateTime.now());
+        debit.setCleIdempotence(cleIdempotence);
+        return debit;
+    }
+
+    /**
+     * Persiste un lot de débits déjà validés dans une seule transaction
+     * (group commit du mode write-behind).
+     */
+    public void persistBatch(List<DebitMesure> debits) {
+        List<DebitMesure> saved = MeasurementWriteEvent.start(null, debits.size())
+                .call(() -> insert(debits));
+        for (DebitMesure debit : saved) {
+            hotTier.recordCreated(debit);
+            measurementPublisher.recordCreated(debit);
+            anomalyDetector.accept(debit.getPompeId(), debit.getDateMesure(), debit.getDebit());
+        }
+    }
+
+    /**
+     * Insère les débits et prend leurs clés d'idempotence. Un débit dont la clé est déjà prise
+     * (réémission passée par une autre instance) est retiré et son prélèvement rendu après le
+     * commit : il ne déclenche ni tier mémoire, ni projection, ni détection d'anomalies, et ne
+     * fait pas échouer ses voisins du lot.
+     *
+     * @return Les débits effectivement enregistrés
+     */
+    private List<DebitMesure> insert(List<DebitMesure> debits) {
+        // Une tentative annulée du write-behind a pu leur attribuer un id : elles restent nouvelles
+        debits.forEach(entity -> entity.setId(null));
+        List<DebitMesure> saved = debitMesureRepository.saveAll(debits);
+        List<DebitMesure> stored = new ArrayList<>(saved.size());
+        List<DebitMesure> duplicates = new ArrayList<>();
+        for (DebitMesure debit : saved) {
+            if (debit.getCleIdempotence() == null
+                    || idempotence.claim(debit.getCleIdempotence(), debit.getId()).isEmpty()) {
+                stored.add(debit);
+            } else {
+                debitMesureRepository.delete(debit);
+                duplicates.add(debit);
+            }
+        }
+        if (!duplicates.isEmpty()) {
+            refundAfterCommit(duplicates);
+        }
+        return stored;
+    }
+
+    private void refundAfterCommit(List<DebitMesure> debits) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    debits.forEach(DebitMesureService.this::refundDebit);
+                }
+            });
+        } else {
+            debits.forEach(this::refundDebit);
+        }
+    }
+
+    /**
+     * Persiste un upload groupé décodé en colonnes (insertion JDBC par lots, puis tier mémoire,
+     * projection d'efficacité et détection d'anomalies).
+     * Ce sont des relevés déjà effectués par les équipements : ni contrôle énergétique de
+     * démarrage, ni prélèvement sur un réservoir.
+     *
+     * @return Le nombre de mesures enregistrées
+     */
+    public int persistColumns(DebitColumns columns) {
+        long[] ids = MeasurementWriteEvent.start(null, columns.size()).call(() -> bulkWriter.insert(columns));
+        hotTier.recordCreated(columns.size(), ids, columns.pompeIds(), columns.timestamps(),
+                columns.debits(), columns.unite());
+        measurementPublisher.recordCreated(columns.size(), columns.pompeIds(), columns.timestamps(), columns.debits());
+        anomalyDetector.accept(columns.size(), columns.pompeIds(), columns.timestamps(), columns.debits());
+        return columns.size();
+    }
+
+    /**
+     * Rend au réservoir le volume d'une mesure préparée mais jamais persistée
+     * (la part prise sur une réservation revient au volume disponible).
+     */
+    public void refundDebit(DebitMesure debit) {
+        if (debit.getReservoirId() != null) {
+            reservoirAccounting.refund(debit.getReservoirId(), reservoirAccounting.volumeForDebit(debit.getDebit()));
+        }
     }
 
     public DebitMesureDTO updateDebit(Long id, DebitMesureDTO dto) {
         DebitMesure existing = debitMesureRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Debit not found with id: " + id));
+        double ancienDebit = existing.getDebit();
         
         existing.setDebit(dto.getDebit());
         existing.setUnite(dto.getUnite());
         
         DebitMesure updated = debitMesureRepository.save(existing);
+        hotTier.recordUpdated(updated);
+        measurementPublisher.recordUpdated(updated.getPompeId(), updated.getDateMesure(),
+                ancienDebit, updated.getDebit());
         return convertToDTO(updated);
     }
 
     public void deleteDebit(Long id) {
-        if (!debitMesureRepository.existsById(id)) {
-            throw new RuntimeException("Debit not found with id: " + id);
-        }
-        debitMesureRepository.deleteById(id);
+        DebitMesure existing = debitMesureRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Debit not found with id: " + id));
+        debitMesureRepository.delete(existing);
+        hotTier.recordDeleted(id);
+        measurementPublisher.recordDeleted(existing);
     }
 
+    @Transactional(readOnly = true)
     public Double getDebitMoyenByPompe(Long pompeId) {
-        Double moyen = debitMesureRepository.getDebitMoyenByPompe(pompeId);
-        return moyen != null ? moyen : 0.0;
+        Long compactedCount = agregeRepository.getNombreMesuresByPompe(pompeId);
+        if (compactedCount == null || compactedCount == 0) {
+            Double moyen = debitMesureRepository.getDebitMoyenByPompe(pompeId);
+            return moyen != null ? moyen : 0.0;
+        }
+        // Moyenne pondérée sur les mesures brutes et les résumés journaliers compactés
+        Double rawTotal = debitMesureRepository.getTotalDebitByPompe(pompeId);
+        long rawCount = debitMesureRepository.countByPompeId(pompeId);
+        Double compactedTotal = agregeRepository.getTotalDebitByPompe(pompeId);
+        return ((rawTotal != null ? rawTotal : 0.0) + (compactedTotal != null ? compactedTotal : 0.0))
+                / (rawCount + compactedCount);
     }
 
+    @Transactional(readOnly = true)
     public Double getTotalDebitPeriode(LocalDateTime debut, LocalDateTime fin) {
+        OptionalDouble recent = hotTier.sumBetween(debut, fin);
+        if (recent.isPresent()) {
+            return recent.getAsDouble();
+        }
+        // Mesures brutes + résumés horaires des mesures compactées (précision à l'heure)
         Double total = debitMesureRepository.getTotalDebitPeriode(debut, fin);
-        return total != null ? total : 0.0;
+        Double compacted = agregeRepository.getTotalDebitPeriode(debut, fin);
+        return (total != null ? total : 0.0) + (compacted != null ? compacted : 0.0);
     }
 
-    private DebitMesureDTO convertToDTO(DebitMesure entity) {
+    public DebitMesureDTO convertToDTO(DebitMesure entity) {
         DebitMesureDTO dto = new DebitMesureDTO();
         dto.setId(entity.getId());
         dto.setPompeId(entity.getPompeId());
         dto.setDebit(entity.getDebit());
         dto.setDateMesure(entity.getDateMesure());
         dto.setUnite(entity.getUnite());
+        dto.setReservoirId(entity.getReservoirId());
         return dto;
     }
 
@@ -119,6 +316,7 @@ public class DebitMesureService {
         entity.setPompeId(dto.getPompeId());
         entity.setDebit(dto.getDebit());
         entity.setUnite(dto.getUnite());
+        entity.setReservoirId(dto.getReservoirId());
         return entity;
     }
 }
@@ -0,0 +1,173 @@
+package com.irrigation.water.service;
+
+import com.irrigation.water.accounting.ReservoirAccounting;
+import com.irrigation.water.client.EnergyServiceClient;
+import com.irrigation.water.dto.CreneauDTO;
+import com.irrigation.water.dto.DemandeIrrigationDTO;
+import com.irrigation.water.dto.PlanIrrigationDTO;
+import com.irrigation.water.entity.DemandeIrrigation;
+import com.irrigation.water.planning.Activation;
+import com.irrigation.water.planning.Demande;
+import com.irrigation.water.planning.IrrigationPlan;
+import com.irrigation.water.planning.PompeCapacite;
+import com.irrigation.water.repository.DemandeIrrigationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Planification conjointe énergie-eau des irrigations.
+ *
+ * Les demandes en attente sont planifiées en créneaux sous le plafond de puissance, à
+ * partir des puissances et états des pompes (microservice Énergie) et des volumes
+ * disponibles des réservoirs (comptabilité mémoire). Un événement de surconsommation
+ * retire la pompe du plan courant sans le recalculer entièrement.
+ *
+ * Les demandes sont en base, communes à toutes les instances. Le plan courant et son
+ * début sont publiés ensemble (une seule écriture volatile) : une replanification
+ * concurrente d'un recalcul voit l'un ou l'autre plan, jamais un plan avec le début de
+ * l'autre. Le plan reste propre à l'instance qui l'a calculé ; un événement de
+ * surconsommation reçu par une autre instance ne le modifie pas.
+ */
+@Slf4j
+@Service
+public class PlanificationService {
+
+    private static final String STATUT_MAINTENANCE = "MAINTENANCE";
+    private static final String ENERGY_STATUS_NORMAL = "Normal";
+
+    private final DemandeIrrigationRepository demandeRepository;
+    private final EnergyServiceClient energyServiceClient;
+    private final ReservoirAccounting reservoirAccounting;
+    private final double puissanceMax;
+    private final int dureeCreneauMinutes;
+    private final int nombreCreneaux;
+
+    private volatile PlanCourant courant;
+
+    public PlanificationService(DemandeIrrigationRepository demandeRepository,
+                                EnergyServiceClient energyServiceClient,
+                                ReservoirAccounting reservoirAccounting,
+                                @Value("${water.planning.power-cap-kw:1000}") double puissanceMax,
+                                @Value("${water.planning.slot-minutes:15}") int dureeCreneauMinutes,
+                                @Value("${water.planning.horizon-hours:24}") int horizonHeures) {
+        this.demandeRepository = demandeRepository;
+        this.energyServiceClient = energyServiceClient;
+        this.reservoirAccounting = reservoirAccounting;
+        this.puissanceMax = puissanceMax;
+        this.dureeCreneauMinutes = dureeCreneauMinutes;
+        this.nombreCreneaux = horizonHeures * 60 / dureeCreneauMinutes;
+    }
+
+    public DemandeIrrigationDTO createDemande(DemandeIrrigationDTO dto) {
+        DemandeIrrigation saved = demandeRepository.save(new DemandeIrrigation(null, dto.getPompeId(),
+                dto.getReservoirId(), dto.getVolume(), dto.getDebit(), LocalDateTime.now()));
+        return convertToDTO(saved);
+    }
+
+    public List<DemandeIrrigationDTO> getAllDemandes() {
+        return demandeRepository.findAllByOrderByIdAsc().stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    public void deleteDemande(Long id) {
+        if (!demandeRepository.existsById(id)) {
+            throw new RuntimeException("Demande not found with id: " + id);
+        }
+        demandeRepository.deleteById(id);
+    }
+
+    /**
+     * Recalcule entièrement le plan à partir des demandes en attente.
+     */
+    public PlanIrrigationDTO planifier() {
+        List<Demande> enAttente = demandeRepository.findAllByOrderByIdAsc().stream()
+                .map(d -> new Demande(d.getId(), d.getPompeId(), d.getReservoirId(), d.getVolume(), d.getDebit()))
+                .collect(Collectors.toList());
+        Map<Long, PompeCapacite> pompes = fetchPompes();
+
+        long start = System.nanoTime();
+        IrrigationPlan nouveau = IrrigationPlan.build(enAttente, pompes, reservoirAccounting.availableVolumes(),
+                puissanceMax, nombreCreneaux, dureeCreneauMinutes / 60.0);
+        log.info("🗓️ Irrigation plan built for {} requests / {} pumps in {} ms",
+                enAttente.size(), pompes.size(), (System.nanoTime() - start) / 1_000_000);
+
+        PlanCourant publie = new PlanCourant(nouveau, LocalDateTime.now());
+        courant = publie;
+        return toDTO(publie.plan(), publie.debut());
+    }
+
+    public PlanIrrigationDTO getPlanCourant() {
+        PlanCourant publie = courant;
+        if (publie == null) {
+            throw new RuntimeException("No irrigation plan computed yet");
+        }
+        return toDTO(publie.plan(), publie.debut());
+    }
+
+    /**
+     * Replanification incrémentale : la pompe en surconsommation est retirée à partir du
+     * créneau en cours et la puissance libérée redistribuée aux demandes en attente,
+     * celles des réservoirs critiques d'abord.
+     *
+     * @param reservoirsCritiques Réservoirs dont l'approvisionnement est maintenu en priorité
+     */
+    public void onOverconsumption(Long pompeId, Set<Long> reservoirsCritiques) {
+        PlanCourant publie = courant;
+        if (publie == null) {
+            return;
+        }
+        int creneau = (int) (Duration.between(publie.debut(), LocalDateTime.now()).toMinutes() / dureeCreneauMinutes);
+        long start = System.nanoTime();
+        int retirees = publie.plan().excludePompe(pompeId, creneau, reservoirsCritiques);
+        log.info("   → Irrigation plan: {} activations of pump #{} removed and power reassigned "
+                        + "({} critical reservoirs first) in {} µs",
+                retirees, pompeId, reservoirsCritiques.size(), (System.nanoTime() - start) / 1_000);
+    }
+
+    private Map<Long, PompeCapacite> fetchPompes() {
+        Map<Long, PompeCapacite> pompes = new HashMap<>();
+        for (Map<String, Object> pompe : energyServiceClient.getPompes()) {
+            long id = ((Number) pompe.get("id")).longValue();
+            double puissance = ((Number) pompe.get("puissance")).doubleValue();
+            boolean restreinte = STATUT_MAINTENANCE.equals(pompe.get("statut"))
+                    || !ENERGY_STATUS_NORMAL.equals(pompe.getOrDefault("energyStatus", ENERGY_STATUS_NORMAL));
+            pompes.put(id, new PompeCapacite(id, puissance, restreinte));
+        }
+        return pompes;
+    }
+
+    private PlanIrrigationDTO toDTO(IrrigationPlan source, LocalDateTime debut) {
+        List<CreneauDTO> creneaux = new ArrayList<>();
+        for (int s = 0; s < source.getNombreCreneaux(); s++) {
+            List<Activation> activations = source.getActivations(s);
+            if (!activations.isEmpty()) {
+                creneaux.add(new CreneauDTO(s, debut.plusMinutes((long) s * dureeCreneauMinutes),
+                        source.getPuissanceUtilisee(s), activations));
+            }
+        }
+        return new PlanIrrigationDTO(debut, dureeCreneauMinutes, puissanceMax, source.getVolumePlanifie(),
+                source.getVolumesNonPlanifies(), source.getDemandesBloquees(), creneaux);
+    }
+
+    private DemandeIrrigationDTO convertToDTO(DemandeIrrigation entity) {
+        return new DemandeIrrigationDTO(entity.getId(), entity.getPompeId(), entity.getReservoirId(),
+                entity.getVolume(), entity.getDebit(), entity.getDateDemande());
+    }
+
+    /**
+     * Plan et début de son premier créneau, publiés ensemble.
+     */
+    private record PlanCourant(IrrigationPlan plan, LocalDateTime debut) {
+    }
+}
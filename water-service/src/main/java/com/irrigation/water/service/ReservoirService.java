@@ -1,5 +1,8 @@
 package com.irrigation.water.service;
 
+import com.irrigation.water.accounting.ReservoirAccounting;
+import com.irrigation.water.accounting.ReservoirPriorityIndex;
+import com.irrigation.water.accounting.ReservoirPriorityIndex.ReservoirFill;
 import com.irrigation.water.dto.ReservoirDTO;
 import com.irrigation.water.entity.Reservoir;
 import com.irrigation.water.repository.ReservoirRepository;
@@ -16,25 +19,31 @@ import java.util.stream.Collectors;
 public class ReservoirService {
 
     private final ReservoirRepository reservoirRepository;
+    private final ReservoirAccounting reservoirAccounting;
+    private final ReservoirPriorityIndex priorityIndex;
 
+    @Transactional(readOnly = true)
     public List<ReservoirDTO> getAllReservoirs() {
         return reservoirRepository.findAll().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public ReservoirDTO getReservoirById(Long id) {
         Reservoir reservoir = reservoirRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Reservoir not found with id: " + id));
         return convertToDTO(reservoir);
     }
 
+    @Transactional(readOnly = true)
     public ReservoirDTO getReservoirByNom(String nom) {
         Reservoir reservoir = reservoirRepository.findByNom(nom)
                 .orElseThrow(() -> new RuntimeException("Reservoir not found with nom: " + nom));
         return convertToDTO(reservoir);
     }
 
+    @Transactional(readOnly = true)
     public List<ReservoirDTO> getReservoirsByLocalisation(String localisation) {
         return reservoirRepository.findByLocalisation(localisation).stream()
                 .map(this::convertToDTO)
@@ -44,11 +53,13 @@ public class ReservoirService {
     public ReservoirDTO createReservoir(ReservoirDTO dto) {
         Reservoir reservoir = convertToEntity(dto);
         Reservoir saved = reservoirRepository.save(reservoir);
+        reservoirAccounting.recordCreated(saved);
         return convertToDTO(saved);
     }
 
     public ReservoirDTO updateReservoir(Long id, ReservoirDTO dto) {
-        Reservoir existing = reservoirRepository.findById(id)
+        // Lu en base et verrouillé : l'entrée du cache de l'instance peut être périmée
+        Reservoir existing = reservoirRepository.findForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Reservoir not found with id: " + id));
         
         existing.setNom(dto.getNom());
@@ -57,24 +68,55 @@ public class ReservoirService {
         existing.setLocalisation(dto.getLocalisation());
         
         Reservoir updated = reservoirRepository.save(existing);
+        reservoirAccounting.recordUpdated(updated);
         return convertToDTO(updated);
     }
 
     public void deleteReservoir(Long id) {
-        if (!reservoirRepository.existsById(id)) {
-            throw new RuntimeException("Reservoir not found with id: " + id);
-        }
-        reservoirRepository.deleteById(id);
+        Reservoir existing = reservoirRepository.findForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Reservoir not found with id: " + id));
+        reservoirRepository.delete(existing);
+        reservoirAccounting.recordDeleted(id);
     }
 
+    /**
+     * Volume disponible (hors réservations), répondu depuis les compteurs mémoire.
+     */
     public Double getTotalVolumeDisponible() {
-        Double total = reservoirRepository.getTotalVolumeDisponible();
-        return total != null ? total : 0.0;
+        return reservoirAccounting.getTotalAvailable();
     }
 
     public boolean isWaterAvailable(Double requiredVolume) {
-        Double totalDisponible = getTotalVolumeDisponible();
-        return totalDisponible >= requiredVolume;
+        return reservoirAccounting.isAvailable(requiredVolume);
+    }
+
+    /**
+     * Réserve un volume sur un réservoir pour une irrigation à venir.
+     *
+     * @return L'identifiant de la réservation
+     */
+    public String reserveVolume(Long reservoirId, Double volume) {
+        String reservationId = reservoirAccounting.reserve(reservoirId, volume);
+        if (reservationId == null) {
+            throw new RuntimeException("⚠️ Insufficient water in reservoir " + reservoirId + " to reserve " + volume);
+        }
+        return reservationId;
+    }
+
+    public void releaseReservation(String reservationId) {
+        if (!reservoirAccounting.release(reservationId)) {
+            throw new RuntimeException("Reservation not found with id: " + reservationId);
+        }
+    }
+
+    /**
+     * Réservoirs les moins remplis d'abord : sous le seuil donné, ou les {@code limit} plus critiques.
+     */
+    public List<ReservoirFill> getCriticalReservoirs(Double threshold, int limit) {
+        List<ReservoirFill> critical = threshold != null
+                ? priorityIndex.below(threshold)
+                : priorityIndex.mostCritical(limit);
+        return critical.size() > limit ? critical.subList(0, limit) : critical;
     }
 
     private ReservoirDTO convertToDTO(Reservoir entity) {
@@ -82,7 +124,8 @@ public class ReservoirService {
         dto.setId(entity.getId());
         dto.setNom(entity.getNom());
         dto.setCapaciteTotale(entity.getCapaciteTotale());
-        dto.setVolumeActuel(entity.getVolumeActuel());
+        // Le compteur mémoire est plus récent que la base entre deux flushs
+        dto.setVolumeActuel(reservoirAccounting.currentVolume(entity.getId()).orElse(entity.getVolumeActuel()));
         dto.setLocalisation(entity.getLocalisation());
         return dto;
     }
@@ -0,0 +1,227 @@
+package com.irrigation.water.timeseries;
+
+import com.irrigation.commons.timeseries.EpochTime;
+import com.irrigation.commons.timeseries.SoleWriterGuard;
+import com.irrigation.water.dto.DebitMesureDTO;
+import com.irrigation.water.entity.DebitMesure;
+import com.irrigation.water.repository.DebitMesureRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tier mémoire des débits récents (dernières N heures par pompe).
+ *
+ * Alimenté après commit à chaque écriture et préchargé depuis la base au démarrage.
+ * Les requêtes de période entièrement couvertes par la fenêtre sont servies depuis
+ * la mémoire ; sinon l'appelant retombe sur le repository (Optional vide).
+ * La mémoire ne voit que les écritures de cette instance : avec plusieurs instances,
+ * tout passe par la base (voir SoleWriterGuard).
+ */
+@Slf4j
+@Component
+public class DebitHotTier {
+
+    private final DebitMesureRepository debitMesureRepository;
+    private final SoleWriterGuard soleWriter;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int capacityPerPump;
+
+    private final Map<Long, DebitSeries> seriesByPompe = new ConcurrentHashMap<>();
+
+    // Dictionnaire des unités : l'index est le code stocké dans les buffers
+    private final List<String> unites = new CopyOnWriteArrayList<>();
+    private final Map<String, Short> uniteCodes = new ConcurrentHashMap<>();
+
+    // Horodatage le plus récent évincé d'un buffer plein, toutes pompes confondues
+    private final AtomicLong lastEvictedTimestamp = new AtomicLong(Long.MIN_VALUE);
+
+    private volatile boolean ready;
+
+    public DebitHotTier(DebitMesureRepository debitMesureRepository,
+                        SoleWriterGuard soleWriter,
+                        @Value("${water.hot-tier.enabled:true}") boolean enabled,
+                        @Value("${water.hot-tier.window-hours:24}") long windowHours,
+                        @Value("${water.hot-tier.capacity-per-pump:8192}") int capacityPerPump) {
+        this.debitMesureRepository = debitMesureRepository;
+        this.soleWriter = soleWriter;
+        this.enabled = enabled;
+        this.windowMillis = Duration.ofHours(windowHours).toMillis();
+        this.capacityPerPump = capacityPerPump;
+    }
+
+    /**
+     * Précharge la fenêtre depuis la base avant que le serveur web n'accepte du trafic.
+     */
+    @PostConstruct
+    void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime from = EpochTime.toLocalDateTime(now() - windowMillis);
+        List<DebitMesure> recent = debitMesureRepository.findByDateMesureGreaterThanEqualOrderByIdAsc(from);
+        recent.forEach(this::append);
+        ready = true;
+        log.info("🔥 Hot tier warmed with {} flow readings across {} pumps", recent.size(), seriesByPompe.size());
+    }
+
+    public void recordCreated(DebitMesure debit) {
+        if (enabled) {
+            afterCommit(() -> append(debit));
+        }
+    }
+
+    /**
+     * Ajoute un upload en colonnes après commit ; seules les mesures de la fenêtre sont gardées.
+     */
+    public void recordCreated(int size, long[] ids, long[] pompeIds, long[] timestamps,
+                              double[] debits, String unite) {
+        if (enabled) {
+            afterCommit(() -> {
+                long from = now() - windowMillis;
+                short code = uniteCode(unite);
+                for (int row = 0; row < size; row++) {
+                    if (timestamps[row] >= from) {
+                        append(ids[row], pompeIds[row], timestamps[row], debits[row], code, 0L);
+                    }
+                }
+            });
+        }
+    }
+
+    public void recordUpdated(DebitMesure debit) {
+        if (enabled) {
+            afterCommit(() -> {
+                DebitSeries series = seriesByPompe.get(debit.getPompeId());
+                if (series != null) {
+                    series.update(debit.getId(), debit.getDebit(), uniteCode(debit.getUnite()));
+                }
+            });
+        }
+    }
+
+    public void recordDeleted(Long id) {
+        if (enabled) {
+            afterCommit(() -> {
+                for (DebitSeries series : seriesByPompe.values()) {
+                    if (series.remove(id)) {
+                        return;
+                    }
+                }
+            });
+        }
+    }
+
+    public Optional<List<DebitMesureDTO>> findBetween(LocalDateTime debut, LocalDateTime fin) {
+        long from = EpochTime.toEpochMillis(debut);
+        if (!covers(from)) {
+            return Optional.empty();
+        }
+        long to = EpochTime.toEpochMillis(fin);
+        List<DebitMesureDTO> result = new ArrayList<>();
+        for (DebitSeries series : seriesByPompe.values()) {
+            series.collectBetween(from, to, unites, result);
+        }
+        return Optional.of(result);
+    }
+
+    public Optional<List<DebitMesureDTO>> findByPompeBetween(Long pompeId, LocalDateTime debut, LocalDateTime fin) {
+        long from = EpochTime.toEpochMillis(debut);
+        if (!covers(from)) {
+            return Optional.empty();
+        }
+        List<DebitMesureDTO> result = new ArrayList<>();
+        DebitSeries series = seriesByPompe.get(pompeId);
+        if (series != null) {
+            series.collectBetween(from, EpochTime.toEpochMillis(fin), unites, result);
+        }
+        return Optional.of(result);
+    }
+
+    public OptionalDouble sumBetween(LocalDateTime debut, LocalDateTime fin) {
+        long from = EpochTime.toEpochMillis(debut);
+        if (!covers(from)) {
+            return OptionalDouble.empty();
+        }
+        long to = EpochTime.toEpochMillis(fin);
+        double sum = 0.0;
+        for (DebitSeries series : seriesByPompe.values()) {
+            sum += series.sumBetween(from, to);
+        }
+        return OptionalDouble.of(sum);
+    }
+
+    /**
+     * Une période est servie depuis la mémoire si elle commence dans la fenêtre,
+     * après toute mesure évincée faute de place, et pendant que cette instance
+     * était la seule à écrire.
+     */
+    private boolean covers(long from) {
+        return enabled && ready
+                && soleWriter.coversFrom(from)
+                && from >= now() - windowMillis
+                && from > lastEvictedTimestamp.get();
+    }
+
+    private void append(DebitMesure debit) {
+        append(debit.getId(), debit.getPompeId(),
+                EpochTime.toEpochMillis(debit.getDateMesure()),
+                debit.getDebit(),
+                uniteCode(debit.getUnite()),
+                debit.getReservoirId() != null ? debit.getReservoirId() : 0L);
+    }
+
+    private void append(long id, long pompeId, long timestamp, double debit, short uniteCode, long reservoirId) {
+        DebitSeries series = seriesByPompe.computeIfAbsent(pompeId,
+                key -> new DebitSeries(key, capacityPerPump));
+        long evicted = series.append(id, timestamp, debit, uniteCode, reservoirId);
+        if (evicted != Long.MIN_VALUE) {
+            lastEvictedTimestamp.accumulateAndGet(evicted, Math::max);
+        }
+    }
+
+    private short uniteCode(String unite) {
+        Short code = uniteCodes.get(unite);
+        if (code != null) {
+            return code;
+        }
+        synchronized (uniteCodes) {
+            return uniteCodes.computeIfAbsent(unite, u -> {
+                unites.add(u);
+                return (short) (unites.size() - 1);
+            });
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static long now() {
+        return EpochTime.toEpochMillis(LocalDateTime.now());
+    }
+}
@@ -0,0 +1,116 @@
+package com.irrigation.water.timeseries;
+
+import com.irrigation.commons.timeseries.EpochTime;
+import com.irrigation.water.dto.DebitMesureDTO;
+
+import java.util.List;
+
+/**
+ * Ring buffer colonnaire des débits récents d'une pompe.
+ * Colonnes primitives (id, horodatage epoch ms, débit, code d'unité, réservoir) ; l'unité est
+ * stockée comme index dans le dictionnaire partagé du tier, un réservoir absent vaut 0.
+ * Une mesure supprimée est marquée par un débit NaN.
+ */
+class DebitSeries {
+
+    private final long pompeId;
+    private final long[] ids;
+    private final long[] timestamps;
+    private final double[] debits;
+    private final short[] uniteCodes;
+    private final long[] reservoirIds;
+
+    private int head;
+    private int size;
+
+    DebitSeries(long pompeId, int capacity) {
+        this.pompeId = pompeId;
+        this.ids = new long[capacity];
+        this.timestamps = new long[capacity];
+        this.debits = new double[capacity];
+        this.uniteCodes = new short[capacity];
+        this.reservoirIds = new long[capacity];
+    }
+
+    /**
+     * @return L'horodatage évincé par cet ajout, ou Long.MIN_VALUE si le buffer n'était pas plein
+     */
+    synchronized long append(long id, long timestamp, double debit, short uniteCode, long reservoirId) {
+        int capacity = ids.length;
+        long evicted = Long.MIN_VALUE;
+        int slot;
+        if (size < capacity) {
+            slot = (head + size) % capacity;
+            size++;
+        } else {
+            slot = head;
+            evicted = timestamps[slot];
+            head = (head + 1) % capacity;
+        }
+        ids[slot] = id;
+        timestamps[slot] = timestamp;
+        debits[slot] = debit;
+        uniteCodes[slot] = uniteCode;
+        reservoirIds[slot] = reservoirId;
+        return evicted;
+    }
+
+    synchronized boolean update(long id, double debit, short uniteCode) {
+        int slot = find(id);
+        if (slot < 0) {
+            return false;
+        }
+        debits[slot] = debit;
+        uniteCodes[slot] = uniteCode;
+        return true;
+    }
+
+    synchronized boolean remove(long id) {
+        int slot = find(id);
+        if (slot < 0) {
+            return false;
+        }
+        debits[slot] = Double.NaN;
+        return true;
+    }
+
+    synchronized double sumBetween(long from, long to) {
+        double sum = 0.0;
+        int capacity = ids.length;
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) % capacity;
+            long ts = timestamps[slot];
+            double debit = debits[slot];
+            if (ts >= from && ts <= to && !Double.isNaN(debit)) {
+                sum += debit;
+            }
+        }
+        return sum;
+    }
+
+    synchronized void collectBetween(long from, long to, List<String> unites, List<DebitMesureDTO> out) {
+        int capacity = ids.length;
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) % capacity;
+            long ts = timestamps[slot];
+            double debit = debits[slot];
+            if (ts >= from && ts <= to && !Double.isNaN(debit)) {
+                long reservoirId = reservoirIds[slot];
+                out.add(new DebitMesureDTO(ids[slot], pompeId, debit,
+                        EpochTime.toLocalDateTime(ts), unites.get(uniteCodes[slot]),
+                        reservoirId != 0 ? reservoirId : null, null));
+            }
+        }
+    }
+
+    private int find(long id) {
+        int capacity = ids.length;
+        for (int i = size - 1; i >= 0; i--) {
+            int slot = (head + i) % capacity;
+            if (ids[slot] == id) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,25 @@
+package com.irrigation.water.timeseries;
+
+import com.irrigation.commons.timeseries.SoleWriterGuard;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Seul écrivain du tier mémoire du microservice Eau (service-commons).
+ */
+@Configuration
+public class SoleWriterConfig {
+
+    @Bean
+    public SoleWriterGuard soleWriterGuard(DiscoveryClient discoveryClient,
+                                           ObjectProvider<Registration> registration,
+                                           @Value("${spring.application.name}") String serviceId,
+                                           @Value("${water.hot-tier.handoff-delay-ms:60000}") long handoffDelayMillis,
+                                           @Value("${water.hot-tier.sole-writer-check-ms:10000}") long checkIntervalMillis) {
+        return new SoleWriterGuard(discoveryClient, registration, serviceId, handoffDelayMillis, checkIntervalMillis);
+    }
+}
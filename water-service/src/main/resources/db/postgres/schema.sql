@@ -0,0 +1,106 @@
+-- Schéma du profil "postgres" (ddl-auto: none) : les mesures brutes sont partitionnées par mois
+-- sur date_mesure. Les partitions mensuelles sont créées et supprimées par MonthlyPartitionManager ;
+-- la partition par défaut recueille les mesures hors des mois déjà créés (imports d'historique).
+
+CREATE TABLE IF NOT EXISTS reservoirs (
+    id              bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nom             varchar(100)     NOT NULL,
+    capacite_totale double precision NOT NULL,
+    volume_actuel   double precision NOT NULL,
+    localisation    varchar(255)     NOT NULL,
+    version         bigint           NOT NULL DEFAULT 0
+);
+
+-- Bases créées avant le verrou optimiste de Reservoir
+ALTER TABLE reservoirs ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+
+CREATE SEQUENCE IF NOT EXISTS debits_mesures_seq START WITH 1 INCREMENT BY 50;
+
+-- La clé primaire d'une table partitionnée doit contenir la clé de partition
+CREATE TABLE IF NOT EXISTS debits_mesures (
+    id           bigint           NOT NULL,
+    pompe_id     bigint           NOT NULL,
+    debit        double precision NOT NULL,
+    date_mesure  timestamp(6)     NOT NULL,
+    unite        varchar(20)      NOT NULL,
+    reservoir_id bigint,
+    PRIMARY KEY (id, date_mesure)
+) PARTITION BY RANGE (date_mesure);
+
+CREATE INDEX IF NOT EXISTS idx_debit_pompe_date ON debits_mesures (pompe_id, date_mesure);
+
+CREATE TABLE IF NOT EXISTS debits_mesures_default
+    PARTITION OF debits_mesures DEFAULT;
+
+-- Clés d'idempotence (en-tête Idempotency-Key) : hors de la table partitionnée, qui ne peut pas
+-- porter d'unicité sans date_mesure ; purgées après water.idempotency.ttl-hours
+CREATE TABLE IF NOT EXISTS cles_idempotence_debits (
+    cle           varchar(128) PRIMARY KEY,
+    debit_id      bigint       NOT NULL,
+    date_creation timestamp(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_cle_idem_debit_date ON cles_idempotence_debits (date_creation);
+
+CREATE TABLE IF NOT EXISTS debits_agreges (
+    id             bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    pompe_id       bigint           NOT NULL,
+    granularite    varchar(10)      NOT NULL,
+    periode_debut  timestamp(6)     NOT NULL,
+    debit_total    double precision NOT NULL,
+    debit_min      double precision NOT NULL,
+    debit_max      double precision NOT NULL,
+    nombre_mesures bigint           NOT NULL,
+    UNIQUE (pompe_id, granularite, periode_debut)
+);
+
+CREATE INDEX IF NOT EXISTS idx_debit_agrege_periode ON debits_agreges (granularite, periode_debut);
+
+CREATE TABLE IF NOT EXISTS efficacite_horaire (
+    id              bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    pompe_id        bigint           NOT NULL,
+    heure           timestamp(6)     NOT NULL,
+    energie_kwh     double precision NOT NULL,
+    volume_m3       double precision NOT NULL,
+    mesures_energie bigint           NOT NULL,
+    mesures_volume  bigint           NOT NULL,
+    UNIQUE (pompe_id, heure)
+);
+
+CREATE INDEX IF NOT EXISTS idx_efficacite_heure ON efficacite_horaire (heure);
+
+-- Message-ids des événements de mesure déjà appliqués à efficacite_horaire
+CREATE TABLE IF NOT EXISTS evenements_traites (
+    message_id      varchar(64)  PRIMARY KEY,
+    date_traitement timestamp(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_evenement_traite_date ON evenements_traites (date_traitement);
+
+-- Demandes d'irrigation en attente de planification, communes à toutes les instances
+CREATE TABLE IF NOT EXISTS demandes_irrigation (
+    id           bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    pompe_id     bigint           NOT NULL,
+    reservoir_id bigint           NOT NULL,
+    volume       double precision NOT NULL,
+    debit        double precision NOT NULL,
+    date_demande timestamp(6)     NOT NULL
+);
+
+-- Avancement des imports de fichiers, lisible depuis toutes les instances ; purgé après
+-- import.job-retention-hours
+CREATE TABLE IF NOT EXISTS suivis_import (
+    id               varchar(36)   PRIMARY KEY,
+    format           varchar(10)   NOT NULL,
+    statut           varchar(10)   NOT NULL,
+    octets_total     bigint        NOT NULL,
+    octets_traites   bigint        NOT NULL,
+    lignes_importees bigint        NOT NULL,
+    lignes_rejetees  bigint        NOT NULL,
+    erreurs          varchar(8000),
+    echec            varchar(1000),
+    date_debut       timestamp(6)  NOT NULL,
+    date_fin         timestamp(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_suivi_import_fin ON suivis_import (date_fin);
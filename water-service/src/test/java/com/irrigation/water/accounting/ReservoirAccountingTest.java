@@ -0,0 +1,122 @@
+package com.irrigation.water.accounting;
+
+import com.irrigation.water.entity.Reservoir;
+import com.irrigation.water.repository.ReservoirRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReservoirAccountingTest {
+
+    private static final Long RESERVOIR = 1L;
+
+    private ReservoirRepository repository;
+    private ReservoirAccounting accounting;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ReservoirRepository.class);
+        when(repository.findAll()).thenReturn(List.of(new Reservoir(RESERVOIR, "Nord", 2000.0, 1000.0, "Zone A", null)));
+        accounting = new ReservoirAccounting(repository, new ReservoirPriorityIndex(),
+                mock(PlatformTransactionManager.class), 3600, 900);
+        accounting.load();
+    }
+
+    @Test
+    void debitConsumesItsReservationBeforeTheAvailableVolume() {
+        String reservation = accounting.reserve(RESERVOIR, 300);
+        assertThat(accounting.getTotalAvailable()).isEqualTo(700.0);
+
+        accounting.draw(RESERVOIR, 100, reservation);
+
+        // Déjà bloqué par la réservation : le disponible ne baisse pas une seconde fois
+        assertThat(accounting.getTotalAvailable()).isEqualTo(700.0);
+        assertThat(accounting.currentVolume(RESERVOIR)).hasValue(900.0);
+
+        accounting.draw(RESERVOIR, 250, reservation);
+
+        // 200 pris sur la réservation (épuisée, donc libérée), 50 sur le disponible
+        assertThat(accounting.getTotalAvailable()).isEqualTo(650.0);
+        assertThat(accounting.currentVolume(RESERVOIR)).hasValue(650.0);
+        assertThat(accounting.release(reservation)).isFalse();
+    }
+
+    @Test
+    void refusedDrawLeavesTheReservationIntact() {
+        String reservation = accounting.reserve(RESERVOIR, 300);
+
+        assertThatThrownBy(() -> accounting.draw(RESERVOIR, 1200, reservation))
+                .hasMessageContaining("Insufficient water");
+
+        assertThat(accounting.getTotalAvailable()).isEqualTo(700.0);
+        assertThat(accounting.release(reservation)).isTrue();
+        assertThat(accounting.getTotalAvailable()).isEqualTo(1000.0);
+    }
+
+    @Test
+    void flushSubtractsTheDeltaAndResyncsFromTheDatabase() {
+        when(repository.drawVolume(RESERVOIR, 100.0)).thenReturn(1);
+        // Une autre instance a prélevé 50 entre-temps
+        when(repository.findVolumeActuel(RESERVOIR)).thenReturn(Optional.of(850.0));
+
+        accounting.draw(RESERVOIR, 100, null);
+        accounting.flush();
+
+        verify(repository).drawVolume(RESERVOIR, 100.0);
+        assertThat(accounting.currentVolume(RESERVOIR)).hasValue(850.0);
+        assertThat(accounting.getTotalAvailable()).isEqualTo(850.0);
+
+        // Rien de nouveau à retirer
+        accounting.flush();
+        verify(repository, times(1)).drawVolume(anyLong(), anyDouble());
+    }
+
+    @Test
+    void failedFlushIsRetriedWithTheSameDelta() {
+        when(repository.drawVolume(RESERVOIR, 100.0))
+                .thenThrow(new IllegalStateException("connection lost"))
+                .thenReturn(1);
+        when(repository.findVolumeActuel(RESERVOIR)).thenReturn(Optional.of(900.0));
+
+        accounting.draw(RESERVOIR, 100, null);
+        accounting.flush();
+        accounting.flush();
+
+        verify(repository, times(2)).drawVolume(RESERVOIR, 100.0);
+        assertThat(accounting.currentVolume(RESERVOIR)).hasValue(900.0);
+    }
+
+    @Test
+    void flushEmptiesAReservoirDrainedByAnotherInstance() {
+        when(repository.drawVolume(RESERVOIR, 100.0)).thenReturn(0);
+        when(repository.empty(RESERVOIR)).thenReturn(1);
+        when(repository.findVolumeActuel(RESERVOIR)).thenReturn(Optional.of(0.0));
+
+        accounting.draw(RESERVOIR, 100, null);
+        accounting.flush();
+
+        verify(repository).empty(RESERVOIR);
+        assertThat(accounting.currentVolume(RESERVOIR)).hasValue(0.0);
+        assertThat(accounting.isAvailable(1)).isFalse();
+    }
+
+    @Test
+    void flushSkipsUntouchedReservoirs() {
+        accounting.flush();
+
+        verify(repository, never()).drawVolume(anyLong(), anyDouble());
+    }
+}
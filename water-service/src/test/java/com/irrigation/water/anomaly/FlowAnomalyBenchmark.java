@@ -0,0 +1,125 @@
+package com.irrigation.water.anomaly;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mesure (JMH) le coût de la détection d'anomalies par mesure de débit.
+ *
+ * Flux synthétique (débit propre à chaque pompe ± 5 %, 0,1 % de pics) : mise à jour EWMA
+ * seule, {@link FlowAnomalyDetector#accept} sur un thread, puis sur tous les cœurs qui se
+ * partagent les segments du détecteur. Lancé par scripts/anomaly-benchmark.sh
+ * (octets alloués par mesure avec {@code -prof gc}), sans contexte Spring.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FlowAnomalyBenchmark {
+
+    private static final int MESURES = 1 << 20;
+
+    /**
+     * Flux de mesures, commun à tous les threads
+     */
+    @State(Scope.Benchmark)
+    public static class Flux {
+
+        @Param({"1000", "10000"})
+        public int pompes;
+
+        long[] pompeIds;
+        long[] timestamps;
+        double[] debits;
+        final LongAdder anomalies = new LongAdder();
+        FlowAnomalyDetector detector;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            SplittableRandom random = new SplittableRandom(42);
+            double[] bases = new double[pompes];
+            for (int p = 0; p < pompes; p++) {
+                bases[p] = 20 + random.nextInt(200);
+            }
+            pompeIds = new long[MESURES];
+            timestamps = new long[MESURES];
+            debits = new double[MESURES];
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < MESURES; i++) {
+                int p = random.nextInt(pompes);
+                pompeIds[i] = p + 1;
+                timestamps[i] = start + i;
+                double bruit = 1 + (random.nextDouble() - 0.5) * 0.1;
+                debits[i] = bases[p] * (random.nextInt(1000) == 0 ? 3 : bruit);
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            detector = new FlowAnomalyDetector(event -> anomalies.increment(), true, 16,
+                    0.05, 4.0, 0.05, 30, 20, 15 * 60_000L);
+        }
+    }
+
+    /**
+     * Position d'un thread dans le flux et lignes de base sans verrou, propres au thread
+     */
+    @State(Scope.Thread)
+    public static class Curseur {
+
+        int next;
+        EwmaBaselines baselines;
+
+        @Setup(Level.Iteration)
+        public void reset(ThreadParams threads) {
+            // Chaque thread part d'un endroit différent du flux
+            next = (int) ((long) MESURES * threads.getThreadIndex() / threads.getThreadCount());
+            baselines = new EwmaBaselines(64, 0.05, 4.0, 0.05, 30, 20, 15 * 60_000L);
+        }
+
+        int next() {
+            int i = next;
+            next = (i + 1) & (MESURES - 1);
+            return i;
+        }
+    }
+
+    @Benchmark
+    public void ewmaUpdate(Flux flux, Curseur curseur, Blackhole blackhole) {
+        int i = curseur.next();
+        blackhole.consume(curseur.baselines.update(flux.pompeIds[i], flux.timestamps[i], flux.debits[i]));
+    }
+
+    @Benchmark
+    public void accept(Flux flux, Curseur curseur) {
+        int i = curseur.next();
+        flux.detector.accept(flux.pompeIds[i], flux.timestamps[i], flux.debits[i]);
+    }
+
+    /**
+     * Tous les cœurs sur le même détecteur : contention sur les segments
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void acceptContended(Flux flux, Curseur curseur) {
+        accept(flux, curseur);
+    }
+}
@@ -0,0 +1,130 @@
+package com.irrigation.water.anomaly;
+
+import com.irrigation.events.FlowAnomalyEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class FlowAnomalyDetectorTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long COOLDOWN = 15 * MINUTE;
+
+    private final List<FlowAnomalyEvent> events = new ArrayList<>();
+
+    private FlowAnomalyDetector detector(boolean enabled) {
+        // alpha 0.1, seuil 4 écarts types, plancher 5 %, rodage 30 mesures, capteur figé à 20 répétitions
+        return new FlowAnomalyDetector(events::add, enabled, 4, 0.1, 4.0, 0.05, 30, 20, COOLDOWN);
+    }
+
+    @Test
+    void staysSilentDuringWarmup() {
+        FlowAnomalyDetector detector = detector(true);
+        long t = feed(detector, 1L, 0, 10);
+
+        detector.accept(1L, t, 100.0);
+
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void reportsSpikeAndDropAgainstTheBaseline() {
+        FlowAnomalyDetector detector = detector(true);
+        long t = feed(detector, 1L, 0, 100);
+
+        detector.accept(1L, t, 30.0);
+        detector.accept(2L, t, 30.0);
+        t = feed(detector, 3L, t, 100);
+        detector.accept(3L, t, 1.0);
+
+        assertThat(events).extracting(FlowAnomalyEvent::getPompeId, FlowAnomalyEvent::getType)
+                .containsExactly(
+                        tuple(1L, FlowAnomalyEvent.Type.PIC),
+                        tuple(3L, FlowAnomalyEvent.Type.CHUTE));
+        FlowAnomalyEvent pic = events.get(0);
+        assertThat(pic.getDebit()).isEqualTo(30.0);
+        assertThat(pic.getMoyenne()).isBetween(9.9, 10.3);
+        assertThat(pic.getScore()).isGreaterThan(4.0);
+    }
+
+    @Test
+    void clipsAnIsolatedSpikeOutOfTheBaseline() {
+        FlowAnomalyDetector detector = detector(true);
+        long t = feed(detector, 1L, 0, 100);
+
+        detector.accept(1L, t, 1_000.0);
+        feed(detector, 1L, t + MINUTE, 5);
+
+        assertThat(events).hasSize(1);
+    }
+
+    @Test
+    void reportsAStuckSensorButNotAStoppedPump() {
+        FlowAnomalyDetector detector = detector(true);
+        long t = feed(detector, 1L, 0, 50);
+
+        for (int i = 0; i < 50; i++, t += MINUTE) {
+            detector.accept(2L, t, 0.0);
+        }
+        for (int i = 0; i <= 20; i++, t += MINUTE) {
+            detector.accept(1L, t, 10.1);
+        }
+
+        assertThat(events).extracting(FlowAnomalyEvent::getPompeId, FlowAnomalyEvent::getType)
+                .containsExactly(tuple(1L, FlowAnomalyEvent.Type.CAPTEUR_FIGE));
+    }
+
+    @Test
+    void reportsTheSameAnomalyOncePerCooldown() {
+        FlowAnomalyDetector detector = detector(true);
+        long t = feed(detector, 1L, 0, 100);
+
+        detector.accept(1L, t, 30.0);
+        detector.accept(1L, t + MINUTE, 30.0);
+        detector.accept(1L, t + COOLDOWN, 30.0);
+
+        assertThat(events).hasSize(2);
+    }
+
+    @Test
+    void keepsBaselinesWhenTheTableGrows() {
+        FlowAnomalyDetector detector = detector(true);
+        long t = 0;
+        for (int i = 0; i < 40; i++, t += MINUTE) {
+            for (long pompeId = 1; pompeId <= 1_000; pompeId++) {
+                detector.accept(pompeId, t, i % 2 == 0 ? 10.0 : 10.2);
+            }
+        }
+
+        detector.accept(777L, t, 30.0);
+
+        assertThat(events).extracting(FlowAnomalyEvent::getPompeId).containsExactly(777L);
+    }
+
+    @Test
+    void ignoresEverythingWhenDisabled() {
+        FlowAnomalyDetector detector = detector(false);
+        long t = feed(detector, 1L, 0, 100);
+
+        detector.accept(1L, t, 1_000.0);
+
+        assertThat(events).isEmpty();
+    }
+
+    /**
+     * Série stable autour de 10 m³/h (alternance 10.0 / 10.2), une mesure par minute.
+     *
+     * @return L'horodatage suivant la dernière mesure
+     */
+    private static long feed(FlowAnomalyDetector detector, long pompeId, long from, int readings) {
+        long t = from;
+        for (int i = 0; i < readings; i++, t += MINUTE) {
+            detector.accept(pompeId, t, i % 2 == 0 ? 10.0 : 10.2);
+        }
+        return t;
+    }
+}
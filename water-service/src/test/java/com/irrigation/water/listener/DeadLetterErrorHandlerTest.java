@@ -0,0 +1,58 @@
+package com.irrigation.water.listener;
+
+import com.irrigation.water.config.RabbitMQConfig;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.ListenerExecutionFailedException;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class DeadLetterErrorHandlerTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final DeadLetterErrorHandler handler = new DeadLetterErrorHandler(rabbitTemplate);
+
+    @Test
+    void copiesUnreadableMessagesToTheDeadLetterQueueThenRejectsThem() {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue("overconsumption.queue.2");
+        Message message = new Message(new byte[]{0x0a}, properties);
+        ListenerExecutionFailedException failure = new ListenerExecutionFailedException("Listener failed",
+                new MessageConversionException("Unsupported overconsumption schema version 3 (max 1)"), message);
+
+        assertThatThrownBy(() -> handler.handleError(failure))
+                .isInstanceOf(AmqpRejectAndDontRequeueException.class);
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq(RabbitMQConfig.EXCHANGE), eq(RabbitMQConfig.DEAD_LETTER_ROUTING_KEY), sent.capture());
+        assertThat(sent.getValue().getBody()).containsExactly(0x0a);
+        assertThat((Object) sent.getValue().getMessageProperties().getHeader(DeadLetterErrorHandler.ORIGINAL_QUEUE_HEADER))
+                .isEqualTo("overconsumption.queue.2");
+        assertThat((Object) sent.getValue().getMessageProperties().getHeader(DeadLetterErrorHandler.EXCEPTION_HEADER))
+                .asString().contains("schema version 3");
+    }
+
+    @Test
+    void leavesTransientFailuresToBeRequeued() {
+        Message message = new Message(new byte[0], new MessageProperties());
+        ListenerExecutionFailedException failure = new ListenerExecutionFailedException("Listener failed",
+                new IllegalStateException("database unavailable"), message);
+
+        assertThatCode(() -> handler.handleError(failure)).doesNotThrowAnyException();
+
+        verify(rabbitTemplate, never()).send(anyString(), anyString(), any(Message.class));
+    }
+}
@@ -0,0 +1,43 @@
+package com.irrigation.water.listener;
+
+import com.irrigation.events.OverconsumptionEvent;
+import com.irrigation.water.accounting.ReservoirPriorityIndex;
+import com.irrigation.water.accounting.ReservoirPriorityIndex.ReservoirFill;
+import com.irrigation.water.service.PlanificationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OverconsumptionListenerTest {
+
+    private final ReservoirPriorityIndex priorityIndex = mock(ReservoirPriorityIndex.class);
+    private final PlanificationService planificationService = mock(PlanificationService.class);
+    private final OverconsumptionListener listener = new OverconsumptionListener(
+            priorityIndex, planificationService, mock(RestTemplate.class), 0.3);
+
+    @Test
+    void criticalReservoirsAreServedFirstWhenThePumpIsReplanned() {
+        when(priorityIndex.below(0.3)).thenReturn(List.of(
+                new ReservoirFill(20L, 0.05), new ReservoirFill(10L, 0.2)));
+
+        listener.handleOverconsumption(new OverconsumptionEvent(7L, 120.0, 100.0, LocalDateTime.now()));
+
+        verify(planificationService).onOverconsumption(7L, Set.of(20L, 10L));
+    }
+
+    @Test
+    void withoutCriticalReservoirsThePlanKeepsItsOrder() {
+        when(priorityIndex.below(0.3)).thenReturn(List.of());
+
+        listener.handleOverconsumption(new OverconsumptionEvent(7L, 120.0, 100.0, LocalDateTime.now()));
+
+        verify(planificationService).onOverconsumption(7L, Set.of());
+    }
+}
@@ -0,0 +1,59 @@
+package com.irrigation.water.listener;
+
+import com.irrigation.events.OverconsumptionEvent;
+import com.irrigation.events.codec.EventFormat;
+import com.irrigation.events.codec.EventMessageConverter;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class OverconsumptionShardListenersTest {
+
+    private final OverconsumptionListener handler = mock(OverconsumptionListener.class);
+    private final RabbitListenerEndpointRegistrar registrar = mock(RabbitListenerEndpointRegistrar.class);
+
+    @Test
+    void drainsTheLegacyQueueWithTheShardHandler() {
+        new OverconsumptionShardListeners(handler, new EventMessageConverter(EventFormat.CBOR), 2, true)
+                .configureRabbitListeners(registrar);
+
+        List<SimpleRabbitListenerEndpoint> endpoints = registered(3);
+        assertThat(endpoints).extracting(endpoint -> endpoint.getQueueNames().iterator().next())
+                .containsExactly("overconsumption.queue.0", "overconsumption.queue.1", "overconsumption.queue");
+
+        // Message resté dans l'ancienne queue, publié en JSON avant le sharding
+        Message legacy = new Jackson2JsonMessageConverter()
+                .toMessage(new OverconsumptionEvent(7L, 180.0, 150.0, null), new MessageProperties());
+        endpoints.get(2).getMessageListener().onMessage(legacy);
+
+        verify(handler).handleOverconsumption(argThat(event -> event.getPompeId() == 7L));
+    }
+
+    @Test
+    void stopsDrainingOnceTheMigrationIsDone() {
+        new OverconsumptionShardListeners(handler, new EventMessageConverter(EventFormat.CBOR), 2, false)
+                .configureRabbitListeners(registrar);
+
+        assertThat(registered(2)).extracting(endpoint -> endpoint.getQueueNames().iterator().next())
+                .doesNotContain("overconsumption.queue");
+    }
+
+    private List<SimpleRabbitListenerEndpoint> registered(int count) {
+        ArgumentCaptor<RabbitListenerEndpoint> captor = ArgumentCaptor.forClass(RabbitListenerEndpoint.class);
+        verify(registrar, times(count)).registerEndpoint(captor.capture());
+        return captor.getAllValues().stream().map(SimpleRabbitListenerEndpoint.class::cast).toList();
+    }
+}
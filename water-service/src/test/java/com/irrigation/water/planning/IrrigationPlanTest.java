@@ -0,0 +1,154 @@
+package com.irrigation.water.planning;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class IrrigationPlanTest {
+
+    @Test
+    void servesTheMostEfficientDemandFirstUnderThePowerCap() {
+        // Même débit : la pompe de 10 kW délivre deux fois plus par kW que celle de 20 kW
+        Map<Long, PompeCapacite> pompes = Map.of(
+                1L, new PompeCapacite(1, 20, false),
+                2L, new PompeCapacite(2, 10, false));
+        List<Demande> demandes = List.of(
+                new Demande(1, 1, 100, 40, 40),
+                new Demande(2, 2, 100, 40, 40));
+
+        IrrigationPlan plan = IrrigationPlan.build(demandes, pompes, Map.of(100L, 1000.0), 25, 2, 1.0);
+
+        // Créneau 0 : seule la plus efficace tient sous 25 kW ; créneau 1 : l'autre
+        assertThat(plan.getActivations(0)).extracting(Activation::demandeId).containsExactly(2L);
+        assertThat(plan.getActivations(1)).extracting(Activation::demandeId).containsExactly(1L);
+        assertThat(plan.getVolumesNonPlanifies()).isEmpty();
+    }
+
+    @Test
+    void blocksRestrictedUnknownAndOversizedPumps() {
+        Map<Long, PompeCapacite> pompes = Map.of(
+                1L, new PompeCapacite(1, 10, true),
+                2L, new PompeCapacite(2, 500, false),
+                3L, new PompeCapacite(3, 10, false));
+        List<Demande> demandes = List.of(
+                new Demande(1, 1, 100, 10, 10),
+                new Demande(2, 2, 100, 10, 10),
+                new Demande(3, 3, 100, 10, 10),
+                new Demande(4, 4, 100, 10, 10));
+
+        IrrigationPlan plan = IrrigationPlan.build(demandes, pompes, Map.of(100L, 1000.0), 100, 4, 1.0);
+
+        assertThat(plan.getDemandesBloquees()).containsExactlyInAnyOrder(1L, 2L, 4L);
+        assertThat(plan.getVolumePlanifie()).isCloseTo(10, within(1e-9));
+    }
+
+    @Test
+    void neverDrawsMoreThanTheReservoirHolds() {
+        Map<Long, PompeCapacite> pompes = Map.of(
+                1L, new PompeCapacite(1, 10, false),
+                2L, new PompeCapacite(2, 10, false));
+        List<Demande> demandes = List.of(
+                new Demande(1, 1, 100, 50, 10),
+                new Demande(2, 2, 100, 50, 10));
+
+        IrrigationPlan plan = IrrigationPlan.build(demandes, pompes, Map.of(100L, 35.0), 100, 10, 1.0);
+
+        assertThat(plan.getVolumePlanifie()).isCloseTo(35, within(1e-9));
+        assertThat(plan.getVolumesNonPlanifies().values().stream().mapToDouble(Double::doubleValue).sum())
+                .isCloseTo(65, within(1e-9));
+    }
+
+    @Test
+    void excludingAPumpFreesItsFutureSlotsForWaitingDemands() {
+        Map<Long, PompeCapacite> pompes = Map.of(
+                1L, new PompeCapacite(1, 10, false),
+                2L, new PompeCapacite(2, 10, false));
+        List<Demande> demandes = List.of(
+                new Demande(1, 1, 100, 40, 10),
+                new Demande(2, 2, 100, 40, 10));
+        // Une seule pompe à la fois : la demande 1 (plus ancienne) occupe les créneaux 0-3
+        IrrigationPlan plan = IrrigationPlan.build(demandes, pompes, Map.of(100L, 1000.0), 10, 6, 1.0);
+        assertThat(plan.getActivations(2)).extracting(Activation::pompeId).containsExactly(1L);
+        assertThat(plan.getVolumesNonPlanifies()).containsEntry(2L, 20.0);
+
+        int retirees = plan.excludePompe(1, 2);
+
+        assertThat(retirees).isEqualTo(2);
+        // Le passé du plan n'est pas remis en cause
+        assertThat(plan.getActivations(0)).extracting(Activation::pompeId).containsExactly(1L);
+        assertThat(plan.getActivations(1)).extracting(Activation::pompeId).containsExactly(1L);
+        // La puissance libérée va à la demande en attente
+        assertThat(plan.getActivations(2)).extracting(Activation::pompeId).containsExactly(2L);
+        assertThat(plan.getActivations(3)).extracting(Activation::pompeId).containsExactly(2L);
+        assertThat(plan.getVolumesNonPlanifies()).containsOnlyKeys(1L).containsEntry(1L, 20.0);
+        assertThat(plan.getDemandesBloquees()).containsExactly(1L);
+    }
+
+    @Test
+    void freedPowerGoesToCriticalReservoirsFirst() {
+        Map<Long, PompeCapacite> pompes = Map.of(
+                1L, new PompeCapacite(1, 10, false),
+                2L, new PompeCapacite(2, 10, false),
+                3L, new PompeCapacite(3, 10, false));
+        List<Demande> demandes = List.of(
+                new Demande(1, 1, 100, 40, 10),
+                new Demande(2, 2, 100, 20, 10),
+                // Moins efficace, mais alimentée par le réservoir critique 200
+                new Demande(3, 3, 200, 20, 5));
+        Map<Long, Double> reservoirs = Map.of(100L, 1000.0, 200L, 1000.0);
+        // Une pompe à la fois : demande 1 sur les créneaux 0-3, demande 2 à moitié servie au créneau 4
+        IrrigationPlan sansPriorite = IrrigationPlan.build(demandes, pompes, reservoirs, 10, 5, 1.0);
+        IrrigationPlan avecPriorite = IrrigationPlan.build(demandes, pompes, reservoirs, 10, 5, 1.0);
+
+        sansPriorite.excludePompe(1, 2);
+        avecPriorite.excludePompe(1, 2, Set.of(200L));
+
+        assertThat(sansPriorite.getActivations(2)).extracting(Activation::pompeId).containsExactly(2L);
+        assertThat(avecPriorite.getActivations(2)).extracting(Activation::pompeId).containsExactly(3L);
+        assertThat(avecPriorite.getActivations(3)).extracting(Activation::pompeId).containsExactly(3L);
+    }
+
+    @Test
+    void randomFleetRespectsCapPumpAndReservoirConstraints() {
+        SplittableRandom random = new SplittableRandom(7);
+        Map<Long, PompeCapacite> pompes = new HashMap<>();
+        List<Demande> demandes = new ArrayList<>();
+        Map<Long, Double> reservoirs = new HashMap<>();
+        for (long id = 1; id <= 300; id++) {
+            pompes.put(id, new PompeCapacite(id, 5 + random.nextInt(71), random.nextInt(20) == 0));
+            long reservoirId = 1 + id / 50;
+            reservoirs.putIfAbsent(reservoirId, 2_000.0 + random.nextInt(5_000));
+            demandes.add(new Demande(id, id, reservoirId, 100 + random.nextInt(900), 20 + random.nextInt(80)));
+        }
+        double puissanceMax = 1_500;
+        IrrigationPlan plan = IrrigationPlan.build(demandes, pompes, reservoirs, puissanceMax, 48, 0.25);
+        for (long id = 1; id <= 300; id += 37) {
+            plan.excludePompe(id, 12);
+        }
+
+        Map<Long, Double> tires = new HashMap<>();
+        for (int s = 0; s < plan.getNombreCreneaux(); s++) {
+            double puissance = 0;
+            Set<Long> pompesDuCreneau = new HashSet<>();
+            for (Activation activation : plan.getActivations(s)) {
+                puissance += activation.puissance();
+                assertThat(pompesDuCreneau.add(activation.pompeId())).isTrue();
+                assertThat(pompes.get(activation.pompeId()).restreinte()).isFalse();
+                tires.merge(activation.reservoirId(), activation.volume(), Double::sum);
+            }
+            assertThat(puissance).isLessThanOrEqualTo(puissanceMax + 1e-6)
+                    .isCloseTo(plan.getPuissanceUtilisee(s), within(1e-6));
+        }
+        tires.forEach((reservoirId, volume) ->
+                assertThat(volume).isLessThanOrEqualTo(reservoirs.get(reservoirId) + 1e-6));
+    }
+}
@@ -0,0 +1,74 @@
+package com.irrigation.water.planning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Mesure le temps de planification en fonction de la taille du parc.
+ *
+ * Flotte synthétique (puissances 5-75 kW, une demande par pompe, un réservoir pour
+ * 50 pompes), plan complet puis replanification incrémentale après la restriction
+ * de 1 % des pompes (temps moyen par événement). Lancé par scripts/planning-benchmark.sh, sans contexte Spring.
+ *
+ * Usage : PlanningBenchmark [taille du parc...]
+ */
+public final class PlanningBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    private PlanningBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int[] tailles = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[]{100, 1_000, 5_000, 10_000, 20_000};
+
+        System.out.printf("%10s %10s %14s %16s %12s%n", "pompes", "creneaux", "plan (ms)", "replan/evt (ms)", "volume");
+        for (int taille : tailles) {
+            run(taille, 96, 0.25);
+        }
+    }
+
+    private static void run(int taille, int creneaux, double heuresParCreneau) {
+        SplittableRandom random = new SplittableRandom(42);
+        Map<Long, PompeCapacite> pompes = new HashMap<>();
+        List<Demande> demandes = new ArrayList<>(taille);
+        Map<Long, Double> reservoirs = new HashMap<>();
+        for (long id = 1; id <= taille; id++) {
+            pompes.put(id, new PompeCapacite(id, 5 + random.nextInt(71), false));
+            long reservoirId = 1 + id / 50;
+            reservoirs.putIfAbsent(reservoirId, 50_000.0 + random.nextInt(50_000));
+            demandes.add(new Demande(id, id, reservoirId, 100 + random.nextInt(900), 20 + random.nextInt(80)));
+        }
+        // Plafond proportionnel au parc : environ un quart des pompes peut tourner en même temps
+        double puissanceMax = taille * 10.0;
+
+        int restrictions = (taille + 99) / 100;
+        long planNanos = 0;
+        long replanNanos = 0;
+        double volume = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            IrrigationPlan plan = IrrigationPlan.build(demandes, pompes, reservoirs, puissanceMax,
+                    creneaux, heuresParCreneau);
+            long built = System.nanoTime();
+            for (long id = 1; id <= taille; id += 100) {
+                plan.excludePompe(id, creneaux / 4);
+            }
+            long replanned = System.nanoTime();
+            if (round >= WARMUP_ROUNDS) {
+                planNanos += built - start;
+                replanNanos += replanned - built;
+                volume = plan.getVolumePlanifie();
+            }
+        }
+        System.out.printf("%10d %10d %14.2f %16.3f %12.0f%n", taille, creneaux,
+                planNanos / 1e6 / MEASURED_ROUNDS, replanNanos / 1e6 / MEASURED_ROUNDS / restrictions, volume);
+    }
+}
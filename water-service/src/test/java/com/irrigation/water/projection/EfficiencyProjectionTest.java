@@ -0,0 +1,130 @@
+package com.irrigation.water.projection;
+
+import com.irrigation.events.MeasurementRecordedEvent;
+import com.irrigation.events.MeasurementRecordedEvent.Grandeur;
+import com.irrigation.water.dto.EfficaciteHoraireDTO;
+import com.irrigation.water.dto.EfficacitePompeDTO;
+import com.irrigation.water.entity.EfficaciteHoraire;
+import com.irrigation.water.entity.EvenementTraite;
+import com.irrigation.water.repository.EfficaciteHoraireRepository;
+import com.irrigation.water.repository.EvenementTraiteRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EfficiencyProjectionTest {
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EfficiencyProjection projection;
+    private EfficiencyProjection autreInstance;
+    private final LocalDateTime heure = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(2);
+
+    @BeforeEach
+    void setUp() {
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        factoryBean.setManagedTypes(PersistenceManagedTypes.of(
+                EfficaciteHoraire.class.getName(), EvenementTraite.class.getName()));
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "create-drop"));
+        factoryBean.afterPropertiesSet();
+        EntityManagerFactory emf = factoryBean.getObject();
+
+        projection = newInstance(emf);
+        autreInstance = newInstance(emf);
+    }
+
+    @AfterEach
+    void tearDown() {
+        factoryBean.destroy();
+    }
+
+    @Test
+    void redeliveredMessageIsCountedOnce() {
+        projection.apply(event(1L, Grandeur.ENERGIE, 12.0), "msg-1");
+        projection.apply(event(1L, Grandeur.ENERGIE, 12.0), "msg-1");
+        autreInstance.apply(event(1L, Grandeur.ENERGIE, 12.0), "msg-1");
+
+        assertThat(projection.findByPompe(1L)).get()
+                .extracting(EfficacitePompeDTO::getEnergieKwh).isEqualTo(12.0);
+    }
+
+    @Test
+    void deltasAppliedByEveryInstanceAreSummed() {
+        // La queue est partagée : chaque instance ne reçoit qu'une partie des deltas
+        projection.apply(event(1L, Grandeur.ENERGIE, 30.0), "msg-1");
+        autreInstance.apply(event(1L, Grandeur.ENERGIE, 10.0), "msg-2");
+        autreInstance.apply(event(1L, Grandeur.VOLUME, 20.0), "msg-3");
+
+        for (EfficiencyProjection instance : List.of(projection, autreInstance)) {
+            EfficacitePompeDTO efficacite = instance.findByPompe(1L).orElseThrow();
+            assertThat(efficacite.getEnergieKwh()).isEqualTo(40.0);
+            assertThat(efficacite.getVolumeM3()).isEqualTo(20.0);
+            assertThat(efficacite.getKwhParM3()).isEqualTo(2.0);
+            assertThat(efficacite.getDerniereHeure()).isEqualTo(heure);
+        }
+        List<EfficaciteHoraireDTO> horaire = projection.findHoraire(1L, heure, heure);
+        assertThat(horaire).hasSize(1);
+        assertThat(horaire.get(0).getMesuresEnergie()).isEqualTo(2L);
+        assertThat(horaire.get(0).getMesuresVolume()).isEqualTo(1L);
+    }
+
+    @Test
+    void findAllListsLeastEfficientFirstAndPumpsWithoutVolumeLast() {
+        projection.apply(event(1L, Grandeur.ENERGIE, 10.0), "msg-1");
+        projection.apply(event(1L, Grandeur.VOLUME, 10.0), "msg-2");
+        projection.apply(event(2L, Grandeur.ENERGIE, 50.0), "msg-3");
+        projection.apply(event(2L, Grandeur.VOLUME, 10.0), "msg-4");
+        projection.apply(event(3L, Grandeur.ENERGIE, 5.0), "msg-5");
+
+        assertThat(projection.findAll()).extracting(EfficacitePompeDTO::getPompeId).containsExactly(2L, 1L, 3L);
+        assertThat(projection.findByPompe(3L).orElseThrow().getKwhParM3()).isNull();
+    }
+
+    @Test
+    void eventsOutsideTheWindowAreIgnored() {
+        MeasurementRecordedEvent ancien = event(1L, Grandeur.ENERGIE, 10.0);
+        ancien.setHeure(heure.minusHours(200));
+
+        projection.apply(ancien, "msg-1");
+
+        assertThat(projection.findByPompe(1L)).isEmpty();
+    }
+
+    @Test
+    void eventsWithoutMessageIdAreStillApplied() {
+        projection.apply(event(1L, Grandeur.VOLUME, 4.0), null);
+        projection.apply(event(1L, Grandeur.VOLUME, 4.0), null);
+
+        assertThat(projection.findByPompe(1L).orElseThrow().getVolumeM3()).isEqualTo(8.0);
+    }
+
+    private EfficiencyProjection newInstance(EntityManagerFactory emf) {
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(emf);
+        JpaRepositoryFactory repositories = new JpaRepositoryFactory(entityManager);
+        return new EfficiencyProjection(repositories.getRepository(EfficaciteHoraireRepository.class),
+                repositories.getRepository(EvenementTraiteRepository.class),
+                new JpaTransactionManager(emf), 168);
+    }
+
+    private MeasurementRecordedEvent event(Long pompeId, Grandeur grandeur, double valeur) {
+        return new MeasurementRecordedEvent(grandeur, pompeId, heure.plusMinutes(15), valeur, 1L);
+    }
+}
@@ -0,0 +1,109 @@
+package com.irrigation.water.service;
+
+import com.irrigation.water.accounting.ReservoirAccounting;
+import com.irrigation.water.client.EnergyServiceClient;
+import com.irrigation.water.dto.DemandeIrrigationDTO;
+import com.irrigation.water.dto.PlanIrrigationDTO;
+import com.irrigation.water.entity.DemandeIrrigation;
+import com.irrigation.water.repository.DemandeIrrigationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PlanificationServiceTest {
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private PlanificationService planification;
+    private PlanificationService autreInstance;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        factoryBean.setManagedTypes(PersistenceManagedTypes.of(DemandeIrrigation.class.getName()));
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "create-drop"));
+        factoryBean.afterPropertiesSet();
+        transactionTemplate = new TransactionTemplate(new JpaTransactionManager(factoryBean.getObject()));
+        DemandeIrrigationRepository repository = new JpaRepositoryFactory(
+                SharedEntityManagerCreator.createSharedEntityManager(factoryBean.getObject()))
+                .getRepository(DemandeIrrigationRepository.class);
+
+        EnergyServiceClient energyServiceClient = mock(EnergyServiceClient.class);
+        when(energyServiceClient.getPompes()).thenReturn(List.of(
+                Map.of("id", 1L, "puissance", 50.0, "statut", "ACTIVE", "energyStatus", "Normal")));
+        ReservoirAccounting reservoirAccounting = mock(ReservoirAccounting.class);
+        when(reservoirAccounting.availableVolumes()).thenReturn(Map.of(10L, 1000.0));
+
+        planification = new PlanificationService(repository, energyServiceClient, reservoirAccounting, 100.0, 15, 2);
+        autreInstance = new PlanificationService(repository, energyServiceClient, reservoirAccounting, 100.0, 15, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        factoryBean.destroy();
+    }
+
+    @Test
+    void demandesAreSharedByEveryInstance() {
+        DemandeIrrigationDTO creee = inTransaction(() -> planification.createDemande(demande(40.0)));
+
+        assertThat(autreInstance.getAllDemandes()).extracting(DemandeIrrigationDTO::getId).containsExactly(creee.getId());
+        PlanIrrigationDTO plan = autreInstance.planifier();
+        assertThat(plan.getVolumePlanifie()).isEqualTo(40.0);
+
+        inTransaction(() -> {
+            autreInstance.deleteDemande(creee.getId());
+            return null;
+        });
+        assertThat(planification.getAllDemandes()).isEmpty();
+        assertThatThrownBy(() -> planification.deleteDemande(creee.getId())).hasMessageContaining("not found");
+    }
+
+    @Test
+    void replanningKeepsThePlanStart() {
+        inTransaction(() -> planification.createDemande(demande(200.0)));
+        PlanIrrigationDTO plan = planification.planifier();
+
+        planification.onOverconsumption(1L, Set.of());
+
+        PlanIrrigationDTO courant = planification.getPlanCourant();
+        assertThat(courant.getDebut()).isEqualTo(plan.getDebut());
+        assertThat(courant.getVolumePlanifie()).isZero();
+        assertThat(courant.getDemandesBloquees()).hasSize(1);
+    }
+
+    // Les repositories Spring Data ouvrent leur propre transaction ; pas ceux créés à la main
+    private <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    private static DemandeIrrigationDTO demande(double volume) {
+        DemandeIrrigationDTO dto = new DemandeIrrigationDTO();
+        dto.setPompeId(1L);
+        dto.setReservoirId(10L);
+        dto.setVolume(volume);
+        dto.setDebit(80.0);
+        return dto;
+    }
+}
@@ -0,0 +1,135 @@
+package com.irrigation.water.service;
+
+import com.irrigation.water.accounting.ReservoirAccounting;
+import com.irrigation.water.accounting.ReservoirPriorityIndex;
+import com.irrigation.water.dto.ReservoirDTO;
+import com.irrigation.water.entity.Reservoir;
+import com.irrigation.water.repository.ReservoirRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Deux instances sur la même base, chacune avec son propre cache de second niveau.
+ */
+class ReservoirServiceTest {
+
+    private final String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+    private Instance instance;
+    private Instance autreInstance;
+
+    @BeforeEach
+    void setUp() {
+        instance = new Instance("create-drop");
+        autreInstance = new Instance("none");
+    }
+
+    @AfterEach
+    void tearDown() {
+        autreInstance.close();
+        instance.close();
+    }
+
+    @Test
+    void staleCacheEntryCannotOverwriteANewerRow() {
+        Long id = instance.inTransaction(() -> instance.service.createReservoir(dto("Nord", 1000.0)).getId());
+        instance.inTransaction(() -> instance.repository.findById(id).orElseThrow());
+
+        autreInstance.inTransaction(() -> autreInstance.service.updateReservoir(id, dto("Nord", 1500.0)));
+
+        Reservoir perimee = instance.inTransaction(() -> instance.repository.findById(id).orElseThrow());
+        assertThat(perimee.getCapaciteTotale()).isEqualTo(1000.0);
+        perimee.setLocalisation("Zone B");
+        assertThatThrownBy(() -> instance.inTransaction(() -> instance.repository.save(perimee)))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(autreInstance.service.getReservoirById(id).getCapaciteTotale()).isEqualTo(1500.0);
+    }
+
+    @Test
+    void writesStartFromTheRowNotFromTheCache() {
+        Long id = instance.inTransaction(() -> instance.service.createReservoir(dto("Nord", 1000.0)).getId());
+        instance.inTransaction(() -> instance.repository.findById(id).orElseThrow());
+
+        autreInstance.inTransaction(() -> autreInstance.service.updateReservoir(id, dto("Nord", 1500.0)));
+        instance.inTransaction(() -> instance.service.updateReservoir(id, dto("Nord", 2000.0)));
+
+        Reservoir stored = autreInstance.inTransaction(() -> autreInstance.repository.findForUpdate(id).orElseThrow());
+        assertThat(stored.getCapaciteTotale()).isEqualTo(2000.0);
+        assertThat(stored.getVersion()).isEqualTo(2L);
+    }
+
+    private static ReservoirDTO dto(String nom, double capacite) {
+        ReservoirDTO dto = new ReservoirDTO();
+        dto.setNom(nom);
+        dto.setCapaciteTotale(capacite);
+        dto.setVolumeActuel(500.0);
+        dto.setLocalisation("Zone A");
+        return dto;
+    }
+
+    private class Instance {
+
+        private final CacheManager cacheManager;
+        private final LocalContainerEntityManagerFactoryBean factoryBean;
+        private final TransactionTemplate transactionTemplate;
+        private final ReservoirRepository repository;
+        private final ReservoirService service;
+
+        Instance(String ddl) {
+            // Un gestionnaire de cache par instance, comme dans deux JVM distinctes
+            CachingProvider provider = Caching.getCachingProvider("org.ehcache.jsr107.EhcacheCachingProvider");
+            cacheManager = provider.getCacheManager(provider.getDefaultURI(),
+                    new URLClassLoader(new URL[0], getClass().getClassLoader()));
+            factoryBean = new LocalContainerEntityManagerFactoryBean();
+            factoryBean.setDataSource(new DriverManagerDataSource(url));
+            factoryBean.setManagedTypes(PersistenceManagedTypes.of(Reservoir.class.getName()));
+            factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+            factoryBean.setJpaPropertyMap(Map.of(
+                    "hibernate.hbm2ddl.auto", ddl,
+                    "hibernate.cache.use_second_level_cache", "true",
+                    "hibernate.cache.region.factory_class", "jcache",
+                    "hibernate.javax.cache.cache_manager", cacheManager,
+                    "hibernate.javax.cache.missing_cache_strategy", "create"));
+            factoryBean.afterPropertiesSet();
+            EntityManagerFactory emf = factoryBean.getObject();
+            transactionTemplate = new TransactionTemplate(new JpaTransactionManager(emf));
+
+            repository = new JpaRepositoryFactory(SharedEntityManagerCreator.createSharedEntityManager(emf))
+                    .getRepository(ReservoirRepository.class);
+            service = new ReservoirService(repository, mock(ReservoirAccounting.class),
+                    mock(ReservoirPriorityIndex.class));
+        }
+
+        <T> T inTransaction(Supplier<T> action) {
+            return transactionTemplate.execute(status -> action.get());
+        }
+
+        void close() {
+            factoryBean.destroy();
+            cacheManager.close();
+        }
+    }
+}